@@ -4,15 +4,17 @@ package com.timlummer.Ex1;
 
 import net.finmath.functions.AnalyticFormulas;
 import net.finmath.functions.NormalDistribution;
-import net.finmath.montecarlo.BrownianMotion;
 import net.finmath.montecarlo.BrownianMotionInterface;
 import net.finmath.montecarlo.CorrelatedBrownianMotion;
+import net.finmath.montecarlo.RandomVariableFactory;
 import net.finmath.montecarlo.RandomVariable;
 import net.finmath.stochastic.RandomVariableInterface;
 import net.finmath.time.TimeDiscretization;
 
 import java.text.DecimalFormat;
 
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+
 import org.apache.commons.math3.random.MersenneTwister;
 
 
@@ -86,11 +88,15 @@ import org.apache.commons.math3.random.MersenneTwister;
 		double[][] correlationMatrix={{1.0 , 0},  {correlation, Math.sqrt(1.0-correlation*correlation)}   };
 		
 		
-		BrownianMotionInterface correlatedBrownianMotion= new CorrelatedBrownianMotion( new BrownianMotion(   //the correlated brownian motion inputs a whole brownian motion and a correlation matrix         
+		// Generator of the Brownian increments, e.g. -DbrownianMotion=PARALLEL
+		BrownianMotionGenerator brownianMotionGenerator = BrownianMotionGenerator.fromSystemProperty();
+		
+		BrownianMotionInterface correlatedBrownianMotion= new CorrelatedBrownianMotion( brownianMotionGenerator.createBrownianMotion(   //the correlated brownian motion inputs a whole brownian motion and a correlation matrix         
 				times,    //brownian motion object created inside the constructor. Can be done.
 				2,					
 				getNumberOfPaths(),
-				1234				
+				1234,
+				new RandomVariableFactory()
 				),    correlationMatrix     );
 		
 		geometricBivariateProcess[0][0]=new RandomVariable(0.0, initialValue);  //initialise first random varible as a constant
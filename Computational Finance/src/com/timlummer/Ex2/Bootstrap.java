@@ -58,6 +58,72 @@ public class Bootstrap {
 	}
 	
 	
+	/**
+	 * Bootstraps the discount factors at the LIBOR dates and the swap dates, as in <code>main</code>: the LIBOR rates give
+	 * P(T) = 1 / (1 + T L), the swap rates (paying every <code>deltaSwaps</code>, in increasing order) are solved with
+	 * <code>bootstrapZeroCouponfromLIBOR</code> using the discount factors of the previous coupon dates.
+	 *
+	 * @param liborDates The maturities of the LIBOR rates.
+	 * @param liborRates The LIBOR rates.
+	 * @param swapDates The maturities of the swaps.
+	 * @param swapRates The swap rates.
+	 * @param deltaSwaps The period length of the swaps.
+	 * @return The discount factors at the LIBOR dates followed by the swap dates.
+	 */
+	public static double[] bootstrapDiscountFactors(double[] liborDates, double[] liborRates, double[] swapDates, double[] swapRates, double deltaSwaps) {
+		
+		double[] times = new double[liborDates.length + swapDates.length];
+		double[] discountFactors = new double[times.length];
+		
+		for (int i=0; i<liborDates.length; i++) {
+			times[i] = liborDates[i];
+			discountFactors[i] = 1 /(1 +  liborDates[i] * liborRates[i]);
+		}
+		
+		for (int i=0; i<swapDates.length; i++) {
+			int numberOfKnownTimes = liborDates.length + i;
+			double[] timesKnown = Arrays.copyOf(times, numberOfKnownTimes);
+			double[] discountFactorsKnown = Arrays.copyOf(discountFactors, numberOfKnownTimes);
+			
+			// Discount factors of the coupon dates before the swap maturity
+			int numberOfCoupons = (int)Math.round(swapDates[i] / deltaSwaps);
+			double[] zeroCoupon = new double[numberOfCoupons-1];
+			Arrays.setAll(zeroCoupon,  j -> getDiscountFactor(timesKnown, discountFactorsKnown, (j+1) * deltaSwaps));
+			
+			times[numberOfKnownTimes] = swapDates[i];
+			discountFactors[numberOfKnownTimes] = bootstrapZeroCouponfromLIBOR(zeroCoupon, deltaSwaps, swapRates[i]);
+		}
+		
+		return discountFactors;
+	}
+	
+	
+	/**
+	 * Returns the discount factor at the given time, interpolating log-linearly (as <code>interpolateZeroCouponCurve</code>)
+	 * between the given discount factors (P(0) = 1) and extrapolating with the forward of the last period.
+	 *
+	 * @param times The increasing times of the discount factors.
+	 * @param discountFactors The discount factors.
+	 * @param time The time.
+	 * @return The discount factor at the given time.
+	 */
+	public static double getDiscountFactor(double[] times, double[] discountFactors, double time) {
+		
+		double timePrevious = 0.0;
+		double discountFactorPrevious = 1.0;
+		int i = 0;
+		while (i<times.length-1 && times[i] < time) {
+			timePrevious = times[i];
+			discountFactorPrevious = discountFactors[i];
+			i++;
+		}
+		
+		double weight = (time - timePrevious) / (times[i] - timePrevious);
+		return Math.exp((1-weight) * Math.log(discountFactorPrevious) + weight * Math.log(discountFactors[i]));
+		
+	}
+	
+	
 	public static double bootstrapZeroCouponfromLIBOR(double[] zeroCoupon, double deltaT, double SwapRate) {		
 		
 		double couponSum = 0.0;
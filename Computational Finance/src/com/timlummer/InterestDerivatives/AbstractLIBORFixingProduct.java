@@ -0,0 +1,111 @@
+package com.timlummer.InterestDerivatives;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.timlummer.montecarlo.ObservationDatesInterface;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Base class for products whose payoff depends on LIBOR fixings.
+ *
+ * The product declares the fixings it needs via <code>getFixings</code> (by default the fixings given by its terms,
+ * <code>getFixingDates</code>), such that a <code>LIBORFixingRegistry</code> can compute all fixings of a book once and serve
+ * them to the products. Products fetch their fixings via <code>getLIBOR</code>, which falls back
+ * to the model if no registry has been set for the given model.
+ *
+ * A product refers to at most one registry (the last one it has been registered with), which serves the product only for the
+ * model of the registry. A product may hence be valued concurrently and with other models (which are served by the model), but
+ * registering a product shared by several books with a second registry replaces the registry of the first book.
+ *
+ * The observation dates of the product are derived from its fixings (fixing times and period ends, the latter being the
+ * payment dates of the products).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public abstract class AbstractLIBORFixingProduct extends AbstractLIBORMonteCarloProduct implements ObservationDatesInterface {
+
+	private transient volatile LIBORFixingRegistry fixingRegistry;		// State of a valuation, not a term of the product
+
+	/**
+	 * Returns the LIBOR fixings required by this product in the given model. Each row is a triple
+	 * <code>{time, periodStart, periodEnd}</code> as passed to <code>getLIBOR</code> of the model.
+	 * The default returns <code>getFixingDates()</code>, products whose fixings depend on the model (e.g. on its tenor) override this method.
+	 *
+	 * @param model The model used to price the product.
+	 * @return The array of fixings.
+	 */
+	public double[][] getFixings(LIBORModelMonteCarloSimulationInterface model) {
+		return getFixingDates();
+	}
+
+	/**
+	 * Returns the LIBOR fixings of this product given by its terms, i.e., without a model (rows as in <code>getFixings</code>).
+	 *
+	 * @return The array of fixings.
+	 */
+	protected abstract double[][] getFixingDates();
+
+	/**
+	 * Returns the fixing times and the period ends of the fixings (<code>getFixingDates</code>).
+	 * Products observing the model on other dates override this method.
+	 *
+	 * @return The observation dates.
+	 */
+	@Override
+	public double[] getObservationDates() {
+		List<Double> observationDates = new ArrayList<Double>();
+		for(double[] fixing : getFixingDates()) {
+			observationDates.add(fixing[0]);
+			observationDates.add(fixing[2]);
+		}
+		return observationDates.stream().mapToDouble(Double::doubleValue).toArray();
+	}
+
+	/**
+	 * Returns the fixings <code>{fixingDate, fixingDate, paymentDate}</code> of a schedule of LIBOR periods.
+	 *
+	 * @param fixingDates The fixing dates (period starts).
+	 * @param paymentDates The payment dates (period ends, same length as fixing dates).
+	 * @return The array of fixings.
+	 */
+	protected static double[][] getFixings(double[] fixingDates, double[] paymentDates) {
+		double[][] fixings = new double[fixingDates.length][];
+		for(int periodIndex=0; periodIndex<fixingDates.length; periodIndex++) {
+			fixings[periodIndex] = new double[] { fixingDates[periodIndex], fixingDates[periodIndex], paymentDates[periodIndex] };
+		}
+		return fixings;
+	}
+
+	/**
+	 * Sets the registry serving the fixings of this product (replacing a previously set registry), see <code>LIBORFixingRegistry.register</code>.
+	 *
+	 * @param fixingRegistry The registry serving the fixings of this product (may be null).
+	 */
+	public void setFixingRegistry(LIBORFixingRegistry fixingRegistry) {
+		this.fixingRegistry = fixingRegistry;
+	}
+
+	/**
+	 * Returns the LIBOR L(periodStart, periodEnd; time), served by the registry if it belongs to the given model.
+	 *
+	 * @param model The model used to price the product.
+	 * @param time The fixing time.
+	 * @param periodStart The period start of the forward rate.
+	 * @param periodEnd The period end of the forward rate.
+	 * @return The random variable representing the LIBOR.
+	 * @throws CalculationException Thrown if the model fails to calculate the LIBOR.
+	 */
+	protected RandomVariableInterface getLIBOR(LIBORModelMonteCarloSimulationInterface model, double time, double periodStart, double periodEnd) throws CalculationException {
+		LIBORFixingRegistry registry = fixingRegistry;
+		if(registry != null && registry.getModel() == model) {
+			return registry.getLIBOR(time, periodStart, periodEnd);
+		}
+		return model.getLIBOR(time, periodStart, periodEnd);
+	}
+}
@@ -0,0 +1,238 @@
+package com.timlummer.InterestDerivatives;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.timlummer.montecarlo.ConditionalExpectationRegression;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Implements the valuation of a multi-period Bermudan (or European) payer swaption
+ * under a <code>LIBORModelMonteCarloSimulationInterface</code>.
+ *
+ * The underlying swap consists of the periods [fixingDates[i], paymentDates[i]] with swap rates swaprates[i].
+ * Exercise in <i>T<sub>e</sub></i> enters the swap consisting of all periods with <i>fixingDates[i] &ge; T<sub>e</sub></i>.
+ * The value of this swap is calculated on each path from the LIBORs observed in <i>T<sub>e</sub></i>.
+ *
+ * If only one exercise date is given, the product is a European swaption. Otherwise the exercise
+ * strategy is determined by backward induction, estimating the continuation value by a least-squares
+ * regression (<code>ConditionalExpectationRegression</code>) on powers of the numeraire relative
+ * swap value. The regressions (basis functions and factorized normal equations) are cached per exercise date
+ * for the last model used and the exercise decision is taken in a single loop over the paths from the regression parameters.
+ * The cache refers to the model weakly, such that a product kept in a book does not keep the paths of its last model alive
+ * (the cached regressions are released on the next valuation with another model).
+ *
+ * Note: Since the regression is performed on the same paths used for the valuation, the value may exhibit a small foresight bias.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BermudanSwaption extends AbstractLIBORFixingProduct {
+
+	private final double[]	exerciseDates;	// Vector of exercise dates (must be sorted)
+	private final double[]	fixingDates;	// Vector of fixing dates (must be sorted)
+	private final double[]	paymentDates;	// Vector of payment dates (same length as fixing dates)
+	private final double[]	swaprates;		// Vector of strikes (same length as fixing dates)
+	private final int		basisFunctionsOrder;
+
+	private transient WeakReference<LIBORModelMonteCarloSimulationInterface>	regressionModel;
+	private transient ConditionalExpectationRegression[]						regressionCache;
+
+	/**
+	 * Create a Bermudan swaption.
+	 *
+	 * @param exerciseDates Vector of exercise dates (must be sorted).
+	 * @param fixingDates Vector of fixing dates (must be sorted).
+	 * @param paymentDates Vector of payment dates (must have same length as fixing dates, paymentDates[i] = fixingDates[i+1]).
+	 * @param swaprates Vector of strikes (must have same length as fixing dates).
+	 * @param basisFunctionsOrder The maximum power of the swap value used as basis function in the regression.
+	 */
+	public BermudanSwaption(
+			double[]	exerciseDates,
+			double[]	fixingDates,
+			double[]	paymentDates,
+			double[]	swaprates,
+			int			basisFunctionsOrder) {
+		super();
+		if(fixingDates.length != paymentDates.length || fixingDates.length != swaprates.length) {
+			throw new IllegalArgumentException("fixingDates, paymentDates and swaprates must have the same length.");
+		}
+		for(int periodIndex=1; periodIndex<fixingDates.length; periodIndex++) {
+			if(fixingDates[periodIndex] != paymentDates[periodIndex-1]) throw new IllegalArgumentException("Swap periods must be adjacent.");
+		}
+		if(exerciseDates.length == 0 || exerciseDates[exerciseDates.length-1] > fixingDates[fixingDates.length-1]) {
+			throw new IllegalArgumentException("Exercise dates must be given and must not be after the last fixing date.");
+		}
+		this.exerciseDates			= exerciseDates;
+		this.fixingDates			= fixingDates;
+		this.paymentDates			= paymentDates;
+		this.swaprates				= swaprates;
+		this.basisFunctionsOrder	= basisFunctionsOrder;
+	}
+
+	/**
+	 * Create a Bermudan swaption using the basis functions 1, V, V<sup>2</sup> (V being the numeraire relative swap value).
+	 *
+	 * @param exerciseDates Vector of exercise dates (must be sorted).
+	 * @param fixingDates Vector of fixing dates (must be sorted).
+	 * @param paymentDates Vector of payment dates (must have same length as fixing dates, paymentDates[i] = fixingDates[i+1]).
+	 * @param swaprates Vector of strikes (must have same length as fixing dates).
+	 */
+	public BermudanSwaption(double[] exerciseDates, double[] fixingDates, double[] paymentDates, double[] swaprates) {
+		this(exerciseDates, fixingDates, paymentDates, swaprates, 2);
+	}
+
+	/**
+	 * Create a European swaption exercising into the full swap at the first fixing date.
+	 *
+	 * @param fixingDates Vector of fixing dates (must be sorted).
+	 * @param paymentDates Vector of payment dates (must have same length as fixing dates, paymentDates[i] = fixingDates[i+1]).
+	 * @param swaprates Vector of strikes (must have same length as fixing dates).
+	 */
+	public BermudanSwaption(double[] fixingDates, double[] paymentDates, double[] swaprates) {
+		this(new double[] { fixingDates[0] }, fixingDates, paymentDates, swaprates);
+	}
+
+	/**
+	 * This method returns the value random variable of the product within the specified model, evaluated at a given evalutationTime.
+	 * Note: For a lattice this is often the value conditional to evalutationTime, for a Monte-Carlo simulation this is the (sum of) value discounted to evaluation time.
+	 * Cashflows prior evaluationTime are not considered.
+	 *
+	 * @param evaluationTime The time on which this products value should be observed.
+	 * @param model The model used to price the product.
+	 * @return The random variable representing the value of the product discounted to evaluation time
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	@Override
+	public RandomVariableInterface getValue(double evaluationTime, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {
+
+		ConditionalExpectationRegression[] regressions = getRegressionCache(model);
+
+		// Numeraire relative value of the option, if not exercised prior to the current exercise date
+		RandomVariableInterface values = null;
+
+		for(int exerciseIndex = exerciseDates.length-1; exerciseIndex >= 0; exerciseIndex--) {
+			double exerciseDate = exerciseDates[exerciseIndex];
+			if(exerciseDate < evaluationTime) break;
+
+			// Numeraire relative value of the swap entered upon exercise
+			RandomVariableInterface	numeraire				= model.getNumeraire(exerciseDate);
+			RandomVariableInterface	monteCarloProbabilities	= model.getMonteCarloWeights(exerciseDate);
+			RandomVariableInterface	exerciseValue			= getSwapValue(exerciseDate, model).div(numeraire).mult(monteCarloProbabilities);
+
+			if(values == null) {
+				values = exerciseValue.floor(0.0);
+				continue;
+			}
+
+			if(regressions[exerciseIndex] == null) {
+				regressions[exerciseIndex] = ConditionalExpectationRegression.ofPolynomial(exerciseValue, basisFunctionsOrder);
+			}
+
+			values = getValueAfterExercise(exerciseValue, values, regressions[exerciseIndex]);
+		}
+
+		if(values == null) return model.getRandomVariableForConstant(0.0);
+
+		RandomVariableInterface	numeraireAtEvaluationTime				= model.getNumeraire(evaluationTime);
+		RandomVariableInterface	monteCarloProbabilitiesAtEvaluationTime	= model.getMonteCarloWeights(evaluationTime);
+		values = values.mult(numeraireAtEvaluationTime).div(monteCarloProbabilitiesAtEvaluationTime);
+
+		return values;
+	}
+
+	/**
+	 * Returns the value of the swap entered upon exercise in <code>exerciseDate</code>, observed in <code>exerciseDate</code>.
+	 *
+	 * @param exerciseDate The exercise date.
+	 * @param model The model.
+	 * @return The random variable representing the swap value (not numeraire relative).
+	 * @throws CalculationException Thrown if the model fails to calculate a LIBOR.
+	 */
+	private RandomVariableInterface getSwapValue(double exerciseDate, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {
+		int firstPeriodIndex = getFirstPeriodIndex(exerciseDate);
+
+		// Discount factor P(T_i;T_e) for the start of the first period (front stub, if the exercise date is prior to the fixing).
+		RandomVariableInterface discountFactor = model.getRandomVariableForConstant(1.0);
+		double firstFixingDate = fixingDates[firstPeriodIndex];
+		if(firstFixingDate > exerciseDate) {
+			RandomVariableInterface stubRate = getLIBOR(model, exerciseDate, exerciseDate, firstFixingDate);
+			discountFactor = discountFactor.div(stubRate.mult(firstFixingDate - exerciseDate).add(1.0));
+		}
+
+		RandomVariableInterface swapValue = model.getRandomVariableForConstant(0.0);
+		for(int periodIndex = firstPeriodIndex; periodIndex < fixingDates.length; periodIndex++) {
+			double fixingDate	= fixingDates[periodIndex];
+			double paymentDate	= paymentDates[periodIndex];
+			double periodLength	= paymentDate - fixingDate;
+
+			// Note that this is the rate at simulation time = exerciseDate
+			RandomVariableInterface libor = getLIBOR(model, exerciseDate, fixingDate, paymentDate);
+
+			// P(T_{i+1};T_e) = P(T_i;T_e) / (1 + L_i * periodLength)
+			discountFactor	= discountFactor.div(libor.mult(periodLength).add(1.0));
+			swapValue		= swapValue.add(libor.sub(swaprates[periodIndex]).mult(periodLength).mult(discountFactor));
+		}
+
+		return swapValue;
+	}
+
+	/**
+	 * Performs the exercise decision on each path: exercise if the exercise value is positive and exceeds the
+	 * regression estimate of the continuation value.
+	 */
+	private RandomVariableInterface getValueAfterExercise(RandomVariableInterface exerciseValue, RandomVariableInterface continuationValue, ConditionalExpectationRegression regression) {
+		double[] regressionParameters = regression.getRegressionParameters(continuationValue);
+
+		int numberOfPaths = Math.max(exerciseValue.size(), continuationValue.size());
+		double[] values = new double[numberOfPaths];
+		for(int path=0; path<numberOfPaths; path++) {
+			double continuationValueEstimate = regression.getValue(path, regressionParameters);
+			double exerciseValueOnPath = exerciseValue.get(path);
+			values[path] = (exerciseValueOnPath > continuationValueEstimate && exerciseValueOnPath > 0) ? exerciseValueOnPath : continuationValue.get(path);
+		}
+
+		return PathPrecision.of(exerciseValue).createRandomVariable(continuationValue.getFiltrationTime(), values);
+	}
+
+	private synchronized ConditionalExpectationRegression[] getRegressionCache(LIBORModelMonteCarloSimulationInterface model) {
+		if(regressionModel == null || regressionModel.get() != model || regressionCache == null) {
+			regressionModel	= new WeakReference<LIBORModelMonteCarloSimulationInterface>(model);
+			regressionCache	= new ConditionalExpectationRegression[exerciseDates.length];
+		}
+		return regressionCache;
+	}
+
+	private int getFirstPeriodIndex(double exerciseDate) {
+		int firstPeriodIndex = 0;
+		while(fixingDates[firstPeriodIndex] < exerciseDate) firstPeriodIndex++;
+		return firstPeriodIndex;
+	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		List<double[]> fixings = new ArrayList<double[]>();
+		for(double exerciseDate : exerciseDates) {
+			int firstPeriodIndex = getFirstPeriodIndex(exerciseDate);
+			if(fixingDates[firstPeriodIndex] > exerciseDate) {
+				fixings.add(new double[] { exerciseDate, exerciseDate, fixingDates[firstPeriodIndex] });
+			}
+			for(int periodIndex = firstPeriodIndex; periodIndex < fixingDates.length; periodIndex++) {
+				fixings.add(new double[] { exerciseDate, fixingDates[periodIndex], paymentDates[periodIndex] });
+			}
+		}
+		return fixings.toArray(new double[fixings.size()][]);
+	}
+
+	/**
+	 * @return Returns the exercise dates.
+	 */
+	public double[] getExerciseDates() {
+		return exerciseDates;
+	}
+}
@@ -0,0 +1,61 @@
+package com.timlummer.InterestDerivatives;
+
+import java.lang.ref.WeakReference;
+
+import com.timlummer.LIBOR.LIBORinArrears;
+
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+
+/**
+ * Values single and multi-period swaptions with <code>BermudanSwaption</code>: a single period European swaption compared to
+ * <code>Swaption</code>, a European swaption on the full swap compared to the Bermudan swaption exercisable on all fixing dates,
+ * the repeated valuation on the same model (cached regressions) and the release of the model by the product.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BermudanSwaptionTest {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfPaths	= 5000;
+		int numberOfFactors	= 5;
+
+		double[] fixingDates	= { 2.0, 2.5, 3.0, 3.5, 4.0, 4.5 };
+		double[] paymentDates	= { 2.5, 3.0, 3.5, 4.0, 4.5, 5.0 };
+		double[] swaprates		= { 0.05, 0.05, 0.05, 0.05, 0.05, 0.05 };
+
+		LIBORModelMonteCarloSimulationInterface model = LIBORinArrears.createLIBORMarketModel(numberOfPaths, numberOfFactors, 0.01);
+
+		// Single period: European swaption compared to the Swaption
+		double valueSwaption			= new Swaption(2.0, 2.5, 0.05).getValue(model);
+		double valueSinglePeriod		= new BermudanSwaption(new double[] { 2.0 }, new double[] { 2.5 }, new double[] { 0.05 }).getValue(model);
+		System.out.println("Single period:\tSwaption " + valueSwaption + "\tBermudanSwaption " + valueSinglePeriod);
+
+		// Full swap: European versus Bermudan
+		BermudanSwaption european	= new BermudanSwaption(fixingDates, paymentDates, swaprates);
+		BermudanSwaption bermudan	= new BermudanSwaption(fixingDates, fixingDates, paymentDates, swaprates);
+		double valueEuropean = european.getValue(model);
+
+		long nanosStart = System.nanoTime();
+		double valueBermudan = bermudan.getValue(model);
+		long nanosFirstValuation = System.nanoTime() - nanosStart;
+
+		nanosStart = System.nanoTime();
+		double valueBermudanRepeated = bermudan.getValue(model);
+		long nanosRepeatedValuation = System.nanoTime() - nanosStart;
+
+		System.out.println("Full swap:\tEuropean " + valueEuropean + "\tBermudan " + valueBermudan + " (exercise premium " + (valueBermudan - valueEuropean) + ")");
+		System.out.println("Bermudan:\tfirst valuation " + nanosFirstValuation / 1E6 + " ms\trepeated valuation (cached regressions) "
+				+ nanosRepeatedValuation / 1E6 + " ms\tdeviation " + Math.abs(valueBermudanRepeated - valueBermudan));
+
+		// The product does not keep its last model alive
+		WeakReference<LIBORModelMonteCarloSimulationInterface> modelReference = new WeakReference<LIBORModelMonteCarloSimulationInterface>(model);
+		model = null;
+		for(int attempt=0; attempt<10 && modelReference.get() != null; attempt++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		System.out.println("Model released after valuation:\t" + (modelReference.get() == null));
+	}
+}
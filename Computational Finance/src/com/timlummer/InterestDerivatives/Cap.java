@@ -6,9 +6,7 @@
 package com.timlummer.InterestDerivatives;
 
 import net.finmath.exception.CalculationException;
-import net.finmath.montecarlo.RandomVariable;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
@@ -22,7 +20,7 @@ import net.finmath.stochastic.RandomVariableInterface;
  * @author Christian Fries
  * @version 1.0
  */
-public class Cap extends AbstractLIBORMonteCarloProduct {
+public class Cap extends AbstractLIBORFixingProduct {
 	
 	private final double[]	fixingDates;					// Vector of fixing dates (must be sorted)
 	private final double[]	paymentDates;					// Vector of payment dates (same length as fixing dates)
@@ -62,7 +60,7 @@ public class Cap extends AbstractLIBORMonteCarloProduct {
     public RandomVariableInterface getValue(double evaluationTime, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {
 
     	// Allocate accumulator for values
-        RandomVariableInterface values = new RandomVariable(0.0);
+        RandomVariableInterface values = model.getRandomVariableForConstant(0.0);
 
         /*
 		 * We go forward in time and on each path we remember the number of exercises so far.
@@ -80,7 +78,7 @@ public class Cap extends AbstractLIBORMonteCarloProduct {
 			double periodLength	= paymentDate - fixingDate;
 			
 			// Get random variables
-			RandomVariableInterface	libor					= model.getLIBOR(fixingDate, fixingDate, paymentDate);
+			RandomVariableInterface	libor					= getLIBOR(model, fixingDate, fixingDate, paymentDate);
 			RandomVariableInterface	numeraire				= model.getNumeraire(paymentDate);
 			RandomVariableInterface	monteCarloProbabilities	= model.getMonteCarloWeights(model.getTimeIndex(paymentDate));
 
@@ -110,4 +108,9 @@ public class Cap extends AbstractLIBORMonteCarloProduct {
 	public double[] getStrikes() {
 		return strikes;
 	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		return getFixings(fixingDates, paymentDates);
+	}
 }
@@ -8,7 +8,6 @@ package com.timlummer.InterestDerivatives;
 import net.finmath.exception.CalculationException;
 import net.finmath.functions.AnalyticFormulas;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
@@ -17,7 +16,7 @@ import net.finmath.stochastic.RandomVariableInterface;
  * @author Christian Fries
  * @version 1.0
  */
-public class Caplet extends AbstractLIBORMonteCarloProduct {
+public class Caplet extends AbstractLIBORFixingProduct {
 
 	private final double	periodStart;
 	private final double	periodEnd;
@@ -71,7 +70,7 @@ public class Caplet extends AbstractLIBORMonteCarloProduct {
 		double	periodLength	= periodEnd-periodStart;
 				
 		// Get random variables
-		RandomVariableInterface	libor					= model.getLIBOR(periodStart, periodStart, periodEnd);
+		RandomVariableInterface	libor					= getLIBOR(model, periodStart, periodStart, periodEnd);
 		RandomVariableInterface	numeraire				= model.getNumeraire(periodEnd);
 		RandomVariableInterface	monteCarloProbabilities	= model.getMonteCarloWeights(periodEnd);
 	
@@ -93,4 +92,9 @@ public class Caplet extends AbstractLIBORMonteCarloProduct {
 
 		return values;
 	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		return new double[][] { { periodStart, periodStart, periodEnd } };
+	}
 }
@@ -0,0 +1,31 @@
+package com.timlummer.InterestDerivatives;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Interface implemented by products consisting of a sequence of cashflows, such that
+ * their value can be calculated at arbitrary simulation times (e.g. for exposure profiles)
+ * from the individual cashflows.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public interface CashflowProductInterface {
+
+	/**
+	 * @return The payment dates of the cashflows.
+	 */
+	double[] getPaymentDates();
+
+	/**
+	 * Returns the cashflow paid at <code>getPaymentDates()[periodIndex]</code> (not discounted).
+	 *
+	 * @param periodIndex The index of the cashflow.
+	 * @param model The model used to price the product.
+	 * @return The random variable representing the cashflow amount.
+	 * @throws CalculationException Thrown if the model fails to provide the required quantities.
+	 */
+	RandomVariableInterface getCashflow(int periodIndex, LIBORModelMonteCarloSimulationInterface model) throws CalculationException;
+}
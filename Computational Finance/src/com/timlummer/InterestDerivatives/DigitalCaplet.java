@@ -6,9 +6,7 @@
 package com.timlummer.InterestDerivatives;
 
 import net.finmath.exception.CalculationException;
-import net.finmath.montecarlo.RandomVariable;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
@@ -23,7 +21,7 @@ import net.finmath.stochastic.RandomVariableInterface;
  * @author Christian Fries
  * @version 1.1
  */
-public class DigitalCaplet extends AbstractLIBORMonteCarloProduct {
+public class DigitalCaplet extends AbstractLIBORFixingProduct {
 	private final double	optionMaturity;
 	private final double	periodStart;
 	private final double	periodEnd;
@@ -64,10 +62,10 @@ public class DigitalCaplet extends AbstractLIBORMonteCarloProduct {
 		double	periodLength	= periodEnd - periodStart;
 
         // Get random variables
-		RandomVariableInterface	libor		= model.getLIBOR(periodStart, periodStart, periodEnd);
+		RandomVariableInterface	libor		= getLIBOR(model, periodStart, periodStart, periodEnd);
 
 		RandomVariableInterface 			trigger		= libor.sub(strike).mult(periodLength);
-		RandomVariableInterface				values		= (new RandomVariable(1.0)).barrier(trigger, (new RandomVariable(periodLength)), (new RandomVariable(0.0)));
+		RandomVariableInterface				values		= trigger.barrier(trigger, model.getRandomVariableForConstant(periodLength), model.getRandomVariableForConstant(0.0));
 
         // Get numeraire and probabilities for payment time
 		RandomVariableInterface	numeraire					= model.getNumeraire(paymentDate);
@@ -84,5 +82,9 @@ public class DigitalCaplet extends AbstractLIBORMonteCarloProduct {
 		// Return values
 		return values;
 	}
-}
 
+	@Override
+	protected double[][] getFixingDates() {
+		return new double[][] { { periodStart, periodStart, periodEnd } };
+	}
+}
@@ -5,30 +5,45 @@
  */
 package com.timlummer.InterestDerivatives;
 
+import com.timlummer.montecarlo.PathPrecision;
+
 import net.finmath.exception.CalculationException;
-import net.finmath.montecarlo.RandomVariable;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
  * Implements the pricing of a digtal floorlet using a given <code>LIBORModelMonteCarloSimulationInterface</code>.
+ * The floorlet pays at the end of the period starting in its maturity, which is either given or the end of the LIBOR
+ * period of the model.
  * 
  * @author Christian Fries
  * @version 1.2
  */
-public class DigitalFloorlet extends AbstractLIBORMonteCarloProduct {
+public class DigitalFloorlet extends AbstractLIBORFixingProduct {
 	private double	maturity;
+	private double	periodEnd;		// NaN if the period end is the end of the LIBOR period of the model
 	private double	strike;
 		
 	/**
 	 * @param maturity The maturity given as double.
+	 * @param periodEnd The period end (payment date) given as double.
 	 * @param strike The strike given as double.
 	 */
-	public DigitalFloorlet(double maturity, double strike) {
+	public DigitalFloorlet(double maturity, double periodEnd, double strike) {
 		super();
-		this.maturity = maturity;
-		this.strike   = strike;
+		this.maturity	= maturity;
+		this.periodEnd	= periodEnd;
+		this.strike		= strike;
+	}
+
+	/**
+	 * Create a digital floorlet paying at the end of the LIBOR period (of the model) starting in its maturity.
+	 *
+	 * @param maturity The maturity given as double.
+	 * @param strike The strike given as double.
+	 */
+	public DigitalFloorlet(double maturity, double strike) {
+		this(maturity, Double.NaN, strike);
 	}
 
     /**
@@ -44,13 +59,11 @@ public class DigitalFloorlet extends AbstractLIBORMonteCarloProduct {
     @Override
     public RandomVariableInterface getValue(double evaluationTime, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {        
 
-		// This is on the Libor discretization
-		int		liborIndex		= model.getLiborPeriodIndex(maturity);
-		double	paymentDate		= model.getLiborPeriod(liborIndex+1);
+		double	paymentDate		= getPeriodEnd(model);
 		double	periodLength	= paymentDate - maturity;
 
         // Get random variables
-		RandomVariableInterface	libor						= model.getLIBOR(maturity, maturity, paymentDate);
+		RandomVariableInterface	libor						= getLIBOR(model, maturity, maturity, paymentDate);
 
         // Set up payoff on path
         double[] payoff = new double[model.getNumberOfPaths()];
@@ -73,12 +86,44 @@ public class DigitalFloorlet extends AbstractLIBORMonteCarloProduct {
 		RandomVariableInterface	numeraireAtEvaluationTime					= model.getNumeraire(evaluationTime);
 		RandomVariableInterface	monteCarloProbabilitiesAtEvaluationTime		= model.getMonteCarloWeights(evaluationTime);
 
-		RandomVariableInterface values = new RandomVariable(paymentDate, payoff);
-		values.div(numeraire).mult(monteCarloProbabilities);
-		values.div(numeraireAtEvaluationTime).mult(monteCarloProbabilitiesAtEvaluationTime);		
+		RandomVariableInterface values = PathPrecision.of(libor).createRandomVariable(paymentDate, payoff);
+		values = values.div(numeraire).mult(monteCarloProbabilities);
+		values = values.mult(numeraireAtEvaluationTime).div(monteCarloProbabilitiesAtEvaluationTime);		
 		
 		// Return values
 		return values;
 	}
-}
 
+	@Override
+	public double[][] getFixings(LIBORModelMonteCarloSimulationInterface model) {
+		return new double[][] { { maturity, maturity, getPeriodEnd(model) } };
+	}
+
+	/**
+	 * @throws IllegalStateException Thrown if the period end is the end of the LIBOR period of the model.
+	 */
+	@Override
+	protected double[][] getFixingDates() {
+		if(Double.isNaN(periodEnd)) throw new IllegalStateException("The period end of the digital floorlet is given by the model.");
+		return new double[][] { { maturity, maturity, periodEnd } };
+	}
+
+	/**
+	 * Returns the maturity and the period end. If the period end is the end of the LIBOR period of the model, only the maturity
+	 * is returned and the period end has to be added to the time discretization by the caller.
+	 *
+	 * @return The observation dates.
+	 */
+	@Override
+	public double[] getObservationDates() {
+		return Double.isNaN(periodEnd) ? new double[] { maturity } : new double[] { maturity, periodEnd };
+	}
+
+	private double getPeriodEnd(LIBORModelMonteCarloSimulationInterface model) {
+		if(!Double.isNaN(periodEnd)) return periodEnd;
+
+		// This is on the Libor discretization
+		int liborIndex = model.getLiborPeriodIndex(maturity);
+		return model.getLiborPeriod(liborIndex+1);
+	}
+}
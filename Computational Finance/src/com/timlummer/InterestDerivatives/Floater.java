@@ -8,14 +8,13 @@ package com.timlummer.InterestDerivatives;
 
 import net.finmath.exception.CalculationException;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
  * @author Christian Fries
  *
  */
-public class Floater extends AbstractLIBORMonteCarloProduct {
+public class Floater extends AbstractLIBORFixingProduct implements CashflowProductInterface {
 
 	private final double[]	fixingDates;	// Vector of fixing dates
 	private final double[]	paymentDates;	// Vector of payment dates (same length as fixing dates)
@@ -42,7 +41,7 @@ public class Floater extends AbstractLIBORMonteCarloProduct {
 			double periodLength = paymentDate-fixingDate;
 
 			// Get floating rate for coupon
-			RandomVariableInterface coupon = model.getLIBOR(fixingDate, fixingDate, paymentDate);
+			RandomVariableInterface coupon = getLIBOR(model, fixingDate, fixingDate, paymentDate);
 
 			coupon = coupon.mult(periodLength).mult(notional);
 
@@ -58,4 +57,25 @@ public class Floater extends AbstractLIBORMonteCarloProduct {
 
 		return value;
 	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		return getFixings(fixingDates, paymentDates);
+	}
+
+	@Override
+	public double[] getPaymentDates() {
+		return paymentDates;
+	}
+
+	@Override
+	public RandomVariableInterface getCashflow(int periodIndex, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {
+		double fixingDate = fixingDates[periodIndex];
+		double paymentDate = paymentDates[periodIndex];
+		double periodLength = paymentDate-fixingDate;
+
+		RandomVariableInterface coupon = getLIBOR(model, fixingDate, fixingDate, paymentDate);
+
+		return coupon.mult(periodLength).mult(notional);
+	}
 }
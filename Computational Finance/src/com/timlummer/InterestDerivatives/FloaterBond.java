@@ -8,14 +8,13 @@ package com.timlummer.InterestDerivatives;
 
 import net.finmath.exception.CalculationException;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
  * @author Christian Fries
  *
  */
-public class FloaterBond extends AbstractLIBORMonteCarloProduct {
+public class FloaterBond extends AbstractLIBORFixingProduct {
 
 	private final double[]	fixingDates;	// Vector of fixing dates
 	private final double[]	paymentDates;	// Vector of payment dates (same length as fixing dates)
@@ -44,7 +43,7 @@ public class FloaterBond extends AbstractLIBORMonteCarloProduct {
 			double periodLength = paymentDate-fixingDate;
 
 			// Get floating rate for coupon
-			RandomVariableInterface coupon = model.getLIBOR(fixingDate, fixingDate, paymentDate);
+			RandomVariableInterface coupon = getLIBOR(model, fixingDate, fixingDate, paymentDate);
 
 			coupon = coupon.mult(periodLength).mult(notional);
 
@@ -66,4 +65,9 @@ public class FloaterBond extends AbstractLIBORMonteCarloProduct {
 
 		return value;
 	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		return getFixings(fixingDates, paymentDates);
+	}
 }
@@ -0,0 +1,222 @@
+package com.timlummer.InterestDerivatives;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Collects the LIBOR fixings required by a set of products, computes each distinct fixing
+ * once (in parallel) and serves the products from this store.
+ *
+ * Usage:
+ * <pre>
+ * LIBORFixingRegistry registry = new LIBORFixingRegistry(model);
+ * registry.register(caplet, cap, swaption);
+ * registry.prefetch();
+ * double value = caplet.getValue(model);
+ * </pre>
+ *
+ * Fixings which have not been registered are calculated on first request and stored as well.
+ * Hits and misses of <code>getLIBOR</code> are counted for monitoring.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class LIBORFixingRegistry {
+
+	private final LIBORModelMonteCarloSimulationInterface model;
+
+	private final Set<Fixing>												requiredFixings	= new LinkedHashSet<Fixing>();
+	private final ConcurrentHashMap<Fixing, RandomVariableInterface>	fixings			= new ConcurrentHashMap<Fixing, RandomVariableInterface>();
+
+	private final AtomicLong hitCount	= new AtomicLong();
+	private final AtomicLong missCount	= new AtomicLong();
+
+	/**
+	 * Create a registry for the fixings of a given model.
+	 *
+	 * @param model The model providing the LIBORs.
+	 */
+	public LIBORFixingRegistry(LIBORModelMonteCarloSimulationInterface model) {
+		super();
+		this.model = model;
+	}
+
+	/**
+	 * Registers the fixings of the given products and lets the products fetch their fixings from this registry (replacing the registry
+	 * a product has been registered with before).
+	 *
+	 * @param products The products.
+	 * @return This registry.
+	 */
+	public LIBORFixingRegistry register(AbstractLIBORFixingProduct... products) {
+		for(AbstractLIBORFixingProduct product : products) {
+			synchronized(requiredFixings) {
+				for(double[] fixing : product.getFixings(model)) {
+					requiredFixings.add(new Fixing(fixing[0], fixing[1], fixing[2]));
+				}
+			}
+			product.setFixingRegistry(this);
+		}
+		return this;
+	}
+
+	/**
+	 * Calculates all registered fixings which are not yet stored. Distinct fixings are calculated in parallel.
+	 *
+	 * @throws CalculationException Thrown if the model fails to calculate a fixing.
+	 */
+	public void prefetch() throws CalculationException {
+		List<Fixing> missingFixings = new ArrayList<Fixing>();
+		synchronized(requiredFixings) {
+			for(Fixing fixing : requiredFixings) {
+				if(!fixings.containsKey(fixing)) missingFixings.add(fixing);
+			}
+		}
+		if(missingFixings.isEmpty()) return;
+
+		// The simulation is generated lazily and its generation is not thread safe, hence trigger it before going parallel.
+		Fixing first = missingFixings.get(0);
+		fixings.putIfAbsent(first, model.getLIBOR(first.time, first.periodStart, first.periodEnd));
+
+		try {
+			missingFixings.parallelStream().forEach(fixing -> {
+				try {
+					if(!fixings.containsKey(fixing)) {
+						fixings.putIfAbsent(fixing, model.getLIBOR(fixing.time, fixing.periodStart, fixing.periodEnd));
+					}
+				}
+				catch(CalculationException e) {
+					throw new RuntimeException(e);
+				}
+			});
+		}
+		catch(RuntimeException e) {
+			if(e.getCause() instanceof CalculationException) throw (CalculationException)e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the LIBOR L(periodStart, periodEnd; time) from the store, calculating and storing it if missing.
+	 *
+	 * @param time The fixing time.
+	 * @param periodStart The period start of the forward rate.
+	 * @param periodEnd The period end of the forward rate.
+	 * @return The random variable representing the LIBOR.
+	 * @throws CalculationException Thrown if the model fails to calculate the LIBOR.
+	 */
+	public RandomVariableInterface getLIBOR(double time, double periodStart, double periodEnd) throws CalculationException {
+		Fixing fixing = new Fixing(time, periodStart, periodEnd);
+
+		RandomVariableInterface libor = fixings.get(fixing);
+		if(libor != null) {
+			hitCount.incrementAndGet();
+			return libor;
+		}
+
+		missCount.incrementAndGet();
+		libor = model.getLIBOR(time, periodStart, periodEnd);
+		RandomVariableInterface liborStored = fixings.putIfAbsent(fixing, libor);
+
+		return liborStored != null ? liborStored : libor;
+	}
+
+	/**
+	 * @return The model providing the LIBORs.
+	 */
+	public LIBORModelMonteCarloSimulationInterface getModel() {
+		return model;
+	}
+
+	/**
+	 * @return The number of distinct registered fixings.
+	 */
+	public int getNumberOfRequiredFixings() {
+		synchronized(requiredFixings) {
+			return requiredFixings.size();
+		}
+	}
+
+	/**
+	 * @return The number of fixings currently stored.
+	 */
+	public int getNumberOfStoredFixings() {
+		return fixings.size();
+	}
+
+	/**
+	 * @return The number of requests served from the store.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return The number of requests which had to be calculated by the model.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Resets the hit and miss counters.
+	 */
+	public void resetCounters() {
+		hitCount.set(0);
+		missCount.set(0);
+	}
+
+	/**
+	 * Releases all stored fixings (registered fixings are kept, such that <code>prefetch</code> may be called again).
+	 */
+	public void clear() {
+		fixings.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "LIBORFixingRegistry [requiredFixings=" + getNumberOfRequiredFixings() + ", storedFixings=" + getNumberOfStoredFixings()
+		+ ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+	/**
+	 * Key of a fixing L(periodStart, periodEnd; time).
+	 */
+	private static final class Fixing {
+		private final double time;
+		private final double periodStart;
+		private final double periodEnd;
+
+		Fixing(double time, double periodStart, double periodEnd) {
+			this.time = time;
+			this.periodStart = periodStart;
+			this.periodEnd = periodEnd;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(this == other) return true;
+			if(!(other instanceof Fixing)) return false;
+			Fixing fixing = (Fixing)other;
+			return Double.compare(time, fixing.time) == 0
+					&& Double.compare(periodStart, fixing.periodStart) == 0
+					&& Double.compare(periodEnd, fixing.periodEnd) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = Double.hashCode(time);
+			hash = 31 * hash + Double.hashCode(periodStart);
+			hash = 31 * hash + Double.hashCode(periodEnd);
+			return hash;
+		}
+	}
+}
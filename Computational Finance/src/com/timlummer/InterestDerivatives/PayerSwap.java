@@ -8,14 +8,13 @@ package com.timlummer.InterestDerivatives;
 
 import net.finmath.exception.CalculationException;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
  * @author Christian Fries
  *
  */
-public class PayerSwap extends AbstractLIBORMonteCarloProduct {
+public class PayerSwap extends AbstractLIBORFixingProduct implements CashflowProductInterface {
 
 	private final double[]	fixingDates;	// Vector of fixing dates
 	private final double[]	SwapRates;	// Vector of SwapRates
@@ -44,7 +43,7 @@ public class PayerSwap extends AbstractLIBORMonteCarloProduct {
 			double periodLength = paymentDate-fixingDate;
 
 			// Get floating rate for coupon
-			RandomVariableInterface libor = model.getLIBOR(fixingDate, fixingDate, paymentDate);
+			RandomVariableInterface libor = getLIBOR(model, fixingDate, fixingDate, paymentDate);
 			RandomVariableInterface SwapRate = model.getRandomVariableForConstant(SwapRates[periodIndex]);
 
 			RandomVariableInterface periodPayoff = libor.sub(SwapRate).mult(periodLength).mult(notional); //.mult(-1.0,) for ReceiverSwap
@@ -61,4 +60,25 @@ public class PayerSwap extends AbstractLIBORMonteCarloProduct {
 
 		return value;
 	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		return getFixings(fixingDates, paymentDates);
+	}
+
+	@Override
+	public double[] getPaymentDates() {
+		return paymentDates;
+	}
+
+	@Override
+	public RandomVariableInterface getCashflow(int periodIndex, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {
+		double fixingDate = fixingDates[periodIndex];
+		double paymentDate = paymentDates[periodIndex];
+		double periodLength = paymentDate-fixingDate;
+
+		RandomVariableInterface libor = getLIBOR(model, fixingDate, fixingDate, paymentDate);
+
+		return libor.sub(SwapRates[periodIndex]).mult(periodLength).mult(notional);
+	}
 }
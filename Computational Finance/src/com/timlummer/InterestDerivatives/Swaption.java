@@ -16,7 +16,6 @@ import net.finmath.marketdata.model.curves.ForwardCurveInterface;
 import net.finmath.marketdata.products.Swap;
 import net.finmath.marketdata.products.SwapAnnuity;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
 import net.finmath.time.TimeDiscretization;
 import net.finmath.time.TimeDiscretizationInterface;
@@ -32,19 +31,19 @@ import net.finmath.time.TimeDiscretizationInterface;
  * @author Christian Fries
  * @version 1.3
  */
-public class Swaption extends AbstractLIBORMonteCarloProduct {
+public class Swaption extends AbstractLIBORFixingProduct {
 	private double     PeriodStart;	// Exercise date
 	private double     PeriodEnd;	// Vector of payment dates (same length as fixing dates)
 	private double     swaprate;		// Vector of strikes
 
 
 	/**
-	 * Create a swaption.
+	 * Create a single period swaption, i.e., an option on the swap with the single period [PeriodStart, PeriodEnd].
+	 * For multi-period European and Bermudan swaptions see <code>BermudanSwaption</code>.
 	 * 
-	 * @param exerciseDate Vector of exercise dates.
-	 * @param fixingDates Vector of fixing dates.
-	 * @param paymentDates Vector of payment dates (must have same length as fixing dates).
-	 * @param swaprates Vector of strikes (must have same length as fixing dates).
+	 * @param PeriodStart The exercise and fixing date.
+	 * @param PeriodEnd The payment date.
+	 * @param swaprate The strike.
 	 */
 	public Swaption(
 			double PeriodStart,
@@ -75,7 +74,7 @@ public class Swaption extends AbstractLIBORMonteCarloProduct {
 		double periodLength	= PeriodEnd - PeriodStart;
 
 		// Get random variables - note that this is the rate at simulation time = exerciseDate
-		RandomVariableInterface libor	= model.getLIBOR(PeriodStart, PeriodStart, PeriodEnd);
+		RandomVariableInterface libor	= getLIBOR(model, PeriodStart, PeriodStart, PeriodEnd);
 
 		// Calculate payoff
 		RandomVariableInterface values = libor.sub(swaprate).mult(periodLength).floor(0.0);
@@ -90,4 +89,9 @@ public class Swaption extends AbstractLIBORMonteCarloProduct {
 
 		return values;
 	}
+
+	@Override
+	protected double[][] getFixingDates() {
+		return new double[][] { { PeriodStart, PeriodStart, PeriodEnd } };
+	}
 }
@@ -0,0 +1,231 @@
+package com.timlummer.InterestDerivatives;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+
+/**
+ * A memory mapped trade file of <code>InterestDerivatives</code> products (see <code>TradeType</code>), written by
+ * <code>TradeFileWriter</code>.
+ *
+ * The file stores the terms of the trades in columns (little endian), without names or delimiters:
+ * <ul>
+ * 	<li>header (32 bytes): magic, version, number of trades, scalars, vector references, vectors and vector values</li>
+ * 	<li>the type of each trade (1 byte), padded to 8 bytes</li>
+ * 	<li>the vector terms of each trade as indices of distinct vectors (4 bytes, <code>getNumberOfVectors()</code> of the type per
+ * 		trade), padded to 8 bytes</li>
+ * 	<li>the index of the first value of each distinct vector and the number of values (4 bytes), padded to 8 bytes</li>
+ * 	<li>the scalar terms of each trade (8 bytes, <code>getNumberOfScalars()</code> of the type per trade)</li>
+ * 	<li>the values of the distinct vectors (8 bytes)</li>
+ * </ul>
+ * Vectors with identical values (schedules, constant strikes) are stored once, such that a trade with a vector term requires
+ * 4 bytes per term in addition to its distinct values.
+ *
+ * When the file is opened the index of the terms of each trade is calculated in a single pass over the type column. The terms can
+ * then be read without instantiating the products (<code>getScalar</code>, <code>getVectorValue</code>), e.g. by a batch valuation,
+ * or the products are instantiated in parallel (<code>getProducts</code>). The products share the arrays of the distinct vectors
+ * (the products do not modify their terms). The file is limited to 2 GB.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class TradeFile {
+
+	static final int MAGIC			= 0x46445254;		// "TRDF"
+	static final int VERSION		= 1;
+	static final int HEADER_SIZE	= 32;
+
+	private final int			numberOfTrades;
+	private final ByteBuffer	types;
+	private final IntBuffer		vectorReferences;
+	private final IntBuffer		vectorIndexStart;
+	private final DoubleBuffer	scalars;
+	private final DoubleBuffer	vectorValues;
+
+	private final int[]			scalarIndexStart;				// Index of the first scalar of each trade
+	private final int[]			vectorReferenceIndexStart;		// Index of the first vector reference of each trade
+
+	private volatile double[][]	vectors;						// The distinct vectors, shared by the products
+
+	private TradeFile(ByteBuffer buffer) throws IOException {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException("Not a trade file.");
+		if(buffer.getInt(4) != VERSION) throw new IOException("Unsupported version " + buffer.getInt(4) + " of the trade file.");
+		numberOfTrades					= buffer.getInt(8);
+		int numberOfScalars				= buffer.getInt(12);
+		int numberOfVectorReferences	= buffer.getInt(16);
+		int numberOfVectors				= buffer.getInt(20);
+		int numberOfVectorValues		= buffer.getInt(24);
+
+		long offsetOfVectorReferences	= HEADER_SIZE + align(numberOfTrades);
+		long offsetOfVectorIndexStart	= offsetOfVectorReferences + align(4L * numberOfVectorReferences);
+		long offsetOfScalars			= offsetOfVectorIndexStart + align(4L * (numberOfVectors + 1));
+		long offsetOfVectorValues		= offsetOfScalars + 8L * numberOfScalars;
+		if(numberOfTrades < 0 || numberOfScalars < 0 || numberOfVectorReferences < 0 || numberOfVectors < 0 || numberOfVectorValues < 0
+				|| offsetOfVectorValues + 8L * numberOfVectorValues != buffer.capacity()) {
+			throw new IOException("Size of the trade file does not match its header.");
+		}
+
+		types				= slice(buffer, HEADER_SIZE, numberOfTrades);
+		vectorReferences	= slice(buffer, (int)offsetOfVectorReferences, 4 * numberOfVectorReferences).asIntBuffer();
+		vectorIndexStart	= slice(buffer, (int)offsetOfVectorIndexStart, 4 * (numberOfVectors + 1)).asIntBuffer();
+		scalars				= slice(buffer, (int)offsetOfScalars, 8 * numberOfScalars).asDoubleBuffer();
+		vectorValues		= slice(buffer, (int)offsetOfVectorValues, 8 * numberOfVectorValues).asDoubleBuffer();
+
+		// Index of the terms of each trade
+		scalarIndexStart			= new int[numberOfTrades+1];
+		vectorReferenceIndexStart	= new int[numberOfTrades+1];
+		for(int tradeIndex=0; tradeIndex<numberOfTrades; tradeIndex++) {
+			TradeType type = TradeType.fromCode(types.get(tradeIndex));
+			scalarIndexStart[tradeIndex+1]			= scalarIndexStart[tradeIndex] + type.getNumberOfScalars();
+			vectorReferenceIndexStart[tradeIndex+1]	= vectorReferenceIndexStart[tradeIndex] + type.getNumberOfVectors();
+		}
+		if(scalarIndexStart[numberOfTrades] != numberOfScalars || vectorReferenceIndexStart[numberOfTrades] != numberOfVectorReferences
+				|| vectorIndexStart.get(numberOfVectors) != numberOfVectorValues) {
+			throw new IOException("Terms of the trade file do not match its header.");
+		}
+	}
+
+	/**
+	 * Opens (memory maps) a trade file.
+	 *
+	 * @param file The file.
+	 * @return The trade file.
+	 * @throws IOException Thrown if the file cannot be read or is not a valid trade file.
+	 */
+	public static TradeFile open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) throw new IOException("Trade files are limited to 2 GB.");
+			return new TradeFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public int getNumberOfTrades() {
+		return numberOfTrades;
+	}
+
+	public TradeType getType(int tradeIndex) {
+		return TradeType.fromCode(types.get(tradeIndex));
+	}
+
+	/**
+	 * @param tradeIndex The index of the trade.
+	 * @return The length of the vector terms of the trade (0 if the trade has no vector terms).
+	 */
+	public int getNumberOfPeriods(int tradeIndex) {
+		if(vectorReferenceIndexStart[tradeIndex+1] == vectorReferenceIndexStart[tradeIndex]) return 0;
+		int vectorIndex = vectorReferences.get(vectorReferenceIndexStart[tradeIndex]);
+		return vectorIndexStart.get(vectorIndex + 1) - vectorIndexStart.get(vectorIndex);
+	}
+
+	/**
+	 * @param tradeIndex The index of the trade.
+	 * @param scalarIndex The index of the scalar term (see <code>TradeType</code>).
+	 * @return The scalar term.
+	 */
+	public double getScalar(int tradeIndex, int scalarIndex) {
+		return scalars.get(scalarIndexStart[tradeIndex] + scalarIndex);
+	}
+
+	/**
+	 * @param tradeIndex The index of the trade.
+	 * @param vectorIndex The index of the vector term (see <code>TradeType</code>).
+	 * @param periodIndex The index of the period.
+	 * @return The value of the vector term.
+	 */
+	public double getVectorValue(int tradeIndex, int vectorIndex, int periodIndex) {
+		return vectorValues.get(vectorIndexStart.get(vectorReferences.get(vectorReferenceIndexStart[tradeIndex] + vectorIndex)) + periodIndex);
+	}
+
+	/**
+	 * Instantiates a trade.
+	 *
+	 * @param tradeIndex The index of the trade.
+	 * @return The product.
+	 */
+	public AbstractMonteCarloProduct getProduct(int tradeIndex) {
+		return getProduct(tradeIndex, getVectors());
+	}
+
+	/**
+	 * Instantiates all trades (in parallel).
+	 *
+	 * @return The products.
+	 */
+	public AbstractMonteCarloProduct[] getProducts() {
+		double[][] vectorsOfFile = getVectors();
+		AbstractMonteCarloProduct[] products = new AbstractMonteCarloProduct[numberOfTrades];
+		IntStream.range(0, numberOfTrades).parallel().forEach(tradeIndex -> products[tradeIndex] = getProduct(tradeIndex, vectorsOfFile));
+		return products;
+	}
+
+	/**
+	 * Instantiates all trades and registers the fixings of the LIBOR products in the given registry, such that each distinct
+	 * fixing of the book is calculated once (see <code>LIBORFixingRegistry.prefetch</code>).
+	 *
+	 * @param fixingRegistry The registry of the model used to value the trades.
+	 * @return The products.
+	 */
+	public AbstractMonteCarloProduct[] getProducts(LIBORFixingRegistry fixingRegistry) {
+		AbstractMonteCarloProduct[] products = getProducts();
+		for(AbstractMonteCarloProduct product : products) {
+			if(product instanceof AbstractLIBORFixingProduct) fixingRegistry.register((AbstractLIBORFixingProduct)product);
+		}
+		return products;
+	}
+
+	private AbstractMonteCarloProduct getProduct(int tradeIndex, double[][] vectorsOfFile) {
+		TradeType type = getType(tradeIndex);
+
+		double[] scalarsOfTrade = new double[type.getNumberOfScalars()];
+		for(int scalarIndex=0; scalarIndex<scalarsOfTrade.length; scalarIndex++) scalarsOfTrade[scalarIndex] = scalars.get(scalarIndexStart[tradeIndex] + scalarIndex);
+
+		double[][] vectorsOfTrade = new double[type.getNumberOfVectors()][];
+		for(int vectorIndex=0; vectorIndex<vectorsOfTrade.length; vectorIndex++) {
+			vectorsOfTrade[vectorIndex] = vectorsOfFile[vectorReferences.get(vectorReferenceIndexStart[tradeIndex] + vectorIndex)];
+		}
+
+		return type.createProduct(scalarsOfTrade, vectorsOfTrade);
+	}
+
+	/*
+	 * The distinct vectors, read on first request.
+	 */
+	private double[][] getVectors() {
+		double[][] vectorsOfFile = vectors;
+		if(vectorsOfFile != null) return vectorsOfFile;
+
+		synchronized(this) {
+			if(vectors == null) {
+				vectorsOfFile = new double[vectorIndexStart.capacity()-1][];
+				for(int vectorIndex=0; vectorIndex<vectorsOfFile.length; vectorIndex++) {
+					vectorsOfFile[vectorIndex] = new double[vectorIndexStart.get(vectorIndex+1) - vectorIndexStart.get(vectorIndex)];
+					for(int valueIndex=0; valueIndex<vectorsOfFile[vectorIndex].length; valueIndex++) {
+						vectorsOfFile[vectorIndex][valueIndex] = vectorValues.get(vectorIndexStart.get(vectorIndex) + valueIndex);
+					}
+				}
+				vectors = vectorsOfFile;
+			}
+			return vectors;
+		}
+	}
+
+	static long align(long numberOfBytes) {
+		return (numberOfBytes + 7) & ~7L;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(offset);
+		slice.limit(offset + length);
+		return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
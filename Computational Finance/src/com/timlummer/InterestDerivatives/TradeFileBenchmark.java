@@ -0,0 +1,150 @@
+package com.timlummer.InterestDerivatives;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.timlummer.cache.Fingerprint;
+
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+
+/**
+ * Writes a random book of the eight trade types (semi-annual schedules, strikes specific to the trade) to a trade file and to a
+ * text file (one line per trade, as read by a hand-written parser) and compares the loading of the book: parsing the text file
+ * versus instantiating the products from the memory mapped trade file. The loaded products are compared by their fingerprints.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class TradeFileBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfTrades = 200000;
+
+		// Random book
+		Random random = new Random(3141);
+		TradeFileWriter writer = new TradeFileWriter();
+		for(int tradeIndex=0; tradeIndex<numberOfTrades; tradeIndex++) {
+			TradeType type = TradeType.values()[random.nextInt(TradeType.values().length)];
+			int numberOfPeriods = type.getNumberOfVectors() > 0 ? 1 + random.nextInt(20) : 0;
+			double firstFixingDate = 0.5 * (1 + random.nextInt(20));
+
+			double[] scalars = new double[type.getNumberOfScalars()];
+			for(int scalarIndex=0; scalarIndex<scalars.length; scalarIndex++) scalars[scalarIndex] = Math.round(random.nextDouble() * 1E6) / 1E6;
+			if(type == TradeType.CAPLET || type == TradeType.SWAPTION) {
+				scalars[0] = firstFixingDate;
+				scalars[1] = firstFixingDate + 0.5;
+			}
+			if(type == TradeType.CAPLET) scalars[3] = random.nextBoolean() ? 1.0 : 0.0;
+			if(type == TradeType.DIGITAL_CAPLET) {
+				scalars[0] = firstFixingDate;
+				scalars[1] = firstFixingDate;
+				scalars[2] = firstFixingDate + 0.5;
+			}
+
+			// Schedules on a semi-annual grid, constant strikes (rates, coupons) specific to the trade
+			boolean isStrikeFirst = type == TradeType.PAYER_SWAP || type == TradeType.COUPON_BOND;
+			int strikeVectorIndex = type == TradeType.CAP ? 2 : isStrikeFirst ? 0 : -1;
+			double strike = Math.round(random.nextDouble() * 1E4) / 1E6;
+			double[][] vectors = new double[type.getNumberOfVectors()][numberOfPeriods];
+			for(int vectorIndex=0; vectorIndex<vectors.length; vectorIndex++) {
+				int scheduleIndex = isStrikeFirst ? vectorIndex - 1 : vectorIndex;
+				for(int periodIndex=0; periodIndex<numberOfPeriods; periodIndex++) {
+					vectors[vectorIndex][periodIndex] = vectorIndex == strikeVectorIndex ? strike : firstFixingDate + 0.5 * periodIndex + 0.5 * scheduleIndex;
+				}
+			}
+			writer.add(type, scalars, vectors);
+		}
+
+		Path file		= Files.createTempFile("trades", ".trd");
+		Path fileText	= Files.createTempFile("trades", ".csv");
+		try {
+			writer.write(file);
+			writeText(TradeFile.open(file), fileText);
+			System.out.println("Book of " + numberOfTrades + " trades:\ttrade file " + Files.size(file) / numberOfTrades + " bytes per trade\ttext file "
+					+ Files.size(fileText) / numberOfTrades + " bytes per trade");
+
+			AbstractMonteCarloProduct[] productsFromText = null;
+			AbstractMonteCarloProduct[] productsFromTradeFile = null;
+			for(int run=0; run<3; run++) {
+				long nanosStart = System.nanoTime();
+				productsFromText = readText(fileText);
+				long nanosText = System.nanoTime() - nanosStart;
+
+				nanosStart = System.nanoTime();
+				TradeFile tradeFile = TradeFile.open(file);
+				productsFromTradeFile = tradeFile.getProducts();
+				long nanosTradeFile = System.nanoTime() - nanosStart;
+
+				System.out.println("Run " + run + ":\ttext file " + nanosText / 1000000 + " ms (" + Math.round(numberOfTrades / (nanosText / 1E9)) + " trades/s)"
+						+ "\ttrade file " + nanosTradeFile / 1000000 + " ms (" + Math.round(numberOfTrades / (nanosTradeFile / 1E9)) + " trades/s)");
+			}
+
+			// Comparison of the terms of the loaded products
+			int numberOfDifferences = 0;
+			for(int tradeIndex=0; tradeIndex<numberOfTrades; tradeIndex+=97) {
+				if(!Fingerprint.ofProduct(productsFromText[tradeIndex]).equals(Fingerprint.ofProduct(productsFromTradeFile[tradeIndex]))) numberOfDifferences++;
+			}
+			System.out.println("Products with different terms (every 97th trade): " + numberOfDifferences);
+		}
+		finally {
+			Files.delete(file);
+			Files.delete(fileText);
+		}
+	}
+
+	/*
+	 * Text format: type;scalar,scalar,...;value,value,...|value,value,...
+	 */
+	private static void writeText(TradeFile tradeFile, Path fileText) throws Exception {
+		try(BufferedWriter output = Files.newBufferedWriter(fileText, StandardCharsets.UTF_8)) {
+			for(int tradeIndex=0; tradeIndex<tradeFile.getNumberOfTrades(); tradeIndex++) {
+				TradeType type = tradeFile.getType(tradeIndex);
+				StringBuilder line = new StringBuilder(type.name()).append(';');
+				for(int scalarIndex=0; scalarIndex<type.getNumberOfScalars(); scalarIndex++) {
+					line.append(scalarIndex > 0 ? "," : "").append(tradeFile.getScalar(tradeIndex, scalarIndex));
+				}
+				line.append(';');
+				for(int vectorIndex=0; vectorIndex<type.getNumberOfVectors(); vectorIndex++) {
+					if(vectorIndex > 0) line.append('|');
+					for(int periodIndex=0; periodIndex<tradeFile.getNumberOfPeriods(tradeIndex); periodIndex++) {
+						line.append(periodIndex > 0 ? "," : "").append(tradeFile.getVectorValue(tradeIndex, vectorIndex, periodIndex));
+					}
+				}
+				output.write(line.toString());
+				output.newLine();
+			}
+		}
+	}
+
+	private static AbstractMonteCarloProduct[] readText(Path fileText) throws Exception {
+		List<AbstractMonteCarloProduct> products = new ArrayList<AbstractMonteCarloProduct>();
+		try(BufferedReader input = Files.newBufferedReader(fileText, StandardCharsets.UTF_8)) {
+			String line;
+			while((line = input.readLine()) != null) {
+				String[] fields = line.split(";", -1);
+				TradeType type = TradeType.valueOf(fields[0]);
+				double[] scalars = parse(fields[1]);
+				String[] vectorFields = type.getNumberOfVectors() > 0 ? fields[2].split("\\|", -1) : new String[0];
+				double[][] vectors = new double[vectorFields.length][];
+				for(int vectorIndex=0; vectorIndex<vectorFields.length; vectorIndex++) vectors[vectorIndex] = parse(vectorFields[vectorIndex]);
+				products.add(type.createProduct(scalars, vectors));
+			}
+		}
+		return products.toArray(new AbstractMonteCarloProduct[products.size()]);
+	}
+
+	private static double[] parse(String values) {
+		if(values.isEmpty()) return new double[0];
+		String[] fields = values.split(",");
+		double[] parsed = new double[fields.length];
+		for(int index=0; index<fields.length; index++) parsed[index] = Double.parseDouble(fields[index]);
+		return parsed;
+	}
+}
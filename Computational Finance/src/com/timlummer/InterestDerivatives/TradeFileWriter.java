@@ -0,0 +1,190 @@
+package com.timlummer.InterestDerivatives;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects the terms of trades in columns and writes them as a trade file (see <code>TradeFile</code> for the format).
+ * The terms are appended to primitive arrays, i.e., no product is instantiated. Vectors with identical values (e.g. the
+ * schedules of trades with the same tenor) are stored once.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class TradeFileWriter {
+
+	private byte[]		types				= new byte[1024];
+	private double[]	scalars				= new double[4096];
+	private int[]		vectorReferences	= new int[2048];
+	private int[]		vectorIndexStart	= new int[1024];
+	private double[]	vectorValues		= new double[16384];
+
+	private int			numberOfTrades;
+	private int			numberOfScalars;
+	private int			numberOfVectorReferences;
+	private int			numberOfVectors;
+	private int			numberOfVectorValues;
+
+	private final Map<VectorKey, Integer> vectorIndices = new HashMap<VectorKey, Integer>();
+
+	/*
+	 * Key of a vector in the map of the distinct vectors.
+	 */
+	private static final class VectorKey {
+		private final double[] values;
+
+		private VectorKey(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof VectorKey && Arrays.equals(values, ((VectorKey)other).values);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+	}
+
+	public TradeFileWriter addCaplet(double periodStart, double periodEnd, double strike, boolean isFloorlet) {
+		return add(TradeType.CAPLET, new double[] { periodStart, periodEnd, strike, isFloorlet ? 1.0 : 0.0 });
+	}
+
+	public TradeFileWriter addCap(double[] fixingDates, double[] paymentDates, double[] strikes) {
+		return add(TradeType.CAP, new double[0], fixingDates, paymentDates, strikes);
+	}
+
+	public TradeFileWriter addFloater(double[] fixingDates, double[] paymentDates, double notional) {
+		return add(TradeType.FLOATER, new double[] { notional }, fixingDates, paymentDates);
+	}
+
+	public TradeFileWriter addFloaterBond(double[] fixingDates, double[] paymentDates, double maturity, double notional) {
+		return add(TradeType.FLOATER_BOND, new double[] { maturity, notional }, fixingDates, paymentDates);
+	}
+
+	public TradeFileWriter addPayerSwap(double[] swapRates, double[] fixingDates, double[] paymentDates, double notional) {
+		return add(TradeType.PAYER_SWAP, new double[] { notional }, swapRates, fixingDates, paymentDates);
+	}
+
+	public TradeFileWriter addCouponBond(double[] coupons, double[] couponDates, double maturity) {
+		return add(TradeType.COUPON_BOND, new double[] { maturity }, coupons, couponDates);
+	}
+
+	public TradeFileWriter addDigitalCaplet(double optionMaturity, double periodStart, double periodEnd, double strike) {
+		return add(TradeType.DIGITAL_CAPLET, new double[] { optionMaturity, periodStart, periodEnd, strike });
+	}
+
+	public TradeFileWriter addSwaption(double periodStart, double periodEnd, double swaprate) {
+		return add(TradeType.SWAPTION, new double[] { periodStart, periodEnd, swaprate });
+	}
+
+	/**
+	 * Adds a trade given by its terms (see <code>TradeType</code>).
+	 *
+	 * @param type The type of the trade.
+	 * @param scalarsOfTrade The scalar terms.
+	 * @param vectorsOfTrade The vector terms (of equal length).
+	 * @return This writer.
+	 */
+	public TradeFileWriter add(TradeType type, double[] scalarsOfTrade, double[]... vectorsOfTrade) {
+		if(scalarsOfTrade.length != type.getNumberOfScalars() || vectorsOfTrade.length != type.getNumberOfVectors()) {
+			throw new IllegalArgumentException(type + " requires " + type.getNumberOfScalars() + " scalars and " + type.getNumberOfVectors() + " vectors.");
+		}
+		for(double[] vector : vectorsOfTrade) {
+			if(vector.length != vectorsOfTrade[0].length) throw new IllegalArgumentException("The vectors of a trade must have the same length.");
+		}
+
+		if(numberOfTrades == types.length) types = Arrays.copyOf(types, 2 * types.length);
+		types[numberOfTrades++] = type.getCode();
+
+		if(numberOfScalars + scalarsOfTrade.length > scalars.length) scalars = Arrays.copyOf(scalars, 2 * scalars.length);
+		System.arraycopy(scalarsOfTrade, 0, scalars, numberOfScalars, scalarsOfTrade.length);
+		numberOfScalars += scalarsOfTrade.length;
+
+		if(numberOfVectorReferences + vectorsOfTrade.length > vectorReferences.length) vectorReferences = Arrays.copyOf(vectorReferences, 2 * vectorReferences.length);
+		for(double[] vector : vectorsOfTrade) vectorReferences[numberOfVectorReferences++] = getVectorIndex(vector);
+
+		return this;
+	}
+
+	public int getNumberOfTrades() {
+		return numberOfTrades;
+	}
+
+	/**
+	 * Writes the trades to a file (replacing an existing file).
+	 *
+	 * @param file The file.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public void write(Path file) throws IOException {
+		long offsetOfVectorReferences	= TradeFile.HEADER_SIZE + TradeFile.align(numberOfTrades);
+		long offsetOfVectorIndexStart	= offsetOfVectorReferences + TradeFile.align(4L * numberOfVectorReferences);
+		long offsetOfScalars			= offsetOfVectorIndexStart + TradeFile.align(4L * (numberOfVectors + 1));
+		long offsetOfVectorValues		= offsetOfScalars + 8L * numberOfScalars;
+		long size						= offsetOfVectorValues + 8L * numberOfVectorValues;
+		if(size > Integer.MAX_VALUE) throw new IOException("Trade files are limited to 2 GB.");
+
+		vectorIndexStart = Arrays.copyOf(vectorIndexStart, Math.max(vectorIndexStart.length, numberOfVectors + 1));
+		vectorIndexStart[numberOfVectors] = numberOfVectorValues;
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(TradeFile.MAGIC);
+			buffer.putInt(TradeFile.VERSION);
+			buffer.putInt(numberOfTrades);
+			buffer.putInt(numberOfScalars);
+			buffer.putInt(numberOfVectorReferences);
+			buffer.putInt(numberOfVectors);
+			buffer.putInt(numberOfVectorValues);
+
+			buffer.position(TradeFile.HEADER_SIZE);
+			buffer.put(types, 0, numberOfTrades);
+
+			buffer.position((int)offsetOfVectorReferences);
+			buffer.asIntBuffer().put(vectorReferences, 0, numberOfVectorReferences);
+
+			buffer.position((int)offsetOfVectorIndexStart);
+			buffer.asIntBuffer().put(vectorIndexStart, 0, numberOfVectors + 1);
+
+			buffer.position((int)offsetOfScalars);
+			buffer.asDoubleBuffer().put(scalars, 0, numberOfScalars);
+
+			buffer.position((int)offsetOfVectorValues);
+			buffer.asDoubleBuffer().put(vectorValues, 0, numberOfVectorValues);
+
+			buffer.force();
+		}
+	}
+
+	/*
+	 * Returns the index of the vector in the distinct vectors, adding it if it is new.
+	 */
+	private int getVectorIndex(double[] vector) {
+		VectorKey key = new VectorKey(vector.clone());
+		Integer vectorIndex = vectorIndices.get(key);
+		if(vectorIndex != null) return vectorIndex;
+
+		if(numberOfVectors + 1 >= vectorIndexStart.length) vectorIndexStart = Arrays.copyOf(vectorIndexStart, 2 * vectorIndexStart.length);
+		if(numberOfVectorValues + vector.length > vectorValues.length) {
+			vectorValues = Arrays.copyOf(vectorValues, Math.max(2 * vectorValues.length, numberOfVectorValues + vector.length));
+		}
+		vectorIndexStart[numberOfVectors] = numberOfVectorValues;
+		System.arraycopy(vector, 0, vectorValues, numberOfVectorValues, vector.length);
+		numberOfVectorValues += vector.length;
+
+		vectorIndices.put(key, numberOfVectors);
+		return numberOfVectors++;
+	}
+}
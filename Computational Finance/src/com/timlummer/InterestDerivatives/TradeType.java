@@ -0,0 +1,96 @@
+package com.timlummer.InterestDerivatives;
+
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+
+/**
+ * The products of a trade file (see <code>TradeFile</code>) and their terms: a fixed number of scalars and a fixed number of vectors,
+ * all vectors of a trade having the same length (the number of periods).
+ * <ul>
+ * 	<li><code>CAPLET</code>: periodStart, periodEnd, strike, isFloorlet (1 or 0)</li>
+ * 	<li><code>CAP</code>: vectors fixingDates, paymentDates, strikes</li>
+ * 	<li><code>FLOATER</code>: notional; vectors fixingDates, paymentDates</li>
+ * 	<li><code>FLOATER_BOND</code>: maturity, notional; vectors fixingDates, paymentDates</li>
+ * 	<li><code>PAYER_SWAP</code>: notional; vectors swapRates, fixingDates, paymentDates</li>
+ * 	<li><code>COUPON_BOND</code>: maturity; vectors coupons, couponDates</li>
+ * 	<li><code>DIGITAL_CAPLET</code>: optionMaturity, periodStart, periodEnd, strike</li>
+ * 	<li><code>SWAPTION</code>: periodStart, periodEnd, swaprate</li>
+ * </ul>
+ * The order of the constants defines the code of the type in the file, new types have to be appended.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public enum TradeType {
+	CAPLET(4, 0),
+	CAP(0, 3),
+	FLOATER(1, 2),
+	FLOATER_BOND(2, 2),
+	PAYER_SWAP(1, 3),
+	COUPON_BOND(1, 2),
+	DIGITAL_CAPLET(4, 0),
+	SWAPTION(3, 0);
+
+	private static final TradeType[] TYPES = values();
+
+	private final int numberOfScalars;
+	private final int numberOfVectors;
+
+	TradeType(int numberOfScalars, int numberOfVectors) {
+		this.numberOfScalars = numberOfScalars;
+		this.numberOfVectors = numberOfVectors;
+	}
+
+	public int getNumberOfScalars() {
+		return numberOfScalars;
+	}
+
+	public int getNumberOfVectors() {
+		return numberOfVectors;
+	}
+
+	/**
+	 * @return The code of the type in a trade file.
+	 */
+	public byte getCode() {
+		return (byte)ordinal();
+	}
+
+	/**
+	 * @param code The code of a type in a trade file.
+	 * @return The type.
+	 */
+	public static TradeType fromCode(byte code) {
+		if(code < 0 || code >= TYPES.length) throw new IllegalArgumentException("Unknown trade type " + code + ".");
+		return TYPES[code];
+	}
+
+	/**
+	 * Creates the product from its terms.
+	 *
+	 * @param scalars The scalar terms (<code>getNumberOfScalars()</code>).
+	 * @param vectors The vector terms (<code>getNumberOfVectors()</code>), which may be shared with other products (products do not modify them).
+	 * @return The product.
+	 */
+	public AbstractMonteCarloProduct createProduct(double[] scalars, double[][] vectors) {
+		switch(this) {
+		case CAPLET:
+			return new Caplet(scalars[0], scalars[1], scalars[2], scalars[3] != 0.0);
+		case CAP:
+			return new Cap(vectors[0], vectors[1], vectors[2]);
+		case FLOATER:
+			return new Floater(vectors[0], vectors[1], scalars[0]);
+		case FLOATER_BOND:
+			return new FloaterBond(vectors[0], vectors[1], scalars[0], scalars[1]);
+		case PAYER_SWAP:
+			return new PayerSwap(vectors[0], vectors[1], vectors[2], scalars[0]);
+		case COUPON_BOND:
+			return new CouponBond(vectors[0], vectors[1], scalars[0]);
+		case DIGITAL_CAPLET:
+			return new DigitalCaplet(scalars[0], scalars[1], scalars[2], scalars[3]);
+		case SWAPTION:
+			return new Swaption(scalars[0], scalars[1], scalars[2]);
+		default:
+			throw new IllegalStateException("Unknown trade type " + this + ".");
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.timlummer.LIBOR;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.finmath.montecarlo.interestrate.modelplugins.LIBORCorrelationModel;
+import net.finmath.montecarlo.interestrate.modelplugins.LIBORCorrelationModelExponentialDecay;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * The correlation model rho_{i,j} = exp(-a * abs(T_i-T_j)) of <code>LIBORCorrelationModelExponentialDecay</code>, where
+ * the factor reduction of the correlation matrix is shared through a cache.
+ *
+ * The factor loadings only depend on the tenor grid, the number of factors and the decay parameter. They are
+ * computed once by <code>LIBORCorrelationModelExponentialDecay</code> and kept in a (static) cache with least recently used
+ * eviction, such that repeated model creations (e.g. changing only the number of paths) skip the
+ * decomposition of the correlation matrix. The cached matrices are never modified, hence the model is not calibrateable
+ * (as <code>LIBORCorrelationModelExponentialDecay</code> with <code>isCalibrateable = false</code>).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class LIBORCorrelationModelExponentialDecayCached extends LIBORCorrelationModel {
+
+	private static int											maximumCacheSize	= 64;
+	private static final Map<CacheKey, CorrelationAndFactors>	cache				= new LinkedHashMap<CacheKey, CorrelationAndFactors>(16, 0.75f, true /* access order */) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CacheKey, CorrelationAndFactors> eldest) {
+			return size() > maximumCacheSize;
+		}
+	};
+
+	private final int			numberOfFactors;
+	private final double		a;
+	private final double[][]	correlationMatrix;
+	private final double[][]	factorMatrix;
+
+	/**
+	 * Create the correlation model.
+	 *
+	 * @param timeDiscretization The simulation time discretization.
+	 * @param liborPeriodDiscretization The tenor grid.
+	 * @param numberOfFactors The number of factors.
+	 * @param a The decay parameter.
+	 */
+	public LIBORCorrelationModelExponentialDecayCached(TimeDiscretizationInterface timeDiscretization, TimeDiscretizationInterface liborPeriodDiscretization, int numberOfFactors, double a) {
+		super(timeDiscretization, liborPeriodDiscretization);
+		this.numberOfFactors	= numberOfFactors;
+		this.a					= a;
+
+		CorrelationAndFactors correlationAndFactors = getCorrelationAndFactors(timeDiscretization, liborPeriodDiscretization, numberOfFactors, a);
+		this.correlationMatrix	= correlationAndFactors.correlationMatrix;
+		this.factorMatrix		= correlationAndFactors.factorMatrix;
+	}
+
+	private static CorrelationAndFactors getCorrelationAndFactors(TimeDiscretizationInterface timeDiscretization, TimeDiscretizationInterface liborPeriodDiscretization, int numberOfFactors, double a) {
+		CacheKey key = new CacheKey(liborPeriodDiscretization.getAsDoubleArray(), numberOfFactors, a);
+		synchronized(cache) {
+			CorrelationAndFactors correlationAndFactors = cache.get(key);
+			if(correlationAndFactors != null) return correlationAndFactors;
+		}
+
+		// Compute outside the lock, concurrent misses for the same key give identical matrices
+		LIBORCorrelationModel correlationModel = new LIBORCorrelationModelExponentialDecay(timeDiscretization, liborPeriodDiscretization, numberOfFactors, a);
+		int numberOfComponents = liborPeriodDiscretization.getNumberOfTimeSteps();
+		double[][] correlationMatrix	= new double[numberOfComponents][numberOfComponents];
+		double[][] factorMatrix			= new double[numberOfComponents][numberOfFactors];
+		for(int component1=0; component1<numberOfComponents; component1++) {
+			for(int component2=0; component2<numberOfComponents; component2++) correlationMatrix[component1][component2] = correlationModel.getCorrelation(0, component1, component2);
+			for(int factor=0; factor<numberOfFactors; factor++) factorMatrix[component1][factor] = correlationModel.getFactorLoading(0, factor, component1);
+		}
+
+		CorrelationAndFactors correlationAndFactors = new CorrelationAndFactors(correlationMatrix, factorMatrix);
+		synchronized(cache) {
+			cache.put(key, correlationAndFactors);
+		}
+		return correlationAndFactors;
+	}
+
+	/**
+	 * Sets the maximum number of factor decompositions kept in the cache.
+	 *
+	 * @param maximumCacheSize The maximum number of cache entries.
+	 */
+	public static void setMaximumCacheSize(int maximumCacheSize) {
+		synchronized(cache) {
+			LIBORCorrelationModelExponentialDecayCached.maximumCacheSize = maximumCacheSize;
+			while(cache.size() > maximumCacheSize) {
+				cache.remove(cache.keySet().iterator().next());
+			}
+		}
+	}
+
+	/**
+	 * @return The number of factor decompositions in the cache.
+	 */
+	public static int getCacheSize() {
+		synchronized(cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Removes all factor decompositions from the cache.
+	 */
+	public static void clearCache() {
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+
+	@Override
+	public double[] getParameter() {
+		return null;
+	}
+
+	@Override
+	public void setParameter(double[] parameter) {
+		// The model is not calibrateable
+	}
+
+	@Override
+	public double getFactorLoading(int timeIndex, int factor, int component) {
+		return factorMatrix[component][factor];
+	}
+
+	@Override
+	public double getCorrelation(int timeIndex, int component1, int component2) {
+		return correlationMatrix[component1][component2];
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	/**
+	 * @return The decay parameter.
+	 */
+	public double getDecay() {
+		return a;
+	}
+
+	@Override
+	public Object clone() {
+		// The matrices are immutable and can be shared
+		return new LIBORCorrelationModelExponentialDecayCached(getTimeDiscretization(), getLiborPeriodDiscretization(), numberOfFactors, a);
+	}
+
+	private static class CorrelationAndFactors {
+		private final double[][]	correlationMatrix;
+		private final double[][]	factorMatrix;
+
+		private CorrelationAndFactors(double[][] correlationMatrix, double[][] factorMatrix) {
+			this.correlationMatrix	= correlationMatrix;
+			this.factorMatrix		= factorMatrix;
+		}
+	}
+
+	private static class CacheKey {
+		private final double[]	tenorTimes;
+		private final int		numberOfFactors;
+		private final double	a;
+
+		private CacheKey(double[] tenorTimes, int numberOfFactors, double a) {
+			this.tenorTimes			= tenorTimes;
+			this.numberOfFactors	= numberOfFactors;
+			this.a					= a;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof CacheKey)) return false;
+			CacheKey key = (CacheKey)other;
+			return numberOfFactors == key.numberOfFactors && Double.compare(a, key.a) == 0 && Arrays.equals(tenorTimes, key.tenorTimes);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(tenorTimes) + numberOfFactors) + Double.hashCode(a);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package com.timlummer.LIBOR;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.finmath.montecarlo.interestrate.modelplugins.AbstractLIBORCovarianceModel;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * A covariance model which precomputes the factor loadings and the covariance of a given covariance model for
+ * every simulation time step, such that the Euler scheme does not recompute volatility times factor loading
+ * in every step (and for every path of the drift). Values at the last time (which is not the start of a time step) are
+ * taken from the given covariance model.
+ *
+ * This requires deterministic factor loadings, i.e., factor loadings which do not depend on the realizations, as for
+ * <code>LIBORCovarianceModelFromVolatilityAndCorrelation</code> with a deterministic volatility model.
+ * The values are those of the given covariance model.
+ *
+ * If the parameters of the covariance model are given, the precomputed values are kept in a (static) cache with least
+ * recently used eviction, keyed by the class of the covariance model, its time discretization, tenor grid, number of factors
+ * and the parameters. Hence repeated model creations (e.g. changing only the number of paths or the seed) share the values.
+ * The values are never modified: <code>getFactorLoading</code> returns the shared array, which must not be modified by the caller.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class LIBORCovarianceModelPrecomputed extends AbstractLIBORCovarianceModel {
+
+	private static int									maximumCacheSize	= 16;
+	private static final Map<CacheKey, Precomputation>	cache				= new LinkedHashMap<CacheKey, Precomputation>(16, 0.75f, true /* access order */) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CacheKey, Precomputation> eldest) {
+			return size() > maximumCacheSize;
+		}
+	};
+
+	private final AbstractLIBORCovarianceModel		covarianceModel;
+
+	private final RandomVariableInterface[][][]		factorLoadings;	// [timeIndex][component][factor]
+	private final RandomVariableInterface[][][]		covariances;	// [timeIndex][component1][component2]
+
+	/**
+	 * Precomputes the factor loadings and the covariance of the given covariance model, or takes them from the cache if
+	 * the parameters are given.
+	 *
+	 * @param covarianceModel A covariance model with deterministic factor loadings.
+	 * @param parameters The parameters which determine the covariance model on its time discretization, tenor grid and number
+	 * of factors (e.g. the parameters of the volatility and the correlation), or null if the values should not be cached.
+	 * @throws IllegalArgumentException Thrown if a factor loading is not deterministic.
+	 */
+	public LIBORCovarianceModelPrecomputed(AbstractLIBORCovarianceModel covarianceModel, double[] parameters) {
+		super(covarianceModel.getTimeDiscretization(), covarianceModel.getLiborPeriodDiscretization(), covarianceModel.getNumberOfFactors());
+		this.covarianceModel = covarianceModel;
+
+		Precomputation precomputation = parameters == null ? precompute(covarianceModel) : getPrecomputation(covarianceModel, parameters);
+		this.factorLoadings	= precomputation.factorLoadings;
+		this.covariances	= precomputation.covariances;
+	}
+
+	/**
+	 * Precomputes the factor loadings and the covariance of the given covariance model (without cache).
+	 *
+	 * @param covarianceModel A covariance model with deterministic factor loadings.
+	 * @throws IllegalArgumentException Thrown if a factor loading is not deterministic.
+	 */
+	public LIBORCovarianceModelPrecomputed(AbstractLIBORCovarianceModel covarianceModel) {
+		this(covarianceModel, null);
+	}
+
+	private static Precomputation getPrecomputation(AbstractLIBORCovarianceModel covarianceModel, double[] parameters) {
+		CacheKey key = new CacheKey(covarianceModel.getClass().getName(), covarianceModel.getTimeDiscretization().getAsDoubleArray(),
+				covarianceModel.getLiborPeriodDiscretization().getAsDoubleArray(), covarianceModel.getNumberOfFactors(), parameters.clone());
+		synchronized(cache) {
+			Precomputation precomputation = cache.get(key);
+			if(precomputation != null) return precomputation;
+		}
+
+		// Compute outside the lock, concurrent misses for the same key give identical values
+		Precomputation precomputation = precompute(covarianceModel);
+		synchronized(cache) {
+			cache.put(key, precomputation);
+		}
+		return precomputation;
+	}
+
+	private static Precomputation precompute(AbstractLIBORCovarianceModel covarianceModel) {
+		int numberOfTimeSteps	= covarianceModel.getTimeDiscretization().getNumberOfTimeSteps();
+		int numberOfComponents	= covarianceModel.getLiborPeriodDiscretization().getNumberOfTimeSteps();
+
+		RandomVariableInterface[][][] factorLoadings	= new RandomVariableInterface[numberOfTimeSteps][numberOfComponents][];
+		RandomVariableInterface[][][] covariances		= new RandomVariableInterface[numberOfTimeSteps][numberOfComponents][numberOfComponents];
+		for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) {
+			for(int component=0; component<numberOfComponents; component++) {
+				factorLoadings[timeIndex][component] = covarianceModel.getFactorLoading(timeIndex, component, null);
+				for(RandomVariableInterface factorLoading : factorLoadings[timeIndex][component]) {
+					if(!factorLoading.isDeterministic()) throw new IllegalArgumentException("The factor loadings of the covariance model have to be deterministic.");
+				}
+			}
+
+			// The covariance is symmetric
+			for(int component1=0; component1<numberOfComponents; component1++) {
+				for(int component2=component1; component2<numberOfComponents; component2++) {
+					covariances[timeIndex][component1][component2] = covarianceModel.getCovariance(timeIndex, component1, component2, null);
+					covariances[timeIndex][component2][component1] = covariances[timeIndex][component1][component2];
+				}
+			}
+		}
+		return new Precomputation(factorLoadings, covariances);
+	}
+
+	/**
+	 * Sets the maximum number of precomputed covariance models kept in the cache.
+	 *
+	 * @param maximumCacheSize The maximum number of cache entries.
+	 */
+	public static void setMaximumCacheSize(int maximumCacheSize) {
+		synchronized(cache) {
+			LIBORCovarianceModelPrecomputed.maximumCacheSize = maximumCacheSize;
+			while(cache.size() > maximumCacheSize) {
+				cache.remove(cache.keySet().iterator().next());
+			}
+		}
+	}
+
+	/**
+	 * @return The number of precomputed covariance models in the cache.
+	 */
+	public static int getCacheSize() {
+		synchronized(cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Removes all precomputed covariance models from the cache.
+	 */
+	public static void clearCache() {
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Returns the factor loading. On the simulation time steps this is the shared precomputed array, which must not be modified.
+	 */
+	@Override
+	public RandomVariableInterface[] getFactorLoading(int timeIndex, int component, RandomVariableInterface[] realizationAtTimeIndex) {
+		if(timeIndex >= factorLoadings.length) return covarianceModel.getFactorLoading(timeIndex, component, realizationAtTimeIndex);
+		return factorLoadings[timeIndex][component];
+	}
+
+	@Override
+	public RandomVariableInterface getFactorLoadingPseudoInverse(int timeIndex, int component, int factor, RandomVariableInterface[] realizationAtTimeIndex) {
+		return covarianceModel.getFactorLoadingPseudoInverse(timeIndex, component, factor, realizationAtTimeIndex);
+	}
+
+	@Override
+	public RandomVariableInterface getCovariance(int timeIndex, int component1, int component2, RandomVariableInterface[] realizationAtTimeIndex) {
+		if(timeIndex >= covariances.length) return covarianceModel.getCovariance(timeIndex, component1, component2, realizationAtTimeIndex);
+		return covariances[timeIndex][component1][component2];
+	}
+
+	/**
+	 * @return The underlying covariance model.
+	 */
+	public AbstractLIBORCovarianceModel getCovarianceModel() {
+		return covarianceModel;
+	}
+
+	private static class Precomputation {
+		private final RandomVariableInterface[][][]	factorLoadings;
+		private final RandomVariableInterface[][][]	covariances;
+
+		private Precomputation(RandomVariableInterface[][][] factorLoadings, RandomVariableInterface[][][] covariances) {
+			this.factorLoadings	= factorLoadings;
+			this.covariances	= covariances;
+		}
+	}
+
+	private static class CacheKey {
+		private final String	covarianceModelClass;
+		private final double[]	times;
+		private final double[]	tenorTimes;
+		private final int		numberOfFactors;
+		private final double[]	parameters;
+
+		private CacheKey(String covarianceModelClass, double[] times, double[] tenorTimes, int numberOfFactors, double[] parameters) {
+			this.covarianceModelClass	= covarianceModelClass;
+			this.times					= times;
+			this.tenorTimes				= tenorTimes;
+			this.numberOfFactors		= numberOfFactors;
+			this.parameters				= parameters;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof CacheKey)) return false;
+			CacheKey key = (CacheKey)other;
+			return numberOfFactors == key.numberOfFactors && covarianceModelClass.equals(key.covarianceModelClass)
+					&& Arrays.equals(times, key.times) && Arrays.equals(tenorTimes, key.tenorTimes) && Arrays.equals(parameters, key.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * (31 * (31 * covarianceModelClass.hashCode() + Arrays.hashCode(times)) + Arrays.hashCode(tenorTimes)) + numberOfFactors) + Arrays.hashCode(parameters);
+		}
+	}
+}
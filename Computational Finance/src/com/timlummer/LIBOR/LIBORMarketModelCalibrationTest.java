@@ -0,0 +1,73 @@
+package com.timlummer.LIBOR;
+
+import java.text.DecimalFormat;
+
+import net.finmath.exception.CalculationException;
+
+/**
+ * Calibrates the LIBOR market model of <code>LIBORinArrears</code> to caplet and swaption volatilities
+ * and verifies the calibrated volatilities by Monte-Carlo.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class LIBORMarketModelCalibrationTest {
+
+	private static final DecimalFormat formatterVolatility	= new DecimalFormat(" 0.0000;-0.0000");
+
+	public static void main(String[] args) throws CalculationException {
+
+		int numberOfFactors	= 5;
+		int numberOfPaths	= 10000;
+
+		SwaptionVolatilityQuote[] quotes = {
+				// Caplets
+				new SwaptionVolatilityQuote(1.0, 1.5, 0.240),
+				new SwaptionVolatilityQuote(2.0, 2.5, 0.255),
+				new SwaptionVolatilityQuote(3.0, 3.5, 0.250),
+				new SwaptionVolatilityQuote(5.0, 5.5, 0.230),
+				new SwaptionVolatilityQuote(7.0, 7.5, 0.215),
+				new SwaptionVolatilityQuote(10.0, 10.5, 0.200),
+				// Swaptions
+				new SwaptionVolatilityQuote(1.0, 6.0, 0.220),
+				new SwaptionVolatilityQuote(2.0, 7.0, 0.215),
+				new SwaptionVolatilityQuote(5.0, 10.0, 0.195),
+				new SwaptionVolatilityQuote(10.0, 15.0, 0.175),
+				new SwaptionVolatilityQuote(1.0, 11.0, 0.205),
+				new SwaptionVolatilityQuote(5.0, 15.0, 0.180)
+		};
+
+		LIBORMarketModelCalibration calibration = new LIBORMarketModelCalibration(quotes, numberOfFactors);
+
+		double[] initialParameters = {
+				LIBORinArrears.VOLATILITY_PARAMETERS[0], LIBORinArrears.VOLATILITY_PARAMETERS[1],
+				LIBORinArrears.VOLATILITY_PARAMETERS[2], LIBORinArrears.VOLATILITY_PARAMETERS[3],
+				0.01 /* correlation decay */ };
+
+		long millisStart = System.currentTimeMillis();
+		double[] parameters = calibration.calibrate(initialParameters);
+		long millisCalibration = System.currentTimeMillis() - millisStart;
+
+		millisStart = System.currentTimeMillis();
+		double[] volatilitiesMonteCarlo = calibration.getMonteCarloVolatilities(parameters, numberOfPaths);
+		long millisVerification = System.currentTimeMillis() - millisStart;
+
+		double[] volatilitiesApproximated = calibration.getApproximatedVolatilities(parameters);
+
+		System.out.println("Calibration (approximation)......: " + millisCalibration + " ms");
+		System.out.println("Verification (Monte-Carlo).......: " + millisVerification + " ms");
+		System.out.println("a, b, c, d, decay................: " + formatterVolatility.format(parameters[0]) + formatterVolatility.format(parameters[1])
+				+ formatterVolatility.format(parameters[2]) + formatterVolatility.format(parameters[3]) + formatterVolatility.format(parameters[4]));
+
+		System.out.println("\nExercise\tEnd\tQuote\tApproximation\tMonte-Carlo");
+		double errorSquared = 0.0;
+		for(int quoteIndex=0; quoteIndex<quotes.length; quoteIndex++) {
+			System.out.println(quotes[quoteIndex].getExerciseDate() + "\t\t" + quotes[quoteIndex].getSwapEndDate()
+					+ "\t" + formatterVolatility.format(quotes[quoteIndex].getVolatility())
+					+ "\t" + formatterVolatility.format(volatilitiesApproximated[quoteIndex])
+					+ "\t\t" + formatterVolatility.format(volatilitiesMonteCarlo[quoteIndex]));
+			errorSquared += Math.pow(volatilitiesMonteCarlo[quoteIndex] - quotes[quoteIndex].getVolatility(), 2);
+		}
+		System.out.println("\nRMS error (Monte-Carlo)..........: " + formatterVolatility.format(Math.sqrt(errorSquared / quotes.length)));
+	}
+}
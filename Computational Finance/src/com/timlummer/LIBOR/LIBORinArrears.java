@@ -3,24 +3,41 @@ package com.timlummer.LIBOR;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.timlummer.instrumentation.Instrumentation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+import com.timlummer.statistics.StreamingStatistics;
+
 import net.finmath.exception.CalculationException;
 import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
 import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.AbstractRandomVariableFactory;
 import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.RandomVariableFactory;
 import net.finmath.montecarlo.interestrate.LIBORMarketModel;
 import net.finmath.montecarlo.interestrate.LIBORMarketModelInterface;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulation;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
-import net.finmath.montecarlo.interestrate.modelplugins.LIBORCorrelationModelExponentialDecay;
 import net.finmath.montecarlo.interestrate.modelplugins.LIBORCovarianceModelFromVolatilityAndCorrelation;
 import net.finmath.montecarlo.interestrate.modelplugins.LIBORVolatilityModel;
 import net.finmath.montecarlo.interestrate.modelplugins.LIBORVolatilityModelFourParameterExponentialForm;
 import net.finmath.montecarlo.process.ProcessEulerScheme;
 import net.finmath.stochastic.RandomVariableInterface;
 import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationInterface;
 
 public class LIBORinArrears {
 
+	/**
+	 * The parameters a, b, c, d of the volatility of <code>createLIBORMarketModel</code>.
+	 */
+	public static final double[] VOLATILITY_PARAMETERS = { 0.2, 0.0, 0.25, 0.3 };
+
+	/**
+	 * The seed of the Brownian motion of <code>createLIBORMarketModel</code>.
+	 */
+	public static final int SEED = 3141;
+
 	public static void main(String[] args) throws CalculationException {
 		
 		
@@ -30,8 +47,18 @@ public class LIBORinArrears {
 		int numberOfFactors = 5;
 		double correlationDecayParam=0.01;
 		
+		// Storage of the simulated LIBORs, e.g. -DpathPrecision=SINGLE to halve the memory per path
+		PathPrecision pathPrecision = PathPrecision.fromSystemProperty();
+		
+		// Generator of the Brownian increments, e.g. -DbrownianMotion=PARALLEL
+		BrownianMotionGenerator brownianMotionGenerator = BrownianMotionGenerator.fromSystemProperty();
 		
-		LIBORModelMonteCarloSimulationInterface lm = createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam);
+		// Optionally store the paths off-heap, simulated in batches, e.g. -DoffHeapBatches=4
+		int offHeapBatches = Integer.getInteger("offHeapBatches", 0);
+		
+		LIBORModelMonteCarloSimulationInterface lm = offHeapBatches > 0 ?
+				createLIBORMarketModelOffHeap(numberOfPaths, numberOfFactors, correlationDecayParam, offHeapBatches, pathPrecision.getRandomVariableFactory(), brownianMotionGenerator) :
+				createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam, pathPrecision.getRandomVariableFactory(), brownianMotionGenerator);
 		double T = 5.5;
 		
 		for(double t = 0.5;t< 5.0;t+=.5){
@@ -47,47 +74,188 @@ public class LIBORinArrears {
 		double value = Valuation.getAverage();		
 		double ValueAnalytic = 0.05*Math.pow((1.0/(1.0+0.05*0.5)),11);
 		
-		System.out.println(value+"\t" + ValueAnalytic);
+		// Tail of the value distribution (one pass, no sorting of the paths)
+		StreamingStatistics statistics = StreamingStatistics.of(Valuation);
+		
+		System.out.println(value+"\t" + ValueAnalytic + "\t" + statistics.getQuantile(0.01) + "\t" + statistics.getQuantile(0.99));
 		
 		}
 	}
 
 	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
 			int numberOfPaths, int numberOfFactors, double correlationDecayParam) throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam, new RandomVariableFactory());
+	}
+
+	/**
+	 * Creates the LIBOR market model with its paths stored off-heap (see <code>OffHeapLIBORModelMonteCarloSimulation</code>).
+	 * The paths are simulated in <code>numberOfBatches</code> batches (batch <i>b</i> with seed <code>SEED</code> + <i>b</i>),
+	 * such that the heap only holds the paths of one batch.
+	 *
+	 * @param numberOfPaths The number of paths (a multiple of the number of batches).
+	 * @param numberOfFactors The number of factors.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param numberOfBatches The number of batches.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModelOffHeap(
+			int numberOfPaths, int numberOfFactors, double correlationDecayParam, int numberOfBatches, AbstractRandomVariableFactory randomVariableFactory,
+			BrownianMotionGenerator brownianMotionGenerator) throws CalculationException {
+		if(numberOfPaths % numberOfBatches != 0) throw new IllegalArgumentException("Number of paths must be a multiple of the number of batches.");
+
+		TimeDiscretizationInterface timeDiscretization = createTimeDiscretization();
+		return new OffHeapLIBORModelMonteCarloSimulation(seed -> createLIBORMarketModel(numberOfPaths / numberOfBatches, numberOfFactors, correlationDecayParam,
+				VOLATILITY_PARAMETERS, timeDiscretization, randomVariableFactory, brownianMotionGenerator, seed), SEED, numberOfBatches);
+	}
+
+	/**
+	 * Creates the LIBOR market model, where the simulated LIBORs (and the Brownian increments) are created by the given factory,
+	 * e.g. <code>PathPrecision.SINGLE.getRandomVariableFactory()</code> to store the paths in single precision.
+	 *
+	 * @param numberOfPaths The number of paths.
+	 * @param numberOfFactors The number of factors.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
+			int numberOfPaths, int numberOfFactors, double correlationDecayParam, AbstractRandomVariableFactory randomVariableFactory) throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam, randomVariableFactory, BrownianMotionGenerator.SEQUENTIAL);
+	}
+
+	/**
+	 * Creates the LIBOR market model, where the simulated LIBORs are created by the given factory and the Brownian
+	 * increments by the given generator (e.g. <code>BrownianMotionGenerator.PARALLEL</code>).
+	 *
+	 * @param numberOfPaths The number of paths.
+	 * @param numberOfFactors The number of factors.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
+			int numberOfPaths, int numberOfFactors, double correlationDecayParam, AbstractRandomVariableFactory randomVariableFactory,
+			BrownianMotionGenerator brownianMotionGenerator) throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam, VOLATILITY_PARAMETERS, randomVariableFactory, brownianMotionGenerator);
+	}
+
+	/**
+	 * Creates the LIBOR market model with the given parameters (a, b, c, d) of the volatility
+	 * sigma_i(t) = (a + b * (T_i - t)) * exp(-c * (T_i - t)) + d, e.g. from <code>LIBORMarketModelCalibration</code>.
+	 *
+	 * @param numberOfPaths The number of paths.
+	 * @param numberOfFactors The number of factors.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param volatilityParameters The parameters a, b, c, d of the volatility.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
+			int numberOfPaths, int numberOfFactors, double correlationDecayParam, double[] volatilityParameters, AbstractRandomVariableFactory randomVariableFactory,
+			BrownianMotionGenerator brownianMotionGenerator) throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam, volatilityParameters, createTimeDiscretization(), randomVariableFactory, brownianMotionGenerator);
+	}
+
+	/**
+	 * Creates the LIBOR market model with the given parameters (a, b, c, d) of the volatility on the given simulation time discretization,
+	 * e.g. the minimal time discretization of a portfolio from <code>TimeDiscretizationBuilder</code> (which has to contain the tenor dates
+	 * up to the last payment date).
+	 *
+	 * @param numberOfPaths The number of paths.
+	 * @param numberOfFactors The number of factors.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param volatilityParameters The parameters a, b, c, d of the volatility.
+	 * @param timeDiscretization The simulation time discretization.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
+			int numberOfPaths, int numberOfFactors, double correlationDecayParam, double[] volatilityParameters, TimeDiscretizationInterface timeDiscretization,
+			AbstractRandomVariableFactory randomVariableFactory, BrownianMotionGenerator brownianMotionGenerator) throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, numberOfFactors, correlationDecayParam, volatilityParameters, timeDiscretization, randomVariableFactory, brownianMotionGenerator, SEED);
+	}
+
+	/**
+	 * Creates the LIBOR market model with the given parameters (a, b, c, d) of the volatility on the given simulation time discretization
+	 * with the given seed of the Brownian motion (e.g. a batch or shard of paths). Each call creates a new model and process.
+	 *
+	 * @param numberOfPaths The number of paths.
+	 * @param numberOfFactors The number of factors.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param volatilityParameters The parameters a, b, c, d of the volatility.
+	 * @param timeDiscretization The simulation time discretization.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @param seed The seed of the Brownian motion.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
+			int numberOfPaths, int numberOfFactors, double correlationDecayParam, double[] volatilityParameters, TimeDiscretizationInterface timeDiscretization,
+			AbstractRandomVariableFactory randomVariableFactory, BrownianMotionGenerator brownianMotionGenerator, int seed) throws CalculationException {
+		return createLIBORMarketModel(correlationDecayParam, volatilityParameters, randomVariableFactory,
+				brownianMotionGenerator.createBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, randomVariableFactory));
+	}
+
+	/**
+	 * Creates the LIBOR market model with the given parameters (a, b, c, d) of the volatility driven by the given Brownian motion,
+	 * whose time discretization is the simulation time discretization (e.g. the paths of a shard of a distributed simulation,
+	 * see <code>ParallelBrownianMotion</code>). Each call creates a new model and process.
+	 *
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param volatilityParameters The parameters a, b, c, d of the volatility.
+	 * @param randomVariableFactory The factory used to create the random variables of the simulation.
+	 * @param brownianMotion The Brownian motion, its number of factors is the number of factors of the model.
+	 * @return The simulation of the LIBOR market model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public static LIBORModelMonteCarloSimulationInterface createLIBORMarketModel(
+			double correlationDecayParam, double[] volatilityParameters, AbstractRandomVariableFactory randomVariableFactory,
+			BrownianMotionInterface brownianMotion) throws CalculationException {
+		Instrumentation.Timer timer = Instrumentation.start("LIBORinArrears.createLIBORMarketModel");
+		try {
+			return createLIBORMarketModelSimulation(correlationDecayParam, volatilityParameters, randomVariableFactory, brownianMotion);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	private static LIBORModelMonteCarloSimulationInterface createLIBORMarketModelSimulation(
+			double correlationDecayParam, double[] volatilityParameters, AbstractRandomVariableFactory randomVariableFactory,
+			BrownianMotionInterface brownianMotion) throws CalculationException {
+
+		TimeDiscretizationInterface	timeDiscretization	= brownianMotion.getTimeDiscretization();
+		int							numberOfFactors		= brownianMotion.getNumberOfFactors();
 	
 		/*
 		 * Create the libor tenor structure and the initial values
 		 */
-		double liborPeriodLength	= 0.5;
-		double liborRateTimeHorzion	= 20.0;
-		TimeDiscretization liborPeriodDiscretization = new TimeDiscretization(0.0, (int) (liborRateTimeHorzion / liborPeriodLength), liborPeriodLength);
+		TimeDiscretization liborPeriodDiscretization = createLIBORPeriodDiscretization();
 	
 		// Create the forward curve (initial value of the LIBOR market model)
-		ForwardCurve forwardCurve = ForwardCurve.createForwardCurveFromForwards(
-				"forwardCurve"								/* name of the curve */,
-				new double[] {0.5 , 1.0 , 2.0 , 5.0 , 40.0}	/* fixings of the forward */,
-				new double[] {0.05, 0.05, 0.05, 0.05, 0.05}	/* forwards */,
-				liborPeriodLength							/* tenor / period length */
-				);
-	
-		/*
-		 * Create a simulation time discretization
-		 */
-		double lastTime	= 20.0;
-		double dt		= 0.5;
-	
-		TimeDiscretization timeDiscretization = new TimeDiscretization(0.0, (int) (lastTime / dt), dt);
+		ForwardCurve forwardCurve = createForwardCurve();
 	
 		/*
 		 * Create a volatility structure v[i][j] = sigma_j(t_i)
 		 */
-		double a = 0.2, b = 0.0, c = 0.25, d = 0.3;
+		double a = volatilityParameters[0], b = volatilityParameters[1], c = volatilityParameters[2], d = volatilityParameters[3];
 		LIBORVolatilityModel volatilityModel = new LIBORVolatilityModelFourParameterExponentialForm(timeDiscretization, liborPeriodDiscretization, a, b, c, d, false);		
 	
 		/*
-		 * Create a correlation model rho_{i,j} = exp(-a * abs(T_i-T_j))
+		 * Create a correlation model rho_{i,j} = exp(-a * abs(T_i-T_j)) (the factor reduction is cached by tenor grid, number of factors and decay)
 		 */
-		LIBORCorrelationModelExponentialDecay correlationModel = new LIBORCorrelationModelExponentialDecay(
+		LIBORCorrelationModelExponentialDecayCached correlationModel = new LIBORCorrelationModelExponentialDecayCached(
 				timeDiscretization, liborPeriodDiscretization, numberOfFactors,
 				correlationDecayParam);
 	
@@ -99,6 +267,9 @@ public class LIBORinArrears {
 				new LIBORCovarianceModelFromVolatilityAndCorrelation(timeDiscretization,
 						liborPeriodDiscretization, volatilityModel, correlationModel);
 	
+		// Precompute the factor loadings and the covariance for every time step (cached by time discretization and parameters)
+		LIBORCovarianceModelPrecomputed covarianceModelPrecomputed = new LIBORCovarianceModelPrecomputed(covarianceModel, new double[] { a, b, c, d, correlationDecayParam });
+	
 		// BlendedLocalVolatlityModel (future extension)
 		//		AbstractLIBORCovarianceModel covarianceModel2 = new BlendedLocalVolatlityModel(covarianceModel, 0.00, false);
 	
@@ -117,13 +288,44 @@ public class LIBORinArrears {
 		/*
 		 * Create corresponding LIBOR Market Model
 		 */
-		LIBORMarketModelInterface liborMarketModel = new LIBORMarketModel(liborPeriodDiscretization, forwardCurve, new DiscountCurveFromForwardCurve(forwardCurve), covarianceModel, calibrationItems, properties);
-	
-		BrownianMotionInterface brownianMotion = new net.finmath.montecarlo.BrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, 3141 /* seed */);
+		LIBORMarketModelInterface liborMarketModel = new LIBORMarketModel(liborPeriodDiscretization, null, forwardCurve, new DiscountCurveFromForwardCurve(forwardCurve), randomVariableFactory, covarianceModelPrecomputed, calibrationItems, properties);
 	
 		ProcessEulerScheme process = new ProcessEulerScheme(brownianMotion, ProcessEulerScheme.Scheme.PREDICTOR_CORRECTOR);
 	
-		return new LIBORModelMonteCarloSimulation(liborMarketModel, process);
+		LIBORModelMonteCarloSimulation simulation = new LIBORModelMonteCarloSimulation(liborMarketModel, process);
+
+		return simulation;
+	}
+
+	/**
+	 * @return The tenor structure of the LIBOR market model (semi-annual periods up to 20 years).
+	 */
+	public static TimeDiscretization createLIBORPeriodDiscretization() {
+		double liborPeriodLength	= 0.5;
+		double liborRateTimeHorzion	= 20.0;
+		return new TimeDiscretization(0.0, (int) (liborRateTimeHorzion / liborPeriodLength), liborPeriodLength);
+	}
+
+	/**
+	 * @return The simulation time discretization of the LIBOR market model.
+	 */
+	public static TimeDiscretization createTimeDiscretization() {
+		double lastTime	= 20.0;
+		double dt		= 0.5;
+		return new TimeDiscretization(0.0, (int) (lastTime / dt), dt);
+	}
+
+	/**
+	 * @return The forward curve (initial value) of the LIBOR market model.
+	 */
+	public static ForwardCurve createForwardCurve() {
+		double liborPeriodLength	= 0.5;
+		return ForwardCurve.createForwardCurveFromForwards(
+				"forwardCurve"								/* name of the curve */,
+				new double[] {0.5 , 1.0 , 2.0 , 5.0 , 40.0}	/* fixings of the forward */,
+				new double[] {0.05, 0.05, 0.05, 0.05, 0.05}	/* forwards */,
+				liborPeriodLength							/* tenor / period length */
+				);
 	}
 
 }
@@ -0,0 +1,546 @@
+package com.timlummer.LIBOR;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.timlummer.montecarlo.ConcatenatedBrownianMotion;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.IndependentIncrementsInterface;
+import net.finmath.montecarlo.RandomVariable;
+import net.finmath.montecarlo.RandomVariableLowMemory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.TermStructureModelInterface;
+import net.finmath.montecarlo.model.AbstractModelInterface;
+import net.finmath.montecarlo.process.AbstractProcessInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * A simulation of a LIBOR model whose paths (LIBORs, numeraire and Monte-Carlo weights on the simulation
+ * time discretization) are stored off-heap, in one direct <code>ByteBuffer</code> per simulation time.
+ *
+ * The store is filled in batches of paths: batch <i>b</i> is a new simulation (new model, process and Brownian motion)
+ * created by a <code>BatchFactory</code> with seed <i>seed + b</i>. Each batch is copied and released before the next
+ * one is simulated, such that the Java heap only has to hold the paths of a single batch, while the products access all
+ * paths through the usual <code>getLIBOR</code>, <code>getNumeraire</code> and <code>getMonteCarloWeights</code> methods.
+ * The random variables returned are created on demand (in the precision of the batches, see <code>PathPrecision</code>);
+ * the most recently requested columns (<code>NUMBER_OF_CACHED_COLUMNS</code>, e.g. the LIBOR, numeraire and weights of a
+ * period requested repeatedly by a product) are kept on the heap.
+ *
+ * The off-heap memory is bounded by <code>-XX:MaxDirectMemorySize</code> and is released when the
+ * simulation is garbage collected.
+ *
+ * As in the LIBOR market model, only the LIBORs whose period has not started are stored at a given time. A LIBOR requested
+ * after its period start is the LIBOR at its fixing.
+ *
+ * Clones (<code>getCloneWithModifiedSeed</code>, <code>getCloneWithModifiedData</code>, e.g. the bumped models of a risk engine)
+ * re-run the batched construction with the modified seed or with the modified data applied to each batch.
+ *
+ * <code>getProcess</code> is a read-only view of the store (the process values are the LIBORs, as for the LIBOR market
+ * model), and <code>getModel</code> returns the model of the first batch attached to this view. <code>getBrownianMotion</code>
+ * is the concatenation of the Brownian motions of the batches (<code>ConcatenatedBrownianMotion</code>), which are created
+ * again by the <code>BatchFactory</code> on the first request (without simulating the paths of the batches). Their increments
+ * are generated on the heap when they are requested.
+ *
+ * Restrictions: the numeraire is only available on the simulation time discretization, and
+ * <code>getLIBOR(time, periodStart, periodEnd)</code> requires periods on the LIBOR period discretization.
+ * The simulation is not supported by <code>ValuationCache</code>, since its paths are determined by the batch factory.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class OffHeapLIBORModelMonteCarloSimulation implements LIBORModelMonteCarloSimulationInterface {
+
+	/**
+	 * Creates the simulation of a batch of paths.
+	 */
+	public interface BatchFactory {
+
+		/**
+		 * Creates a new simulation (its model and process must not be shared with other simulations), whose paths are simulated lazily.
+		 *
+		 * @param seed The seed of the Brownian motion of the batch.
+		 * @return The simulation of the batch.
+		 * @throws CalculationException Thrown if the simulation cannot be created.
+		 */
+		LIBORModelMonteCarloSimulationInterface createBatch(int seed) throws CalculationException;
+	}
+
+	/**
+	 * The number of columns (random variables of the paths) kept on the heap.
+	 */
+	public static final int NUMBER_OF_CACHED_COLUMNS = 8;
+
+	private final BatchFactory					batchFactory;
+	private final int							seed;
+	private final int							numberOfBatches;
+
+	private final TermStructureModelInterface	model;				// Model of the first batch, attached to the process view
+	private final AbstractProcessInterface		process = new ProcessView();
+	private final TimeDiscretizationInterface	timeDiscretization;
+	private final TimeDiscretizationInterface	liborPeriodDiscretization;
+	private final int							numberOfFactors;
+	private final int							numberOfPaths;
+	private final int							numberOfPathsPerBatch;
+	private final PathPrecision					precision;
+
+	/*
+	 * Per time index: the columns LIBOR(first), ..., LIBOR(n-1), numeraire, weights, each holding numberOfPaths realizations,
+	 * where first is the index of the first LIBOR whose period has not started.
+	 * Deterministic columns are not read from the buffer, but from deterministicValues.
+	 */
+	private final int[]			firstLiborIndex;
+	private final ByteBuffer[]	timeSlices;
+	private final boolean[][]	isDeterministic;
+	private final double[][]	deterministicValues;
+
+	private volatile BrownianMotionInterface brownianMotion;
+
+	private final Map<Long, RandomVariableInterface> cachedColumns = new LinkedHashMap<Long, RandomVariableInterface>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, RandomVariableInterface> eldest) {
+			return size() > NUMBER_OF_CACHED_COLUMNS;
+		}
+	};
+
+	/**
+	 * Create the off-heap store by simulating <code>numberOfBatches</code> batches of paths.
+	 *
+	 * @param batchFactory The factory of the batches.
+	 * @param seed The seed of the first batch (batch <i>b</i> has the seed <i>seed + b</i>).
+	 * @param numberOfBatches The number of batches. The number of paths is <code>numberOfBatches</code> times the number of paths of a batch.
+	 * @throws CalculationException Thrown if the simulation of a batch fails.
+	 */
+	public OffHeapLIBORModelMonteCarloSimulation(BatchFactory batchFactory, int seed, int numberOfBatches) throws CalculationException {
+		super();
+		if(numberOfBatches < 1) throw new IllegalArgumentException("Number of batches must be positive.");
+
+		LIBORModelMonteCarloSimulationInterface firstBatch = batchFactory.createBatch(seed);
+
+		this.batchFactory				= batchFactory;
+		this.seed						= seed;
+		this.numberOfBatches			= numberOfBatches;
+		this.timeDiscretization			= firstBatch.getTimeDiscretization();
+		this.liborPeriodDiscretization	= firstBatch.getLiborPeriodDiscretization();
+		this.numberOfFactors			= firstBatch.getNumberOfFactors();
+		this.numberOfPathsPerBatch		= firstBatch.getNumberOfPaths();
+		this.numberOfPaths				= numberOfBatches * numberOfPathsPerBatch;
+		this.precision					= PathPrecision.of(firstBatch.getLIBOR(0, 0));
+
+		int numberOfTimes	= timeDiscretization.getNumberOfTimes();
+		int bytesPerValue	= precision == PathPrecision.DOUBLE ? Double.BYTES : Float.BYTES;
+
+		firstLiborIndex		= new int[numberOfTimes];
+		timeSlices			= new ByteBuffer[numberOfTimes];
+		isDeterministic		= new boolean[numberOfTimes][];
+		deterministicValues	= new double[numberOfTimes][];
+		for(int timeIndex=0; timeIndex<numberOfTimes; timeIndex++) {
+			int liborIndex = 0;
+			while(liborIndex < getNumberOfLibors() && getLiborPeriod(liborIndex) < getTime(timeIndex)) liborIndex++;
+			firstLiborIndex[timeIndex] = liborIndex;
+
+			int numberOfColumns = getNumberOfLibors() - liborIndex + 2;
+			long bytesPerTimeSlice = (long)numberOfColumns * numberOfPaths * bytesPerValue;
+			if(bytesPerTimeSlice > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Paths of a single time step exceed 2 GB (" + bytesPerTimeSlice + " bytes). Reduce the number of paths.");
+			}
+
+			timeSlices[timeIndex]			= ByteBuffer.allocateDirect((int)bytesPerTimeSlice).order(ByteOrder.nativeOrder());
+			isDeterministic[timeIndex]		= new boolean[numberOfColumns];
+			deterministicValues[timeIndex]	= new double[numberOfColumns];
+		}
+
+		this.model = copyBatch(firstBatch, 0);
+		firstBatch = null;		// Release the paths of the first batch
+
+		// Each batch is only referenced by copyBatch, hence released before the next batch is simulated
+		for(int batchIndex=1; batchIndex<numberOfBatches; batchIndex++) {
+			copyBatch(batchFactory.createBatch(seed + batchIndex), batchIndex * numberOfPathsPerBatch);
+		}
+
+		model.setProcess(process);
+	}
+
+	/**
+	 * Copies the paths of a batch to the store and detaches its model from its process.
+	 *
+	 * @return The model of the batch.
+	 */
+	private TermStructureModelInterface copyBatch(LIBORModelMonteCarloSimulationInterface batch, int firstPath) throws CalculationException {
+		if(batch.getNumberOfPaths() != numberOfPathsPerBatch || batch.getTimeDiscretization().getNumberOfTimes() != timeDiscretization.getNumberOfTimes()) {
+			throw new IllegalArgumentException("Batches must have the same number of paths and the same time discretization.");
+		}
+
+		for(int timeIndex=0; timeIndex<timeDiscretization.getNumberOfTimes(); timeIndex++) {
+			for(int liborIndex=firstLiborIndex[timeIndex]; liborIndex<getNumberOfLibors(); liborIndex++) {
+				copy(batch.getLIBOR(timeIndex, liborIndex), timeIndex, liborIndex - firstLiborIndex[timeIndex], firstPath);
+			}
+			copy(batch.getNumeraire(getTime(timeIndex)), timeIndex, getNumeraireColumn(timeIndex), firstPath);
+			// The weights of a batch are normalized to its own number of paths
+			copy(batch.getMonteCarloWeights(timeIndex).mult((double)numberOfPathsPerBatch / numberOfPaths), timeIndex, getNumeraireColumn(timeIndex)+1, firstPath);
+		}
+
+		TermStructureModelInterface modelOfBatch = batch.getModel();
+		modelOfBatch.setProcess(null);
+		return modelOfBatch;
+	}
+
+	private void copy(RandomVariableInterface randomVariable, int timeIndex, int column, int firstPath) {
+		if(randomVariable.isDeterministic()) {
+			double value = randomVariable.get(0);
+			if(firstPath == 0) {
+				isDeterministic[timeIndex][column]		= true;
+				deterministicValues[timeIndex][column]	= value;
+				return;
+			}
+			if(isDeterministic[timeIndex][column] && deterministicValues[timeIndex][column] == value) return;
+		}
+
+		if(isDeterministic[timeIndex][column]) {
+			// The column was deterministic in the previous batches only: store their value on each of their paths
+			put(getConstantRealizations(firstPath, deterministicValues[timeIndex][column]), timeIndex, column * numberOfPaths);
+			isDeterministic[timeIndex][column] = false;
+		}
+
+		double[] realizations = randomVariable.isDeterministic() ? getConstantRealizations(numberOfPathsPerBatch, randomVariable.get(0)) : randomVariable.getRealizations();
+		put(realizations, timeIndex, column * numberOfPaths + firstPath);
+	}
+
+	private int getNumeraireColumn(int timeIndex) {
+		return getNumberOfLibors() - firstLiborIndex[timeIndex];
+	}
+
+	private static double[] getConstantRealizations(int numberOfPaths, double value) {
+		double[] realizations = new double[numberOfPaths];
+		Arrays.fill(realizations, value);
+		return realizations;
+	}
+
+	private void put(double[] realizations, int timeIndex, int offset) {
+		if(precision == PathPrecision.DOUBLE) {
+			DoubleBuffer buffer = timeSlices[timeIndex].asDoubleBuffer();
+			buffer.position(offset);
+			buffer.put(realizations);
+		}
+		else {
+			FloatBuffer buffer = timeSlices[timeIndex].asFloatBuffer();
+			buffer.position(offset);
+			for(double realization : realizations) buffer.put((float)realization);
+		}
+	}
+
+	/**
+	 * Returns the random variable of the given column, from the cached columns or created from the off-heap store.
+	 * Buffer views are created per call, hence concurrent reads are safe.
+	 */
+	private RandomVariableInterface getRandomVariable(int timeIndex, int column) {
+		double time = timeDiscretization.getTime(timeIndex);
+		if(isDeterministic[timeIndex][column]) {
+			return precision.createRandomVariable(time, deterministicValues[timeIndex][column]);
+		}
+
+		Long key = ((long)timeIndex << 32) | column;
+		RandomVariableInterface randomVariable;
+		synchronized(cachedColumns) {
+			randomVariable = cachedColumns.get(key);
+		}
+		if(randomVariable == null) {
+			randomVariable = createRandomVariable(timeIndex, column, time);
+			synchronized(cachedColumns) {
+				cachedColumns.put(key, randomVariable);
+			}
+		}
+		return randomVariable;
+	}
+
+	private RandomVariableInterface createRandomVariable(int timeIndex, int column, double time) {
+		int offset = column * numberOfPaths;
+		if(precision == PathPrecision.DOUBLE) {
+			double[] realizations = new double[numberOfPaths];
+			DoubleBuffer buffer = timeSlices[timeIndex].asDoubleBuffer();
+			buffer.position(offset);
+			buffer.get(realizations);
+			return new RandomVariable(time, realizations);
+		}
+		else {
+			float[] realizations = new float[numberOfPaths];
+			FloatBuffer buffer = timeSlices[timeIndex].asFloatBuffer();
+			buffer.position(offset);
+			buffer.get(realizations);
+			return new RandomVariableLowMemory(time, realizations);
+		}
+	}
+
+	/**
+	 * @return The number of bytes stored off-heap.
+	 */
+	public long getOffHeapBytes() {
+		long bytes = 0;
+		for(ByteBuffer timeSlice : timeSlices) bytes += timeSlice.capacity();
+		return bytes;
+	}
+
+	@Override
+	public RandomVariableInterface getLIBOR(int timeIndex, int liborIndex) throws CalculationException {
+		if(liborIndex < firstLiborIndex[timeIndex]) {
+			// The period has started, use the LIBOR at its fixing
+			int fixingTimeIndex = getTimeIndex(getLiborPeriod(liborIndex));
+			if(fixingTimeIndex < 0) fixingTimeIndex = -fixingTimeIndex-2;
+			return getRandomVariable(fixingTimeIndex, liborIndex - firstLiborIndex[fixingTimeIndex]);
+		}
+		return getRandomVariable(timeIndex, liborIndex - firstLiborIndex[timeIndex]);
+	}
+
+	@Override
+	public RandomVariableInterface[] getLIBORs(int timeIndex) throws CalculationException {
+		RandomVariableInterface[] libors = new RandomVariableInterface[getNumberOfLibors()];
+		for(int liborIndex=0; liborIndex<libors.length; liborIndex++) libors[liborIndex] = getLIBOR(timeIndex, liborIndex);
+		return libors;
+	}
+
+	@Override
+	public RandomVariableInterface getLIBOR(double time, double periodStart, double periodEnd) throws CalculationException {
+		// After its start, the LIBOR of the period is fixed
+		int timeIndex = getTimeIndex(Math.min(time, periodStart));
+		if(timeIndex < 0) timeIndex = -timeIndex-2;
+
+		int periodStartIndex	= getLiborPeriodIndex(periodStart);
+		int periodEndIndex		= getLiborPeriodIndex(periodEnd);
+		if(periodStartIndex < 0 || periodEndIndex < 0) {
+			throw new IllegalArgumentException("Period [" + periodStart + ", " + periodEnd + "] is not on the LIBOR period discretization.");
+		}
+
+		if(periodEndIndex == periodStartIndex+1) return getLIBOR(timeIndex, periodStartIndex);
+
+		// Compound the LIBORs of the sub-periods
+		RandomVariableInterface accrualFactor = null;
+		for(int liborIndex=periodStartIndex; liborIndex<periodEndIndex; liborIndex++) {
+			RandomVariableInterface subPeriodAccrualFactor = getLIBOR(timeIndex, liborIndex).mult(getLiborPeriod(liborIndex+1) - getLiborPeriod(liborIndex)).add(1.0);
+			accrualFactor = accrualFactor == null ? subPeriodAccrualFactor : accrualFactor.mult(subPeriodAccrualFactor);
+		}
+		return accrualFactor.sub(1.0).div(periodEnd - periodStart);
+	}
+
+	@Override
+	public RandomVariableInterface getNumeraire(double time) throws CalculationException {
+		int timeIndex = getTimeIndex(time);
+		if(timeIndex < 0) throw new IllegalArgumentException("Numeraire is only stored on the simulation time discretization (time " + time + ").");
+		return getRandomVariable(timeIndex, getNumeraireColumn(timeIndex));
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(int timeIndex) throws CalculationException {
+		return getRandomVariable(timeIndex, getNumeraireColumn(timeIndex)+1);
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(double time) throws CalculationException {
+		int timeIndex = getTimeIndex(time);
+		if(timeIndex < 0) timeIndex = -timeIndex-2;
+		return getMonteCarloWeights(timeIndex);
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	@Override
+	public TimeDiscretizationInterface getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public double getTime(int timeIndex) {
+		return timeDiscretization.getTime(timeIndex);
+	}
+
+	@Override
+	public int getTimeIndex(double time) {
+		return timeDiscretization.getTimeIndex(time);
+	}
+
+	@Override
+	public RandomVariableInterface getRandomVariableForConstant(double value) {
+		return precision.createRandomVariable(value);
+	}
+
+	@Override
+	public TimeDiscretizationInterface getLiborPeriodDiscretization() {
+		return liborPeriodDiscretization;
+	}
+
+	@Override
+	public int getNumberOfLibors() {
+		return liborPeriodDiscretization.getNumberOfTimeSteps();
+	}
+
+	@Override
+	public double getLiborPeriod(int timeIndex) {
+		return liborPeriodDiscretization.getTime(timeIndex);
+	}
+
+	@Override
+	public int getLiborPeriodIndex(double time) {
+		return liborPeriodDiscretization.getTimeIndex(time);
+	}
+
+	/**
+	 * @return The model of the first batch, attached to the process view of the store.
+	 */
+	@Override
+	public TermStructureModelInterface getModel() {
+		return model;
+	}
+
+	/**
+	 * @return The concatenation of the Brownian motions of the batches (<code>ConcatenatedBrownianMotion</code>).
+	 */
+	@Override
+	public BrownianMotionInterface getBrownianMotion() {
+		if(brownianMotion == null) {
+			synchronized(this) {
+				if(brownianMotion == null) {
+					BrownianMotionInterface[] brownianMotionsOfBatches = new BrownianMotionInterface[numberOfBatches];
+					try {
+						for(int batchIndex=0; batchIndex<numberOfBatches; batchIndex++) {
+							brownianMotionsOfBatches[batchIndex] = batchFactory.createBatch(seed + batchIndex).getBrownianMotion();
+						}
+					}
+					catch(CalculationException e) {
+						throw new RuntimeException(e);
+					}
+					brownianMotion = new ConcatenatedBrownianMotion(brownianMotionsOfBatches);
+				}
+			}
+		}
+		return brownianMotion;
+	}
+
+	/**
+	 * @return The read-only process view of the store.
+	 */
+	@Override
+	public AbstractProcessInterface getProcess() {
+		return process;
+	}
+
+	/**
+	 * Re-runs the batched construction with the given seed of the first batch.
+	 */
+	@Override
+	@SuppressWarnings("deprecation")		// Implements the (deprecated) method of the interface
+	public Object getCloneWithModifiedSeed(int seed) {
+		try {
+			return new OffHeapLIBORModelMonteCarloSimulation(batchFactory, seed, numberOfBatches);
+		}
+		catch(CalculationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Re-runs the batched construction, each batch being the clone of the batch with the modified data.
+	 */
+	@Override
+	public LIBORModelMonteCarloSimulationInterface getCloneWithModifiedData(Map<String, Object> dataModified) throws CalculationException {
+		Map<String, Object> dataModifiedOfBatches = new HashMap<String, Object>(dataModified);
+		BatchFactory batchFactoryModified = seedOfBatch -> (LIBORModelMonteCarloSimulationInterface)batchFactory.createBatch(seedOfBatch).getCloneWithModifiedData(dataModifiedOfBatches);
+		return new OffHeapLIBORModelMonteCarloSimulation(batchFactoryModified, seed, numberOfBatches);
+	}
+
+	/**
+	 * The process of the store: the process values are the LIBORs (component <i>i</i> is LIBOR <i>i</i>), the Monte-Carlo
+	 * weights and the driver are those of the simulation. The paths are stored, hence the view cannot be attached to
+	 * another model (<code>setModel</code>) and a clone is the view itself.
+	 */
+	private class ProcessView implements AbstractProcessInterface {
+
+		@Override
+		public RandomVariableInterface getProcessValue(int timeIndex, int componentIndex) throws CalculationException {
+			return getLIBOR(timeIndex, componentIndex);
+		}
+
+		@Override
+		public RandomVariableInterface getMonteCarloWeights(int timeIndex) throws CalculationException {
+			return OffHeapLIBORModelMonteCarloSimulation.this.getMonteCarloWeights(timeIndex);
+		}
+
+		@Override
+		public int getNumberOfComponents() {
+			return getNumberOfLibors();
+		}
+
+		@Override
+		public TimeDiscretizationInterface getTimeDiscretization() {
+			return timeDiscretization;
+		}
+
+		@Override
+		public double getTime(int timeIndex) {
+			return OffHeapLIBORModelMonteCarloSimulation.this.getTime(timeIndex);
+		}
+
+		@Override
+		public int getTimeIndex(double time) {
+			return OffHeapLIBORModelMonteCarloSimulation.this.getTimeIndex(time);
+		}
+
+		@Override
+		public int getNumberOfPaths() {
+			return numberOfPaths;
+		}
+
+		@Override
+		public int getNumberOfFactors() {
+			return numberOfFactors;
+		}
+
+		@Override
+		public IndependentIncrementsInterface getStochasticDriver() {
+			return OffHeapLIBORModelMonteCarloSimulation.this.getBrownianMotion();
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")		// Implements the (deprecated) method of the interface
+		public BrownianMotionInterface getBrownianMotion() {
+			return OffHeapLIBORModelMonteCarloSimulation.this.getBrownianMotion();
+		}
+
+		@Override
+		public void setModel(AbstractModelInterface model) {
+			throw new UnsupportedOperationException("The process is a view of stored paths and cannot be attached to another model.");
+		}
+
+		@Override
+		public AbstractProcessInterface getCloneWithModifiedData(Map<String, Object> dataModified) {
+			try {
+				return OffHeapLIBORModelMonteCarloSimulation.this.getCloneWithModifiedData(dataModified).getProcess();
+			}
+			catch(CalculationException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public AbstractProcessInterface clone() {
+			return this;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.timlummer.LIBOR;
+
+/**
+ * The Black volatility quote of an at-the-money swaption with exercise date T_s and swap end date T_e (on the tenor grid).
+ * A caplet is a swaption with a single period.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class SwaptionVolatilityQuote {
+
+	private final double	exerciseDate;
+	private final double	swapEndDate;
+	private final double	volatility;
+
+	/**
+	 * @param exerciseDate The exercise date (start of the swap).
+	 * @param swapEndDate The end date of the swap.
+	 * @param volatility The Black volatility.
+	 */
+	public SwaptionVolatilityQuote(double exerciseDate, double swapEndDate, double volatility) {
+		super();
+		this.exerciseDate	= exerciseDate;
+		this.swapEndDate	= swapEndDate;
+		this.volatility		= volatility;
+	}
+
+	public double getExerciseDate() {
+		return exerciseDate;
+	}
+
+	public double getSwapEndDate() {
+		return swapEndDate;
+	}
+
+	public double getVolatility() {
+		return volatility;
+	}
+
+	@Override
+	public String toString() {
+		return exerciseDate + "x" + (swapEndDate - exerciseDate) + ": " + volatility;
+	}
+}
@@ -0,0 +1,171 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.ObservationDatesInterface;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Implements the valuation of a bonus certificate with continuously monitored barrier <i>B</i>, paying in <i>T</i>
+ * <br>
+ * 	<i>V(T) = max(S(T), S(0) (1 + bonus))</i> if <i>S(t) &gt; B</i> for all <i>t</i> in [0, T], otherwise <i>V(T) = S(T)</i>.
+ * <br>
+ * The barrier is monitored between the times of the model by the Brownian bridge: given the simulated values
+ * <i>S(t<sub>i</sub>)</i>, <i>S(t<sub>i+1</sub>)</i> above the barrier, the log of the asset does not hit the barrier in between with probability
+ * <br>
+ * 	<i>p<sub>i</sub> = 1 - exp( -2 log(S(t<sub>i</sub>)/B) log(S(t<sub>i+1</sub>)/B) / (&sigma;<sup>2</sup> (t<sub>i+1</sub> - t<sub>i</sub>)) )</i>,
+ * <br>
+ * and the payoff is replaced by its conditional expectation <i>S(T) + &Pi; p<sub>i</sub> max(S(0) (1 + bonus) - S(T), 0)</i>.
+ * This is exact for the Black-Scholes model on any time discretization, such that the certificate can be valued on a coarse grid
+ * (e.g. the exact simulation on a few dates) instead of a grid with daily steps.
+ *
+ * The volatility &sigma; of the bridge is given, or taken from the model if it is a Black-Scholes model
+ * (<code>BlackScholesExactSimulation</code> or <code>MonteCarloAssetModel</code> of a <code>BlackScholesModel</code>).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BarrierBonusOption extends AbstractAssetMonteCarloProduct implements ObservationDatesInterface {
+
+	private final double	maturity;
+	private final double	bonus;
+	private final double	barrier;
+	private final int		underlyingIndex;
+	private final Double	volatility;
+
+	/**
+	 * Create the certificate with the given volatility of the Brownian bridge.
+	 *
+	 * @param maturity The maturity T.
+	 * @param bonus The bonus.
+	 * @param barrier The barrier B.
+	 * @param underlyingIndex The index of the underlying to be fetched from the model.
+	 * @param volatility The (log-normal) volatility &sigma; of the Brownian bridge between the times of the model.
+	 */
+	public BarrierBonusOption(double maturity, double bonus, double barrier, int underlyingIndex, double volatility) {
+		super();
+		this.maturity			= maturity;
+		this.bonus				= bonus;
+		this.barrier			= barrier;
+		this.underlyingIndex	= underlyingIndex;
+		this.volatility			= volatility;
+	}
+
+	/**
+	 * Create the certificate, using the volatility of the (Black-Scholes) model for the Brownian bridge.
+	 *
+	 * @param maturity The maturity T.
+	 * @param bonus The bonus.
+	 * @param barrier The barrier B.
+	 * @param underlyingIndex The index of the underlying to be fetched from the model.
+	 */
+	public BarrierBonusOption(double maturity, double bonus, double barrier, int underlyingIndex) {
+		super();
+		this.maturity			= maturity;
+		this.bonus				= bonus;
+		this.barrier			= barrier;
+		this.underlyingIndex	= underlyingIndex;
+		this.volatility			= null;		// Use the volatility of the model
+	}
+
+	@Override
+	public double[] getObservationDates() {
+		return new double[] { 0.0, maturity };
+	}
+
+	/**
+	 * This method returns the value random variable of the product within the specified model, evaluated at a given evalutationTime.
+	 * Cashflows prior evaluationTime are not considered.
+	 *
+	 * @param evaluationTime The time on which this products value should be observed.
+	 * @param model The model used to price the product.
+	 * @return The random variable representing the value of the product discounted to evaluation time
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	@Override
+	public RandomVariableInterface getValue(double evaluationTime, AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		int numberOfPaths = model.getNumberOfPaths();
+		double volatilityOfBridge = volatility != null ? volatility : getVolatility(model);
+		double logBarrier = Math.log(barrier);
+
+		int maturityIndex = model.getTimeIndex(maturity);
+		if(maturityIndex < 0) throw new IllegalArgumentException("Maturity " + maturity + " is not a time of the model.");
+
+		// Probability that the barrier is not hit up to the current time, on each path
+		double[] survivalProbabilities = new double[numberOfPaths];
+		double[] logUnderlyings = new double[numberOfPaths];
+		RandomVariableInterface underlyingAtInitial = model.getAssetValue(0, underlyingIndex);
+		for(int path=0; path<numberOfPaths; path++) {
+			logUnderlyings[path]		= Math.log(underlyingAtInitial.get(path)) - logBarrier;
+			survivalProbabilities[path]	= logUnderlyings[path] > 0 ? 1.0 : 0.0;
+		}
+		for(int timeIndex=0; timeIndex<maturityIndex; timeIndex++) {
+			double variance = volatilityOfBridge * volatilityOfBridge * model.getTimeDiscretization().getTimeStep(timeIndex);
+			RandomVariableInterface underlyingNext = model.getAssetValue(timeIndex+1, underlyingIndex);
+			for(int path=0; path<numberOfPaths; path++) {
+				double logUnderlyingNext = Math.log(underlyingNext.get(path)) - logBarrier;
+				if(logUnderlyingNext <= 0) {
+					survivalProbabilities[path] = 0.0;
+				}
+				else if(survivalProbabilities[path] > 0) {
+					survivalProbabilities[path] *= variance > 0 ? -Math.expm1(-2.0 * logUnderlyings[path] * logUnderlyingNext / variance) : 1.0;
+				}
+				logUnderlyings[path] = logUnderlyingNext;
+			}
+		}
+
+		RandomVariableInterface underlyingAtMaturity = model.getAssetValue(maturityIndex, underlyingIndex);
+		double[] payoffs = new double[numberOfPaths];
+		for(int path=0; path<numberOfPaths; path++) {
+			double underlyingValue	= underlyingAtMaturity.get(path);
+			double bonusLevel		= underlyingAtInitial.get(path) * (1 + bonus);
+			payoffs[path] = underlyingValue + survivalProbabilities[path] * Math.max(bonusLevel - underlyingValue, 0.0);
+		}
+
+		RandomVariableInterface values = PathPrecision.of(underlyingAtMaturity).createRandomVariable(maturity, payoffs);
+
+		// Discounting...
+		RandomVariableInterface numeraireAtMaturity		= model.getNumeraire(maturity);
+		RandomVariableInterface monteCarloWeights		= model.getMonteCarloWeights(maturity);
+		values = values.div(numeraireAtMaturity).mult(monteCarloWeights);
+
+		// ...to evaluation time.
+		RandomVariableInterface	numeraireAtEvalTime					= model.getNumeraire(evaluationTime);
+		RandomVariableInterface	monteCarloProbabilitiesAtEvalTime	= model.getMonteCarloWeights(evaluationTime);
+		values = values.mult(numeraireAtEvalTime).div(monteCarloProbabilitiesAtEvalTime);
+
+		return values;
+	}
+
+	public double getMaturity() {
+		return maturity;
+	}
+
+	public double getBonus() {
+		return bonus;
+	}
+
+	public double getBarrier() {
+		return barrier;
+	}
+
+	public int getUnderlyingIndex() {
+		return underlyingIndex;
+	}
+
+	private static double getVolatility(AssetModelMonteCarloSimulationInterface model) {
+		if(model instanceof BlackScholesExactSimulation) {
+			return ((BlackScholesExactSimulation)model).getVolatility();
+		}
+		if(model instanceof MonteCarloAssetModel && ((MonteCarloAssetModel)model).getModel() instanceof BlackScholesModel) {
+			return ((BlackScholesModel)((MonteCarloAssetModel)model).getModel()).getVolatility().get(0);
+		}
+		throw new IllegalArgumentException("The volatility of the Brownian bridge has to be given for a model other than Black-Scholes.");
+	}
+}
@@ -0,0 +1,77 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.functions.NormalDistribution;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Values a bonus certificate with continuously monitored barrier (<code>BarrierBonusOption</code>) with the Brownian bridge on
+ * time discretizations of increasing fineness and compares with the analytic value <i>S(0) + P<sub>down-and-out</sub>(S(0) (1 + bonus), B)</i>.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BarrierBonusOptionTest {
+
+	public static void main(String[] args) throws Exception {
+
+		// Model properties
+		double	initialValue	= 100;
+		double	riskFreeRate	= 0.01;
+		double	volatility		= 0.25;
+		int		numberOfPaths	= 100000;
+		int		seed			= 31415;
+
+		// Product properties
+		double	maturity		= 1.0;
+		double	bonus			= 0.2;
+		double	barrier			= 80.0;
+
+		BarrierBonusOption bonusCertificate = new BarrierBonusOption(maturity, bonus, barrier, 0);
+
+		double valueAnalytic = initialValue + getDownAndOutPutValue(initialValue, riskFreeRate, volatility, maturity, initialValue * (1 + bonus), barrier);
+		System.out.println("Analytic value (continuous barrier):\t" + valueAnalytic);
+
+		System.out.println("Time steps\tValue\t\t\t\t(std. error)\t\t\tDeviation\t\t\tTime");
+		for(int numberOfTimeSteps : new int[] { 1, 4, 12, 52, 252 }) {
+			double[] observationDates = new double[numberOfTimeSteps];
+			for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) observationDates[timeIndex] = maturity * (timeIndex + 1) / numberOfTimeSteps;
+
+			long millisStart = System.currentTimeMillis();
+			BlackScholesExactSimulation model = BlackScholesExactSimulation.create(initialValue, riskFreeRate, volatility, observationDates,
+					numberOfPaths, seed, PathPrecision.DOUBLE, BrownianMotionGenerator.fromSystemProperty());
+			RandomVariableInterface values = bonusCertificate.getValue(0.0, model);
+			double value = values.getAverage();
+			long millis = System.currentTimeMillis() - millisStart;
+
+			System.out.println(numberOfTimeSteps + "\t\t" + value + "\t(" + values.getStandardError() + ")\t" + (value - valueAnalytic) + "\t\t" + millis + " ms");
+		}
+	}
+
+	/*
+	 * Value of a down-and-out put with strike above the barrier in the Black-Scholes model (Reiner and Rubinstein).
+	 */
+	private static double getDownAndOutPutValue(double initialValue, double riskFreeRate, double volatility, double maturity, double strike, double barrier) {
+		double volatilityTimesSqrtMaturity = volatility * Math.sqrt(maturity);
+		double mu = (riskFreeRate - 0.5 * volatility * volatility) / (volatility * volatility);
+		double discountFactor = Math.exp(-riskFreeRate * maturity);
+
+		double x1 = Math.log(initialValue / strike) / volatilityTimesSqrtMaturity + (1 + mu) * volatilityTimesSqrtMaturity;
+		double x2 = Math.log(initialValue / barrier) / volatilityTimesSqrtMaturity + (1 + mu) * volatilityTimesSqrtMaturity;
+		double y1 = Math.log(barrier * barrier / (initialValue * strike)) / volatilityTimesSqrtMaturity + (1 + mu) * volatilityTimesSqrtMaturity;
+		double y2 = Math.log(barrier / initialValue) / volatilityTimesSqrtMaturity + (1 + mu) * volatilityTimesSqrtMaturity;
+
+		double reflectionAsset	= Math.pow(barrier / initialValue, 2 * (mu + 1));
+		double reflectionStrike	= Math.pow(barrier / initialValue, 2 * mu);
+
+		double a = -initialValue * NormalDistribution.cumulativeDistribution(-x1) + strike * discountFactor * NormalDistribution.cumulativeDistribution(-x1 + volatilityTimesSqrtMaturity);
+		double b = -initialValue * NormalDistribution.cumulativeDistribution(-x2) + strike * discountFactor * NormalDistribution.cumulativeDistribution(-x2 + volatilityTimesSqrtMaturity);
+		double c = -initialValue * reflectionAsset * NormalDistribution.cumulativeDistribution(y1) + strike * discountFactor * reflectionStrike * NormalDistribution.cumulativeDistribution(y1 - volatilityTimesSqrtMaturity);
+		double d = -initialValue * reflectionAsset * NormalDistribution.cumulativeDistribution(y2) + strike * discountFactor * reflectionStrike * NormalDistribution.cumulativeDistribution(y2 - volatilityTimesSqrtMaturity);
+
+		return a - b + c - d;
+	}
+}
@@ -0,0 +1,83 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.ObservationDatesInterface;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Worst-of or basket version of <code>BonusOption</code>, paying in <i>T</i>
+ * <br>
+ * 	<i>V(T) = N (1 + bonus)</i> if <i>P(T) &gt; barrier</i>, otherwise <i>V(T) = N P(T)</i>,
+ * <br>
+ * where <i>P</i> is the performance of a basket (<code>BasketPerformance</code>) and <i>N</i> the notional.
+ * For a single asset, a notional <i>S(0)</i> and the barrier <i>B / S(0)</i> the value agrees with <code>BonusOption</code>.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BasketBonusOption extends AbstractAssetMonteCarloProduct implements ObservationDatesInterface {
+
+	private final double			maturity;
+	private final double			notional;
+	private final double			bonus;
+	private final double			barrier;
+	private final BasketPerformance	basketPerformance;
+
+	/**
+	 * @param maturity The maturity T.
+	 * @param notional The notional N.
+	 * @param bonus The bonus.
+	 * @param barrier The barrier relative to the initial level of the performance.
+	 * @param basketPerformance The performance of the basket.
+	 */
+	public BasketBonusOption(double maturity, double notional, double bonus, double barrier, BasketPerformance basketPerformance) {
+		super();
+		this.maturity			= maturity;
+		this.notional			= notional;
+		this.bonus				= bonus;
+		this.barrier			= barrier;
+		this.basketPerformance	= basketPerformance;
+	}
+
+	@Override
+	public double[] getObservationDates() {
+		return new double[] { 0.0, maturity };
+	}
+
+	/**
+	 * This method returns the value random variable of the product within the specified model, evaluated at a given evalutationTime.
+	 * Cashflows prior evaluationTime are not considered.
+	 *
+	 * @param evaluationTime The time on which this products value should be observed.
+	 * @param model The model used to price the product.
+	 * @return The random variable representing the value of the product discounted to evaluation time
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	@Override
+	public RandomVariableInterface getValue(double evaluationTime, AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		double[] performances = basketPerformance.getPerformances(maturity, model);
+
+		double[] payoffs = new double[performances.length];
+		for(int path=0; path<payoffs.length; path++) {
+			payoffs[path] = notional * (performances[path] > barrier ? 1 + bonus : performances[path]);
+		}
+
+		RandomVariableInterface values = PathPrecision.of(model.getRandomVariableForConstant(0.0)).createRandomVariable(maturity, payoffs);
+
+		// Discounting...
+		RandomVariableInterface numeraireAtMaturity		= model.getNumeraire(maturity);
+		RandomVariableInterface monteCarloWeights		= model.getMonteCarloWeights(maturity);
+		values = values.div(numeraireAtMaturity).mult(monteCarloWeights);
+
+		// ...to evaluation time.
+		RandomVariableInterface	numeraireAtEvalTime					= model.getNumeraire(evaluationTime);
+		RandomVariableInterface	monteCarloProbabilitiesAtEvalTime	= model.getMonteCarloWeights(evaluationTime);
+		values = values.mult(numeraireAtEvalTime).div(monteCarloProbabilitiesAtEvalTime);
+
+		return values;
+	}
+}
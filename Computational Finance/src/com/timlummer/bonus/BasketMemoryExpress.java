@@ -0,0 +1,104 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.ObservationDatesInterface;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Worst-of or basket version of <code>MemoryExpress</code>: the payoff of <code>MemoryExpress</code> applied to the performance
+ * <i>P(T<sub>i</sub>)</i> of a basket (<code>BasketPerformance</code>) with initial level 1, scaled by the notional.
+ * For a single asset, a notional <i>S(0)</i> and the strike <i>K / S(0)</i> the value agrees with <code>MemoryExpress</code>.
+ *
+ * The performance on each exercise date is calculated once (each asset is read once) and the payoff is evaluated on arrays
+ * of the realizations.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BasketMemoryExpress extends AbstractAssetMonteCarloProduct implements ObservationDatesInterface {
+
+	private final double[]			exerciseDates;
+	private final double			notional;
+	private final double			coupon;
+	private final double			strike;
+	private final BasketPerformance	basketPerformance;
+
+	/**
+	 * @param exerciseDates The exercise dates T<sub>i</sub> (sorted).
+	 * @param notional The notional.
+	 * @param coupon The coupon.
+	 * @param strike The strike (coupon barrier) relative to the initial level of the performance.
+	 * @param basketPerformance The performance of the basket.
+	 */
+	public BasketMemoryExpress(double[] exerciseDates, double notional, double coupon, double strike, BasketPerformance basketPerformance) {
+		super();
+		this.exerciseDates		= exerciseDates;
+		this.notional			= notional;
+		this.coupon				= coupon;
+		this.strike				= strike;
+		this.basketPerformance	= basketPerformance;
+	}
+
+	@Override
+	public double[] getObservationDates() {
+		return exerciseDates.clone();
+	}
+
+	/**
+	 * This method returns the value random variable of the product within the specified model,
+	 * evaluated at a given evalutationTime.
+	 * Cash-flows prior evaluationTime are not considered.
+	 *
+	 * @param evaluationTime The time on which this products value should be observed.
+	 * @param model The model used to price the product.
+	 * @return The random variable representing the value of the product discounted to evaluation time.
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	@Override
+	public RandomVariableInterface getValue(double evaluationTime, AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		int numberOfPaths = model.getNumberOfPaths();
+		PathPrecision pathPrecision = PathPrecision.of(model.getRandomVariableForConstant(0.0));
+
+		double[] memory			= new double[numberOfPaths];
+		boolean[] isRedeemed	= new boolean[numberOfPaths];
+
+		RandomVariableInterface values = model.getRandomVariableForConstant(0.0);
+		for(double exerciseDate : exerciseDates) {
+			if(exerciseDate < evaluationTime) continue;
+
+			double[] performances = basketPerformance.getPerformances(exerciseDate, model);
+
+			double[] payoffs = new double[numberOfPaths];
+			for(int path=0; path<numberOfPaths; path++) {
+				if(isRedeemed[path]) continue;
+				double performance = performances[path];
+
+				// Above the strike: coupon and memory, redemption above the initial level
+				if(performance > strike) {
+					isRedeemed[path] = performance > 1.0;
+					payoffs[path] = notional * (coupon + memory[path] + (isRedeemed[path] ? 1.0 : 0.0));
+					memory[path] = 0.0;
+				}
+				else if(performance < strike) {
+					memory[path] += coupon;
+				}
+			}
+
+			// Discounting...
+			RandomVariableInterface valuesOfDate = pathPrecision.createRandomVariable(exerciseDate, payoffs);
+			valuesOfDate = valuesOfDate.div(model.getNumeraire(exerciseDate)).mult(model.getMonteCarloWeights(exerciseDate));
+			values = values.add(valuesOfDate);
+		}
+
+		// ...to evaluation time.
+		RandomVariableInterface	numeraireAtEvalTime					= model.getNumeraire(evaluationTime);
+		RandomVariableInterface	monteCarloProbabilitiesAtEvalTime	= model.getMonteCarloWeights(evaluationTime);
+		values = values.mult(numeraireAtEvalTime).div(monteCarloProbabilitiesAtEvalTime);
+
+		return values;
+	}
+}
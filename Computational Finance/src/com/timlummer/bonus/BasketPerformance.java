@@ -0,0 +1,83 @@
+package com.timlummer.bonus;
+
+import java.util.Arrays;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * The performance <i>P(t)</i> of a basket of assets relative to their initial values <i>S<sub>k</sub>(0)</i>, either
+ * <ul>
+ * 	<li>worst-of: <i>P(t) = min<sub>k</sub> S<sub>k</sub>(t) / S<sub>k</sub>(0)</i>, or</li>
+ * 	<li>basket: <i>P(t) = &Sigma;<sub>k</sub> w<sub>k</sub> S<sub>k</sub>(t) / S<sub>k</sub>(0)</i>.</li>
+ * </ul>
+ * The performance of a single asset with weight 1 is <i>S(t) / S(0)</i>, i.e., the basket products reduce to their single
+ * asset versions. Each asset is read once from the model for each requested time.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BasketPerformance {
+
+	private final int[]		underlyingIndices;
+	private final double[]	weights;				// null for worst-of
+
+	private BasketPerformance(int[] underlyingIndices, double[] weights) {
+		super();
+		if(underlyingIndices.length == 0) throw new IllegalArgumentException("The basket has no assets.");
+		if(weights != null && weights.length != underlyingIndices.length) throw new IllegalArgumentException("Inconsistent number of weights.");
+		this.underlyingIndices	= underlyingIndices.clone();
+		this.weights			= weights != null ? weights.clone() : null;
+	}
+
+	/**
+	 * @param underlyingIndices The indices of the assets in the model.
+	 * @return The worst-of performance of the given assets.
+	 */
+	public static BasketPerformance worstOf(int... underlyingIndices) {
+		return new BasketPerformance(underlyingIndices, null);
+	}
+
+	/**
+	 * @param underlyingIndices The indices of the assets in the model.
+	 * @param weights The weights of the performances of the assets.
+	 * @return The weighted performance of the given assets.
+	 */
+	public static BasketPerformance basket(int[] underlyingIndices, double[] weights) {
+		return new BasketPerformance(underlyingIndices, weights);
+	}
+
+	/**
+	 * Returns the realizations of the performance at the given time.
+	 *
+	 * @param time The time.
+	 * @param model The model.
+	 * @return The realizations of P(time).
+	 * @throws CalculationException Thrown if the model fails to provide the asset values.
+	 */
+	public double[] getPerformances(double time, AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		int numberOfPaths = model.getNumberOfPaths();
+		double[] performances = new double[numberOfPaths];
+		if(weights == null) Arrays.fill(performances, Double.POSITIVE_INFINITY);
+
+		for(int basketIndex=0; basketIndex<underlyingIndices.length; basketIndex++) {
+			RandomVariableInterface underlying			= model.getAssetValue(time, underlyingIndices[basketIndex]);
+			RandomVariableInterface underlyingAtInitial	= model.getAssetValue(0.0, underlyingIndices[basketIndex]);
+			for(int path=0; path<numberOfPaths; path++) {
+				double performance = underlying.get(path) / underlyingAtInitial.get(path);
+				if(weights == null)	performances[path] = Math.min(performances[path], performance);
+				else				performances[path] += weights[basketIndex] * performance;
+			}
+		}
+		return performances;
+	}
+
+	public int[] getUnderlyingIndices() {
+		return underlyingIndices.clone();
+	}
+
+	public boolean isWorstOf() {
+		return weights == null;
+	}
+}
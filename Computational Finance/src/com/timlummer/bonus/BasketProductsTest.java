@@ -0,0 +1,81 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.MultiAssetBlackScholesSimulation;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Values worst-of and basket versions of the express and bonus certificates in a correlated three asset Black-Scholes model
+ * (<code>MultiAssetBlackScholesSimulation</code>), after checking the simulation (martingale property, correlation) and the reduction
+ * of the basket products to <code>MemoryExpress</code> and <code>BonusOption</code> for a single asset.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BasketProductsTest {
+
+	public static void main(String[] args) throws Exception {
+
+		// Model properties
+		double[]	initialValues	= { 100.0, 50.0, 80.0 };
+		double		riskFreeRate	= 0.01;
+		double[]	volatilities	= { 0.25, 0.30, 0.20 };
+		double[][]	correlationMatrix = {
+				{ 1.0, 0.5, 0.5 },
+				{ 0.5, 1.0, 0.5 },
+				{ 0.5, 0.5, 1.0 }
+		};
+		int			numberOfPaths	= 100000;
+		int			seed			= 31415;
+
+		// Product properties
+		double[]	exerciseDates	= { 1.0, 2.0, 3.0, 4.0 };
+		double		coupon			= 0.055;
+		double		strike			= 0.9;
+		double		maturity		= 4.0;
+		double		bonus			= 0.2;
+		double		barrier			= 0.9;
+		double		notional		= 100.0;
+
+		long millisStart = System.currentTimeMillis();
+		MultiAssetBlackScholesSimulation model = MultiAssetBlackScholesSimulation.create(initialValues, riskFreeRate, volatilities, correlationMatrix, exerciseDates,
+				numberOfPaths, seed, PathPrecision.fromSystemProperty(), BrownianMotionGenerator.fromSystemProperty());
+		model.getAssetValue(model.getTimeDiscretization().getNumberOfTimeSteps(), 0);
+		System.out.println("Simulation of " + initialValues.length + " assets on " + model.getTimeDiscretization().getNumberOfTimeSteps() + " dates: " + (System.currentTimeMillis() - millisStart) + " ms");
+
+		// Martingale property and correlation of the simulation
+		for(int assetIndex=0; assetIndex<initialValues.length; assetIndex++) {
+			RandomVariableInterface discountedAsset = model.getAssetValue(maturity, assetIndex).div(model.getNumeraire(maturity));
+			System.out.println("Asset " + assetIndex + ": E(S(T)/N(T)) = " + discountedAsset.getAverage() + "\t(std. error " + discountedAsset.getStandardError() + ", S(0) = " + initialValues[assetIndex] + ")");
+		}
+		RandomVariableInterface logReturn0 = model.getAssetValue(1.0, 0).log();
+		RandomVariableInterface logReturn1 = model.getAssetValue(1.0, 1).log();
+		double covariance = logReturn0.mult(logReturn1).getAverage() - logReturn0.getAverage() * logReturn1.getAverage();
+		System.out.println("Correlation of the log-returns of asset 0 and 1: " + covariance / Math.sqrt(logReturn0.getVariance() * logReturn1.getVariance()) + "\t(" + correlationMatrix[0][1] + ")");
+
+		// Single asset: reduction to MemoryExpress and BonusOption
+		BasketPerformance singleAsset = BasketPerformance.worstOf(0);
+		double valueMemoryExpress		= new MemoryExpress(exerciseDates, initialValues[0], coupon, strike * initialValues[0], 0).getValue(model);
+		double valueBasketMemoryExpress	= new BasketMemoryExpress(exerciseDates, initialValues[0], coupon, strike, singleAsset).getValue(model);
+		double valueBonusOption			= new BonusOption(maturity, bonus, barrier * initialValues[0], 0).getValue(model);
+		double valueBasketBonusOption	= new BasketBonusOption(maturity, initialValues[0], bonus, barrier, singleAsset).getValue(model);
+		System.out.println("Single asset express:\t" + valueBasketMemoryExpress + "\t(MemoryExpress " + valueMemoryExpress + ")");
+		System.out.println("Single asset bonus:\t" + valueBasketBonusOption + "\t(BonusOption " + valueBonusOption + ")");
+
+		// Worst-of and equally weighted basket of the three assets
+		BasketPerformance worstOf	= BasketPerformance.worstOf(0, 1, 2);
+		BasketPerformance basket	= BasketPerformance.basket(new int[] { 0, 1, 2 }, new double[] { 1.0/3.0, 1.0/3.0, 1.0/3.0 });
+		millisStart = System.currentTimeMillis();
+		double valueWorstOfExpress	= new BasketMemoryExpress(exerciseDates, notional, coupon, strike, worstOf).getValue(model);
+		double valueBasketExpress	= new BasketMemoryExpress(exerciseDates, notional, coupon, strike, basket).getValue(model);
+		double valueWorstOfBonus	= new BasketBonusOption(maturity, notional, bonus, barrier, worstOf).getValue(model);
+		double valueBasketBonus		= new BasketBonusOption(maturity, notional, bonus, barrier, basket).getValue(model);
+		long millis = System.currentTimeMillis() - millisStart;
+
+		System.out.println("Express:\tworst-of " + valueWorstOfExpress + "\tbasket " + valueBasketExpress);
+		System.out.println("Bonus:\t\tworst-of " + valueWorstOfBonus + "\tbasket " + valueBasketBonus);
+		System.out.println("Valuation of the four basket products: " + millis + " ms");
+	}
+}
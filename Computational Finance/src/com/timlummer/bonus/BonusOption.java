@@ -5,8 +5,10 @@
  */
 package com.timlummer.bonus;
 
+import com.timlummer.montecarlo.ObservationDatesInterface;
+import com.timlummer.montecarlo.PathPrecision;
+
 import net.finmath.exception.CalculationException;
-import net.finmath.montecarlo.RandomVariable;
 import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
 import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
 import net.finmath.stochastic.RandomVariableInterface;
@@ -28,7 +30,7 @@ import net.finmath.stochastic.RandomVariableInterface;
  * @author Christian Fries
  * @version 1.3
  */
-public class BonusOption extends AbstractAssetMonteCarloProduct {
+public class BonusOption extends AbstractAssetMonteCarloProduct implements ObservationDatesInterface {
 
 	private final double maturity;
 	private final double bonus;
@@ -60,6 +62,27 @@ public class BonusOption extends AbstractAssetMonteCarloProduct {
 		this(maturity, bonus, barrier, 0);
 	}
 
+	@Override
+	public double[] getObservationDates() {
+		return new double[] { 0.0, maturity };
+	}
+
+	public double getMaturity() {
+		return maturity;
+	}
+
+	public double getBonus() {
+		return bonus;
+	}
+
+	public double getBarrier() {
+		return barrier;
+	}
+
+	public int getUnderlyingIndex() {
+		return underlyingIndex;
+	}
+
 	/**
 	 * This method returns the value random variable of the product within the specified model, evaluated at a given evalutationTime.
 	 * Note: For a lattice this is often the value conditional to evalutationTime, for a Monte-Carlo simulation this is the (sum of) value discounted to evaluation time.
@@ -75,8 +98,8 @@ public class BonusOption extends AbstractAssetMonteCarloProduct {
 		// Get underlying and numeraire
 		
 		 // Get value of underlying and numeraire assets		
-		RandomVariableInterface underlyingAtTimeIndex = model.getAssetValue(maturity,0);
-	    RandomVariableInterface underlyingAtInitial  = model.getAssetValue(0.0,0);
+		RandomVariableInterface underlyingAtTimeIndex = model.getAssetValue(maturity,underlyingIndex);
+	    RandomVariableInterface underlyingAtInitial  = model.getAssetValue(0.0,underlyingIndex);
 	    
 
 	    
@@ -101,7 +124,7 @@ public class BonusOption extends AbstractAssetMonteCarloProduct {
 			}
 		}
 		
-		RandomVariableInterface values = new RandomVariable(maturity,portfolioValue);
+		RandomVariableInterface values = PathPrecision.of(underlyingAtTimeIndex).createRandomVariable(maturity,portfolioValue);
 
 		// Discounting...
 		RandomVariableInterface numeraireAtMaturity		= model.getNumeraire(maturity);
@@ -0,0 +1,67 @@
+package com.timlummer.bonus;
+
+import java.util.Random;
+
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+
+/**
+ * Compares the valuation of bonus certificates one by one (<code>BonusOption</code>) with the batch valuation
+ * (<code>BonusOptionBatchValuation</code>) of a shelf of certificates with a few maturities.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BonusOptionBatchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		// Model properties
+		double	initialValue	= 100;
+		double	riskFreeRate	= 0.01;
+		double	volatility		= 0.25;
+		int		numberOfPaths	= 100000;
+		int		seed			= 31415;
+
+		int		numberOfCertificates		= 100000;
+		int		numberOfCertificatesSingle	= 200;
+
+		// Certificates with maturities 1, 2, 3 or 5 years, random barriers and bonuses
+		double[] maturities = { 1.0, 2.0, 3.0, 5.0 };
+		Random random = new Random(3141);
+		BonusOption[] products = new BonusOption[numberOfCertificates];
+		for(int certificateIndex=0; certificateIndex<numberOfCertificates; certificateIndex++) {
+			double maturity	= maturities[random.nextInt(maturities.length)];
+			double barrier	= initialValue * (0.8 + 0.4 * random.nextDouble());
+			double bonus	= 0.05 + 0.20 * random.nextDouble();
+			products[certificateIndex] = new BonusOption(maturity, bonus, barrier, 0);
+		}
+
+		BonusOptionBatchValuation batchValuation = BonusOptionBatchValuation.of(products);
+		BlackScholesExactSimulation model = BlackScholesExactSimulation.create(initialValue, riskFreeRate, volatility, batchValuation.getObservationDates(),
+				numberOfPaths, seed, PathPrecision.DOUBLE, BrownianMotionGenerator.fromSystemProperty());
+		model.getAssetValue(model.getTimeDiscretization().getNumberOfTimeSteps(), 0);
+
+		// One by one
+		double[] valuesSingle = new double[numberOfCertificatesSingle];
+		long millisStartSingle = System.currentTimeMillis();
+		for(int certificateIndex=0; certificateIndex<numberOfCertificatesSingle; certificateIndex++) valuesSingle[certificateIndex] = products[certificateIndex].getValue(model);
+		long millisSingle = System.currentTimeMillis() - millisStartSingle;
+
+		// Batch
+		batchValuation.getValues(model);
+		long millisStartBatch = System.currentTimeMillis();
+		double[] values = batchValuation.getValues(model);
+		long millisBatch = System.currentTimeMillis() - millisStartBatch;
+
+		double maximumDeviation = 0.0;
+		for(int certificateIndex=0; certificateIndex<numberOfCertificatesSingle; certificateIndex++) maximumDeviation = Math.max(maximumDeviation, Math.abs(values[certificateIndex] - valuesSingle[certificateIndex]));
+
+		System.out.println("Paths: " + numberOfPaths);
+		System.out.println("One by one:\t" + numberOfCertificatesSingle + " certificates in " + millisSingle + " ms\t(" + (1000.0 * millisSingle / numberOfCertificatesSingle) + " microseconds per certificate)");
+		System.out.println("Batch:\t\t" + numberOfCertificates + " certificates in " + millisBatch + " ms\t(" + (1000.0 * millisBatch / numberOfCertificates) + " microseconds per certificate)");
+		System.out.println("Maximum deviation of the first " + numberOfCertificatesSingle + " values: " + maximumDeviation);
+		System.out.println("Values of the first certificates: " + values[0] + ", " + values[1] + ", " + values[2]);
+	}
+}
@@ -0,0 +1,189 @@
+package com.timlummer.bonus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.timlummer.montecarlo.ObservationDatesInterface;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Valuation of many bonus certificates (term sheets of <code>BonusOption</code>) in a single pass over the simulated paths.
+ *
+ * The certificates are stored column-wise (maturities, barriers, bonuses, underlying indices) and grouped by maturity and underlying.
+ * For each group the asset and the numeraire are read from the model once and the discounted values of the paths are sorted by
+ * <i>S(T)</i>. Since a certificate pays <i>S(0) (1 + bonus)</i> on the paths with <i>S(T) &gt; barrier</i> and <i>S(T)</i> on the others,
+ * its value is given by the prefix sums of the sorted discounted values at the barrier, i.e., after the sort of its group a certificate
+ * only costs a binary search. The payoff is the one of <code>BonusOption.getValue</code>.
+ *
+ * The groups are valued in parallel (after reading all slices, which may trigger the simulation of the model).
+ * The Monte-Carlo weights of the model are assumed to be uniform.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BonusOptionBatchValuation implements ObservationDatesInterface {
+
+	private final double[]	maturities;
+	private final double[]	barriers;
+	private final double[]	bonuses;
+	private final int[]		underlyingIndices;
+
+	private final int[][]	groups;					// Indices of the certificates with the same maturity and underlying
+
+	/**
+	 * Create the valuation of the given certificates.
+	 *
+	 * @param maturities The maturity of each certificate.
+	 * @param barriers The barrier of each certificate.
+	 * @param bonuses The bonus of each certificate.
+	 * @param underlyingIndices The index of the underlying of each certificate in the model.
+	 */
+	public BonusOptionBatchValuation(double[] maturities, double[] barriers, double[] bonuses, int[] underlyingIndices) {
+		super();
+		int numberOfCertificates = maturities.length;
+		if(barriers.length != numberOfCertificates || bonuses.length != numberOfCertificates || underlyingIndices.length != numberOfCertificates) {
+			throw new IllegalArgumentException("Inconsistent number of certificates.");
+		}
+		this.maturities			= maturities.clone();
+		this.barriers			= barriers.clone();
+		this.bonuses			= bonuses.clone();
+		this.underlyingIndices	= underlyingIndices.clone();
+
+		Map<List<Object>, List<Integer>> certificatesOfGroup = new LinkedHashMap<List<Object>, List<Integer>>();
+		for(int certificateIndex=0; certificateIndex<numberOfCertificates; certificateIndex++) {
+			List<Object> key = Arrays.<Object>asList(maturities[certificateIndex], underlyingIndices[certificateIndex]);
+			certificatesOfGroup.computeIfAbsent(key, k -> new ArrayList<Integer>()).add(certificateIndex);
+		}
+		this.groups = new int[certificatesOfGroup.size()][];
+		int groupIndex = 0;
+		for(List<Integer> certificates : certificatesOfGroup.values()) {
+			groups[groupIndex++] = certificates.stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	/**
+	 * Create the valuation of the given products.
+	 *
+	 * @param products The products.
+	 * @return The valuation of the term sheets of the products.
+	 */
+	public static BonusOptionBatchValuation of(BonusOption... products) {
+		double[]	maturities			= new double[products.length];
+		double[]	barriers			= new double[products.length];
+		double[]	bonuses				= new double[products.length];
+		int[]		underlyingIndices	= new int[products.length];
+		for(int productIndex=0; productIndex<products.length; productIndex++) {
+			maturities[productIndex]		= products[productIndex].getMaturity();
+			barriers[productIndex]			= products[productIndex].getBarrier();
+			bonuses[productIndex]			= products[productIndex].getBonus();
+			underlyingIndices[productIndex]	= products[productIndex].getUnderlyingIndex();
+		}
+		return new BonusOptionBatchValuation(maturities, barriers, bonuses, underlyingIndices);
+	}
+
+	/**
+	 * Returns the values of all certificates at time 0.
+	 *
+	 * @param model The model used to price the products.
+	 * @return The values, one for each certificate.
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	public double[] getValues(AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		int numberOfPaths = model.getNumberOfPaths();
+
+		// Read the slices of all groups (sequentially, since this may run the simulation of the model)
+		RandomVariableInterface[] underlyingsAtMaturity	= new RandomVariableInterface[groups.length];
+		RandomVariableInterface[] underlyingsAtInitial	= new RandomVariableInterface[groups.length];
+		RandomVariableInterface[] discountFactors		= new RandomVariableInterface[groups.length];
+		RandomVariableInterface numeraireAtEvalTime		= model.getNumeraire(0.0);
+		for(int groupIndex=0; groupIndex<groups.length; groupIndex++) {
+			int		certificateIndex	= groups[groupIndex][0];
+			double	maturity			= maturities[certificateIndex];
+			int		underlyingIndex		= underlyingIndices[certificateIndex];
+			underlyingsAtMaturity[groupIndex]	= model.getAssetValue(maturity, underlyingIndex);
+			underlyingsAtInitial[groupIndex]	= model.getAssetValue(0.0, underlyingIndex);
+			discountFactors[groupIndex]			= numeraireAtEvalTime.div(model.getNumeraire(maturity));
+		}
+
+		double[] values = new double[maturities.length];
+		IntStream.range(0, groups.length).parallel().forEach(groupIndex -> {
+			RandomVariableInterface underlyingAtMaturity	= underlyingsAtMaturity[groupIndex];
+			RandomVariableInterface underlyingAtInitial		= underlyingsAtInitial[groupIndex];
+			RandomVariableInterface discountFactor			= discountFactors[groupIndex];
+
+			double[] underlyingsSorted					= new double[numberOfPaths];
+			double[] sumOfDiscountedUnderlyings			= new double[numberOfPaths+1];
+			double[] sumOfDiscountedInitialUnderlyings	= new double[numberOfPaths+1];
+			if(discountFactor.isDeterministic() && underlyingAtInitial.isDeterministic()) {
+				// Sort S(T), prefix sums of the discounted S(T) and S(0) in the order of S(T)
+				for(int path=0; path<numberOfPaths; path++) underlyingsSorted[path] = underlyingAtMaturity.get(path);
+				Arrays.sort(underlyingsSorted);
+
+				double discountFactorOfPaths	= discountFactor.get(0);
+				double underlyingInitial		= underlyingAtInitial.get(0);
+				for(int rank=0; rank<numberOfPaths; rank++) {
+					sumOfDiscountedUnderlyings[rank+1]			= sumOfDiscountedUnderlyings[rank] + underlyingsSorted[rank] * discountFactorOfPaths;
+					sumOfDiscountedInitialUnderlyings[rank+1]	= sumOfDiscountedInitialUnderlyings[rank] + underlyingInitial * discountFactorOfPaths;
+				}
+			}
+			else {
+				// Sort the paths by S(T), prefix sums of the discounted S(T) and S(0) in the order of S(T)
+				Integer[] order = new Integer[numberOfPaths];
+				for(int path=0; path<numberOfPaths; path++) order[path] = path;
+				Arrays.sort(order, (path1, path2) -> Double.compare(underlyingAtMaturity.get(path1), underlyingAtMaturity.get(path2)));
+
+				for(int rank=0; rank<numberOfPaths; rank++) {
+					int path = order[rank];
+					double discountFactorOfPath = discountFactor.get(path);
+					underlyingsSorted[rank]						= underlyingAtMaturity.get(path);
+					sumOfDiscountedUnderlyings[rank+1]			= sumOfDiscountedUnderlyings[rank] + underlyingsSorted[rank] * discountFactorOfPath;
+					sumOfDiscountedInitialUnderlyings[rank+1]	= sumOfDiscountedInitialUnderlyings[rank] + underlyingAtInitial.get(path) * discountFactorOfPath;
+				}
+			}
+
+			for(int certificateIndex : groups[groupIndex]) {
+				// Number of paths with S(T) <= barrier
+				int numberOfPathsBelowBarrier = getNumberOfValuesBelowOrEqual(underlyingsSorted, barriers[certificateIndex]);
+				double sum = sumOfDiscountedUnderlyings[numberOfPathsBelowBarrier]
+						+ (1 + bonuses[certificateIndex]) * (sumOfDiscountedInitialUnderlyings[numberOfPaths] - sumOfDiscountedInitialUnderlyings[numberOfPathsBelowBarrier]);
+				values[certificateIndex] = sum / numberOfPaths;
+			}
+		});
+
+		return values;
+	}
+
+	/**
+	 * @return The number of certificates.
+	 */
+	public int getNumberOfCertificates() {
+		return maturities.length;
+	}
+
+	/**
+	 * @return The maturities of all certificates (and 0).
+	 */
+	@Override
+	public double[] getObservationDates() {
+		double[] observationDates = Arrays.copyOf(maturities, maturities.length+1);
+		observationDates[maturities.length] = 0.0;
+		return observationDates;
+	}
+
+	private static int getNumberOfValuesBelowOrEqual(double[] valuesSorted, double value) {
+		int low = 0, high = valuesSorted.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(valuesSorted[middle] <= value) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+}
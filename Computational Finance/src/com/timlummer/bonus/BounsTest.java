@@ -5,9 +5,12 @@
  */
 package com.timlummer.bonus;
 
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+import com.timlummer.statistics.StreamingStatistics;
+
 import net.finmath.exception.CalculationException;
 import net.finmath.functions.AnalyticFormulas;
-import net.finmath.montecarlo.BrownianMotion;
 import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
 import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
 import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
@@ -56,6 +59,12 @@ public class BounsTest  {
 		
 		int		seed				= 31415;
 
+		// Storage of the simulated paths, e.g. -DpathPrecision=SINGLE to halve the memory per path
+		PathPrecision pathPrecision = PathPrecision.fromSystemProperty();
+
+		// Generator of the Brownian increments, e.g. -DbrownianMotion=PARALLEL
+		BrownianMotionGenerator brownianMotionGenerator = BrownianMotionGenerator.fromSystemProperty();
+
 		// Product properties
 		double	optionMaturity = 1.0;
 		double	optionBarrier = 90.0;
@@ -64,13 +73,13 @@ public class BounsTest  {
 				
 		
 		// Create a model
-		AbstractModel model = new BlackScholesModel(initialValue, riskFreeRate, volatility);
+		AbstractModel model = new BlackScholesModel(initialValue, riskFreeRate, volatility, pathPrecision.getRandomVariableFactory());
 
 		// Create a time discretization
 		TimeDiscretizationInterface timeDiscretization = new TimeDiscretization(0.0 /* initial */, numberOfTimeSteps, deltaT);
 
 		// Create a corresponding MC process 	// net.finmath.montecarlo.process
-		AbstractProcess process = new ProcessEulerScheme(new BrownianMotion(timeDiscretization, 1 /* numberOfFactors */, numberOfPaths, seed));
+		AbstractProcess process = new ProcessEulerScheme(brownianMotionGenerator.createBrownianMotion(timeDiscretization, 1 /* numberOfFactors */, numberOfPaths, seed, pathPrecision.getRandomVariableFactory()));
 
 		// Using the process (Euler scheme), create an MC simulation of a Black-Scholes model
 		AssetModelMonteCarloSimulationInterface monteCarloBlackScholesModel = new MonteCarloAssetModel(model, process);
@@ -82,6 +91,7 @@ public class BounsTest  {
 		BonusOption bonusOption = new BonusOption(optionMaturity,optionBarrier, optionBonus);
 		//EuropeanOption bonusOption = new EuropeanOption(optionMaturity,optionBarrier);
 		
+		// Note: the finite difference deltas of the hedge (shift 1E-8) require DOUBLE path precision.
 		FiniteDifferenceDeltaHedgedPortfolio bonusHedge = new FiniteDifferenceDeltaHedgedPortfolio(bonusOption, monteCarloBlackScholesModel);
 		
 		RandomVariableInterface valueBonus = bonusOption.getValue(0.0, monteCarloBlackScholesModel);
@@ -94,5 +104,31 @@ public class BounsTest  {
 
 		System.out.println("Bonus Option value.......: " + valueBonus.getAverage());
 		System.out.println("Bonus Option value hedge.......: " + valueHedge.getAverage());
+
+		// Distribution of the values (one pass over the paths)
+		StreamingStatistics statisticsBonus = StreamingStatistics.of(valueBonus);
+		StreamingStatistics statisticsHedge = StreamingStatistics.of(valueHedge);
+		System.out.println("Bonus Option 1% / 99% quantile.......: " + statisticsBonus.getQuantile(0.01) + " / " + statisticsBonus.getQuantile(0.99));
+		System.out.println("Bonus Option hedge 1% / 99% quantile.......: " + statisticsHedge.getQuantile(0.01) + " / " + statisticsHedge.getQuantile(0.99));
+
+		/*
+		 * Delta hedge with regression deltas (a single valuation of the product), on many paths
+		 */
+		int numberOfPathsHedge = 100000;
+		AssetModelMonteCarloSimulationInterface monteCarloBlackScholesModelHedge = new MonteCarloAssetModel(
+				new BlackScholesModel(initialValue, riskFreeRate, volatility, pathPrecision.getRandomVariableFactory()),
+				new ProcessEulerScheme(brownianMotionGenerator.createBrownianMotion(timeDiscretization, 1 /* numberOfFactors */, numberOfPathsHedge, seed, pathPrecision.getRandomVariableFactory())));
+
+		RegressionDeltaHedgedPortfolio bonusRegressionHedge = new RegressionDeltaHedgedPortfolio(bonusOption, optionMaturity);
+
+		long millisStart = System.currentTimeMillis();
+		RandomVariableInterface hedgeError = bonusRegressionHedge.getHedgeError(monteCarloBlackScholesModelHedge);
+		long millisHedge = System.currentTimeMillis() - millisStart;
+
+		StreamingStatistics statisticsHedgeError = StreamingStatistics.of(hedgeError);
+		System.out.println("Regression delta hedge (" + numberOfPathsHedge + " paths, " + millisHedge + " ms)");
+		System.out.println("Bonus Option value.......: " + bonusOption.getValue(monteCarloBlackScholesModelHedge));
+		System.out.println("Hedge error mean / standard deviation.......: " + statisticsHedgeError.getMean() + " / " + statisticsHedgeError.getStandardDeviation());
+		System.out.println("Hedge error 1% / 99% quantile.......: " + statisticsHedgeError.getQuantile(0.01) + " / " + statisticsHedgeError.getQuantile(0.99));
 	}
 }
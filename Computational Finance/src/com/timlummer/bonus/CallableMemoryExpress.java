@@ -0,0 +1,52 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.ObservationDatesInterface;
+
+/**
+ * An express certificate with memory coupon which the holder may redeem on each exercise date <i>T<sub>i</sub></i> (and which is
+ * redeemed on the last exercise date <i>T<sub>n</sub></i>), paying
+ * <br>
+ * 	<i>N (1 + i c)</i> if <i>S(T<sub>i</sub>) &ge; K</i>, otherwise <i>N S(T<sub>i</sub>) / S(0)</i>,
+ * <br>
+ * i.e., the coupons <i>c</i> of all periods up to the redemption are paid (memory) if the underlying is at or above the strike.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class CallableMemoryExpress implements EarlyRedemptionProductInterface, ObservationDatesInterface {
+
+	private final double[]	exerciseDates;
+	private final double	notional;
+	private final double	coupon;
+	private final double	strike;
+
+	/**
+	 * @param exerciseDates The exercise dates T<sub>i</sub> (sorted).
+	 * @param notional The notional N.
+	 * @param coupon The coupon c per period.
+	 * @param strike The strike K (absolute level of the underlying).
+	 */
+	public CallableMemoryExpress(double[] exerciseDates, double notional, double coupon, double strike) {
+		super();
+		this.exerciseDates	= exerciseDates;
+		this.notional		= notional;
+		this.coupon			= coupon;
+		this.strike			= strike;
+	}
+
+	@Override
+	public double[] getExerciseDates() {
+		return exerciseDates.clone();
+	}
+
+	@Override
+	public double getExerciseValue(int exerciseIndex, double[] underlyingValues, double initialValue) {
+		double underlyingValue = underlyingValues[exerciseIndex];
+		return underlyingValue >= strike ? notional * (1.0 + (exerciseIndex+1) * coupon) : notional * underlyingValue / initialValue;
+	}
+
+	@Override
+	public double[] getObservationDates() {
+		return exerciseDates.clone();
+	}
+}
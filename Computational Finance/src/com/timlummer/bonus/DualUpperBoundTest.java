@@ -0,0 +1,48 @@
+package com.timlummer.bonus;
+
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+
+/**
+ * Brackets the value of a callable memory express certificate by the regression lower bound and the dual upper bound,
+ * for increasing numbers of inner paths.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class DualUpperBoundTest {
+
+	public static void main(String[] args) throws Exception {
+
+		// Model properties
+		double	initialValue	= 100;
+		double	riskFreeRate	= 0.01;
+		double	volatility		= 0.25;
+		int		numberOfPaths	= 20000;
+		int		seed			= 31415;
+
+		// Product properties
+		double[] exerciseDates	= { 1.0, 2.0, 3.0, 4.0 };
+		double notional			= 100.0;
+		double coupon			= 0.055;
+		double strike			= 90.0;
+
+		CallableMemoryExpress express = new CallableMemoryExpress(exerciseDates, notional, coupon, strike);
+
+		BlackScholesExactSimulation model = BlackScholesExactSimulation.create(initialValue, riskFreeRate, volatility, express.getObservationDates(),
+				numberOfPaths, seed, PathPrecision.DOUBLE, BrownianMotionGenerator.fromSystemProperty());
+
+		System.out.println("Inner paths\tOuter paths\tLower bound\t\t(std. error)\t\tUpper bound\t\t(std. error)\t\tTime");
+		for(int numberOfInnerPaths : new int[] { 100, 500, 2000 }) {
+			long millisStart = System.currentTimeMillis();
+			DualUpperBoundValuation valuation = new DualUpperBoundValuation(express, model, 3 /* basisFunctionsOrder */, numberOfInnerPaths, 3000000L /* budget of inner paths */, 2718 /* seed */);
+			double lowerBound = valuation.getLowerBound();
+			double upperBound = valuation.getUpperBound();
+			long millis = System.currentTimeMillis() - millisStart;
+
+			System.out.println(numberOfInnerPaths + "\t\t" + valuation.getNumberOfOuterPaths() + "\t\t" + lowerBound + "\t(" + valuation.getLowerBoundStandardError() + ")\t"
+					+ upperBound + "\t(" + valuation.getUpperBoundStandardError() + ")\t" + millis + " ms");
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package com.timlummer.bonus;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.ConditionalExpectationRegression;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.RandomVariable;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Brackets the value of an early redemption product (<code>EarlyRedemptionProductInterface</code>) in the Black-Scholes model by
+ * <ul>
+ * 	<li>
+ * 		a lower bound: the exercise strategy is determined by backward induction, estimating the continuation value by a regression
+ * 		on powers of the underlying (<code>ConditionalExpectationRegression</code>) on the paths of the model. The strategy is then applied
+ * 		to independent paths (the model with a modified seed), which gives a lower bound without foresight bias.
+ * 	<li>
+ * 		an upper bound by the dual method of Andersen and Broadie: <i>V(0) &le; E( max<sub>i</sub> (h<sub>i</sub> - M<sub>i</sub>) )</i>
+ * 		for any martingale <i>M</i> with <i>M<sub>0</sub> = 0</i>, where <i>h<sub>i</sub></i> is the numeraire relative redemption amount.
+ * 		The martingale is the one of the value process <i>L</i> of the exercise strategy,
+ * 		<i>M<sub>i</sub> - M<sub>i-1</sub> = L<sub>i</sub> - C<sub>i-1</sub></i>, where <i>C<sub>i</sub> = E(L<sub>i+1</sub> | F<sub>i</sub>)</i> is the
+ * 		continuation value of the strategy, estimated by a nested simulation on each outer path and exercise date.
+ * </ul>
+ *
+ * The outer paths of the dual are the (first) paths of the model, i.e., the nested simulations start from the simulated values on the
+ * exercise dates (and keep the path up to that date). Each continuation value is simulated once and used for both <i>L<sub>i</sub></i> and
+ * the increment of the martingale. The nested simulations use the exact lognormal transition between the exercise dates and run in parallel
+ * over the outer paths, with random numbers depending only on the seed and the outer path (reproducible for any number of threads).
+ * The number of outer paths is limited by the budget of inner paths.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class DualUpperBoundValuation {
+
+	private final EarlyRedemptionProductInterface	product;
+	private final BlackScholesExactSimulation		model;
+	private final int								basisFunctionsOrder;
+	private final int								numberOfInnerPaths;
+	private final long								maximumNumberOfInnerPaths;
+	private final int								seed;
+
+	private final double[]	exerciseDates;
+	private final double[]	discountFactors;
+
+	// The exercise strategy: continuation value on exercise date i as polynomial in the standardized underlying
+	private double[][]		regressionParameters;
+	private double[]		regressorMean;
+	private double[]		regressorScale;
+
+	private double			lowerBound;
+	private double			lowerBoundStandardError;
+	private double			upperBound;
+	private double			upperBoundStandardError;
+	private int				numberOfOuterPaths;
+
+	/**
+	 * Create the valuation.
+	 *
+	 * @param product The product.
+	 * @param model The model, its time discretization has to contain the exercise dates.
+	 * @param basisFunctionsOrder The maximum power of the underlying used as basis function in the regression.
+	 * @param numberOfInnerPaths The number of paths of each nested simulation.
+	 * @param maximumNumberOfInnerPaths The budget of inner paths of all nested simulations (limits the number of outer paths).
+	 * @param seed The seed of the nested simulations and of the independent paths of the lower bound (has to differ from the seed of the model).
+	 */
+	public DualUpperBoundValuation(EarlyRedemptionProductInterface product, BlackScholesExactSimulation model, int basisFunctionsOrder,
+			int numberOfInnerPaths, long maximumNumberOfInnerPaths, int seed) {
+		super();
+		this.product					= product;
+		this.model						= model;
+		this.basisFunctionsOrder		= basisFunctionsOrder;
+		this.numberOfInnerPaths			= numberOfInnerPaths;
+		this.maximumNumberOfInnerPaths	= maximumNumberOfInnerPaths;
+		this.seed						= seed;
+
+		this.exerciseDates		= product.getExerciseDates();
+		this.discountFactors	= new double[exerciseDates.length];
+		for(int exerciseIndex=0; exerciseIndex<exerciseDates.length; exerciseIndex++) {
+			discountFactors[exerciseIndex] = Math.exp(-model.getRiskFreeRate() * exerciseDates[exerciseIndex]);
+		}
+	}
+
+	/**
+	 * @return The lower bound (value of the regression strategy on independent paths).
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public double getLowerBound() throws CalculationException {
+		calculate();
+		return lowerBound;
+	}
+
+	/**
+	 * @return The Monte-Carlo standard error of the lower bound.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public double getLowerBoundStandardError() throws CalculationException {
+		calculate();
+		return lowerBoundStandardError;
+	}
+
+	/**
+	 * @return The dual upper bound.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public double getUpperBound() throws CalculationException {
+		calculate();
+		return upperBound;
+	}
+
+	/**
+	 * @return The Monte-Carlo standard error of the upper bound (of the outer simulation).
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public double getUpperBoundStandardError() throws CalculationException {
+		calculate();
+		return upperBoundStandardError;
+	}
+
+	/**
+	 * @return The number of outer paths used for the upper bound.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public int getNumberOfOuterPaths() throws CalculationException {
+		calculate();
+		return numberOfOuterPaths;
+	}
+
+	private synchronized void calculate() throws CalculationException {
+		if(regressionParameters != null) return;
+
+		double[][] underlyingValues = getUnderlyingValues(model);
+		calculateExerciseStrategy(underlyingValues);
+
+		// Lower bound on independent paths
+		double[] valuesOfStrategy = getValuesOfStrategy(getUnderlyingValues(model.getCloneWithModifiedSeed(seed)));
+		double[] moments = getMoments(valuesOfStrategy);
+		lowerBound				= moments[0];
+		lowerBoundStandardError	= moments[1];
+
+		// Upper bound on the outer paths of the model
+		int numberOfExerciseDates = exerciseDates.length;
+		long innerPathsPerOuterPath = (long)numberOfInnerPaths * Math.max(numberOfExerciseDates - 1, 1);
+		numberOfOuterPaths = (int)Math.max(1, Math.min(model.getNumberOfPaths(), maximumNumberOfInnerPaths / innerPathsPerOuterPath));
+
+		double initialContinuationValue = lowerBound;
+		double[] maximaOfDual = IntStream.range(0, numberOfOuterPaths).parallel().mapToDouble(path -> {
+			Random random = new Random(seed + 1000003L * (path + 1));
+			double[] underlyingPath = new double[numberOfExerciseDates];
+			for(int exerciseIndex=0; exerciseIndex<numberOfExerciseDates; exerciseIndex++) underlyingPath[exerciseIndex] = underlyingValues[exerciseIndex][path];
+
+			double martingale = 0.0;
+			double continuationValuePrevious = initialContinuationValue;
+			double maximum = Double.NEGATIVE_INFINITY;
+			for(int exerciseIndex=0; exerciseIndex<numberOfExerciseDates; exerciseIndex++) {
+				double exerciseValue = discountFactors[exerciseIndex] * product.getExerciseValue(exerciseIndex, underlyingPath, model.getInitialValue());
+				boolean isLastExerciseDate = exerciseIndex == numberOfExerciseDates-1;
+
+				double continuationValue = isLastExerciseDate ? 0.0 : getContinuationValue(exerciseIndex, underlyingPath, random);
+				boolean isExercise = isLastExerciseDate || exerciseValue >= getContinuationValueEstimate(exerciseIndex, underlyingPath[exerciseIndex]);
+
+				double valueOfStrategy = isExercise ? exerciseValue : continuationValue;
+				martingale += valueOfStrategy - continuationValuePrevious;
+				maximum = Math.max(maximum, exerciseValue - martingale);
+
+				continuationValuePrevious = continuationValue;
+			}
+			return maximum;
+		}).toArray();
+
+		moments = getMoments(maximaOfDual);
+		upperBound				= moments[0];
+		upperBoundStandardError	= moments[1];
+	}
+
+	/*
+	 * Backward induction on the paths of the model: regression of the numeraire relative value of the strategy after exercise date i.
+	 */
+	private void calculateExerciseStrategy(double[][] underlyingValues) {
+		int numberOfExerciseDates = exerciseDates.length;
+		int numberOfPaths = underlyingValues[0].length;
+
+		double[][] parameters	= new double[numberOfExerciseDates][];
+		double[] means			= new double[numberOfExerciseDates];
+		double[] scales			= new double[numberOfExerciseDates];
+
+		double[][] exerciseValues = getExerciseValues(underlyingValues);
+		double[] values = exerciseValues[numberOfExerciseDates-1].clone();
+		for(int exerciseIndex=numberOfExerciseDates-2; exerciseIndex>=0; exerciseIndex--) {
+			double[] regressor = underlyingValues[exerciseIndex];
+
+			double mean = 0.0, secondMoment = 0.0;
+			for(double value : regressor) {
+				mean			+= value;
+				secondMoment	+= value * value;
+			}
+			mean /= numberOfPaths;
+			double standardDeviation = Math.sqrt(Math.max(secondMoment / numberOfPaths - mean * mean, 0.0));
+			means[exerciseIndex]	= mean;
+			scales[exerciseIndex]	= standardDeviation > 0 ? 1.0 / standardDeviation : 0.0;
+
+			RandomVariableInterface[] basisFunctions = new RandomVariableInterface[basisFunctionsOrder+1];
+			for(int power=0; power<=basisFunctionsOrder; power++) {
+				double[] basisFunction = new double[numberOfPaths];
+				for(int path=0; path<numberOfPaths; path++) basisFunction[path] = Math.pow((regressor[path] - mean) * scales[exerciseIndex], power);
+				basisFunctions[power] = new RandomVariable(exerciseDates[exerciseIndex], basisFunction);
+			}
+			ConditionalExpectationRegression regression = new ConditionalExpectationRegression(basisFunctions);
+			parameters[exerciseIndex] = regression.getRegressionParameters(values);
+
+			for(int path=0; path<numberOfPaths; path++) {
+				double exerciseValue = exerciseValues[exerciseIndex][path];
+				if(exerciseValue >= regression.getValue(path, parameters[exerciseIndex])) values[path] = exerciseValue;
+			}
+		}
+
+		regressionParameters	= parameters;
+		regressorMean			= means;
+		regressorScale			= scales;
+	}
+
+	/*
+	 * The numeraire relative value of the exercise strategy on the given paths.
+	 */
+	private double[] getValuesOfStrategy(double[][] underlyingValues) {
+		int numberOfExerciseDates = exerciseDates.length;
+		double[][] exerciseValues = getExerciseValues(underlyingValues);
+
+		double[] values = new double[underlyingValues[0].length];
+		for(int path=0; path<values.length; path++) {
+			for(int exerciseIndex=0; exerciseIndex<numberOfExerciseDates; exerciseIndex++) {
+				double exerciseValue = exerciseValues[exerciseIndex][path];
+				if(exerciseIndex == numberOfExerciseDates-1 || exerciseValue >= getContinuationValueEstimate(exerciseIndex, underlyingValues[exerciseIndex][path])) {
+					values[path] = exerciseValue;
+					break;
+				}
+			}
+		}
+		return values;
+	}
+
+	/*
+	 * Nested simulation of the numeraire relative value of the strategy after exercise date i, given the path up to exercise date i.
+	 */
+	private double getContinuationValue(int exerciseIndex, double[] underlyingPath, Random random) {
+		int numberOfExerciseDates = exerciseDates.length;
+		double riskFreeRate	= model.getRiskFreeRate();
+		double volatility	= model.getVolatility();
+
+		double[] innerPath = underlyingPath.clone();
+		double sum = 0.0;
+		for(int innerPathIndex=0; innerPathIndex<numberOfInnerPaths; innerPathIndex++) {
+			double underlying = underlyingPath[exerciseIndex];
+			for(int innerExerciseIndex=exerciseIndex+1; innerExerciseIndex<numberOfExerciseDates; innerExerciseIndex++) {
+				double timeStep = exerciseDates[innerExerciseIndex] - exerciseDates[innerExerciseIndex-1];
+				underlying *= Math.exp((riskFreeRate - 0.5 * volatility * volatility) * timeStep + volatility * Math.sqrt(timeStep) * random.nextGaussian());
+				innerPath[innerExerciseIndex] = underlying;
+
+				double exerciseValue = discountFactors[innerExerciseIndex] * product.getExerciseValue(innerExerciseIndex, innerPath, model.getInitialValue());
+				if(innerExerciseIndex == numberOfExerciseDates-1 || exerciseValue >= getContinuationValueEstimate(innerExerciseIndex, underlying)) {
+					sum += exerciseValue;
+					break;
+				}
+			}
+		}
+		return sum / numberOfInnerPaths;
+	}
+
+	private double getContinuationValueEstimate(int exerciseIndex, double underlying) {
+		double z = (underlying - regressorMean[exerciseIndex]) * regressorScale[exerciseIndex];
+		double[] parameters = regressionParameters[exerciseIndex];
+		double value = 0.0;
+		for(int power=parameters.length-1; power>=0; power--) value = value * z + parameters[power];
+		return value;
+	}
+
+	private double[][] getUnderlyingValues(BlackScholesExactSimulation model) throws CalculationException {
+		double[][] underlyingValues = new double[exerciseDates.length][];
+		for(int exerciseIndex=0; exerciseIndex<exerciseDates.length; exerciseIndex++) {
+			RandomVariableInterface underlying = model.getAssetValue(exerciseDates[exerciseIndex], 0);
+			underlyingValues[exerciseIndex] = new double[model.getNumberOfPaths()];
+			for(int path=0; path<model.getNumberOfPaths(); path++) underlyingValues[exerciseIndex][path] = underlying.get(path);
+		}
+		return underlyingValues;
+	}
+
+	private double[][] getExerciseValues(double[][] underlyingValues) {
+		int numberOfExerciseDates = exerciseDates.length;
+		int numberOfPaths = underlyingValues[0].length;
+
+		double[][] exerciseValues = new double[numberOfExerciseDates][numberOfPaths];
+		double[] underlyingPath = new double[numberOfExerciseDates];
+		for(int path=0; path<numberOfPaths; path++) {
+			for(int exerciseIndex=0; exerciseIndex<numberOfExerciseDates; exerciseIndex++) {
+				underlyingPath[exerciseIndex] = underlyingValues[exerciseIndex][path];
+				exerciseValues[exerciseIndex][path] = discountFactors[exerciseIndex] * product.getExerciseValue(exerciseIndex, underlyingPath, model.getInitialValue());
+			}
+		}
+		return exerciseValues;
+	}
+
+	/*
+	 * Mean and standard error.
+	 */
+	private static double[] getMoments(double[] values) {
+		double mean = 0.0, secondMoment = 0.0;
+		for(double value : values) {
+			mean			+= value;
+			secondMoment	+= value * value;
+		}
+		mean /= values.length;
+		double variance = Math.max(secondMoment / values.length - mean * mean, 0.0);
+		return new double[] { mean, Math.sqrt(variance / values.length) };
+	}
+}
@@ -0,0 +1,28 @@
+package com.timlummer.bonus;
+
+/**
+ * Interface implemented by asset products which the holder may redeem early on a set of exercise dates, such that they can be
+ * valued by <code>DualUpperBoundValuation</code> (regression lower bound and dual upper bound).
+ *
+ * The product is redeemed at the latest on the last exercise date.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public interface EarlyRedemptionProductInterface {
+
+	/**
+	 * @return The exercise dates (sorted).
+	 */
+	double[] getExerciseDates();
+
+	/**
+	 * Returns the amount paid upon redemption on the exercise date with the given index (not discounted).
+	 *
+	 * @param exerciseIndex The index of the exercise date.
+	 * @param underlyingValues The values of the underlying on the exercise dates, only the entries 0, ..., exerciseIndex are used.
+	 * @param initialValue The initial value of the underlying.
+	 * @return The redemption amount.
+	 */
+	double getExerciseValue(int exerciseIndex, double[] underlyingValues, double initialValue);
+}
@@ -8,14 +8,15 @@ package com.timlummer.bonus;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import com.timlummer.montecarlo.ObservationDatesInterface;
+import com.timlummer.montecarlo.PathPrecision;
+
 import net.finmath.exception.CalculationException;
 import net.finmath.montecarlo.RandomVariable;
 import net.finmath.montecarlo.RandomVariableFactory;
 import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
 import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
-import net.finmath.montecarlo.conditionalexpectation.MonteCarloConditionalExpectationRegression;
 import net.finmath.optimizer.GoldenSectionSearch;
-import net.finmath.stochastic.ConditionalExpectationEstimatorInterface;
 import net.finmath.stochastic.RandomVariableInterface;
 
 /**
@@ -40,7 +41,7 @@ import net.finmath.stochastic.RandomVariableInterface;
  * @author Christian Fries
  * @version 1.4
  */
-public class MemoryExpress extends AbstractAssetMonteCarloProduct {
+public class MemoryExpress extends AbstractAssetMonteCarloProduct implements ObservationDatesInterface {
 
 
 	private final double[]	exerciseDates;
@@ -51,7 +52,7 @@ public class MemoryExpress extends AbstractAssetMonteCarloProduct {
 
 
 
-	private RandomVariableInterface lastValuationExerciseTime;
+	private transient RandomVariableInterface lastValuationExerciseTime;
 
 	/**
 	 * Create a Bermudan option paying
@@ -78,6 +79,31 @@ public class MemoryExpress extends AbstractAssetMonteCarloProduct {
 		this.initialValue = initialValue;
 	}
 	
+	@Override
+	public double[] getObservationDates() {
+		return exerciseDates.clone();
+	}
+
+	public double[] getExerciseDates() {
+		return exerciseDates.clone();
+	}
+
+	public double getCoupon() {
+		return coupon;
+	}
+
+	public double getStrike() {
+		return strike;
+	}
+
+	public double getInitialValue() {
+		return initialValue;
+	}
+
+	public int getUnderlyingIndex() {
+		return underlyingIndex;
+	}
+
 	/**
 	 * This method returns the value random variable of the product within the specified model,
 	 * evaluated at a given evalutationTime.
@@ -99,39 +125,28 @@ public class MemoryExpress extends AbstractAssetMonteCarloProduct {
 		
 		for(double evaltime : exerciseDates) {
 		
-			
-		RandomVariableInterface valueatTimet = model.getAssetValue(0.0, underlyingIndex).mult(0.0);
 		// Get S(t_i)
 
 		RandomVariableInterface underlyingAtMaturity = model.getAssetValue(evaltime,underlyingIndex);
 
 		
-		RandomVariableInterface eligableforMemory = underlyingAtMaturity.apply(x ->  x > strike ? 1  : 0);
+		RandomVariableInterface eligableforMemory = PathPrecision.apply(underlyingAtMaturity, x ->  x > strike ? 1  : 0);
 		
-		//get payoffs
-		 RandomVariableInterface payoffs = underlyingAtMaturity.apply(x ->  x > strike & x < initialValue ? coupon  : 0).add(eligableforMemory.mult(memory));
-		 payoffs = payoffs.add(underlyingAtMaturity.apply(x ->  x > initialValue ? coupon + 1 : 0).add(eligableforMemory.mult(memory)));
-		 
-		 exercised = exercised.add(underlyingAtMaturity.apply(x ->  x > initialValue ? 1 : 0));
+		//get payoffs: coupon and memory (once) above the strike, plus the redemption above the initial value
+		RandomVariableInterface payoffs = eligableforMemory.mult(memory.add(coupon));
+		payoffs = payoffs.add(PathPrecision.apply(underlyingAtMaturity, x ->  x > initialValue ? 1 : 0));
 		 
-		 //Add to values
-		 valueatTimet = payoffs.mult(initialValue).mult(exercised.apply(x ->  x > 0 ? 0 : 1));
+		//Add to values, if not redeemed on a previous date
+		RandomVariableInterface valueatTimet = payoffs.mult(initialValue).mult(PathPrecision.apply(exercised, x ->  x > 0 ? 0 : 1));
 		 
+		exercised = exercised.add(PathPrecision.apply(underlyingAtMaturity, x ->  x > initialValue ? 1 : 0));
 		
 		//reset memory
-		memory = memory.mult(eligableforMemory.apply(x ->  x > 0 ? 0 : 1));
+		memory = memory.mult(PathPrecision.apply(eligableforMemory, x ->  x > 0 ? 0 : 1));
 		
 		
 		//add to memory	if not payed
-		memory = memory.add(underlyingAtMaturity.apply(x ->  x < strike ? coupon : 0.0));
-		
-		
-		
-		
-		//System.out.println("AVG payoff at t "+ evaltime + " is " + valueatTimet.getAverage());
-		System.out.println("AVG memory at t "+ evaltime + " is " +  model.getAssetValue(evaltime,underlyingIndex).getAverage() );
-		System.out.println("AVG understrike at t "+ evaltime +  " is " + exercised.apply(x -> (x > strike && x < initialValue )? 1 : 0).getAverage() );
-		//System.out.println("AVG eligable at t "+ evaltime +  " is " + eligableforMemory.getAverage() );
+		memory = memory.add(PathPrecision.apply(underlyingAtMaturity, x ->  x < strike ? coupon : 0.0));
 		
 		// Discounting...
 		RandomVariableInterface numeraireAtMaturity		= model.getNumeraire(evaltime);
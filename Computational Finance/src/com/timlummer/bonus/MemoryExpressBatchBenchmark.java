@@ -0,0 +1,68 @@
+package com.timlummer.bonus;
+
+import java.util.Random;
+
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+
+/**
+ * Compares the valuation of express certificates one by one (<code>MemoryExpress</code>) with the batch valuation
+ * (<code>MemoryExpressBatchValuation</code>) of many term sheets on the same underlying.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class MemoryExpressBatchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		// Model properties
+		double	initialValue	= 100;
+		double	riskFreeRate	= 0.01;
+		double	volatility		= 0.25;
+		int		numberOfPaths	= 100000;
+		int		seed			= 31415;
+
+		int		numberOfTermSheets			= 5000;
+		int		numberOfTermSheetsSingle	= 20;
+
+		// Term sheets with 3 to 5 annual exercise dates, random coupons and strikes
+		Random random = new Random(3141);
+		MemoryExpress[] products = new MemoryExpress[numberOfTermSheets];
+		for(int termSheetIndex=0; termSheetIndex<numberOfTermSheets; termSheetIndex++) {
+			double[] exerciseDates = new double[3 + random.nextInt(3)];
+			for(int exerciseIndex=0; exerciseIndex<exerciseDates.length; exerciseIndex++) exerciseDates[exerciseIndex] = exerciseIndex + 1.0;
+			double coupon		= 0.03 + 0.05 * random.nextDouble();
+			double strike		= initialValue * (0.7 + 0.25 * random.nextDouble());
+			products[termSheetIndex] = new MemoryExpress(exerciseDates, initialValue, coupon, strike, 0);
+		}
+
+		MemoryExpressBatchValuation batchValuation = MemoryExpressBatchValuation.of(products);
+		BlackScholesExactSimulation model = BlackScholesExactSimulation.create(initialValue, riskFreeRate, volatility, batchValuation.getObservationDates(),
+				numberOfPaths, seed, PathPrecision.DOUBLE, BrownianMotionGenerator.fromSystemProperty());
+		model.getAssetValue(model.getTimeDiscretization().getNumberOfTimeSteps(), 0);
+
+		// One by one
+		double[] valuesSingle = new double[numberOfTermSheetsSingle];
+		long millisStartSingle = System.currentTimeMillis();
+		for(int termSheetIndex=0; termSheetIndex<numberOfTermSheetsSingle; termSheetIndex++) valuesSingle[termSheetIndex] = products[termSheetIndex].getValue(model);
+		long millisSingle = System.currentTimeMillis() - millisStartSingle;
+
+		// Batch
+		batchValuation.getValues(model);
+		long millisStartBatch = System.currentTimeMillis();
+		double[] values = batchValuation.getValues(model);
+		long millisBatch = System.currentTimeMillis() - millisStartBatch;
+
+		double maximumDeviation = 0.0;
+		for(int termSheetIndex=0; termSheetIndex<numberOfTermSheetsSingle; termSheetIndex++) maximumDeviation = Math.max(maximumDeviation, Math.abs(values[termSheetIndex] - valuesSingle[termSheetIndex]));
+
+		System.out.println("Paths: " + numberOfPaths);
+		System.out.println("One by one:\t" + numberOfTermSheetsSingle + " term sheets in " + millisSingle + " ms\t(" + (1000.0 * millisSingle / numberOfTermSheetsSingle) + " microseconds per term sheet)");
+		System.out.println("Batch:\t\t" + numberOfTermSheets + " term sheets in " + millisBatch + " ms\t(" + (1000.0 * millisBatch / numberOfTermSheets) + " microseconds per term sheet)");
+		System.out.println("Maximum deviation of the first " + numberOfTermSheetsSingle + " values: " + maximumDeviation);
+		System.out.println("Values of the first term sheets:\t" + values[0] + ", " + values[1] + ", " + values[2]);
+		System.out.println("One by one:\t\t\t" + valuesSingle[0] + ", " + valuesSingle[1] + ", " + valuesSingle[2]);
+	}
+}
@@ -0,0 +1,194 @@
+package com.timlummer.bonus;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import com.timlummer.montecarlo.ObservationDatesInterface;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Valuation of many express certificates with memory coupon (term sheets of <code>MemoryExpress</code>) on the same underlying
+ * in a single pass over the simulated paths.
+ *
+ * The term sheets are stored column-wise in primitive arrays (coupons, strikes, initial values and the indices of the exercise
+ * dates in the union of all exercise dates). The asset and the numeraire are read from the model once per date of the union and
+ * transposed to blocks of paths, such that all term sheets are evaluated on a block while it is in the cache. The payoff is the
+ * one of <code>MemoryExpress.getValue</code>: on each exercise date (until the redemption) a path above the strike pays the coupon and
+ * the memory (the coupons of the previous dates below the strike), and a path above the initial value is redeemed in addition. The
+ * values agree with the valuation of each term sheet by <code>MemoryExpress</code>, but an additional term sheet only costs one loop
+ * over the paths and its exercise dates.
+ *
+ * The blocks of paths are valued in parallel. The Monte-Carlo weights of the model are assumed to be uniform.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class MemoryExpressBatchValuation implements ObservationDatesInterface {
+
+	private static final int BLOCK_SIZE = 1024;
+
+	private final double[]	dates;						// Union of the exercise dates of all term sheets
+	private final int[]		exerciseDateIndexStart;		// Exercise dates of term sheet j are dates[exerciseDateIndices[exerciseDateIndexStart[j] ... exerciseDateIndexStart[j+1]-1]]
+	private final int[]		exerciseDateIndices;
+	private final double[]	coupons;
+	private final double[]	strikes;
+	private final double[]	initialValues;
+	private final int		underlyingIndex;
+
+	/**
+	 * Create the valuation of the given term sheets.
+	 *
+	 * @param exerciseDates The (sorted) exercise dates of each term sheet.
+	 * @param initialValues The initial value (redemption level) of each term sheet.
+	 * @param coupons The coupon of each term sheet.
+	 * @param strikes The strike (coupon barrier) of each term sheet.
+	 * @param underlyingIndex The index of the underlying in the model.
+	 */
+	public MemoryExpressBatchValuation(double[][] exerciseDates, double[] initialValues, double[] coupons, double[] strikes, int underlyingIndex) {
+		super();
+		int numberOfTermSheets = exerciseDates.length;
+		if(initialValues.length != numberOfTermSheets || coupons.length != numberOfTermSheets || strikes.length != numberOfTermSheets) {
+			throw new IllegalArgumentException("Inconsistent number of term sheets.");
+		}
+
+		TreeSet<Double> unionOfDates = new TreeSet<Double>();
+		for(double[] exerciseDatesOfTermSheet : exerciseDates) {
+			for(double exerciseDate : exerciseDatesOfTermSheet) unionOfDates.add(exerciseDate);
+		}
+		this.dates = new double[unionOfDates.size()];
+		int dateIndex = 0;
+		for(double date : unionOfDates) dates[dateIndex++] = date;
+
+		this.exerciseDateIndexStart = new int[numberOfTermSheets+1];
+		for(int termSheetIndex=0; termSheetIndex<numberOfTermSheets; termSheetIndex++) {
+			exerciseDateIndexStart[termSheetIndex+1] = exerciseDateIndexStart[termSheetIndex] + exerciseDates[termSheetIndex].length;
+		}
+		this.exerciseDateIndices = new int[exerciseDateIndexStart[numberOfTermSheets]];
+		for(int termSheetIndex=0; termSheetIndex<numberOfTermSheets; termSheetIndex++) {
+			for(int exerciseIndex=0; exerciseIndex<exerciseDates[termSheetIndex].length; exerciseIndex++) {
+				exerciseDateIndices[exerciseDateIndexStart[termSheetIndex] + exerciseIndex] = Arrays.binarySearch(dates, exerciseDates[termSheetIndex][exerciseIndex]);
+			}
+		}
+
+		this.initialValues		= initialValues.clone();
+		this.coupons			= coupons.clone();
+		this.strikes			= strikes.clone();
+		this.underlyingIndex	= underlyingIndex;
+	}
+
+	/**
+	 * Create the valuation of the given products (which have to be on the same underlying).
+	 *
+	 * @param products The products.
+	 * @return The valuation of the term sheets of the products.
+	 */
+	public static MemoryExpressBatchValuation of(MemoryExpress... products) {
+		double[][]	exerciseDates	= new double[products.length][];
+		double[]	initialValues	= new double[products.length];
+		double[]	coupons			= new double[products.length];
+		double[]	strikes			= new double[products.length];
+		for(int productIndex=0; productIndex<products.length; productIndex++) {
+			if(products[productIndex].getUnderlyingIndex() != products[0].getUnderlyingIndex()) throw new IllegalArgumentException("Products on different underlyings.");
+			exerciseDates[productIndex]	= products[productIndex].getExerciseDates();
+			initialValues[productIndex]	= products[productIndex].getInitialValue();
+			coupons[productIndex]		= products[productIndex].getCoupon();
+			strikes[productIndex]		= products[productIndex].getStrike();
+		}
+		return new MemoryExpressBatchValuation(exerciseDates, initialValues, coupons, strikes, products.length > 0 ? products[0].getUnderlyingIndex() : 0);
+	}
+
+	/**
+	 * Returns the values of all term sheets at time 0.
+	 *
+	 * @param model The model used to price the products.
+	 * @return The values, one for each term sheet.
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	public double[] getValues(AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		int numberOfPaths	= model.getNumberOfPaths();
+		int numberOfDates	= dates.length;
+
+		// Read each slice once
+		RandomVariableInterface[] underlyings			= new RandomVariableInterface[numberOfDates];
+		RandomVariableInterface[] discountFactors		= new RandomVariableInterface[numberOfDates];
+		RandomVariableInterface numeraireAtEvalTime		= model.getNumeraire(0.0);
+		for(int dateIndex=0; dateIndex<numberOfDates; dateIndex++) {
+			underlyings[dateIndex]		= model.getAssetValue(dates[dateIndex], underlyingIndex);
+			discountFactors[dateIndex]	= numeraireAtEvalTime.div(model.getNumeraire(dates[dateIndex]));
+		}
+
+		int numberOfBlocks = (numberOfPaths + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		double[] sums = IntStream.range(0, numberOfBlocks).parallel().mapToObj(blockIndex -> {
+			int from	= blockIndex * BLOCK_SIZE;
+			int to		= Math.min(from + BLOCK_SIZE, numberOfPaths);
+
+			// The block, path-major: value on date d of path p at [(p - from) * numberOfDates + d]
+			double[] underlyingOfBlock		= new double[(to - from) * numberOfDates];
+			double[] discountFactorOfBlock	= new double[(to - from) * numberOfDates];
+			for(int dateIndex=0; dateIndex<numberOfDates; dateIndex++) {
+				for(int path=from; path<to; path++) {
+					underlyingOfBlock[(path - from) * numberOfDates + dateIndex]		= underlyings[dateIndex].get(path);
+					discountFactorOfBlock[(path - from) * numberOfDates + dateIndex]	= discountFactors[dateIndex].get(path);
+				}
+			}
+
+			double[] sumsOfBlock = new double[coupons.length];
+			for(int termSheetIndex=0; termSheetIndex<coupons.length; termSheetIndex++) {
+				double	coupon			= coupons[termSheetIndex];
+				double	strike			= strikes[termSheetIndex];
+				double	initialValue	= initialValues[termSheetIndex];
+				int		start			= exerciseDateIndexStart[termSheetIndex];
+				int		end				= exerciseDateIndexStart[termSheetIndex+1];
+
+				double sum = 0.0;
+				for(int offset=0; offset<underlyingOfBlock.length; offset+=numberOfDates) {
+					double memory = 0.0;
+					for(int exerciseIndex=start; exerciseIndex<end; exerciseIndex++) {
+						int dateIndex = offset + exerciseDateIndices[exerciseIndex];
+						double underlying = underlyingOfBlock[dateIndex];
+
+						// Above the strike: coupon and memory, redemption (and no payments on later dates) above the initial value
+						if(underlying > strike) {
+							boolean isRedeemed = underlying > initialValue;
+							sum += (coupon + memory + (isRedeemed ? 1.0 : 0.0)) * discountFactorOfBlock[dateIndex];
+							if(isRedeemed) break;
+							memory = 0.0;
+						}
+						else if(underlying < strike) {
+							memory += coupon;
+						}
+					}
+				}
+				sumsOfBlock[termSheetIndex] = sum * initialValue;
+			}
+			return sumsOfBlock;
+		}).reduce(new double[coupons.length], (sums1, sums2) -> {
+			double[] sum = new double[sums1.length];
+			for(int i=0; i<sum.length; i++) sum[i] = sums1[i] + sums2[i];
+			return sum;
+		});
+
+		double[] values = new double[coupons.length];
+		for(int termSheetIndex=0; termSheetIndex<values.length; termSheetIndex++) values[termSheetIndex] = sums[termSheetIndex] / numberOfPaths;
+		return values;
+	}
+
+	/**
+	 * @return The number of term sheets.
+	 */
+	public int getNumberOfTermSheets() {
+		return coupons.length;
+	}
+
+	/**
+	 * @return The union of the exercise dates of all term sheets.
+	 */
+	@Override
+	public double[] getObservationDates() {
+		return dates.clone();
+	}
+}
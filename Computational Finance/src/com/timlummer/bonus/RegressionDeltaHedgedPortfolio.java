@@ -0,0 +1,196 @@
+package com.timlummer.bonus;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.timlummer.montecarlo.ConditionalExpectationRegression;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Delta hedge of a product paying a single cash flow at maturity (e.g. <code>BonusOption</code>), with the deltas estimated by regression.
+ *
+ * The portfolio starts with the (Monte-Carlo) value of the product and is rebalanced on the time discretization of the model,
+ * holding <i>&Delta;(t<sub>i</sub>)</i> units of the underlying and the rest in the numeraire. The delta is the minimum variance hedge ratio
+ * <br>
+ * 	<i>&Delta;(t<sub>i</sub>) = E( V(T) (S(t<sub>i+1</sub>) - S(t<sub>i</sub>)) | S(t<sub>i</sub>) ) / E( (S(t<sub>i+1</sub>) - S(t<sub>i</sub>))<sup>2</sup> | S(t<sub>i</sub>) )</i>,
+ * <br>
+ * (all values relative to the numeraire), where both conditional expectations are estimated by a regression on a polynomial
+ * of order k in S(t<sub>i</sub>) (<code>ConditionalExpectationRegression</code>, which factorizes the normal equations once for both). Hence the hedge requires a single valuation of the product and one pass over the
+ * paths per rebalancing time, instead of a revaluation per rebalancing time (as <code>FiniteDifferenceDeltaHedgedPortfolio</code>).
+ *
+ * The regressions and the portfolio updates run in parallel over blocks of paths, on arrays of the realizations.
+ * The Monte-Carlo weights of the model are assumed to be uniform.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class RegressionDeltaHedgedPortfolio extends AbstractAssetMonteCarloProduct {
+
+	private static final int	BLOCK_SIZE = 4096;
+
+	private final AbstractAssetMonteCarloProduct	productToReplicate;
+	private final double							maturity;
+	private final int								underlyingIndex;
+	private final int								basisFunctionsOrder;
+
+	/**
+	 * Create the delta hedge of a product.
+	 *
+	 * @param productToReplicate The product, paying a single cash flow at maturity.
+	 * @param maturity The maturity of the product.
+	 * @param underlyingIndex The index of the hedge instrument in the model.
+	 * @param basisFunctionsOrder The maximum power of the underlying used as basis function in the regression.
+	 */
+	public RegressionDeltaHedgedPortfolio(AbstractAssetMonteCarloProduct productToReplicate, double maturity, int underlyingIndex, int basisFunctionsOrder) {
+		super();
+		this.productToReplicate		= productToReplicate;
+		this.maturity				= maturity;
+		this.underlyingIndex		= underlyingIndex;
+		this.basisFunctionsOrder	= basisFunctionsOrder;
+	}
+
+	/**
+	 * Create the delta hedge of a product on the asset with index 0, using a regression on a polynomial of order 3.
+	 *
+	 * @param productToReplicate The product, paying a single cash flow at maturity.
+	 * @param maturity The maturity of the product.
+	 */
+	public RegressionDeltaHedgedPortfolio(AbstractAssetMonteCarloProduct productToReplicate, double maturity) {
+		this(productToReplicate, maturity, 0, 3);
+	}
+
+	/**
+	 * Returns the value of the hedge portfolio at the given time (rebalanced up to that time).
+	 *
+	 * @param evaluationTime The time on which the portfolio value is observed (at most the maturity).
+	 * @param model The model used to simulate the hedge.
+	 * @return The random variable representing the value of the hedge portfolio at evaluation time.
+	 * @throws net.finmath.exception.CalculationException Thrown if the valuation fails, specific cause may be available via the <code>cause()</code> method.
+	 */
+	@Override
+	public RandomVariableInterface getValue(double evaluationTime, AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		double[] portfolioValues = getDiscountedPortfolioValues(evaluationTime, model, getDiscountedPayoffs(model));
+
+		RandomVariableInterface numeraireAtEvalTime = model.getNumeraire(evaluationTime);
+		return PathPrecision.of(model.getAssetValue(0.0, underlyingIndex)).createRandomVariable(evaluationTime, portfolioValues).mult(numeraireAtEvalTime);
+	}
+
+	/**
+	 * Returns the hedge error at maturity, i.e., the value of the hedge portfolio minus the payoff of the product (the P&amp;L of
+	 * a short position in the product which is delta hedged).
+	 *
+	 * @param model The model used to simulate the hedge.
+	 * @return The random variable of the hedge errors at maturity.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public RandomVariableInterface getHedgeError(AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		// The payoffs are valued once, for the hedge and for the error
+		double[] payoffs			= getDiscountedPayoffs(model);
+		double[] portfolioValues	= getDiscountedPortfolioValues(maturity, model, payoffs);
+
+		double[] hedgeErrors = new double[portfolioValues.length];
+		for(int path=0; path<hedgeErrors.length; path++) hedgeErrors[path] = portfolioValues[path] - payoffs[path];
+
+		RandomVariableInterface numeraireAtMaturity = model.getNumeraire(maturity);
+		return PathPrecision.of(model.getAssetValue(0.0, underlyingIndex)).createRandomVariable(maturity, hedgeErrors).mult(numeraireAtMaturity);
+	}
+
+	/*
+	 * The values of the self-financing portfolio relative to the numeraire, hedging the given payoffs relative to the numeraire.
+	 */
+	private double[] getDiscountedPortfolioValues(double evaluationTime, AssetModelMonteCarloSimulationInterface model, double[] payoffs) throws CalculationException {
+		int numberOfPaths = model.getNumberOfPaths();
+
+		double valueOfProduct = 0.0;
+		for(int path=0; path<numberOfPaths; path++) valueOfProduct += payoffs[path];
+		valueOfProduct /= numberOfPaths;
+
+		double[] portfolioValues = new double[numberOfPaths];
+		Arrays.fill(portfolioValues, valueOfProduct);
+
+		double[] underlying = getDiscountedUnderlying(0, model);
+		for(int timeIndex=0; timeIndex<model.getTimeDiscretization().getNumberOfTimeSteps(); timeIndex++) {
+			if(model.getTime(timeIndex+1) > Math.min(evaluationTime, maturity) + 1E-12) break;
+
+			double[] underlyingNext = getDiscountedUnderlying(timeIndex+1, model);
+			double[] deltas = getDeltas(underlying, underlyingNext, payoffs, valueOfProduct, timeIndex == 0 ? 0 : basisFunctionsOrder);
+
+			double[] underlyingCurrent = underlying;
+			forEachBlock(numberOfPaths, (from, to) -> {
+				for(int path=from; path<to; path++) portfolioValues[path] += deltas[path] * (underlyingNext[path] - underlyingCurrent[path]);
+			});
+			underlying = underlyingNext;
+		}
+
+		return portfolioValues;
+	}
+
+	/*
+	 * The minimum variance hedge ratios for the period [t_i, t_i+1], given the discounted underlying at t_i and t_i+1.
+	 */
+	private double[] getDeltas(double[] underlying, double[] underlyingNext, double[] payoffs, double valueOfProduct, int order) {
+		int numberOfPaths = underlying.length;
+
+		// (V(T) - V(0)) dS and dS^2, regressed on the same basis
+		double[] covariances	= new double[numberOfPaths];
+		double[] variances		= new double[numberOfPaths];
+		forEachBlock(numberOfPaths, (from, to) -> {
+			for(int path=from; path<to; path++) {
+				double increment = underlyingNext[path] - underlying[path];
+				covariances[path]	= (payoffs[path] - valueOfProduct) * increment;
+				variances[path]		= increment * increment;
+			}
+		});
+
+		ConditionalExpectationRegression regression = ConditionalExpectationRegression.ofPolynomial(underlying, order);
+		double[] parametersCovariance	= regression.getRegressionParameters(covariances);
+		double[] parametersVariance		= regression.getRegressionParameters(variances);
+
+		// The unconditional hedge ratio, used where the regression of the variance is not positive
+		double sumOfCovariances = 0.0, sumOfVariances = 0.0;
+		for(int path=0; path<numberOfPaths; path++) {
+			sumOfCovariances	+= covariances[path];
+			sumOfVariances		+= variances[path];
+		}
+		double deltaUnconditional = sumOfVariances > 0 ? sumOfCovariances / sumOfVariances : 0.0;
+
+		double[] deltas = new double[numberOfPaths];
+		forEachBlock(numberOfPaths, (from, to) -> {
+			for(int path=from; path<to; path++) {
+				double variance = regression.getValue(path, parametersVariance);
+				deltas[path] = variance > 0 ? regression.getValue(path, parametersCovariance) / variance : deltaUnconditional;
+			}
+		});
+
+		return deltas;
+	}
+
+	private double[] getDiscountedPayoffs(AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		// The value of the product at maturity is its payoff
+		return getDiscounted(productToReplicate.getValue(maturity, model), model.getNumeraire(maturity), model.getNumberOfPaths());
+	}
+
+	private double[] getDiscountedUnderlying(int timeIndex, AssetModelMonteCarloSimulationInterface model) throws CalculationException {
+		return getDiscounted(model.getAssetValue(timeIndex, underlyingIndex), model.getNumeraire(model.getTime(timeIndex)), model.getNumberOfPaths());
+	}
+
+	private static double[] getDiscounted(RandomVariableInterface value, RandomVariableInterface numeraire, int numberOfPaths) {
+		double[] discountedValues = new double[numberOfPaths];
+		for(int path=0; path<numberOfPaths; path++) discountedValues[path] = value.get(path) / numeraire.get(path);
+		return discountedValues;
+	}
+
+	private interface BlockOperation {
+		void apply(int from, int to);
+	}
+
+	private static void forEachBlock(int numberOfPaths, BlockOperation operation) {
+		int numberOfBlocks = (numberOfPaths + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		IntStream.range(0, numberOfBlocks).parallel().forEach(blockIndex -> operation.apply(blockIndex * BLOCK_SIZE, Math.min((blockIndex+1) * BLOCK_SIZE, numberOfPaths)));
+	}
+}
@@ -0,0 +1,294 @@
+package com.timlummer.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.timlummer.LIBOR.OffHeapLIBORModelMonteCarloSimulation;
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.MultiAssetBlackScholesSimulation;
+import com.timlummer.montecarlo.ParallelBrownianMotion;
+
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.IndependentIncrementsInterface;
+import net.finmath.montecarlo.MonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
+import net.finmath.montecarlo.interestrate.LIBORMarketModel;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.modelplugins.AbstractLIBORCovarianceModel;
+import net.finmath.montecarlo.process.AbstractProcessInterface;
+import net.finmath.montecarlo.process.ProcessEulerScheme;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Canonical hash (SHA-256, hex) of the terms of a product or of the data of a model, used as key of <code>ValuationCache</code>.
+ *
+ * The fingerprint of a product (<code>ofProduct</code>) is derived from its class and all its non-static, non-transient fields
+ * (including those of its super classes) in the order of their names: primitives, boxed primitives, strings, enums, arrays of
+ * these and (recursively) objects of this repository or underlying products. Two products have the same fingerprint if and only if
+ * they are of the same class and have the same terms, e.g., two <code>Caplet</code>s with the same period and strike. State which
+ * is not a term of the product (caches, registries, results of the last valuation) has to be declared <code>transient</code>, other
+ * fields are rejected with an <code>IllegalArgumentException</code>.
+ *
+ * The fingerprint of a model (<code>ofModel</code>) is derived from the data which determines its paths: time discretization, number
+ * of paths, the class and seed of the Brownian motion and the parameters of the model (e.g. the initial LIBORs, discount factors
+ * and factor loadings of a <code>LIBORMarketModel</code>, or initial value, rate and volatility of a Black-Scholes model). It does
+ * not require the simulation of the paths.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public final class Fingerprint {
+
+	/*
+	 * The non-static, non-transient fields of a class and its super classes (each class in the order of the names of its fields).
+	 */
+	private static final ClassValue<Field[]> FIELDS_OF_TERMS = new ClassValue<Field[]>() {
+		@Override
+		protected Field[] computeValue(Class<?> type) {
+			List<Field> fieldsOfTerms = new ArrayList<Field>();
+			for(Class<?> declaringType = type; declaringType != null && declaringType != Object.class; declaringType = declaringType.getSuperclass()) {
+				List<Field> fields = new ArrayList<Field>();
+				for(Field field : declaringType.getDeclaredFields()) {
+					if(!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) fields.add(field);
+				}
+				Collections.sort(fields, Comparator.comparing(Field::getName));
+				for(Field field : fields) field.setAccessible(true);
+				fieldsOfTerms.addAll(fields);
+			}
+			return fieldsOfTerms.toArray(new Field[fieldsOfTerms.size()]);
+		}
+	};
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final MessageDigest	digest;
+	private final byte[]		buffer = new byte[8];
+
+	/**
+	 * Creates an empty fingerprint.
+	 */
+	public Fingerprint() {
+		super();
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not supported by the JVM.", e);
+		}
+	}
+
+	/**
+	 * Returns the fingerprint of the terms of a product.
+	 *
+	 * @param product The product.
+	 * @return The fingerprint.
+	 * @throws IllegalArgumentException Thrown if the product has a (non-transient) field which cannot be fingerprinted.
+	 */
+	public static String ofProduct(Object product) {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.addObject(product, new IdentityHashMap<Object, Boolean>());
+		return fingerprint.getHash();
+	}
+
+	/**
+	 * Returns the fingerprint of the data of a model: <code>LIBORModelMonteCarloSimulationInterface</code> with a
+	 * <code>LIBORMarketModel</code>, <code>BlackScholesExactSimulation</code>, <code>MultiAssetBlackScholesSimulation</code> and
+	 * <code>MonteCarloAssetModel</code> with a <code>BlackScholesModel</code>.
+	 *
+	 * @param model The model.
+	 * @return The fingerprint or null if the model is not supported (e.g. the paths are not reproducible from its data).
+	 */
+	public static String ofModel(MonteCarloSimulationInterface model) {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.add(model.getClass().getName());
+		fingerprint.add(model.getNumberOfPaths());
+		fingerprint.add(model.getTimeDiscretization());
+		fingerprint.add(model.getRandomVariableForConstant(1.0).getClass().getName());
+
+		// The paths of the off-heap store are determined by its batch factory, not by data
+		if(model instanceof OffHeapLIBORModelMonteCarloSimulation) return null;
+
+		try {
+			if(model instanceof LIBORModelMonteCarloSimulationInterface) {
+				LIBORModelMonteCarloSimulationInterface liborModel = (LIBORModelMonteCarloSimulationInterface)model;
+				if(!(liborModel.getModel() instanceof LIBORMarketModel)) return null;
+				fingerprint.add(liborModel.getLiborPeriodDiscretization());
+				fingerprint.add((LIBORMarketModel)liborModel.getModel());
+				fingerprint.add(liborModel.getProcess());
+				return fingerprint.add(liborModel.getBrownianMotion()) ? fingerprint.getHash() : null;
+			}
+			else if(model instanceof BlackScholesExactSimulation) {
+				BlackScholesExactSimulation blackScholesModel = (BlackScholesExactSimulation)model;
+				fingerprint.add(blackScholesModel.getInitialValue());
+				fingerprint.add(blackScholesModel.getRiskFreeRate());
+				fingerprint.add(blackScholesModel.getVolatility());
+				return fingerprint.add(blackScholesModel.getBrownianMotion()) ? fingerprint.getHash() : null;
+			}
+			else if(model instanceof MultiAssetBlackScholesSimulation) {
+				MultiAssetBlackScholesSimulation blackScholesModel = (MultiAssetBlackScholesSimulation)model;
+				fingerprint.add(blackScholesModel.getInitialValues());
+				fingerprint.add(blackScholesModel.getRiskFreeRate());
+				fingerprint.add(blackScholesModel.getVolatilities());
+				for(double[] correlations : blackScholesModel.getCorrelationMatrix()) fingerprint.add(correlations);
+				return fingerprint.add(blackScholesModel.getBrownianMotion()) ? fingerprint.getHash() : null;
+			}
+			else if(model instanceof MonteCarloAssetModel && ((MonteCarloAssetModel)model).getModel() instanceof BlackScholesModel) {
+				BlackScholesModel blackScholesModel = (BlackScholesModel)((MonteCarloAssetModel)model).getModel();
+				fingerprint.add(blackScholesModel.getInitialValue()[0].get(0));
+				fingerprint.add(blackScholesModel.getRiskFreeRate().get(0));
+				fingerprint.add(blackScholesModel.getVolatility().get(0));
+				fingerprint.add(blackScholesModel.getProcess());
+				return fingerprint.add(blackScholesModel.getProcess().getStochasticDriver()) ? fingerprint.getHash() : null;
+			}
+		}
+		catch(UnsupportedOperationException e) {
+			// A model (or process) which does not provide its data
+		}
+		return null;
+	}
+
+	public Fingerprint add(String value) {
+		if(value == null) return add(-1);
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		add(bytes.length);
+		digest.update(bytes);
+		return this;
+	}
+
+	public Fingerprint add(long value) {
+		for(int byteIndex=0; byteIndex<8; byteIndex++) buffer[byteIndex] = (byte)(value >>> (8 * byteIndex));
+		digest.update(buffer);
+		return this;
+	}
+
+	public Fingerprint add(double value) {
+		return add(Double.doubleToLongBits(value));
+	}
+
+	public Fingerprint add(double[] values) {
+		if(values == null) return add(-1);
+		add(values.length);
+		for(double value : values) add(value);
+		return this;
+	}
+
+	/**
+	 * @return The hash of all values added (SHA-256, hex). The fingerprint must not be used afterwards.
+	 */
+	public String getHash() {
+		byte[] hash = digest.digest();
+		char[] hashHex = new char[2 * hash.length];
+		for(int byteIndex=0; byteIndex<hash.length; byteIndex++) {
+			hashHex[2 * byteIndex]		= HEX_DIGITS[(hash[byteIndex] >>> 4) & 0xF];
+			hashHex[2 * byteIndex + 1]	= HEX_DIGITS[hash[byteIndex] & 0xF];
+		}
+		return new String(hashHex);
+	}
+
+	private void add(TimeDiscretizationInterface timeDiscretization) {
+		add(timeDiscretization.getAsDoubleArray());
+	}
+
+	private void add(LIBORMarketModel model) {
+		add(model.getMeasure().name());
+		add(model.getDriftApproximationMethod().name());
+
+		// Initial LIBORs (of the state space) and discount curve
+		for(RandomVariableInterface initialState : model.getInitialState()) add(initialState.get(0));
+		TimeDiscretizationInterface liborPeriodDiscretization = model.getLiborPeriodDiscretization();
+		if(model.getDiscountCurve() != null) {
+			for(double liborTime : liborPeriodDiscretization.getAsDoubleArray()) add(model.getDiscountCurve().getDiscountFactor(model.getAnalyticModel(), liborTime));
+		}
+
+		// Factor loadings of the (deterministic) covariance model on its time discretization
+		AbstractLIBORCovarianceModel covarianceModel = model.getCovarianceModel();
+		add(covarianceModel.getClass().getName());
+		add(covarianceModel.getNumberOfFactors());
+		for(int timeIndex=0; timeIndex<covarianceModel.getTimeDiscretization().getNumberOfTimes(); timeIndex++) {
+			for(int liborIndex=0; liborIndex<covarianceModel.getLiborPeriodDiscretization().getNumberOfTimeSteps(); liborIndex++) {
+				for(RandomVariableInterface factorLoading : covarianceModel.getFactorLoading(timeIndex, liborIndex, null)) add(factorLoading.get(0));
+			}
+		}
+	}
+
+	private void add(AbstractProcessInterface process) {
+		add(process.getClass().getName());
+		if(process instanceof ProcessEulerScheme) add(((ProcessEulerScheme)process).getScheme().name());
+	}
+
+	/*
+	 * Adds the Brownian motion (or other driver), returns false if its seed is unknown.
+	 */
+	private boolean add(IndependentIncrementsInterface brownianMotion) {
+		add(brownianMotion.getClass().getName());
+		add(brownianMotion.getNumberOfFactors());
+		add(brownianMotion.getNumberOfPaths());
+		add(brownianMotion.getTimeDiscretization());
+		if(brownianMotion instanceof BrownianMotion) {
+			add(((BrownianMotion)brownianMotion).getSeed());
+			return true;
+		}
+		if(brownianMotion instanceof ParallelBrownianMotion) {
+			add(((ParallelBrownianMotion)brownianMotion).getSeed());
+			add(((ParallelBrownianMotion)brownianMotion).getFirstPath());
+			return true;
+		}
+		return false;
+	}
+
+	private void addObject(Object object, Map<Object, Boolean> objectsVisited) {
+		if(object == null) {
+			add("null");
+			return;
+		}
+
+		Class<?> type = object.getClass();
+		add(type.getName());
+
+		if(object instanceof Number || object instanceof Boolean || object instanceof Character || object instanceof String) {
+			if(object instanceof Double || object instanceof Float)	add(((Number)object).doubleValue());
+			else if(object instanceof Number)						add(((Number)object).longValue());
+			else													add(object.toString());
+		}
+		else if(object instanceof Enum) {
+			add(((Enum<?>)object).name());
+		}
+		else if(object instanceof double[]) {
+			add((double[])object);
+		}
+		else if(type.isArray()) {
+			int length = Array.getLength(object);
+			add(length);
+			for(int index=0; index<length; index++) addObject(Array.get(object, index), objectsVisited);
+		}
+		else if(type.getName().startsWith("com.timlummer.") || object instanceof AbstractMonteCarloProduct) {
+			if(objectsVisited.put(object, Boolean.TRUE) != null) throw new IllegalArgumentException("Cyclic reference to " + type.getName() + ".");
+			for(Field field : FIELDS_OF_TERMS.get(type)) {
+				add(field.getName());
+				try {
+					addObject(field.get(object), objectsVisited);
+				}
+				catch(IllegalAccessException e) {
+					throw new IllegalArgumentException("Field " + field.getName() + " of " + field.getDeclaringClass().getName() + " is not accessible.", e);
+				}
+			}
+			objectsVisited.remove(object);
+		}
+		else {
+			throw new IllegalArgumentException("Type " + type.getName() + " is not a term of a product (declare the field transient if it is state).");
+		}
+	}
+}
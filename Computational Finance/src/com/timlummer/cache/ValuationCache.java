@@ -0,0 +1,207 @@
+package com.timlummer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.timlummer.instrumentation.Instrumentation;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.MonteCarloSimulationInterface;
+
+/**
+ * Cache of the values (at time 0) of products, keyed by the fingerprint of the terms of the product and the fingerprint of the
+ * model (see <code>Fingerprint</code>). Duplicate trades (e.g. the same <code>Caplet</code> booked by several desks) and reruns
+ * against an unchanged simulation are served from the cache without touching the paths.
+ *
+ * The cache holds at most <code>maximumSize</code> values and evicts the least recently used. It can be saved to and loaded
+ * from a file, such that a rerun (in a new JVM, with a new but identical model) is served from the values of the previous run.
+ * The file carries the code version given by the caller (e.g. the build id); values saved by another version (e.g. before a fix of
+ * a payoff or an upgrade of finmath-lib) are not loaded.
+ *
+ * Products and models are fingerprinted on each request (<code>getValues</code> fingerprints the model once), since both may
+ * change: some products are mutable, and a finmath-lib model may be rebound (e.g. <code>getCloneWithModifiedSeed</code> of a
+ * <code>LIBORModelMonteCarloSimulation</code> replaces the process of the model it shares with the clone). Models without a
+ * fingerprint (e.g. off-heap paths) are valued without the cache. Products are valued outside of the lock, such that concurrent
+ * misses of the same key may value the product twice.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ValuationCache {
+
+	private static final int FILE_FORMAT_VERSION = 0x56430002;		// "VC" and version 2
+
+	private final int					maximumSize;
+	private final String				codeVersion;
+	private final Map<String, Double>	values;
+
+	private final LongAdder hits		= new LongAdder();
+	private final LongAdder misses		= new LongAdder();
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param maximumSize The maximum number of values.
+	 * @param codeVersion The version of the code which calculates the values (e.g. the build id), saved with the values.
+	 */
+	public ValuationCache(final int maximumSize, String codeVersion) {
+		super();
+		if(maximumSize < 1) throw new IllegalArgumentException("Maximum size must be positive.");
+		if(codeVersion == null) throw new IllegalArgumentException("Code version must not be null.");
+		this.maximumSize	= maximumSize;
+		this.codeVersion	= codeVersion;
+		this.values			= new LinkedHashMap<String, Double>(16, 0.75f, true /* accessOrder */) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Creates a cache with the values saved in a file (if the file exists and has been saved by the same code version).
+	 *
+	 * @param file The file written by <code>save</code>.
+	 * @param maximumSize The maximum number of values.
+	 * @param codeVersion The version of the code which calculates the values, see the constructor.
+	 * @return The cache.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	public static ValuationCache load(Path file, int maximumSize, String codeVersion) throws IOException {
+		ValuationCache cache = new ValuationCache(maximumSize, codeVersion);
+		if(!Files.exists(file)) return cache;
+
+		try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(input.readInt() != FILE_FORMAT_VERSION) throw new IOException("Unsupported format of " + file + ".");
+			if(!input.readUTF().equals(codeVersion)) return cache;		// Values of another version of the code
+			int numberOfValues = input.readInt();
+			for(int valueIndex=0; valueIndex<numberOfValues; valueIndex++) {
+				String key = input.readUTF();
+				cache.values.put(key, input.readDouble());
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Saves the values (from the least to the most recently used) to a file. The file is replaced atomically.
+	 *
+	 * @param file The file.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public void save(Path file) throws IOException {
+		Path fileTemporary = file.resolveSibling(file.getFileName() + ".tmp");
+		synchronized(values) {
+			try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fileTemporary)))) {
+				output.writeInt(FILE_FORMAT_VERSION);
+				output.writeUTF(codeVersion);
+				output.writeInt(values.size());
+				for(Map.Entry<String, Double> value : values.entrySet()) {
+					output.writeUTF(value.getKey());
+					output.writeDouble(value.getValue());
+				}
+			}
+		}
+		Files.move(fileTemporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the value of the product at time 0, from the cache if the product (same terms) has been valued in the same model
+	 * (same data).
+	 *
+	 * @param product The product.
+	 * @param model The model.
+	 * @return The value of the product.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public double getValue(AbstractMonteCarloProduct product, MonteCarloSimulationInterface model) throws CalculationException {
+		return getValue(product, model, Fingerprint.ofModel(model));
+	}
+
+	/**
+	 * Returns the values of the products at time 0, see <code>getValue</code>.
+	 *
+	 * @param products The products.
+	 * @param model The model.
+	 * @return The values of the products.
+	 * @throws CalculationException Thrown if a valuation fails.
+	 */
+	public double[] getValues(AbstractMonteCarloProduct[] products, MonteCarloSimulationInterface model) throws CalculationException {
+		String modelFingerprint = Fingerprint.ofModel(model);
+		double[] valuesOfProducts = new double[products.length];
+		for(int productIndex=0; productIndex<products.length; productIndex++) valuesOfProducts[productIndex] = getValue(products[productIndex], model, modelFingerprint);
+		return valuesOfProducts;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		synchronized(values) {
+			values.clear();
+		}
+	}
+
+	public int size() {
+		synchronized(values) {
+			return values.size();
+		}
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public String getCodeVersion() {
+		return codeVersion;
+	}
+
+	/**
+	 * @return The number of values served from the cache.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return The number of values calculated (and added to the cache).
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private double getValue(AbstractMonteCarloProduct product, MonteCarloSimulationInterface model, String modelFingerprint) throws CalculationException {
+		if(modelFingerprint == null) return product.getValue(model);
+
+		String key = Fingerprint.ofProduct(product) + "@" + modelFingerprint;
+		Double value;
+		synchronized(values) {
+			value = values.get(key);
+		}
+		if(value != null) {
+			hits.increment();
+			Instrumentation.count("ValuationCache.hits", 1);
+			return value;
+		}
+
+		misses.increment();
+		Instrumentation.count("ValuationCache.misses", 1);
+		value = product.getValue(model);
+		synchronized(values) {
+			values.put(key, value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,124 @@
+package com.timlummer.cache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.timlummer.InterestDerivatives.BermudanSwaption;
+import com.timlummer.InterestDerivatives.Cap;
+import com.timlummer.InterestDerivatives.Caplet;
+import com.timlummer.InterestDerivatives.Swaption;
+import com.timlummer.LIBOR.LIBORinArrears;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+
+/**
+ * Values a book of LIBOR products booked by three desks (identical terms, i.e., duplicate trades) with the valuation cache:
+ * against the model, against a second model created with the same data (a rerun), against a model with a different seed and
+ * after saving and loading the cache (with the same and with another code version).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ValuationCacheTest {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfPaths	= 2000;
+		int numberOfDesks	= 3;
+
+		double[] fixingDates	= { 2.0, 2.5, 3.0, 3.5 };
+		double[] paymentDates	= { 2.5, 3.0, 3.5, 4.0 };
+		double[] strikes		= { 0.05, 0.05, 0.05, 0.05 };
+
+		// Each desk books the same trades (new instances with the same terms)
+		AbstractMonteCarloProduct[] book = new AbstractMonteCarloProduct[numberOfDesks * 5];
+		for(int deskIndex=0; deskIndex<numberOfDesks; deskIndex++) {
+			book[deskIndex * 5 + 0] = new Caplet(2.0, 2.5, 0.05, false);
+			book[deskIndex * 5 + 1] = new Caplet(2.0, 2.5, 0.05, true);
+			book[deskIndex * 5 + 2] = new Swaption(2.0, 2.5, 0.05);
+			book[deskIndex * 5 + 3] = new Cap(fixingDates.clone(), paymentDates.clone(), strikes.clone());
+			book[deskIndex * 5 + 4] = new BermudanSwaption(fixingDates.clone(), paymentDates.clone(), strikes.clone());
+		}
+
+		String codeVersion = "1.0";
+		ValuationCache cache = new ValuationCache(1000, codeVersion);
+
+		/*
+		 * Book without and with the cache (the first request of the cache includes the fingerprint of the model)
+		 */
+		LIBORModelMonteCarloSimulationInterface model = LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01);
+		model.getLIBOR(0, 0);		// Simulation of the paths
+
+		long nanosStart = System.nanoTime();
+		double[] valuesWithoutCache = new double[book.length];
+		for(int productIndex=0; productIndex<book.length; productIndex++) valuesWithoutCache[productIndex] = book[productIndex].getValue(model);
+		long nanosWithoutCache = System.nanoTime() - nanosStart;
+
+		nanosStart = System.nanoTime();
+		double[] valuesWithCache = cache.getValues(book, model);
+		long nanosWithCache = System.nanoTime() - nanosStart;
+
+		System.out.println("Book of " + book.length + " trades:\twithout cache " + nanosWithoutCache / 1E6 + " ms\twith cache " + nanosWithCache / 1E6
+				+ " ms\t(" + cache.getMisses() + " valued, " + cache.getHits() + " served, maximum deviation " + getMaximumDeviation(valuesWithCache, valuesWithoutCache) + ")");
+
+		/*
+		 * Rerun: a new model with the same data, with the cache its paths are not simulated
+		 */
+		nanosStart = System.nanoTime();
+		LIBORModelMonteCarloSimulationInterface modelOfRerunWithoutCache = LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01);
+		for(AbstractMonteCarloProduct product : book) product.getValue(modelOfRerunWithoutCache);
+		long nanosRerunWithoutCache = System.nanoTime() - nanosStart;
+
+		nanosStart = System.nanoTime();
+		LIBORModelMonteCarloSimulationInterface modelOfRerun = LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01);
+		double[] valuesOfRerun = cache.getValues(book, modelOfRerun);
+		long nanosRerunWithCache = System.nanoTime() - nanosStart;
+
+		System.out.println("Rerun with a new model (including its creation):\twithout cache " + nanosRerunWithoutCache / 1E6 + " ms\twith cache " + nanosRerunWithCache / 1E6
+				+ " ms\t(" + cache.getHits() + " served in total, maximum deviation " + getMaximumDeviation(valuesOfRerun, valuesWithoutCache) + ")");
+
+		/*
+		 * Model with a different seed: the values are calculated
+		 */
+		long missesBefore = cache.getMisses();
+		LIBORModelMonteCarloSimulationInterface modelOfOtherSeed = LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01,
+				LIBORinArrears.VOLATILITY_PARAMETERS, LIBORinArrears.createTimeDiscretization(), new RandomVariableFactory(), BrownianMotionGenerator.SEQUENTIAL, 4711 /* seed */);
+		cache.getValues(book, modelOfOtherSeed);
+		System.out.println("Model with a different seed:\t" + (cache.getMisses() - missesBefore) + " valued");
+
+		/*
+		 * Persistence
+		 */
+		Path file = Files.createTempFile("valuationcache", ".bin");
+		try {
+			cache.save(file);
+			ValuationCache cacheLoaded = ValuationCache.load(file, 1000, codeVersion);
+			double[] valuesLoaded = cacheLoaded.getValues(book, modelOfRerun);
+			System.out.println("Loaded cache (" + Files.size(file) + " bytes, " + cacheLoaded.size() + " values):\t" + cacheLoaded.getHits() + " served, "
+					+ cacheLoaded.getMisses() + " valued, maximum deviation " + getMaximumDeviation(valuesLoaded, valuesWithoutCache));
+
+			// A new version of the code (e.g. after a fix of a payoff) does not load the values of the previous version
+			ValuationCache cacheOfNewVersion = ValuationCache.load(file, 1000, "1.1");
+			System.out.println("Loaded cache of another code version:\t" + cacheOfNewVersion.size() + " values");
+		}
+		finally {
+			Files.delete(file);
+		}
+
+		/*
+		 * Eviction
+		 */
+		ValuationCache cacheSmall = new ValuationCache(2, codeVersion);
+		cacheSmall.getValues(book, model);
+		System.out.println("Cache of size 2:\t" + cacheSmall.size() + " values, " + cacheSmall.getHits() + " served, " + cacheSmall.getMisses() + " valued");
+	}
+
+	private static double getMaximumDeviation(double[] values, double[] valuesReference) {
+		double maximumDeviation = 0.0;
+		for(int valueIndex=0; valueIndex<values.length; valueIndex++) maximumDeviation = Math.max(maximumDeviation, Math.abs(values[valueIndex] - valuesReference[valueIndex]));
+		return maximumDeviation;
+	}
+}
@@ -0,0 +1,75 @@
+package com.timlummer.distributed;
+
+import com.timlummer.montecarlo.ParallelBrownianMotion;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.AbstractRandomVariableFactory;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.montecarlo.process.ProcessEulerScheme;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * Values asset products (e.g. <code>BonusOption</code>, <code>MemoryExpress</code>) on a block of paths of a
+ * Black-Scholes model (Euler scheme as in <code>BounsTest</code>), driven by the paths of the block of a
+ * <code>ParallelBrownianMotion</code> with the seed of the simulation.
+ *
+ * The paths of the model do not depend on each other, hence for products whose value on a path only depends on this
+ * path the merged result equals the valuation of a single simulation with all paths (up to the rounding of the sums).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BlackScholesShardValuation implements ShardValuation {
+
+	private static final long serialVersionUID = 1L;
+
+	private final double											initialValue;
+	private final double											riskFreeRate;
+	private final double											volatility;
+	private final int												numberOfTimeSteps;
+	private final double											deltaT;
+	private final PathPrecision										pathPrecision;
+	private final ProductFactory<AbstractAssetMonteCarloProduct>	products;
+
+	/**
+	 * @param initialValue The initial value of the asset.
+	 * @param riskFreeRate The risk free rate.
+	 * @param volatility The volatility.
+	 * @param numberOfTimeSteps The number of time steps of the simulation.
+	 * @param deltaT The time step size of the simulation.
+	 * @param pathPrecision The precision of the simulated paths.
+	 * @param products The factory of the products to value.
+	 */
+	public BlackScholesShardValuation(double initialValue, double riskFreeRate, double volatility, int numberOfTimeSteps, double deltaT,
+			PathPrecision pathPrecision, ProductFactory<AbstractAssetMonteCarloProduct> products) {
+		super();
+		this.initialValue		= initialValue;
+		this.riskFreeRate		= riskFreeRate;
+		this.volatility			= volatility;
+		this.numberOfTimeSteps	= numberOfTimeSteps;
+		this.deltaT				= deltaT;
+		this.pathPrecision		= pathPrecision;
+		this.products			= products;
+	}
+
+	@Override
+	public RandomVariableInterface[] getValues(PathShard shard) throws CalculationException {
+		AbstractRandomVariableFactory randomVariableFactory = pathPrecision.getRandomVariableFactory();
+
+		AssetModelMonteCarloSimulationInterface model = new MonteCarloAssetModel(
+				new BlackScholesModel(initialValue, riskFreeRate, volatility, randomVariableFactory),
+				new ProcessEulerScheme(new ParallelBrownianMotion(new TimeDiscretization(0.0, numberOfTimeSteps, deltaT), 1, shard.getFirstPath(), shard.getNumberOfPaths(), shard.getSeed(), randomVariableFactory)));
+
+		AbstractAssetMonteCarloProduct[] productsOfShard = products.createProducts();
+		RandomVariableInterface[] values = new RandomVariableInterface[productsOfShard.length];
+		for(int productIndex=0; productIndex<productsOfShard.length; productIndex++) {
+			values[productIndex] = productsOfShard[productIndex].getValue(0.0, model);
+		}
+		return values;
+	}
+}
@@ -0,0 +1,63 @@
+package com.timlummer.distributed;
+
+import com.timlummer.LIBOR.LIBORinArrears;
+import com.timlummer.montecarlo.ParallelBrownianMotion;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.AbstractRandomVariableFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Values LIBOR products (e.g. of <code>com.timlummer.InterestDerivatives</code>) on a block of paths of the
+ * LIBOR market model of <code>LIBORinArrears.createLIBORMarketModel</code>, driven by the paths of the block of a
+ * <code>ParallelBrownianMotion</code> with the seed of the simulation.
+ *
+ * The LIBORs of a block are those of the same paths of a single simulation. The values are not: the model normalises
+ * its numeraire to the discount curve by an average over the paths of its simulation (here the block), and regression
+ * based products (e.g. <code>BermudanSwaption</code>) estimate their exercise on the paths of the block. Hence the merged
+ * result differs from the valuation of a single simulation within the Monte-Carlo error.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class LIBORShardValuation implements ShardValuation {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int												numberOfFactors;
+	private final double											correlationDecayParam;
+	private final PathPrecision										pathPrecision;
+	private final ProductFactory<AbstractLIBORMonteCarloProduct>	products;
+
+	/**
+	 * @param numberOfFactors The number of factors of the LIBOR market model.
+	 * @param correlationDecayParam The decay parameter of the exponential correlation.
+	 * @param pathPrecision The precision of the simulated paths.
+	 * @param products The factory of the products to value.
+	 */
+	public LIBORShardValuation(int numberOfFactors, double correlationDecayParam, PathPrecision pathPrecision, ProductFactory<AbstractLIBORMonteCarloProduct> products) {
+		super();
+		this.numberOfFactors		= numberOfFactors;
+		this.correlationDecayParam	= correlationDecayParam;
+		this.pathPrecision			= pathPrecision;
+		this.products				= products;
+	}
+
+	@Override
+	public RandomVariableInterface[] getValues(PathShard shard) throws CalculationException {
+		AbstractRandomVariableFactory randomVariableFactory = pathPrecision.getRandomVariableFactory();
+
+		LIBORModelMonteCarloSimulationInterface model = LIBORinArrears.createLIBORMarketModel(correlationDecayParam, LIBORinArrears.VOLATILITY_PARAMETERS, randomVariableFactory,
+				new ParallelBrownianMotion(LIBORinArrears.createTimeDiscretization(), numberOfFactors, shard.getFirstPath(), shard.getNumberOfPaths(), shard.getSeed(), randomVariableFactory));
+
+		AbstractLIBORMonteCarloProduct[] productsOfShard = products.createProducts();
+		RandomVariableInterface[] values = new RandomVariableInterface[productsOfShard.length];
+		for(int productIndex=0; productIndex<productsOfShard.length; productIndex++) {
+			values[productIndex] = productsOfShard[productIndex].getValue(0.0, model);
+		}
+		return values;
+	}
+}
@@ -0,0 +1,80 @@
+package com.timlummer.distributed;
+
+import java.io.Serializable;
+
+/**
+ * A block of paths of a sharded Monte-Carlo simulation: the index of the block, its first path, its number of paths
+ * and the seed of the simulation.
+ *
+ * The blocks are consecutive ranges of the paths of one counter based Brownian motion (<code>ParallelBrownianMotion</code>
+ * with the seed of the simulation and the first path of the block), hence a block is reproduced identically by any process
+ * and the union of the blocks are the paths of a single simulation with the total number of paths.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class PathShard implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int	index;
+	private final long	firstPath;
+	private final int	numberOfPaths;
+	private final int	seed;
+
+	/**
+	 * @param index The index of the block.
+	 * @param firstPath The index of the first path of the block in the simulation.
+	 * @param numberOfPaths The number of paths of the block.
+	 * @param seed The seed of the Brownian motion of the simulation.
+	 */
+	public PathShard(int index, long firstPath, int numberOfPaths, int seed) {
+		super();
+		this.index			= index;
+		this.firstPath		= firstPath;
+		this.numberOfPaths	= numberOfPaths;
+		this.seed			= seed;
+	}
+
+	/**
+	 * Splits the paths into consecutive blocks of (almost) equal size.
+	 *
+	 * @param numberOfPaths The total number of paths.
+	 * @param numberOfShards The number of blocks.
+	 * @param seed The seed of the Brownian motion of the simulation.
+	 * @return The blocks.
+	 */
+	public static PathShard[] createShards(int numberOfPaths, int numberOfShards, int seed) {
+		if(numberOfShards < 1 || numberOfShards > numberOfPaths) throw new IllegalArgumentException("Number of shards must be in [1, numberOfPaths].");
+
+		PathShard[] shards = new PathShard[numberOfShards];
+		long firstPath = 0;
+		for(int shardIndex=0; shardIndex<numberOfShards; shardIndex++) {
+			int numberOfPathsOfShard = numberOfPaths / numberOfShards + (shardIndex < numberOfPaths % numberOfShards ? 1 : 0);
+			shards[shardIndex] = new PathShard(shardIndex, firstPath, numberOfPathsOfShard, seed);
+			firstPath += numberOfPathsOfShard;
+		}
+		return shards;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public long getFirstPath() {
+		return firstPath;
+	}
+
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	@Override
+	public String toString() {
+		return "PathShard [index=" + index + ", firstPath=" + firstPath + ", numberOfPaths=" + numberOfPaths + ", seed=" + seed + "]";
+	}
+}
@@ -0,0 +1,165 @@
+package com.timlummer.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.finmath.exception.CalculationException;
+
+/**
+ * Runs a <code>ShardValuation</code> on a path space split into consecutive blocks of paths (<code>PathShard</code>),
+ * either in this process or in local worker processes (<code>PathShardWorker</code>), each holding only the paths of its blocks.
+ *
+ * The partial results of the blocks are merged in the order of the blocks, hence the result does not depend
+ * on the number of workers or on which worker valued which block: a run with worker processes gives results identical to
+ * <code>getResultInProcess()</code> with the same number of paths and blocks.
+ *
+ * The union of the blocks are the paths of a single simulation with the total number of paths and the seed. If the model
+ * and the products value each path independently of the other paths (e.g. <code>BlackScholesShardValuation</code>), the
+ * result equals the valuation of this single simulation (up to the rounding of the sums). Otherwise, e.g. for regression
+ * based products or models normalised over their paths (<code>LIBORShardValuation</code>), it is a valuation of the same
+ * paths which differs from the single simulation within the Monte-Carlo error.
+ *
+ * Usage:
+ * <pre>
+ * PathShardCoordinator coordinator = new PathShardCoordinator(valuation, 1000000, 16, 3141);
+ * ShardResult result = coordinator.getResult(4);
+ * </pre>
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class PathShardCoordinator {
+
+	private final ShardValuation	valuation;
+	private final PathShard[]		shards;
+	private final List<String>		workerJvmArguments;
+
+	/**
+	 * Create a coordinator.
+	 *
+	 * @param valuation The valuation.
+	 * @param numberOfPaths The total number of paths.
+	 * @param numberOfShards The number of blocks of paths.
+	 * @param seed The seed of the Brownian motion of the simulation (<code>ParallelBrownianMotion</code>).
+	 * @param workerJvmArguments Arguments of the worker JVMs (e.g. "-Xmx4g").
+	 */
+	public PathShardCoordinator(ShardValuation valuation, int numberOfPaths, int numberOfShards, int seed, String... workerJvmArguments) {
+		super();
+		this.valuation			= valuation;
+		this.shards				= PathShard.createShards(numberOfPaths, numberOfShards, seed);
+		this.workerJvmArguments	= Arrays.asList(workerJvmArguments);
+	}
+
+	/**
+	 * Values all blocks sequentially in this process.
+	 *
+	 * @return The merged result of all blocks.
+	 * @throws CalculationException Thrown if the valuation of a block fails.
+	 */
+	public ShardResult getResultInProcess() throws CalculationException {
+		ShardResult[] results = new ShardResult[shards.length];
+		for(PathShard shard : shards) {
+			results[shard.getIndex()] = PathShardWorker.getResult(valuation, shard);
+		}
+		return merge(results);
+	}
+
+	/**
+	 * Values the blocks in worker processes. The blocks are distributed round robin to the workers.
+	 *
+	 * @param numberOfWorkers The number of worker processes.
+	 * @return The merged result of all blocks.
+	 * @throws CalculationException Thrown if a worker fails.
+	 */
+	public ShardResult getResult(int numberOfWorkers) throws CalculationException {
+		numberOfWorkers = Math.min(numberOfWorkers, shards.length);
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfWorkers);
+		try {
+			List<Future<ShardResult[]>> workerResults = new ArrayList<Future<ShardResult[]>>();
+			List<PathShard[]> workerShards = new ArrayList<PathShard[]>();
+			for(int workerIndex=0; workerIndex<numberOfWorkers; workerIndex++) {
+				List<PathShard> shardsOfWorker = new ArrayList<PathShard>();
+				for(int shardIndex=workerIndex; shardIndex<shards.length; shardIndex+=numberOfWorkers) shardsOfWorker.add(shards[shardIndex]);
+
+				PathShard[] shardsOfWorkerArray = shardsOfWorker.toArray(new PathShard[shardsOfWorker.size()]);
+				workerShards.add(shardsOfWorkerArray);
+				workerResults.add(executor.submit(() -> runWorker(shardsOfWorkerArray)));
+			}
+
+			ShardResult[] results = new ShardResult[shards.length];
+			for(int workerIndex=0; workerIndex<numberOfWorkers; workerIndex++) {
+				ShardResult[] resultsOfWorker = workerResults.get(workerIndex).get();
+				PathShard[] shardsOfWorker = workerShards.get(workerIndex);
+				for(int index=0; index<shardsOfWorker.length; index++) results[shardsOfWorker[index].getIndex()] = resultsOfWorker[index];
+			}
+			return merge(results);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CalculationException(e);
+		}
+		catch(ExecutionException e) {
+			throw e.getCause() instanceof CalculationException ? (CalculationException)e.getCause() : new CalculationException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts a worker process, sends the valuation and its blocks and reads the results.
+	 */
+	private ShardResult[] runWorker(PathShard[] shardsOfWorker) throws CalculationException, IOException, ClassNotFoundException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(workerJvmArguments);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(PathShardWorker.class.getName());
+
+		Process worker = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		try {
+			ObjectOutputStream input = new ObjectOutputStream(new BufferedOutputStream(worker.getOutputStream()));
+			input.writeObject(valuation);
+			input.writeObject(shardsOfWorker);
+			input.close();
+
+			Object result;
+			try(ObjectInputStream output = new ObjectInputStream(new BufferedInputStream(worker.getInputStream()))) {
+				result = output.readObject();
+			}
+			worker.waitFor();
+
+			if(result instanceof Exception) throw new CalculationException("Worker failed.", (Exception)result);
+			return (ShardResult[])result;
+		}
+		finally {
+			worker.destroy();
+		}
+	}
+
+	private static ShardResult merge(ShardResult[] results) {
+		ShardResult result = results[0];
+		for(int shardIndex=1; shardIndex<results.length; shardIndex++) result.merge(results[shardIndex]);
+		return result;
+	}
+
+	/**
+	 * @return The blocks of paths.
+	 */
+	public PathShard[] getShards() {
+		return shards.clone();
+	}
+}
@@ -0,0 +1,59 @@
+package com.timlummer.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+
+import net.finmath.exception.CalculationException;
+
+/**
+ * The worker process of a sharded valuation (started by <code>PathShardCoordinator</code>).
+ *
+ * Reads a <code>ShardValuation</code> and an array of <code>PathShard</code>s from standard input (Java serialization),
+ * values each block and writes the array of <code>ShardResult</code>s (or the exception of a failed valuation) to standard output.
+ * Output of the products to <code>System.out</code> is redirected to standard error.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class PathShardWorker {
+
+	public static void main(String[] args) throws Exception {
+		PrintStream resultStream = System.out;
+		System.setOut(System.err);
+
+		ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(System.in));
+		ShardValuation	valuation	= (ShardValuation)input.readObject();
+		PathShard[]		shards		= (PathShard[])input.readObject();
+
+		Object result;
+		try {
+			ShardResult[] results = new ShardResult[shards.length];
+			for(int shardIndex=0; shardIndex<shards.length; shardIndex++) {
+				results[shardIndex] = getResult(valuation, shards[shardIndex]);
+			}
+			result = results;
+		}
+		catch(Exception e) {
+			result = e;
+		}
+
+		ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(resultStream));
+		output.writeObject(result);
+		output.flush();
+	}
+
+	/**
+	 * Values a single block of paths.
+	 *
+	 * @param valuation The valuation.
+	 * @param shard The block of paths.
+	 * @return The result of the block.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	static ShardResult getResult(ShardValuation valuation, PathShard shard) throws CalculationException {
+		return new ShardResult(shard.getNumberOfPaths(), valuation.getValues(shard));
+	}
+}
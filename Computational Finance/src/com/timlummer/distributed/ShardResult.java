@@ -0,0 +1,102 @@
+package com.timlummer.distributed;
+
+import java.io.Serializable;
+
+import com.timlummer.statistics.StreamingStatistics;
+
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * The partial result of a valuation on a set of paths: for each product the sum of the path values
+ * and their statistics. Results of disjoint sets of paths are combined by <code>merge</code>.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ShardResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long						numberOfPaths;
+	private final double[]				sums;
+	private final StreamingStatistics[]	statistics;
+
+	/**
+	 * Create the result of the given path values.
+	 *
+	 * @param numberOfPaths The number of paths.
+	 * @param values For each product, the random variable of its values.
+	 */
+	public ShardResult(int numberOfPaths, RandomVariableInterface[] values) {
+		super();
+		this.numberOfPaths	= numberOfPaths;
+		this.sums			= new double[values.length];
+		this.statistics		= new StreamingStatistics[values.length];
+
+		for(int valueIndex=0; valueIndex<values.length; valueIndex++) {
+			RandomVariableInterface value = values[valueIndex];
+			StreamingStatistics valueStatistics = new StreamingStatistics();
+			double sum = 0.0;
+			for(int path=0; path<numberOfPaths; path++) {
+				double valueOnPath = value.get(value.isDeterministic() ? 0 : path);
+				sum += valueOnPath;
+				valueStatistics.add(valueOnPath);
+			}
+			sums[valueIndex]		= sum;
+			statistics[valueIndex]	= valueStatistics;
+		}
+	}
+
+	/**
+	 * Merges the result of other paths into this result.
+	 *
+	 * @param other The other result (of the same products).
+	 * @return This result.
+	 */
+	public ShardResult merge(ShardResult other) {
+		if(other.sums.length != sums.length) throw new IllegalArgumentException("Results of different products cannot be merged.");
+
+		numberOfPaths += other.numberOfPaths;
+		for(int valueIndex=0; valueIndex<sums.length; valueIndex++) {
+			sums[valueIndex] += other.sums[valueIndex];
+			statistics[valueIndex].merge(other.statistics[valueIndex]);
+		}
+		return this;
+	}
+
+	public long getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	/**
+	 * @return The number of products.
+	 */
+	public int getNumberOfValues() {
+		return sums.length;
+	}
+
+	/**
+	 * @param valueIndex The index of the product.
+	 * @return The Monte-Carlo value of the product, i.e., the average of its path values.
+	 */
+	public double getValue(int valueIndex) {
+		return sums[valueIndex] / numberOfPaths;
+	}
+
+	/**
+	 * @param valueIndex The index of the product.
+	 * @return The statistics of the path values of the product.
+	 */
+	public StreamingStatistics getStatistics(int valueIndex) {
+		return statistics[valueIndex];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("ShardResult [numberOfPaths=" + numberOfPaths);
+		for(int valueIndex=0; valueIndex<sums.length; valueIndex++) {
+			result.append(", value[" + valueIndex + "]=" + getValue(valueIndex) + " (standard error " + statistics[valueIndex].getStandardError() + ")");
+		}
+		return result.append("]").toString();
+	}
+}
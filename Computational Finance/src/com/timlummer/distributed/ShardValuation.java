@@ -0,0 +1,37 @@
+package com.timlummer.distributed;
+
+import java.io.Serializable;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * A valuation which can be run on a block of paths (<code>PathShard</code>), possibly in another process.
+ *
+ * Implementations are sent to the worker processes by serialization, hence they hold the description of the
+ * model and the products (not the simulation) and create the simulation for the given block.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public interface ShardValuation extends Serializable {
+
+	/**
+	 * Simulates the given block of paths and returns the values of the products on these paths.
+	 *
+	 * @param shard The block of paths.
+	 * @return For each product, the random variable of its value (as returned by <code>getValue(0.0, model)</code>).
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	RandomVariableInterface[] getValues(PathShard shard) throws CalculationException;
+
+	/**
+	 * A factory of products, creating the products within the worker process.
+	 * Lambdas assigned to this interface are serializable.
+	 *
+	 * @param <T> The type of the products.
+	 */
+	interface ProductFactory<T> extends Serializable {
+		T[] createProducts();
+	}
+}
@@ -0,0 +1,124 @@
+package com.timlummer.distributed;
+
+import com.timlummer.InterestDerivatives.BermudanSwaption;
+import com.timlummer.InterestDerivatives.Cap;
+import com.timlummer.InterestDerivatives.Caplet;
+import com.timlummer.LIBOR.LIBORinArrears;
+import com.timlummer.bonus.BonusOption;
+import com.timlummer.distributed.ShardValuation.ProductFactory;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.ParallelBrownianMotion;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.montecarlo.process.ProcessEulerScheme;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * Values InterestDerivatives and bonus products with the paths sharded over worker processes
+ * and compares the result to the same blocks valued in this process and to a single simulation of all paths.
+ *
+ * The Black-Scholes paths do not depend on each other, hence the bonus option has to agree with the single simulation
+ * up to rounding. The LIBORs of a block are the LIBORs of the single simulation, but the values of the LIBOR products
+ * differ within the Monte-Carlo error (the numeraire of the LIBOR market model is normalised over the paths of the block,
+ * the Bermudan swaption regresses on them).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ShardedValuationTest {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfWorkers	= 2;
+		int numberOfShards	= 8;
+
+		/*
+		 * LIBOR market model (LIBORinArrears)
+		 */
+		double[] fixingDates	= { 2.0, 2.5, 3.0, 3.5 };
+		double[] paymentDates	= { 2.5, 3.0, 3.5, 4.0 };
+		double[] strikes		= { 0.05, 0.05, 0.05, 0.05 };
+
+		ProductFactory<AbstractLIBORMonteCarloProduct> liborProducts = () -> new AbstractLIBORMonteCarloProduct[] {
+			new Caplet(2.0, 2.5, 0.05, false),
+			new Cap(fixingDates, paymentDates, strikes),
+			new BermudanSwaption(fixingDates, paymentDates, strikes)
+		};
+
+		ShardValuation liborValuation = new LIBORShardValuation(5, 0.01, PathPrecision.DOUBLE, liborProducts);
+
+		PathShardCoordinator liborCoordinator = new PathShardCoordinator(liborValuation, 40000, numberOfShards, 3141);
+
+		ShardResult liborInProcess	= liborCoordinator.getResultInProcess();
+		ShardResult liborWorkers	= liborCoordinator.getResult(numberOfWorkers);
+
+		System.out.println("LIBOR products in process.......: " + liborInProcess);
+		System.out.println("LIBOR products in workers.......: " + liborWorkers);
+
+		// Single simulation of all paths
+		LIBORModelMonteCarloSimulationInterface liborModel = LIBORinArrears.createLIBORMarketModel(40000, 5, 0.01, LIBORinArrears.VOLATILITY_PARAMETERS,
+				LIBORinArrears.createTimeDiscretization(), new RandomVariableFactory(), BrownianMotionGenerator.PARALLEL, 3141);
+		AbstractLIBORMonteCarloProduct[] liborProductsSingle = liborProducts.createProducts();
+		for(int valueIndex=0; valueIndex<liborProductsSingle.length; valueIndex++) {
+			double valueSingle = liborProductsSingle[valueIndex].getValue(liborModel);
+			System.out.println("LIBOR product " + valueIndex + " single simulation.: " + valueSingle + "\tdeviation " + Math.abs(liborInProcess.getValue(valueIndex) - valueSingle)
+					+ " (standard error " + liborInProcess.getStatistics(valueIndex).getStandardError() + ")");
+		}
+
+		// The LIBORs of the last block are those of the single simulation
+		PathShard liborShard = liborCoordinator.getShards()[numberOfShards-1];
+		LIBORModelMonteCarloSimulationInterface liborModelOfShard = LIBORinArrears.createLIBORMarketModel(0.01, LIBORinArrears.VOLATILITY_PARAMETERS, new RandomVariableFactory(),
+				new ParallelBrownianMotion(LIBORinArrears.createTimeDiscretization(), 5, liborShard.getFirstPath(), liborShard.getNumberOfPaths(), liborShard.getSeed(), new RandomVariableFactory()));
+		double liborDeviation = 0.0;
+		for(int path=0; path<liborShard.getNumberOfPaths(); path++) {
+			liborDeviation = Math.max(liborDeviation, Math.abs(liborModelOfShard.getLIBOR(10, 12).get(path) - liborModel.getLIBOR(10, 12).get((int)liborShard.getFirstPath() + path)));
+		}
+		System.out.println("LIBORs of last block vs single.: deviation " + liborDeviation);
+
+		/*
+		 * Black-Scholes model (BounsTest)
+		 */
+		ProductFactory<AbstractAssetMonteCarloProduct> bonusProducts = () -> new AbstractAssetMonteCarloProduct[] {
+			new BonusOption(1.0, 90.0, 0.05)
+		};
+
+		ShardValuation bonusValuation = new BlackScholesShardValuation(100.0, 0.01, 0.25, 40, 0.1, PathPrecision.DOUBLE, bonusProducts);
+
+		PathShardCoordinator bonusCoordinator = new PathShardCoordinator(bonusValuation, 100000, numberOfShards, 31415);
+
+		ShardResult bonusInProcess	= bonusCoordinator.getResultInProcess();
+		ShardResult bonusWorkers	= bonusCoordinator.getResult(numberOfWorkers);
+
+		System.out.println("Bonus products in process.......: " + bonusInProcess);
+		System.out.println("Bonus products in workers.......: " + bonusWorkers);
+
+		// Single simulation of all paths
+		AssetModelMonteCarloSimulationInterface bonusModel = new MonteCarloAssetModel(
+				new BlackScholesModel(100.0, 0.01, 0.25, new RandomVariableFactory()),
+				new ProcessEulerScheme(BrownianMotionGenerator.PARALLEL.createBrownianMotion(new TimeDiscretization(0.0, 40, 0.1), 1, 100000, 31415, new RandomVariableFactory())));
+		AbstractAssetMonteCarloProduct[] bonusProductsSingle = bonusProducts.createProducts();
+		double bonusDeviation = 0.0;
+		for(int valueIndex=0; valueIndex<bonusProductsSingle.length; valueIndex++) {
+			double valueSingle = bonusProductsSingle[valueIndex].getValue(bonusModel);
+			System.out.println("Bonus product " + valueIndex + " single simulation.: " + valueSingle);
+			bonusDeviation = Math.max(bonusDeviation, Math.abs(bonusInProcess.getValue(valueIndex) - valueSingle) / Math.max(1.0, Math.abs(valueSingle)));
+		}
+
+		boolean isIdentical = true;
+		for(int valueIndex=0; valueIndex<liborInProcess.getNumberOfValues(); valueIndex++) isIdentical &= liborInProcess.getValue(valueIndex) == liborWorkers.getValue(valueIndex);
+		for(int valueIndex=0; valueIndex<bonusInProcess.getNumberOfValues(); valueIndex++) isIdentical &= bonusInProcess.getValue(valueIndex) == bonusWorkers.getValue(valueIndex);
+		System.out.println("Results identical.......: " + isIdentical);
+		System.out.println("Bonus products equal single simulation: relative deviation " + bonusDeviation);
+
+		if(!isIdentical) throw new IllegalStateException("Results of worker processes differ from the results in process.");
+		if(liborDeviation > 0.0) throw new IllegalStateException("LIBORs of the block differ from the single simulation, deviation " + liborDeviation + ".");
+		if(bonusDeviation > 1E-12) throw new IllegalStateException("Sharded bonus products differ from the single simulation, relative deviation " + bonusDeviation + ".");
+	}
+}
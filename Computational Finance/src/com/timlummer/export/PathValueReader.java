@@ -0,0 +1,193 @@
+package com.timlummer.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the columns of a file written by <code>PathValueWriter</code>. Only the index of the columns is read when the file is
+ * opened, a column is read (and decompressed) on request, such that an aggregation can stream over the columns (trades) of a
+ * file, holding a single column and its aggregate in memory.
+ *
+ * The bytes of a column are read to a direct buffer (and inflated to an array) which is reused for all columns, as is the
+ * inflater, hence the columns are read one at a time (<code>getValues</code> is synchronized).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class PathValueReader implements AutoCloseable {
+
+	private final FileChannel						channel;
+	private final int								numberOfPaths;
+	private final PathValueWriter.Compression		compression;
+	private final Map<String, Integer>				columnIndices = new LinkedHashMap<String, Integer>();
+	private final byte[]							columnTypes;
+	private final long[]							columnOffsets;
+	private final long[]							columnLengths;
+	private final Inflater							inflater	= new Inflater();
+
+	private ByteBuffer	buffer;				// Bytes read from the file, reused (grown on demand)
+	private byte[]		bytesCompressed;	// Compressed bytes of a column
+	private byte[]		bytesOfColumn;		// Inflated (shuffled) bytes of a column
+
+	/**
+	 * Opens a file and reads the index of its columns.
+	 *
+	 * @param file The file.
+	 * @throws IOException Thrown if the file cannot be read or is not a file of path values.
+	 */
+	public PathValueReader(Path file) throws IOException {
+		super();
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if(size < PathValueWriter.HEADER_SIZE + PathValueWriter.TRAILER_SIZE) throw new IOException("Not a file of path values.");
+
+			ByteBuffer header = read(0, PathValueWriter.HEADER_SIZE);
+			if(header.getInt() != PathValueWriter.MAGIC) throw new IOException("Not a file of path values.");
+			if(header.getInt() != PathValueWriter.VERSION) throw new IOException("Unsupported version of the file of path values.");
+			numberOfPaths	= header.getInt();
+			compression		= PathValueWriter.Compression.values()[header.get()];
+
+			ByteBuffer trailer = read(size - PathValueWriter.TRAILER_SIZE, PathValueWriter.TRAILER_SIZE);
+			long offsetOfIndex		= trailer.getLong();
+			int numberOfColumns		= trailer.getInt();
+			if(trailer.getInt() != PathValueWriter.MAGIC) throw new IOException("File of path values is incomplete (not closed).");
+
+			ByteBuffer index = read(offsetOfIndex, (int)(size - PathValueWriter.TRAILER_SIZE - offsetOfIndex));
+			byte[] bytesOfIndex = new byte[index.remaining()];
+			index.get(bytesOfIndex);
+			DataInputStream indexInput = new DataInputStream(new ByteArrayInputStream(bytesOfIndex));
+
+			columnTypes		= new byte[numberOfColumns];
+			columnOffsets	= new long[numberOfColumns];
+			columnLengths	= new long[numberOfColumns];
+			for(int columnIndex=0; columnIndex<numberOfColumns; columnIndex++) {
+				columnIndices.put(indexInput.readUTF(), columnIndex);
+				columnTypes[columnIndex]	= indexInput.readByte();
+				columnOffsets[columnIndex]	= indexInput.readLong();
+				columnLengths[columnIndex]	= indexInput.readLong();
+			}
+		}
+		catch(IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	public PathValueWriter.Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @return The names of the columns in the order they have been written.
+	 */
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(columnIndices.keySet()));
+	}
+
+	/**
+	 * Reads a column.
+	 *
+	 * @param name The name of the column.
+	 * @return The values of the paths.
+	 * @throws IOException Thrown if the column cannot be read.
+	 */
+	public double[] getValues(String name) throws IOException {
+		Integer columnIndex = columnIndices.get(name);
+		if(columnIndex == null) throw new IllegalArgumentException("No column " + name + ".");
+		return getValues(columnIndex);
+	}
+
+	/**
+	 * Reads a column.
+	 *
+	 * @param columnIndex The index of the column (in the order of <code>getColumnNames()</code>).
+	 * @return The values of the paths.
+	 * @throws IOException Thrown if the column cannot be read.
+	 */
+	public synchronized double[] getValues(int columnIndex) throws IOException {
+		double[] values = new double[numberOfPaths];
+		if(columnTypes[columnIndex] == PathValueWriter.COLUMN_CONSTANT) {
+			Arrays.fill(values, read(columnOffsets[columnIndex], 8).getDouble());
+			return values;
+		}
+
+		boolean isDouble = columnTypes[columnIndex] == PathValueWriter.COLUMN_DOUBLE;
+		int bytesPerValue = isDouble ? 8 : 4;
+		ByteBuffer column = read(columnOffsets[columnIndex], (int)columnLengths[columnIndex]);
+
+		if(compression == PathValueWriter.Compression.NONE) {
+			if(isDouble) column.asDoubleBuffer().get(values);
+			else for(int path=0; path<numberOfPaths; path++) values[path] = column.getFloat(4 * path);
+			return values;
+		}
+
+		// Inflate and unshuffle the bytes
+		int numberOfBytesCompressed = column.remaining();
+		if(bytesCompressed == null || bytesCompressed.length < numberOfBytesCompressed) bytesCompressed = new byte[numberOfBytesCompressed];
+		column.get(bytesCompressed, 0, numberOfBytesCompressed);
+		int numberOfBytesOfColumn = bytesPerValue * numberOfPaths;
+		if(bytesOfColumn == null || bytesOfColumn.length < numberOfBytesOfColumn) bytesOfColumn = new byte[numberOfBytesOfColumn];
+		inflater.reset();
+		try {
+			inflater.setInput(bytesCompressed, 0, numberOfBytesCompressed);
+			int numberOfBytes = 0;
+			while(numberOfBytes < numberOfBytesOfColumn && !inflater.finished()) {
+				int numberOfBytesInflated = inflater.inflate(bytesOfColumn, numberOfBytes, numberOfBytesOfColumn - numberOfBytes);
+				if(numberOfBytesInflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new IOException("Column " + columnIndex + " is truncated.");
+				numberOfBytes += numberOfBytesInflated;
+			}
+		}
+		catch(DataFormatException e) {
+			throw new IOException("Column " + columnIndex + " is corrupt.", e);
+		}
+
+		for(int path=0; path<numberOfPaths; path++) {
+			long bits = 0;
+			for(int byteIndex=0; byteIndex<bytesPerValue; byteIndex++) bits |= (bytesOfColumn[byteIndex * numberOfPaths + path] & 0xFFL) << (8 * byteIndex);
+			values[path] = isDouble ? Double.longBitsToDouble(bits) : Float.intBitsToFloat((int)bits);
+		}
+		return values;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.close();
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
+	/*
+	 * Reads to the reused buffer, which is valid until the next read.
+	 */
+	private ByteBuffer read(long offset, int length) throws IOException {
+		if(buffer == null || buffer.capacity() < length) buffer = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.clear().limit(length);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Unexpected end of the file of path values.");
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,223 @@
+package com.timlummer.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Writes the path-wise values of trades (e.g. the random variables returned by <code>getValue(evaluationTime, model)</code>)
+ * to a column oriented binary file, one column per trade, such that they can be aggregated downstream (e.g. netting across
+ * trades per path) without printing <code>get(path)</code>.
+ *
+ * The file (little endian) consists of a header (magic, version, number of paths, compression), the columns and an index of
+ * the columns (name, type, offset, stored length) at the end of the file, see <code>PathValueReader</code>. A column stores
+ * <ul>
+ * 	<li>the realizations as <code>double</code> (<code>PathPrecision.DOUBLE</code>), copied in bulk from the array of the random
+ * 		variable,</li>
+ * 	<li>the realizations as <code>float</code> (<code>PathPrecision.SINGLE</code>), converted in bulk from the realizations of the random
+ * 		variable to a reused array, or</li>
+ * 	<li>a single value (deterministic random variables).</li>
+ * </ul>
+ * The columns are written with <code>FileChannel</code> from a reused direct buffer (i.e., the realizations are copied once,
+ * there is no further copy on the heap). With <code>Compression.DEFLATE</code> the bytes of a column are shuffled (all first
+ * bytes of the values, then all second bytes, ...) before they are deflated, which groups the sign, exponent and leading digits of
+ * the values (e.g. of payoffs which are zero or capped on many paths).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class PathValueWriter implements AutoCloseable {
+
+	/**
+	 * The compression of the columns.
+	 */
+	public enum Compression {
+		NONE,
+		DEFLATE
+	}
+
+	static final int MAGIC			= 0x48544150;		// "PATH"
+	static final int VERSION		= 1;
+	static final int HEADER_SIZE	= 16;
+	static final int TRAILER_SIZE	= 16;
+
+	static final byte COLUMN_DOUBLE		= 0;
+	static final byte COLUMN_FLOAT		= 1;
+	static final byte COLUMN_CONSTANT	= 2;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel	channel;
+	private final int			numberOfPaths;
+	private final Compression	compression;
+
+	private final ByteBuffer				buffer	= ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteArrayOutputStream		index	= new ByteArrayOutputStream();
+	private final DataOutputStream			indexOutput	= new DataOutputStream(index);
+	private final Set<String>				names	= new HashSet<String>();
+	private final Deflater					deflater;
+
+	private float[]	realizationsFloat;	// Realizations of a single precision column
+	private byte[]	bytesOfColumn;		// Uncompressed (shuffled) bytes of a column, if compressed
+	private byte[]	bytesCompressed;
+
+	private long	position;
+	private int		numberOfColumns;
+
+	/**
+	 * Creates the file (replacing an existing file).
+	 *
+	 * @param file The file.
+	 * @param numberOfPaths The number of paths of the values.
+	 * @param compression The compression of the columns.
+	 * @throws IOException Thrown if the file cannot be created.
+	 */
+	public PathValueWriter(Path file, int numberOfPaths, Compression compression) throws IOException {
+		super();
+		this.numberOfPaths	= numberOfPaths;
+		this.compression	= compression;
+		this.deflater		= compression == Compression.DEFLATE ? new Deflater(Deflater.BEST_SPEED) : null;
+		this.channel		= FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(numberOfPaths).put((byte)compression.ordinal()).put(new byte[3]);
+		flush();
+	}
+
+	/**
+	 * Writes the values of a trade as a column.
+	 *
+	 * @param name The name of the column (unique, e.g. the id of the trade).
+	 * @param values The path-wise values.
+	 * @throws IOException Thrown if the column cannot be written.
+	 */
+	public void write(String name, RandomVariableInterface values) throws IOException {
+		if(!names.add(name)) throw new IllegalArgumentException("Duplicate column " + name + ".");
+		if(!values.isDeterministic() && values.size() != numberOfPaths) throw new IllegalArgumentException("Column " + name + " has " + values.size() + " paths, expected " + numberOfPaths + ".");
+
+		long offset = position;
+		byte type;
+		if(values.isDeterministic()) {
+			type = COLUMN_CONSTANT;
+			buffer.putDouble(values.get(0));
+			flush();
+		}
+		else if(PathPrecision.of(values) == PathPrecision.DOUBLE) {
+			type = COLUMN_DOUBLE;
+			double[] realizations = values.getRealizations();
+			if(compression == Compression.DEFLATE) writeCompressed(realizations, null);
+			else {
+				for(int path=0; path<numberOfPaths; ) {
+					int numberOfValues = Math.min(buffer.remaining() / 8, numberOfPaths - path);
+					buffer.asDoubleBuffer().put(realizations, path, numberOfValues);
+					buffer.position(buffer.position() + 8 * numberOfValues);
+					path += numberOfValues;
+					flush();
+				}
+			}
+		}
+		else {
+			type = COLUMN_FLOAT;
+			double[] realizationsDouble = values.getRealizations();
+			if(realizationsFloat == null) realizationsFloat = new float[numberOfPaths];
+			float[] realizations = realizationsFloat;
+			for(int path=0; path<numberOfPaths; path++) realizations[path] = (float)realizationsDouble[path];
+			if(compression == Compression.DEFLATE) writeCompressed(null, realizations);
+			else {
+				for(int path=0; path<numberOfPaths; ) {
+					int numberOfValues = Math.min(buffer.remaining() / 4, numberOfPaths - path);
+					buffer.asFloatBuffer().put(realizations, path, numberOfValues);
+					buffer.position(buffer.position() + 4 * numberOfValues);
+					path += numberOfValues;
+					flush();
+				}
+			}
+		}
+
+		indexOutput.writeUTF(name);
+		indexOutput.writeByte(type);
+		indexOutput.writeLong(offset);
+		indexOutput.writeLong(position - offset);
+		numberOfColumns++;
+	}
+
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	/**
+	 * Writes the index of the columns and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			long offsetOfIndex = position;
+			indexOutput.flush();
+			byte[] bytesOfIndex = index.toByteArray();
+			for(int byteIndex=0; byteIndex<bytesOfIndex.length; ) {
+				int numberOfBytes = Math.min(buffer.remaining(), bytesOfIndex.length - byteIndex);
+				buffer.put(bytesOfIndex, byteIndex, numberOfBytes);
+				byteIndex += numberOfBytes;
+				flush();
+			}
+			buffer.putLong(offsetOfIndex).putInt(numberOfColumns).putInt(MAGIC);
+			flush();
+		}
+		finally {
+			if(deflater != null) deflater.end();
+			channel.close();
+		}
+	}
+
+	/*
+	 * Shuffles the bytes of the values (little endian, byte plane by byte plane) and deflates them.
+	 */
+	private void writeCompressed(double[] valuesDouble, float[] valuesFloat) throws IOException {
+		int bytesPerValue = valuesDouble != null ? 8 : 4;
+		int numberOfBytes = bytesPerValue * numberOfPaths;
+		if(bytesOfColumn == null || bytesOfColumn.length < numberOfBytes) {
+			bytesOfColumn	= new byte[numberOfBytes];
+			bytesCompressed	= new byte[BUFFER_SIZE];
+		}
+
+		for(int path=0; path<numberOfPaths; path++) {
+			long bits = valuesDouble != null ? Double.doubleToRawLongBits(valuesDouble[path]) : Float.floatToRawIntBits(valuesFloat[path]);
+			for(int byteIndex=0; byteIndex<bytesPerValue; byteIndex++) bytesOfColumn[byteIndex * numberOfPaths + path] = (byte)(bits >>> (8 * byteIndex));
+		}
+
+		deflater.reset();
+		deflater.setInput(bytesOfColumn, 0, numberOfBytes);
+		deflater.finish();
+		while(!deflater.finished()) {
+			int numberOfBytesCompressed = deflater.deflate(bytesCompressed);
+			for(int byteIndex=0; byteIndex<numberOfBytesCompressed; ) {
+				int numberOfBytesToBuffer = Math.min(buffer.remaining(), numberOfBytesCompressed - byteIndex);
+				buffer.put(bytesCompressed, byteIndex, numberOfBytesToBuffer);
+				byteIndex += numberOfBytesToBuffer;
+				if(!buffer.hasRemaining()) flush();
+			}
+		}
+		flush();
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) position += channel.write(buffer);
+		buffer.clear();
+	}
+}
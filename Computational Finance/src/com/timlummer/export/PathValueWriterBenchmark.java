@@ -0,0 +1,95 @@
+package com.timlummer.export;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.timlummer.bonus.BarrierBonusOption;
+import com.timlummer.bonus.BonusOption;
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Exports the path-wise values of a book of bonus certificates as text (<code>get(path)</code> per line) and with
+ * <code>PathValueWriter</code> (uncompressed and compressed), and aggregates the exported columns per path (value of the book on each
+ * path), compared to the sum of the values of the trades.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class PathValueWriterBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfPaths	= 100000;
+		int numberOfTrades	= 200;
+
+		BlackScholesExactSimulation model = BlackScholesExactSimulation.create(100.0, 0.01, 0.25, new double[] { 0.25, 0.5, 0.75, 1.0 },
+				numberOfPaths, 31415, PathPrecision.fromSystemProperty(), BrownianMotionGenerator.SEQUENTIAL);
+
+		// Book of bonus certificates with different barriers and bonus levels
+		RandomVariableInterface[] values = new RandomVariableInterface[numberOfTrades];
+		double valueOfBook = 0.0;
+		for(int tradeIndex=0; tradeIndex<numberOfTrades; tradeIndex++) {
+			double barrier	= 60.0 + 0.2 * tradeIndex;
+			double bonus	= 0.1 + 0.001 * tradeIndex;
+			AbstractAssetMonteCarloProduct product = tradeIndex % 2 == 0 ? new BonusOption(1.0, bonus, barrier, 0) : new BarrierBonusOption(1.0, bonus, barrier, 0);
+			values[tradeIndex] = product.getValue(0.0, model);
+			valueOfBook += values[tradeIndex].getAverage();
+		}
+		double bytesOfValues = 8.0 * numberOfPaths * numberOfTrades;
+
+		Path file = Files.createTempFile("pathvalues", ".bin");
+		try {
+			// Text (as the mains print the values), for the first 10 trades
+			int numberOfTradesText = 10;
+			long nanosStart = System.nanoTime();
+			try(BufferedWriter output = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				for(int tradeIndex=0; tradeIndex<numberOfTradesText; tradeIndex++) {
+					for(int path=0; path<numberOfPaths; path++) {
+						output.write(Double.toString(values[tradeIndex].get(path)));
+						output.newLine();
+					}
+				}
+			}
+			long nanosText = System.nanoTime() - nanosStart;
+			System.out.println("Text (" + numberOfTradesText + " trades):\t" + nanosText / 1000000 + " ms\t" + Math.round(8.0 * numberOfPaths * numberOfTradesText / 1E6 / (nanosText / 1E9))
+					+ " MB/s of values\t" + Files.size(file) / (numberOfPaths * numberOfTradesText) + " bytes per value");
+
+			for(PathValueWriter.Compression compression : PathValueWriter.Compression.values()) {
+				nanosStart = System.nanoTime();
+				try(PathValueWriter writer = new PathValueWriter(file, numberOfPaths, compression)) {
+					for(int tradeIndex=0; tradeIndex<numberOfTrades; tradeIndex++) writer.write("trade" + tradeIndex, values[tradeIndex]);
+				}
+				long nanosWrite = System.nanoTime() - nanosStart;
+
+				// Aggregation: value of the book on each path, streaming over the columns
+				nanosStart = System.nanoTime();
+				double[] valuesOfBook = new double[numberOfPaths];
+				try(PathValueReader reader = new PathValueReader(file)) {
+					for(int columnIndex=0; columnIndex<reader.getColumnNames().size(); columnIndex++) {
+						double[] valuesOfTrade = reader.getValues(columnIndex);
+						for(int path=0; path<numberOfPaths; path++) valuesOfBook[path] += valuesOfTrade[path];
+					}
+				}
+				long nanosRead = System.nanoTime() - nanosStart;
+
+				double valueOfBookAggregated = 0.0;
+				for(double valueOfPath : valuesOfBook) valueOfBookAggregated += valueOfPath;
+				valueOfBookAggregated /= numberOfPaths;
+
+				System.out.println(compression + " (" + numberOfTrades + " trades):\twrite " + nanosWrite / 1000000 + " ms\t" + Math.round(bytesOfValues / 1E6 / (nanosWrite / 1E9))
+						+ " MB/s of values\t" + String.format("%.2f", Files.size(file) / (double)numberOfPaths / numberOfTrades) + " bytes per value"
+						+ "\taggregation " + nanosRead / 1000000 + " ms\tbook " + valueOfBookAggregated + " (sum of trades " + valueOfBook + ")");
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.timlummer.exposure;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.timlummer.InterestDerivatives.CashflowProductInterface;
+import com.timlummer.statistics.StreamingStatistics;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.conditionalexpectation.MonteCarloConditionalExpectationRegression;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Calculates the exposure profile of a portfolio of cashflow products (e.g. <code>PayerSwap</code>, <code>Floater</code>)
+ * on every time of the simulation time discretization.
+ *
+ * The forward values of the portfolio at all simulation times are calculated in a single backward sweep:
+ * the numeraire relative cashflows are accumulated from the last payment date backwards, such that at time
+ * <i>t<sub>j</sub></i> the accumulated sum contains exactly the cashflows paid after <i>t<sub>j</sub></i>.
+ * The value <i>V(t<sub>j</sub>) = N(t<sub>j</sub>) E[ sum | F<sub>t<sub>j</sub></sub> ]</i> is estimated by a regression
+ * on the LIBOR state at <i>t<sub>j</sub></i>. Each time slice is reduced to its statistics immediately, in one pass over
+ * the paths which feeds the exposure to <code>StreamingStatistics</code> (hence without sorting) and sums the discounted
+ * exposure, such that only the accumulated sum has to be kept in memory.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ExposureEngine {
+
+	private final LIBORModelMonteCarloSimulationInterface	model;
+	private final double[]									quantileLevels;
+
+	/**
+	 * Create an exposure engine.
+	 *
+	 * @param model The model used to simulate the portfolio.
+	 * @param quantileLevels The quantile levels of the potential future exposure (e.g. 0.95, 0.99).
+	 */
+	public ExposureEngine(LIBORModelMonteCarloSimulationInterface model, double[] quantileLevels) {
+		super();
+		this.model			= model;
+		this.quantileLevels	= quantileLevels;
+	}
+
+	/**
+	 * Create an exposure engine calculating the 95% potential future exposure.
+	 *
+	 * @param model The model used to simulate the portfolio.
+	 */
+	public ExposureEngine(LIBORModelMonteCarloSimulationInterface model) {
+		this(model, new double[] { 0.95 });
+	}
+
+	/**
+	 * Calculates the exposure profile of the netted portfolio of the given products.
+	 *
+	 * @param products The products of the portfolio.
+	 * @return The exposure profile on the simulation time discretization.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public ExposureProfile getExposureProfile(CashflowProductInterface... products) throws CalculationException {
+		TimeDiscretizationInterface timeDiscretization = model.getTimeDiscretization();
+		int numberOfTimes = timeDiscretization.getNumberOfTimes();
+
+		// Collect all cashflows, sorted by payment date
+		List<Cashflow> cashflows = new ArrayList<Cashflow>();
+		for(CashflowProductInterface product : products) {
+			double[] paymentDates = product.getPaymentDates();
+			for(int periodIndex=0; periodIndex<paymentDates.length; periodIndex++) {
+				cashflows.add(new Cashflow(product, periodIndex, paymentDates[periodIndex]));
+			}
+		}
+		cashflows.sort(Comparator.comparingDouble(cashflow -> cashflow.paymentDate));
+
+		double[]	times						= new double[numberOfTimes];
+		double[]	expectedExposure			= new double[numberOfTimes];
+		double[]	discountedExpectedExposure	= new double[numberOfTimes];
+		double[][]	potentialFutureExposure		= new double[quantileLevels.length][numberOfTimes];
+
+		RandomVariableInterface	numeraireAtZero				= model.getNumeraire(0.0);
+		RandomVariableInterface	monteCarloWeightsAtZero		= model.getMonteCarloWeights(0.0);
+
+		// Numeraire relative sum of all cashflows paid after the current time
+		RandomVariableInterface	cashflowSum		= null;
+		int						cashflowIndex	= cashflows.size()-1;
+
+		for(int timeIndex = numberOfTimes-1; timeIndex >= 0; timeIndex--) {
+			double time = timeDiscretization.getTime(timeIndex);
+			times[timeIndex] = time;
+
+			// Add the cashflows paid in (time, nextTime]
+			while(cashflowIndex >= 0 && cashflows.get(cashflowIndex).paymentDate > time) {
+				Cashflow cashflow = cashflows.get(cashflowIndex--);
+
+				RandomVariableInterface	numeraire				= model.getNumeraire(cashflow.paymentDate);
+				RandomVariableInterface	monteCarloProbabilities	= model.getMonteCarloWeights(cashflow.paymentDate);
+				RandomVariableInterface	value					= cashflow.product.getCashflow(cashflow.periodIndex, model).div(numeraire).mult(monteCarloProbabilities);
+
+				cashflowSum = cashflowSum == null ? value : cashflowSum.add(value);
+			}
+
+			if(cashflowSum == null) continue;		// No cashflows after this time, exposure is zero.
+
+			RandomVariableInterface	numeraire				= model.getNumeraire(time);
+			RandomVariableInterface	monteCarloProbabilities	= model.getMonteCarloWeights(time);
+
+			RandomVariableInterface value = cashflowSum.mult(numeraire).div(monteCarloProbabilities);
+			value = getConditionalExpectation(timeIndex, value);
+
+			// Exposure statistics and discounted exposure in one pass over the paths
+			RandomVariableInterface discountFactor = numeraireAtZero.div(monteCarloWeightsAtZero).div(numeraire).mult(monteCarloProbabilities);
+			StreamingStatistics exposureStatistics = new StreamingStatistics();
+			double discountedExposureSum = 0.0;
+			for(int path=0; path<model.getNumberOfPaths(); path++) {
+				double exposureOnPath = Math.max(value.get(path), 0.0);
+				exposureStatistics.add(exposureOnPath);
+				discountedExposureSum += exposureOnPath * discountFactor.get(path);
+			}
+
+			expectedExposure[timeIndex]				= exposureStatistics.getMean();
+			discountedExpectedExposure[timeIndex]	= discountedExposureSum / model.getNumberOfPaths();
+			for(int quantileLevelIndex=0; quantileLevelIndex<quantileLevels.length; quantileLevelIndex++) {
+				potentialFutureExposure[quantileLevelIndex][timeIndex] = exposureStatistics.getQuantile(quantileLevels[quantileLevelIndex]);
+			}
+		}
+
+		return new ExposureProfile(times, expectedExposure, discountedExpectedExposure, quantileLevels, potentialFutureExposure);
+	}
+
+	/**
+	 * Estimates the conditional expectation of the value given the LIBOR state at the given time index
+	 * by a regression on the first and the last LIBOR (and their squares).
+	 */
+	private RandomVariableInterface getConditionalExpectation(int timeIndex, RandomVariableInterface value) throws CalculationException {
+		if(timeIndex == 0 || value.isDeterministic()) {
+			return model.getRandomVariableForConstant(value.getAverage());
+		}
+
+		double time = model.getTime(timeIndex);
+		int shortRateLiborIndex = model.getLiborPeriodIndex(time);
+		if(shortRateLiborIndex < 0) shortRateLiborIndex = -shortRateLiborIndex-2;
+		shortRateLiborIndex = Math.min(Math.max(shortRateLiborIndex, 0), model.getNumberOfLibors()-1);
+		int longRateLiborIndex = model.getNumberOfLibors()-1;
+
+		RandomVariableInterface shortRate	= model.getLIBOR(timeIndex, shortRateLiborIndex);
+		RandomVariableInterface longRate	= model.getLIBOR(timeIndex, longRateLiborIndex);
+
+		RandomVariableInterface[] basisFunctions = {
+				model.getRandomVariableForConstant(1.0),
+				shortRate,
+				shortRate.squared(),
+				longRate,
+				longRate.squared()
+		};
+
+		return new MonteCarloConditionalExpectationRegression(basisFunctions).getConditionalExpectation(value);
+	}
+
+	private static class Cashflow {
+		private final CashflowProductInterface	product;
+		private final int						periodIndex;
+		private final double					paymentDate;
+
+		Cashflow(CashflowProductInterface product, int periodIndex, double paymentDate) {
+			this.product		= product;
+			this.periodIndex	= periodIndex;
+			this.paymentDate	= paymentDate;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.timlummer.exposure;
+
+import com.timlummer.InterestDerivatives.PayerSwap;
+import com.timlummer.LIBOR.LIBORinArrears;
+import com.timlummer.statistics.StreamingStatistics;
+
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveInterface;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+
+/**
+ * Calculates the exposure profile of a payer swap in the LIBOR market model of <code>LIBORinArrears</code> and checks it
+ * against reference values:
+ * the expected exposure at 0 is the positive part of the Monte-Carlo value of the swap (and of its analytic value from the
+ * forward curve, within the Monte-Carlo error), the discounted expected exposure at 0 is the expected exposure, and the
+ * exposure vanishes after the last payment.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ExposureEngineTest {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfPaths	= 5000;
+		int numberOfFactors	= 5;
+		double notional		= 1.0;
+		double swapRate		= 0.04;
+
+		LIBORModelMonteCarloSimulationInterface model = LIBORinArrears.createLIBORMarketModel(numberOfPaths, numberOfFactors, 0.01, new RandomVariableFactory());
+
+		double[] fixingDates	= new double[10];
+		double[] paymentDates	= new double[10];
+		double[] swapRates		= new double[10];
+		for(int periodIndex=0; periodIndex<fixingDates.length; periodIndex++) {
+			fixingDates[periodIndex]	= 0.5 + 0.5 * periodIndex;
+			paymentDates[periodIndex]	= 1.0 + 0.5 * periodIndex;
+			swapRates[periodIndex]		= swapRate;
+		}
+		PayerSwap swap = new PayerSwap(swapRates, fixingDates, paymentDates, notional);
+
+		long millisStart = System.currentTimeMillis();
+		ExposureProfile profile = new ExposureEngine(model, new double[] { 0.95, 0.99 }).getExposureProfile(swap);
+		long millisEnd = System.currentTimeMillis();
+
+		System.out.println(profile);
+		System.out.println("Calculation time: " + (millisEnd - millisStart) + " ms\n");
+
+		/*
+		 * References
+		 */
+		StreamingStatistics swapStatistics = StreamingStatistics.of(swap.getValue(0.0, model));
+		double valueMonteCarlo = swapStatistics.getMean();
+
+		// Analytic value: the LIBORs of the forward curve against the swap rate, discounted with the discount curve
+		DiscountCurveInterface discountCurve = new DiscountCurveFromForwardCurve(LIBORinArrears.createForwardCurve());
+		double valueAnalytic = 0.0;
+		for(int periodIndex=0; periodIndex<fixingDates.length; periodIndex++) {
+			double periodLength		= paymentDates[periodIndex] - fixingDates[periodIndex];
+			double discountFactor	= discountCurve.getDiscountFactor(paymentDates[periodIndex]);
+			double forward			= (discountCurve.getDiscountFactor(fixingDates[periodIndex]) / discountFactor - 1.0) / periodLength;
+			valueAnalytic += (forward - swapRates[periodIndex]) * periodLength * discountFactor * notional;
+		}
+
+		double[] times					= profile.getTimes();
+		double[] expectedExposure		= profile.getExpectedExposure();
+		double exposureAfterLastPayment	= 0.0;
+		for(int timeIndex=0; timeIndex<times.length; timeIndex++) {
+			if(times[timeIndex] >= paymentDates[paymentDates.length-1]) exposureAfterLastPayment = Math.max(exposureAfterLastPayment, Math.abs(expectedExposure[timeIndex]));
+		}
+
+		double deviationMonteCarlo	= Math.abs(expectedExposure[0] - Math.max(valueMonteCarlo, 0.0));
+		double deviationAnalytic	= Math.abs(expectedExposure[0] - Math.max(valueAnalytic, 0.0));
+		double deviationDiscounted	= Math.abs(profile.getDiscountedExpectedExposure()[0] - expectedExposure[0]);
+
+		System.out.println("EE(0) vs Monte-Carlo swap value..: " + expectedExposure[0] + "\t" + valueMonteCarlo + "\tdeviation " + deviationMonteCarlo);
+		System.out.println("EE(0) vs analytic swap value.....: " + expectedExposure[0] + "\t" + valueAnalytic + "\tdeviation " + deviationAnalytic
+				+ " (standard error " + swapStatistics.getStandardError() + ")");
+		System.out.println("Discounted EE(0) vs EE(0)........: deviation " + deviationDiscounted);
+		System.out.println("EE after last payment............: " + exposureAfterLastPayment);
+
+		if(deviationMonteCarlo > 1E-12)	throw new IllegalStateException("EE(0) differs from the Monte-Carlo value of the swap, deviation " + deviationMonteCarlo + ".");
+		if(deviationAnalytic > 4.0 * swapStatistics.getStandardError())	throw new IllegalStateException("EE(0) differs from the analytic value of the swap, deviation " + deviationAnalytic + ".");
+		if(deviationDiscounted > 1E-12)	throw new IllegalStateException("Discounted EE(0) differs from EE(0), deviation " + deviationDiscounted + ".");
+		if(exposureAfterLastPayment > 0.0)	throw new IllegalStateException("Exposure after the last payment, " + exposureAfterLastPayment + ".");
+	}
+}
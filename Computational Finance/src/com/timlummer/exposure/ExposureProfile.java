@@ -0,0 +1,105 @@
+package com.timlummer.exposure;
+
+import java.text.DecimalFormat;
+
+/**
+ * Holds the exposure profile of a portfolio on a time discretization: expected exposure (EE),
+ * discounted expected exposure, expected positive exposure (EPE) and potential future exposure (PFE)
+ * quantiles.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ExposureProfile {
+
+	private final double[]		times;
+	private final double[]		expectedExposure;
+	private final double[]		discountedExpectedExposure;
+	private final double[]		quantileLevels;
+	private final double[][]	potentialFutureExposure;		// [quantileLevelIndex][timeIndex]
+
+	/**
+	 * @param times The times of the profile.
+	 * @param expectedExposure The expected exposure E[max(V(t),0)] for each time.
+	 * @param discountedExpectedExposure The expected exposure discounted to 0 for each time.
+	 * @param quantileLevels The quantile levels of the potential future exposure.
+	 * @param potentialFutureExposure The quantiles of max(V(t),0) for each level and time.
+	 */
+	public ExposureProfile(double[] times, double[] expectedExposure, double[] discountedExpectedExposure, double[] quantileLevels, double[][] potentialFutureExposure) {
+		super();
+		this.times							= times;
+		this.expectedExposure				= expectedExposure;
+		this.discountedExpectedExposure		= discountedExpectedExposure;
+		this.quantileLevels					= quantileLevels;
+		this.potentialFutureExposure		= potentialFutureExposure;
+	}
+
+	public double[] getTimes() {
+		return times;
+	}
+
+	public double[] getExpectedExposure() {
+		return expectedExposure;
+	}
+
+	public double[] getDiscountedExpectedExposure() {
+		return discountedExpectedExposure;
+	}
+
+	public double[] getQuantileLevels() {
+		return quantileLevels;
+	}
+
+	/**
+	 * @param quantileLevelIndex The index of the quantile level in <code>getQuantileLevels()</code>.
+	 * @return The potential future exposure profile for the given level.
+	 */
+	public double[] getPotentialFutureExposure(int quantileLevelIndex) {
+		return potentialFutureExposure[quantileLevelIndex];
+	}
+
+	/**
+	 * Returns the expected positive exposure, i.e., the time average of the expected exposure over [0, horizon].
+	 *
+	 * @param horizon The horizon of the average.
+	 * @return The expected positive exposure.
+	 */
+	public double getExpectedPositiveExposure(double horizon) {
+		double integral = 0.0;
+		for(int timeIndex=0; timeIndex<times.length-1 && times[timeIndex] < horizon; timeIndex++) {
+			double timeStep = Math.min(times[timeIndex+1], horizon) - times[timeIndex];
+			integral += expectedExposure[timeIndex] * timeStep;
+		}
+		return horizon > 0 ? integral / horizon : expectedExposure[0];
+	}
+
+	/**
+	 * @return The expected positive exposure over the full profile.
+	 */
+	public double getExpectedPositiveExposure() {
+		return getExpectedPositiveExposure(times[times.length-1]);
+	}
+
+	@Override
+	public String toString() {
+		final DecimalFormat formatterTime	= new DecimalFormat("0.00");
+		final DecimalFormat formatterValue	= new DecimalFormat(" 0.000000;-0.000000");
+
+		StringBuilder profile = new StringBuilder("time\tEE\tdiscounted EE");
+		for(double quantileLevel : quantileLevels) profile.append("\tPFE(" + quantileLevel + ")");
+		profile.append("\n");
+
+		for(int timeIndex=0; timeIndex<times.length; timeIndex++) {
+			profile.append(formatterTime.format(times[timeIndex]));
+			profile.append("\t" + formatterValue.format(expectedExposure[timeIndex]));
+			profile.append("\t" + formatterValue.format(discountedExpectedExposure[timeIndex]));
+			for(int quantileLevelIndex=0; quantileLevelIndex<quantileLevels.length; quantileLevelIndex++) {
+				profile.append("\t" + formatterValue.format(potentialFutureExposure[quantileLevelIndex][timeIndex]));
+			}
+			profile.append("\n");
+		}
+		profile.append("EPE: " + formatterValue.format(getExpectedPositiveExposure()));
+
+		return profile.toString();
+	}
+}
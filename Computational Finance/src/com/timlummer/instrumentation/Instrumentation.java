@@ -0,0 +1,165 @@
+package com.timlummer.instrumentation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight instrumentation of the valuation pipeline: timers of stages (number of calls, total and maximum wall time and
+ * bytes allocated by the calling thread) and counters, collected in a global registry and exported by <code>getReport()</code>.
+ *
+ * A stage is measured by
+ * <pre>
+ * Instrumentation.Timer timer = Instrumentation.start("stage");
+ * try {
+ * 	...
+ * }
+ * finally {
+ * 	timer.close();
+ * }
+ * </pre>
+ * The instrumentation is disabled by default and enabled by <code>-Dinstrumentation=true</code> or <code>setEnabled(true)</code>.
+ * If disabled, <code>start</code> returns a shared timer which does nothing (a volatile read per stage). If enabled, a stage costs
+ * two reads of the clock and of the allocation counter of the thread and updates of striped counters (<code>LongAdder</code>),
+ * such that the instrumentation can stay on for stages which operate on the paths (not on single realizations).
+ *
+ * The allocated bytes are those of the thread calling <code>start</code> (<code>com.sun.management.ThreadMXBean</code>, if supported
+ * by the JVM, otherwise 0); work done on other threads (e.g. parallel streams) is not included. Nested stages are inclusive, i.e., the
+ * time and allocations of a stage include those of the stages it calls.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public final class Instrumentation {
+
+	private static volatile boolean isEnabled = Boolean.getBoolean("instrumentation");
+
+	private static final Map<String, StageStatistics>	stages		= new ConcurrentHashMap<String, StageStatistics>();
+	private static final Map<String, LongAdder>			counters	= new ConcurrentHashMap<String, LongAdder>();
+
+	private static final com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+
+	/**
+	 * A running measurement of a stage, recorded by <code>close</code>.
+	 */
+	public static final class Timer implements AutoCloseable {
+
+		private static final Timer DISABLED = new Timer(null);
+
+		private final StageStatistics	stage;
+		private final long				nanosStart;
+		private final long				allocatedBytesStart;
+
+		private Timer(StageStatistics stage) {
+			this.stage					= stage;
+			this.nanosStart				= stage != null ? System.nanoTime() : 0;
+			this.allocatedBytesStart	= stage != null ? getAllocatedBytes() : 0;
+		}
+
+		@Override
+		public void close() {
+			if(stage == null) return;
+			stage.add(System.nanoTime() - nanosStart, getAllocatedBytes() - allocatedBytesStart);
+		}
+	}
+
+	private static final class StageStatistics {
+		private final LongAdder			count			= new LongAdder();
+		private final LongAdder			nanos			= new LongAdder();
+		private final LongAccumulator	maximumNanos	= new LongAccumulator(Math::max, 0);
+		private final LongAdder			allocatedBytes	= new LongAdder();
+
+		private void add(long nanosOfCall, long allocatedBytesOfCall) {
+			count.increment();
+			nanos.add(nanosOfCall);
+			maximumNanos.accumulate(nanosOfCall);
+			allocatedBytes.add(allocatedBytesOfCall);
+		}
+	}
+
+	private Instrumentation() {
+	}
+
+	/**
+	 * @return True if the stages and counters are recorded.
+	 */
+	public static boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * @param enabled True if the stages and counters should be recorded.
+	 */
+	public static void setEnabled(boolean enabled) {
+		isEnabled = enabled;
+	}
+
+	/**
+	 * Starts the measurement of a stage, which is recorded when the returned timer is closed.
+	 *
+	 * @param stage The name of the stage.
+	 * @return The timer.
+	 */
+	public static Timer start(String stage) {
+		if(!isEnabled) return Timer.DISABLED;
+		return new Timer(stages.computeIfAbsent(stage, name -> new StageStatistics()));
+	}
+
+	/**
+	 * Adds to a counter.
+	 *
+	 * @param counter The name of the counter.
+	 * @param increment The increment.
+	 */
+	public static void count(String counter, long increment) {
+		if(!isEnabled) return;
+		counters.computeIfAbsent(counter, name -> new LongAdder()).add(increment);
+	}
+
+	/**
+	 * @return A snapshot of all stages and counters recorded since the last <code>reset</code>.
+	 */
+	public static InstrumentationReport getReport() {
+		List<InstrumentationReport.Stage> stagesOfReport = new ArrayList<InstrumentationReport.Stage>();
+		for(Map.Entry<String, StageStatistics> stage : stages.entrySet()) {
+			StageStatistics statistics = stage.getValue();
+			stagesOfReport.add(new InstrumentationReport.Stage(stage.getKey(), statistics.count.sum(), statistics.nanos.sum(), statistics.maximumNanos.get(), statistics.allocatedBytes.sum()));
+		}
+
+		Map<String, Long> countersOfReport = new TreeMap<String, Long>();
+		for(Map.Entry<String, LongAdder> counter : counters.entrySet()) countersOfReport.put(counter.getKey(), counter.getValue().sum());
+
+		return new InstrumentationReport(stagesOfReport, countersOfReport);
+	}
+
+	/**
+	 * Removes all stages and counters.
+	 */
+	public static void reset() {
+		stages.clear();
+		counters.clear();
+	}
+
+	private static long getAllocatedBytes() {
+		return threadMXBean != null ? threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported()) {
+				((com.sun.management.ThreadMXBean)bean).setThreadAllocatedMemoryEnabled(true);
+				return (com.sun.management.ThreadMXBean)bean;
+			}
+		}
+		catch(UnsupportedOperationException | SecurityException e) {
+			// Allocations are not measured
+		}
+		return null;
+	}
+}
@@ -0,0 +1,154 @@
+package com.timlummer.instrumentation;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the stages and counters recorded by <code>Instrumentation</code>, with the stages sorted by their total time.
+ * <code>toString</code> gives a table, <code>toJson</code> a structured report for export.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class InstrumentationReport {
+
+	/**
+	 * The statistics of a stage.
+	 */
+	public static class Stage {
+
+		private final String	name;
+		private final long		count;
+		private final long		nanos;
+		private final long		maximumNanos;
+		private final long		allocatedBytes;
+
+		/**
+		 * @param name The name of the stage.
+		 * @param count The number of calls.
+		 * @param nanos The total wall time in nanoseconds.
+		 * @param maximumNanos The maximum wall time of a call in nanoseconds.
+		 * @param allocatedBytes The bytes allocated by the calling threads.
+		 */
+		public Stage(String name, long count, long nanos, long maximumNanos, long allocatedBytes) {
+			super();
+			this.name			= name;
+			this.count			= count;
+			this.nanos			= nanos;
+			this.maximumNanos	= maximumNanos;
+			this.allocatedBytes	= allocatedBytes;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public long getMaximumNanos() {
+			return maximumNanos;
+		}
+
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+	}
+
+	private final List<Stage>		stages;
+	private final Map<String, Long>	counters;
+
+	/**
+	 * @param stages The stages.
+	 * @param counters The counters.
+	 */
+	public InstrumentationReport(List<Stage> stages, Map<String, Long> counters) {
+		super();
+		List<Stage> stagesSorted = new ArrayList<Stage>(stages);
+		stagesSorted.sort(Comparator.comparingLong(Stage::getNanos).reversed());
+		this.stages		= Collections.unmodifiableList(stagesSorted);
+		this.counters	= Collections.unmodifiableMap(new LinkedHashMap<String, Long>(counters));
+	}
+
+	/**
+	 * @return The stages, sorted by their total time (descending).
+	 */
+	public List<Stage> getStages() {
+		return stages;
+	}
+
+	/**
+	 * @param name The name of a stage.
+	 * @return The stage or null if it has not been recorded.
+	 */
+	public Stage getStage(String name) {
+		for(Stage stage : stages) {
+			if(stage.getName().equals(name)) return stage;
+		}
+		return null;
+	}
+
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+
+	/**
+	 * @return The report as JSON object with the arrays <code>stages</code> and the object <code>counters</code>.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\"stages\":[");
+		for(int stageIndex=0; stageIndex<stages.size(); stageIndex++) {
+			Stage stage = stages.get(stageIndex);
+			if(stageIndex > 0) json.append(',');
+			json.append("{\"name\":").append(quote(stage.getName()))
+			.append(",\"count\":").append(stage.getCount())
+			.append(",\"nanos\":").append(stage.getNanos())
+			.append(",\"maximumNanos\":").append(stage.getMaximumNanos())
+			.append(",\"allocatedBytes\":").append(stage.getAllocatedBytes())
+			.append('}');
+		}
+		json.append("],\"counters\":{");
+		boolean isFirst = true;
+		for(Map.Entry<String, Long> counter : counters.entrySet()) {
+			if(!isFirst) json.append(',');
+			json.append(quote(counter.getKey())).append(':').append(counter.getValue());
+			isFirst = false;
+		}
+		return json.append("}}").toString();
+	}
+
+	@Override
+	public String toString() {
+		DecimalFormat formatMillis	= new DecimalFormat("0.000");
+		DecimalFormat formatBytes	= new DecimalFormat("0.0");
+
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%-50s %10s %14s %14s %14s %14s%n", "Stage", "Calls", "Total [ms]", "Mean [ms]", "Max [ms]", "Alloc. [MB]"));
+		for(Stage stage : stages) {
+			table.append(String.format("%-50s %10d %14s %14s %14s %14s%n", stage.getName(), stage.getCount(),
+					formatMillis.format(stage.getNanos() / 1E6),
+					formatMillis.format(stage.getCount() > 0 ? stage.getNanos() / 1E6 / stage.getCount() : 0.0),
+					formatMillis.format(stage.getMaximumNanos() / 1E6),
+					formatBytes.format(stage.getAllocatedBytes() / 1024.0 / 1024.0)));
+		}
+		if(!counters.isEmpty()) {
+			table.append(String.format("%n%-50s %14s%n", "Counter", "Value"));
+			for(Map.Entry<String, Long> counter : counters.entrySet()) table.append(String.format("%-50s %14d%n", counter.getKey(), counter.getValue()));
+		}
+		return table.toString();
+	}
+
+	private static String quote(String string) {
+		return "\"" + string.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
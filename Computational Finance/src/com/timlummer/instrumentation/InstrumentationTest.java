@@ -0,0 +1,96 @@
+package com.timlummer.instrumentation;
+
+import com.timlummer.InterestDerivatives.BermudanSwaption;
+import com.timlummer.InterestDerivatives.Cap;
+import com.timlummer.InterestDerivatives.Caplet;
+import com.timlummer.InterestDerivatives.DigitalCaplet;
+import com.timlummer.LIBOR.LIBORinArrears;
+import com.timlummer.bonus.BarrierBonusOption;
+import com.timlummer.bonus.BonusOption;
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.MonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+
+/**
+ * Values LIBOR products and bonus certificates with the instrumentation enabled, prints the report (table and JSON) and compares
+ * the time of repeated valuations with the instrumentation disabled and enabled.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class InstrumentationTest {
+
+	public static void main(String[] args) throws Exception {
+
+		Instrumentation.setEnabled(true);
+
+		/*
+		 * LIBOR market model and products of InterestDerivatives
+		 */
+		LIBORModelMonteCarloSimulationInterface liborModel = new InstrumentedLIBORModelMonteCarloSimulation(
+				LIBORinArrears.createLIBORMarketModel(10000, 5 /* numberOfFactors */, 0.01));
+
+		double[] fixingDates	= { 2.0, 2.5, 3.0, 3.5 };
+		double[] paymentDates	= { 2.5, 3.0, 3.5, 4.0 };
+		double[] strikes		= { 0.05, 0.05, 0.05, 0.05 };
+
+		AbstractMonteCarloProduct[] liborProducts = InstrumentedProduct.of(
+				new Caplet(2.0, 2.5, 0.05, false),
+				new DigitalCaplet(2.0, 2.0, 2.5, 0.05),
+				new Cap(fixingDates, paymentDates, strikes),
+				new BermudanSwaption(fixingDates, paymentDates, strikes));
+
+		/*
+		 * Black-Scholes model and products of bonus
+		 */
+		BlackScholesExactSimulation assetModel = BlackScholesExactSimulation.create(100.0, 0.01, 0.25, new double[] { 0.25, 0.5, 0.75, 1.0 },
+				100000, 31415, PathPrecision.DOUBLE, BrownianMotionGenerator.SEQUENTIAL);
+
+		AbstractMonteCarloProduct[] bonusProducts = InstrumentedProduct.of(
+				new BonusOption(1.0, 0.2, 80.0, 0),
+				new BarrierBonusOption(1.0, 0.2, 80.0, 0));
+
+		for(AbstractMonteCarloProduct product : liborProducts) {
+			System.out.println(((InstrumentedProduct)product).getProduct().getClass().getSimpleName() + ":\t" + product.getValue(liborModel));
+		}
+		for(AbstractMonteCarloProduct product : bonusProducts) {
+			System.out.println(((InstrumentedProduct)product).getProduct().getClass().getSimpleName() + ":\t" + product.getValue(assetModel));
+		}
+
+		InstrumentationReport report = Instrumentation.getReport();
+		System.out.println();
+		System.out.println(report);
+		System.out.println(report.toJson());
+
+		/*
+		 * Overhead: repeated valuations (on the simulated paths) with the instrumentation disabled and enabled
+		 */
+		int numberOfValuations = 50;
+		for(int warmUp=0; warmUp<2; warmUp++) {
+			Instrumentation.setEnabled(false);
+			long nanosDisabled = getNanosOfValuations(liborProducts, liborModel, bonusProducts, assetModel, numberOfValuations);
+			Instrumentation.setEnabled(true);
+			long nanosEnabled = getNanosOfValuations(liborProducts, liborModel, bonusProducts, assetModel, numberOfValuations);
+
+			if(warmUp == 0) continue;
+			System.out.println();
+			System.out.println("Valuation of all products (mean of " + numberOfValuations + "):\tdisabled " + nanosDisabled / 1E6 / numberOfValuations
+					+ " ms\tenabled " + nanosEnabled / 1E6 / numberOfValuations + " ms\t(overhead " + 100.0 * (nanosEnabled - nanosDisabled) / nanosDisabled + " %)");
+		}
+	}
+
+	private static long getNanosOfValuations(AbstractMonteCarloProduct[] liborProducts, MonteCarloSimulationInterface liborModel,
+			AbstractMonteCarloProduct[] bonusProducts, MonteCarloSimulationInterface assetModel, int numberOfValuations) throws CalculationException {
+		long nanosStart = System.nanoTime();
+		for(int valuationIndex=0; valuationIndex<numberOfValuations; valuationIndex++) {
+			for(AbstractMonteCarloProduct product : liborProducts) product.getValue(liborModel);
+			for(AbstractMonteCarloProduct product : bonusProducts) product.getValue(assetModel);
+		}
+		return System.nanoTime() - nanosStart;
+	}
+}
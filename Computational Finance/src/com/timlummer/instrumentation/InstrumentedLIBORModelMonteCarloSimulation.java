@@ -0,0 +1,214 @@
+package com.timlummer.instrumentation;
+
+import java.util.Map;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.TermStructureModelInterface;
+import net.finmath.montecarlo.process.AbstractProcessInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * A LIBOR model simulation which measures the requests of the products (<code>getLIBOR</code>, <code>getLIBORs</code>,
+ * <code>getNumeraire</code>, <code>getMonteCarloWeights</code>) as stages of <code>Instrumentation</code> and delegates them to
+ * the given simulation. Together with <code>InstrumentedProduct</code> this separates the time a product spends in the model
+ * (e.g. the interpolation of LIBORs) from its payoff arithmetic.
+ *
+ * The paths are simulated lazily, on the first request. If the instrumentation is enabled, this first simulation is measured as a
+ * separate stage (<code>LIBORModel.simulate</code>, including the generation of the Brownian increments), such that the stages of the
+ * requests only contain the requests themselves. If the given simulation has already been simulated, the stage measures a request.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class InstrumentedLIBORModelMonteCarloSimulation implements LIBORModelMonteCarloSimulationInterface {
+
+	private final LIBORModelMonteCarloSimulationInterface simulation;
+
+	private volatile boolean isSimulated;
+
+	/**
+	 * @param simulation The simulation.
+	 */
+	public InstrumentedLIBORModelMonteCarloSimulation(LIBORModelMonteCarloSimulationInterface simulation) {
+		super();
+		this.simulation = simulation;
+	}
+
+	@Override
+	public RandomVariableInterface getLIBOR(int timeIndex, int liborIndex) throws CalculationException {
+		simulate();
+		Instrumentation.Timer timer = Instrumentation.start("LIBORModel.getLIBOR(timeIndex, liborIndex)");
+		try {
+			return simulation.getLIBOR(timeIndex, liborIndex);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	@Override
+	public RandomVariableInterface[] getLIBORs(int timeIndex) throws CalculationException {
+		simulate();
+		Instrumentation.Timer timer = Instrumentation.start("LIBORModel.getLIBORs");
+		try {
+			return simulation.getLIBORs(timeIndex);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	@Override
+	public RandomVariableInterface getLIBOR(double time, double periodStart, double periodEnd) throws CalculationException {
+		simulate();
+		Instrumentation.Timer timer = Instrumentation.start("LIBORModel.getLIBOR(time, periodStart, periodEnd)");
+		try {
+			return simulation.getLIBOR(time, periodStart, periodEnd);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	@Override
+	public RandomVariableInterface getNumeraire(double time) throws CalculationException {
+		simulate();
+		Instrumentation.Timer timer = Instrumentation.start("LIBORModel.getNumeraire");
+		try {
+			return simulation.getNumeraire(time);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(int timeIndex) throws CalculationException {
+		simulate();
+		Instrumentation.Timer timer = Instrumentation.start("LIBORModel.getMonteCarloWeights");
+		try {
+			return simulation.getMonteCarloWeights(timeIndex);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(double time) throws CalculationException {
+		simulate();
+		Instrumentation.Timer timer = Instrumentation.start("LIBORModel.getMonteCarloWeights");
+		try {
+			return simulation.getMonteCarloWeights(time);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return simulation.getNumberOfPaths();
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return simulation.getNumberOfFactors();
+	}
+
+	@Override
+	public TimeDiscretizationInterface getTimeDiscretization() {
+		return simulation.getTimeDiscretization();
+	}
+
+	@Override
+	public double getTime(int timeIndex) {
+		return simulation.getTime(timeIndex);
+	}
+
+	@Override
+	public int getTimeIndex(double time) {
+		return simulation.getTimeIndex(time);
+	}
+
+	@Override
+	public RandomVariableInterface getRandomVariableForConstant(double value) {
+		return simulation.getRandomVariableForConstant(value);
+	}
+
+	@Override
+	public TimeDiscretizationInterface getLiborPeriodDiscretization() {
+		return simulation.getLiborPeriodDiscretization();
+	}
+
+	@Override
+	public int getNumberOfLibors() {
+		return simulation.getNumberOfLibors();
+	}
+
+	@Override
+	public double getLiborPeriod(int timeIndex) {
+		return simulation.getLiborPeriod(timeIndex);
+	}
+
+	@Override
+	public int getLiborPeriodIndex(double time) {
+		return simulation.getLiborPeriodIndex(time);
+	}
+
+	@Override
+	public TermStructureModelInterface getModel() {
+		return simulation.getModel();
+	}
+
+	@Override
+	public BrownianMotionInterface getBrownianMotion() {
+		return simulation.getBrownianMotion();
+	}
+
+	@Override
+	public AbstractProcessInterface getProcess() {
+		return simulation.getProcess();
+	}
+
+	// The decorator has to implement (and delegate) the deprecated method of the interface
+	@SuppressWarnings("deprecation")
+	@Override
+	public Object getCloneWithModifiedSeed(int seed) {
+		return new InstrumentedLIBORModelMonteCarloSimulation((LIBORModelMonteCarloSimulationInterface)simulation.getCloneWithModifiedSeed(seed));
+	}
+
+	@Override
+	public LIBORModelMonteCarloSimulationInterface getCloneWithModifiedData(Map<String, Object> dataModified) throws CalculationException {
+		return new InstrumentedLIBORModelMonteCarloSimulation((LIBORModelMonteCarloSimulationInterface)simulation.getCloneWithModifiedData(dataModified));
+	}
+
+	/**
+	 * @return The simulation which is instrumented.
+	 */
+	public LIBORModelMonteCarloSimulationInterface getSimulation() {
+		return simulation;
+	}
+
+	/*
+	 * Measures the simulation of the paths, which the first request triggers anyway.
+	 */
+	private void simulate() throws CalculationException {
+		if(isSimulated || !Instrumentation.isEnabled()) return;
+		synchronized(this) {
+			if(isSimulated) return;
+			Instrumentation.Timer timer = Instrumentation.start("LIBORModel.simulate");
+			try {
+				simulation.getLIBOR(0, 0);
+			}
+			finally {
+				timer.close();
+			}
+			Instrumentation.count("LIBORModel.simulatedPathTimeSteps", (long)simulation.getNumberOfPaths() * simulation.getTimeDiscretization().getNumberOfTimeSteps());
+			isSimulated = true;
+		}
+	}
+}
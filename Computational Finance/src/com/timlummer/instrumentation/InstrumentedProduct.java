@@ -0,0 +1,58 @@
+package com.timlummer.instrumentation;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.MonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * A product which measures the <code>getValue</code> of the given product (e.g. of <code>InterestDerivatives</code> or
+ * <code>bonus</code>) as stage <code>&lt;class name&gt;.getValue</code> of <code>Instrumentation</code>.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class InstrumentedProduct extends AbstractMonteCarloProduct {
+
+	private final AbstractMonteCarloProduct	product;
+	private final String					stage;
+
+	/**
+	 * @param product The product.
+	 */
+	public InstrumentedProduct(AbstractMonteCarloProduct product) {
+		super();
+		this.product	= product;
+		this.stage		= product.getClass().getSimpleName() + ".getValue";
+	}
+
+	/**
+	 * Instruments all given products.
+	 *
+	 * @param products The products.
+	 * @return The instrumented products.
+	 */
+	public static AbstractMonteCarloProduct[] of(AbstractMonteCarloProduct... products) {
+		AbstractMonteCarloProduct[] instrumentedProducts = new AbstractMonteCarloProduct[products.length];
+		for(int productIndex=0; productIndex<products.length; productIndex++) instrumentedProducts[productIndex] = new InstrumentedProduct(products[productIndex]);
+		return instrumentedProducts;
+	}
+
+	@Override
+	public RandomVariableInterface getValue(double evaluationTime, MonteCarloSimulationInterface model) throws CalculationException {
+		Instrumentation.Timer timer = Instrumentation.start(stage);
+		try {
+			return product.getValue(evaluationTime, model);
+		}
+		finally {
+			timer.close();
+		}
+	}
+
+	/**
+	 * @return The product which is instrumented.
+	 */
+	public AbstractMonteCarloProduct getProduct() {
+		return product;
+	}
+}
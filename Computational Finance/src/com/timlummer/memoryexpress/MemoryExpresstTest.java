@@ -1,9 +1,12 @@
 package com.timlummer.memoryexpress;
 
 import com.timlummer.bonus.MemoryExpress;
+import com.timlummer.montecarlo.BlackScholesExactSimulation;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+import com.timlummer.montecarlo.PathPrecision;
+import com.timlummer.statistics.StreamingStatistics;
 
 import net.finmath.exception.CalculationException;
-import net.finmath.montecarlo.BrownianMotion;
 import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
 import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
 import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
@@ -34,15 +37,21 @@ public class MemoryExpresstTest {
 		
 		int		seed				= 31415;
 
+		// Storage of the simulated paths, e.g. -DpathPrecision=SINGLE to halve the memory per path
+		PathPrecision pathPrecision = PathPrecision.fromSystemProperty();
+
+		// Generator of the Brownian increments, e.g. -DbrownianMotion=PARALLEL
+		BrownianMotionGenerator brownianMotionGenerator = BrownianMotionGenerator.fromSystemProperty();
+
 		
 		// Create a model
-		AbstractModel model = new BlackScholesModel(initialValue, riskFreeRate, volatility);
+		AbstractModel model = new BlackScholesModel(initialValue, riskFreeRate, volatility, pathPrecision.getRandomVariableFactory());
 
 		// Create a time discretization
 		TimeDiscretizationInterface timeDiscretization = new TimeDiscretization(0.0 /* initial */, numberOfTimeSteps, deltaT);
 
 		// Create a corresponding MC process 	// net.finmath.montecarlo.process
-		AbstractProcess process = new ProcessEulerScheme(new BrownianMotion(timeDiscretization, 1 /* numberOfFactors */, numberOfPaths, seed));
+		AbstractProcess process = new ProcessEulerScheme(brownianMotionGenerator.createBrownianMotion(timeDiscretization, 1 /* numberOfFactors */, numberOfPaths, seed, pathPrecision.getRandomVariableFactory()));
 
 		// Using the process (Euler scheme), create an MC simulation of a Black-Scholes model
 		AssetModelMonteCarloSimulationInterface monteCarloBlackScholesModel = new MonteCarloAssetModel(model, process);
@@ -62,11 +71,13 @@ public class MemoryExpresstTest {
 	double coupon       = 0.055;
 	
 	double valueMemoryExpress = 0.0;
+	StreamingStatistics statisticsMemoryExpress = new StreamingStatistics();
 	
 	// Lower bound method
 	MemoryExpress memoryExpress = new MemoryExpress(exerciseDates, initialValue, strikepct*initialValue,coupon,0);
 	try {
-		 valueMemoryExpress = memoryExpress.getValue(monteCarloBlackScholesModel);
+		 statisticsMemoryExpress = StreamingStatistics.of(memoryExpress.getValue(0.0, monteCarloBlackScholesModel));
+		 valueMemoryExpress = statisticsMemoryExpress.getMean();
 	} catch (CalculationException e) {
 		// TODO Auto-generated catch block
 		e.printStackTrace();
@@ -75,6 +86,20 @@ public class MemoryExpresstTest {
 	
 	
 	System.out.println("Value of Express  is \t"	+ "(" + valueMemoryExpress + ")");
+	System.out.println("Distribution of Express  is \t"	+ statisticsMemoryExpress);
+
+	/*
+	 * Exact sampling of the asset on the exercise dates only (4 time steps instead of 100)
+	 */
+	AssetModelMonteCarloSimulationInterface exactBlackScholesModel = BlackScholesExactSimulation.create(initialValue, riskFreeRate, volatility, exerciseDates,
+			numberOfPaths, seed, pathPrecision, brownianMotionGenerator);
+	try {
+		StreamingStatistics statisticsMemoryExpressExact = StreamingStatistics.of(memoryExpress.getValue(0.0, exactBlackScholesModel));
+		System.out.println("Value of Express (exact sampling on " + exactBlackScholesModel.getTimeDiscretization().getNumberOfTimeSteps() + " dates) is \t"	+ "(" + statisticsMemoryExpressExact.getMean() + ")");
+		System.out.println("Distribution of Express (exact sampling) is \t"	+ statisticsMemoryExpressExact);
+	} catch (CalculationException e) {
+		e.printStackTrace();
+	}
 
 	}
 	
@@ -0,0 +1,229 @@
+package com.timlummer.montecarlo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.timlummer.instrumentation.Instrumentation;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Monte-Carlo simulation of the Black-Scholes model
+ * <br>
+ * 	<i>dS = r S dt + &sigma; S dW</i>, <i>N(t) = exp(r t)</i>,
+ * <br>
+ * sampled with the exact lognormal transition
+ * <br>
+ * 	<i>S(t<sub>i+1</sub>) = S(t<sub>i</sub>) exp( (r - &sigma;<sup>2</sup>/2) (t<sub>i+1</sub> - t<sub>i</sub>) + &sigma; (W(t<sub>i+1</sub>) - W(t<sub>i</sub>)) )</i>.
+ * <br>
+ * Since the transition is exact for any time step, the time discretization only has to contain the dates on which the products
+ * observe the asset (e.g. the four exercise dates of <code>MemoryExpress</code> or the maturity of <code>BonusOption</code>),
+ * see <code>create</code>. The asset can only be observed on the times of the discretization, other times throw an
+ * <code>IllegalArgumentException</code> (instead of silently using the previous time).
+ *
+ * The paths are calculated on the first request, in a single pass over arrays of the realizations.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BlackScholesExactSimulation implements AssetModelMonteCarloSimulationInterface {
+
+	private final double					initialValue;
+	private final double					riskFreeRate;
+	private final double					volatility;
+	private final BrownianMotionInterface	brownianMotion;
+	private final PathPrecision				pathPrecision;
+
+	private RandomVariableInterface[]		assetValues;
+
+	/**
+	 * Create the simulation on the time discretization of the given Brownian motion.
+	 *
+	 * @param initialValue The initial value S(0).
+	 * @param riskFreeRate The risk free rate r.
+	 * @param volatility The volatility &sigma;.
+	 * @param brownianMotion The Brownian motion (one factor), on the observation dates.
+	 * @param pathPrecision The precision of the simulated paths.
+	 */
+	public BlackScholesExactSimulation(double initialValue, double riskFreeRate, double volatility, BrownianMotionInterface brownianMotion, PathPrecision pathPrecision) {
+		super();
+		this.initialValue	= initialValue;
+		this.riskFreeRate	= riskFreeRate;
+		this.volatility		= volatility;
+		this.brownianMotion	= brownianMotion;
+		this.pathPrecision	= pathPrecision;
+	}
+
+	/**
+	 * Create the simulation sampling the asset only on the given observation dates (and 0).
+	 *
+	 * @param initialValue The initial value S(0).
+	 * @param riskFreeRate The risk free rate r.
+	 * @param volatility The volatility &sigma;.
+	 * @param observationDates The dates on which the asset is observed.
+	 * @param numberOfPaths The number of paths.
+	 * @param seed The seed of the random number generator.
+	 * @param pathPrecision The precision of the simulated paths.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @return The simulation.
+	 */
+	public static BlackScholesExactSimulation create(double initialValue, double riskFreeRate, double volatility, double[] observationDates,
+			int numberOfPaths, int seed, PathPrecision pathPrecision, BrownianMotionGenerator brownianMotionGenerator) {
+		TimeDiscretizationInterface timeDiscretization = getObservationTimeDiscretization(observationDates);
+		return new BlackScholesExactSimulation(initialValue, riskFreeRate, volatility,
+				brownianMotionGenerator.createBrownianMotion(timeDiscretization, 1 /* numberOfFactors */, numberOfPaths, seed, pathPrecision.getRandomVariableFactory()),
+				pathPrecision);
+	}
+
+	/**
+	 * Returns the time discretization consisting of 0 and the given observation dates (see <code>TimeDiscretizationBuilder</code>).
+	 *
+	 * @param observationDates The observation dates.
+	 * @return The time discretization.
+	 */
+	public static TimeDiscretizationInterface getObservationTimeDiscretization(double[] observationDates) {
+		return new TimeDiscretizationBuilder().addTimes(observationDates).build();
+	}
+
+	private synchronized RandomVariableInterface[] getAssetValues() {
+		if(assetValues != null) return assetValues;
+		Instrumentation.Timer timer = Instrumentation.start("BlackScholesExactSimulation.simulate");
+		try {
+			assetValues = simulate();
+		}
+		finally {
+			timer.close();
+		}
+		Instrumentation.count("BlackScholesExactSimulation.simulatedPathTimeSteps", (long)getNumberOfPaths() * getTimeDiscretization().getNumberOfTimeSteps());
+
+		return assetValues;
+	}
+
+	private RandomVariableInterface[] simulate() {
+		TimeDiscretizationInterface timeDiscretization = getTimeDiscretization();
+		int numberOfPaths = getNumberOfPaths();
+
+		RandomVariableInterface[] values = new RandomVariableInterface[timeDiscretization.getNumberOfTimes()];
+		values[0] = pathPrecision.createRandomVariable(0.0, initialValue);
+
+		double[] logValues = new double[numberOfPaths];
+		Arrays.fill(logValues, Math.log(initialValue));
+		for(int timeIndex=0; timeIndex<timeDiscretization.getNumberOfTimeSteps(); timeIndex++) {
+			double drift = (riskFreeRate - 0.5 * volatility * volatility) * timeDiscretization.getTimeStep(timeIndex);
+			RandomVariableInterface brownianIncrement = brownianMotion.getBrownianIncrement(timeIndex, 0);
+
+			double[] realizations = new double[numberOfPaths];
+			for(int path=0; path<numberOfPaths; path++) {
+				logValues[path] += drift + volatility * brownianIncrement.get(path);
+				realizations[path] = Math.exp(logValues[path]);
+			}
+			values[timeIndex+1] = pathPrecision.createRandomVariable(timeDiscretization.getTime(timeIndex+1), realizations);
+		}
+
+		return values;
+	}
+
+	@Override
+	public int getNumberOfAssets() {
+		return 1;
+	}
+
+	@Override
+	public RandomVariableInterface getAssetValue(int timeIndex, int assetIndex) throws CalculationException {
+		if(assetIndex != 0) throw new IllegalArgumentException("The model has a single asset, requested asset " + assetIndex + ".");
+		return getAssetValues()[timeIndex];
+	}
+
+	@Override
+	public RandomVariableInterface getAssetValue(double time, int assetIndex) throws CalculationException {
+		int timeIndex = getTimeIndex(time);
+		if(timeIndex < 0) throw new IllegalArgumentException("Time " + time + " is not an observation date of the simulation.");
+		return getAssetValue(timeIndex, assetIndex);
+	}
+
+	@Override
+	public RandomVariableInterface getNumeraire(int timeIndex) throws CalculationException {
+		return getNumeraire(getTime(timeIndex));
+	}
+
+	@Override
+	public RandomVariableInterface getNumeraire(double time) throws CalculationException {
+		return pathPrecision.createRandomVariable(time, Math.exp(riskFreeRate * time));
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return brownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public TimeDiscretizationInterface getTimeDiscretization() {
+		return brownianMotion.getTimeDiscretization();
+	}
+
+	@Override
+	public double getTime(int timeIndex) {
+		return getTimeDiscretization().getTime(timeIndex);
+	}
+
+	@Override
+	public int getTimeIndex(double time) {
+		return getTimeDiscretization().getTimeIndex(time);
+	}
+
+	@Override
+	public RandomVariableInterface getRandomVariableForConstant(double value) {
+		return pathPrecision.createRandomVariable(value);
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(int timeIndex) throws CalculationException {
+		return pathPrecision.createRandomVariable(getTime(timeIndex), 1.0 / getNumberOfPaths());
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(double time) throws CalculationException {
+		return pathPrecision.createRandomVariable(time, 1.0 / getNumberOfPaths());
+	}
+
+	/**
+	 * Returns a clone with modified <code>initialValue</code>, <code>riskFreeRate</code> or <code>volatility</code>, using the same
+	 * Brownian motion (common random numbers).
+	 */
+	@Override
+	public BlackScholesExactSimulation getCloneWithModifiedData(Map<String, Object> dataModified) throws CalculationException {
+		Map<String, Object> data = new HashMap<String, Object>(dataModified);
+		double	newInitialValue		= data.containsKey("initialValue")	? ((Number)data.remove("initialValue")).doubleValue()	: initialValue;
+		double	newRiskFreeRate		= data.containsKey("riskFreeRate")	? ((Number)data.remove("riskFreeRate")).doubleValue()	: riskFreeRate;
+		double	newVolatility		= data.containsKey("volatility")	? ((Number)data.remove("volatility")).doubleValue()		: volatility;
+		if(!data.isEmpty()) throw new IllegalArgumentException("Unsupported data: " + data.keySet());
+
+		return new BlackScholesExactSimulation(newInitialValue, newRiskFreeRate, newVolatility, brownianMotion, pathPrecision);
+	}
+
+	@Override
+	public BlackScholesExactSimulation getCloneWithModifiedSeed(int seed) throws CalculationException {
+		return new BlackScholesExactSimulation(initialValue, riskFreeRate, volatility, brownianMotion.getCloneWithModifiedSeed(seed), pathPrecision);
+	}
+
+	public double getInitialValue() {
+		return initialValue;
+	}
+
+	public double getRiskFreeRate() {
+		return riskFreeRate;
+	}
+
+	public double getVolatility() {
+		return volatility;
+	}
+
+	public BrownianMotionInterface getBrownianMotion() {
+		return brownianMotion;
+	}
+}
@@ -0,0 +1,76 @@
+package com.timlummer.montecarlo;
+
+import java.util.concurrent.ForkJoinPool;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Compares the time to generate the Brownian increments of <code>BrownianMotion</code> (sequential Mersenne Twister)
+ * and <code>ParallelBrownianMotion</code> for an increasing number of paths and checks that the increments of
+ * <code>ParallelBrownianMotion</code> do not depend on the number of threads.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BrownianMotionBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		TimeDiscretizationInterface timeDiscretization = new TimeDiscretization(0.0, 40, 0.5);
+		int numberOfFactors	= 5;
+		int seed			= 3141;
+
+		System.out.println("Threads: " + ForkJoinPool.commonPool().getParallelism());
+		System.out.println("    paths   sequential [ms]   parallel [ms]   speed up");
+		for(int numberOfPaths : new int[] { 10000, 50000, 100000, 200000 }) {
+			// Warm up
+			generate(new BrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths / 10, seed, new RandomVariableFactory()));
+			generate(new ParallelBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths / 10, seed, new RandomVariableFactory()));
+
+			long millisSequential	= generate(new BrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, new RandomVariableFactory()));
+			long millisParallel		= generate(new ParallelBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, new RandomVariableFactory()));
+
+			System.out.println(String.format("%9d   %15d   %13d   %8.2f", numberOfPaths, millisSequential, millisParallel, (double)millisSequential / Math.max(millisParallel, 1)));
+		}
+
+		// Reproducibility: one thread versus the common pool
+		int numberOfPaths = 20000;
+		BrownianMotionInterface brownianMotionCommonPool	= new ParallelBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed);
+		BrownianMotionInterface brownianMotionOneThread		= new ParallelBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed);
+		generate(brownianMotionCommonPool);
+		new ForkJoinPool(1).submit(() -> generate(brownianMotionOneThread)).get();
+
+		boolean isIdentical = true;
+		for(int timeIndex=0; timeIndex<timeDiscretization.getNumberOfTimeSteps(); timeIndex++) {
+			for(int factor=0; factor<numberOfFactors; factor++) {
+				for(int path=0; path<numberOfPaths; path++) {
+					isIdentical &= brownianMotionCommonPool.getBrownianIncrement(timeIndex, factor).get(path) == brownianMotionOneThread.getBrownianIncrement(timeIndex, factor).get(path);
+				}
+			}
+		}
+		System.out.println("Increments identical for 1 and " + ForkJoinPool.commonPool().getParallelism() + " threads: " + isIdentical);
+
+		// Moments of the increments
+		double sum = 0.0, sumOfSquares = 0.0;
+		for(int path=0; path<numberOfPaths; path++) {
+			double increment = brownianMotionCommonPool.getBrownianIncrement(0, 0).get(path);
+			sum += increment;
+			sumOfSquares += increment * increment;
+		}
+		System.out.println("Mean of first increment.......: " + sum / numberOfPaths + " (0.0)");
+		System.out.println("Variance of first increment...: " + sumOfSquares / numberOfPaths + " (" + timeDiscretization.getTimeStep(0) + ")");
+	}
+
+	/**
+	 * Generates the increments (they are generated lazily on first access) and returns the time in milliseconds.
+	 */
+	private static long generate(BrownianMotionInterface brownianMotion) {
+		long start = System.currentTimeMillis();
+		brownianMotion.getBrownianIncrement(0, 0);
+		return System.currentTimeMillis() - start;
+	}
+}
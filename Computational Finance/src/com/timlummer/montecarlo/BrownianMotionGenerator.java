@@ -0,0 +1,46 @@
+package com.timlummer.montecarlo;
+
+import net.finmath.montecarlo.AbstractRandomVariableFactory;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * The generator of the Brownian increments of a simulation.
+ *
+ * <code>SEQUENTIAL</code> is finmath's <code>BrownianMotion</code> (Mersenne Twister, single threaded),
+ * <code>PARALLEL</code> is <code>ParallelBrownianMotion</code> (counter based, generated in parallel over blocks of paths).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public enum BrownianMotionGenerator {
+	SEQUENTIAL,
+	PARALLEL;
+
+	/**
+	 * Creates a Brownian motion with this generator.
+	 *
+	 * @param timeDiscretization The time discretization used for the Brownian increments.
+	 * @param numberOfFactors Number of factors.
+	 * @param numberOfPaths Number of paths to simulate.
+	 * @param seed The seed of the random number generator.
+	 * @param randomVariableFactory Factory to be used to create random variable.
+	 * @return The Brownian motion.
+	 */
+	public BrownianMotionInterface createBrownianMotion(TimeDiscretizationInterface timeDiscretization, int numberOfFactors, int numberOfPaths, int seed, AbstractRandomVariableFactory randomVariableFactory) {
+		return this == SEQUENTIAL ?
+				new BrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, randomVariableFactory) :
+				new ParallelBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, randomVariableFactory);
+	}
+
+	/**
+	 * Returns the generator given by the system property <code>brownianMotion</code> (<code>SEQUENTIAL</code> or <code>PARALLEL</code>),
+	 * defaulting to <code>SEQUENTIAL</code>.
+	 *
+	 * @return The generator.
+	 */
+	public static BrownianMotionGenerator fromSystemProperty() {
+		return valueOf(System.getProperty("brownianMotion", SEQUENTIAL.name()).toUpperCase());
+	}
+}
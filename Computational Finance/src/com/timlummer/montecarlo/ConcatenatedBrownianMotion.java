@@ -0,0 +1,113 @@
+package com.timlummer.montecarlo;
+
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * A Brownian motion whose paths are the paths of the given Brownian motions (parts), one after the other, e.g. the Brownian
+ * motions of the batches of <code>OffHeapLIBORModelMonteCarloSimulation</code>. The parts must have the same time
+ * discretization and number of factors.
+ *
+ * An increment is concatenated from the increments of the parts on each request (in the precision of the first part, see
+ * <code>PathPrecision</code>); the parts keep their own increments once generated.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ConcatenatedBrownianMotion implements BrownianMotionInterface {
+
+	private final BrownianMotionInterface[]	parts;
+	private final int						numberOfPaths;
+
+	/**
+	 * Create the concatenation of the given Brownian motions.
+	 *
+	 * @param parts The Brownian motions, path <i>p</i> of part <i>b</i> is path <i>p + (number of paths of the parts before b)</i>.
+	 */
+	public ConcatenatedBrownianMotion(BrownianMotionInterface... parts) {
+		super();
+		if(parts.length < 1) throw new IllegalArgumentException("At least one Brownian motion is required.");
+
+		int numberOfPaths = 0;
+		for(BrownianMotionInterface part : parts) {
+			if(part.getNumberOfFactors() != parts[0].getNumberOfFactors() || part.getTimeDiscretization().getNumberOfTimes() != parts[0].getTimeDiscretization().getNumberOfTimes()) {
+				throw new IllegalArgumentException("Brownian motions must have the same time discretization and number of factors.");
+			}
+			numberOfPaths += part.getNumberOfPaths();
+		}
+		this.parts			= parts.clone();
+		this.numberOfPaths	= numberOfPaths;
+	}
+
+	@Override
+	public RandomVariableInterface getBrownianIncrement(int timeIndex, int factor) {
+		double[] realizations = new double[numberOfPaths];
+		RandomVariableInterface incrementOfFirstPart = null;
+		int firstPath = 0;
+		for(BrownianMotionInterface part : parts) {
+			RandomVariableInterface increment = part.getBrownianIncrement(timeIndex, factor);
+			if(incrementOfFirstPart == null) incrementOfFirstPart = increment;
+			System.arraycopy(increment.getRealizations(), 0, realizations, firstPath, part.getNumberOfPaths());
+			firstPath += part.getNumberOfPaths();
+		}
+		return PathPrecision.of(incrementOfFirstPart).createRandomVariable(incrementOfFirstPart.getFiltrationTime(), realizations);
+	}
+
+	@Override
+	public RandomVariableInterface getIncrement(int timeIndex, int factor) {
+		return getBrownianIncrement(timeIndex, factor);
+	}
+
+	@Override
+	public TimeDiscretizationInterface getTimeDiscretization() {
+		return parts[0].getTimeDiscretization();
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return parts[0].getNumberOfFactors();
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	@Override
+	public RandomVariableInterface getRandomVariableForConstant(double value) {
+		return parts[0].getRandomVariableForConstant(value);
+	}
+
+	/**
+	 * @return The number of Brownian motions concatenated.
+	 */
+	public int getNumberOfParts() {
+		return parts.length;
+	}
+
+	/**
+	 * @param partIndex The index of the part.
+	 * @return The Brownian motion of the given part.
+	 */
+	public BrownianMotionInterface getPart(int partIndex) {
+		return parts[partIndex];
+	}
+
+	/**
+	 * Returns the concatenation of the parts with the seeds <i>seed + b</i> (<i>b</i> being the index of the part).
+	 */
+	@Override
+	public BrownianMotionInterface getCloneWithModifiedSeed(int seed) {
+		BrownianMotionInterface[] partsModified = new BrownianMotionInterface[parts.length];
+		for(int partIndex=0; partIndex<parts.length; partIndex++) partsModified[partIndex] = parts[partIndex].getCloneWithModifiedSeed(seed + partIndex);
+		return new ConcatenatedBrownianMotion(partsModified);
+	}
+
+	@Override
+	public BrownianMotionInterface getCloneWithModifiedTimeDiscretization(TimeDiscretizationInterface newTimeDiscretization) {
+		BrownianMotionInterface[] partsModified = new BrownianMotionInterface[parts.length];
+		for(int partIndex=0; partIndex<parts.length; partIndex++) partsModified[partIndex] = parts[partIndex].getCloneWithModifiedTimeDiscretization(newTimeDiscretization);
+		return new ConcatenatedBrownianMotion(partsModified);
+	}
+}
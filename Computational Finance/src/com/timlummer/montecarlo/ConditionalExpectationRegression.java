@@ -0,0 +1,278 @@
+package com.timlummer.montecarlo;
+
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import net.finmath.functions.LinearAlgebra;
+import net.finmath.stochastic.ConditionalExpectationEstimatorInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Estimation of conditional expectations by a linear regression on basis functions, for repeated regressions on the same
+ * basis (e.g. several right hand sides at an exercise date, or repeated valuations on the same model).
+ *
+ * The basis functions are stored once in a primitive matrix X (one row of all basis functions per path). The matrix X'X is
+ * accumulated in parallel over chunks of paths, scaled to unit diagonal and factorized by a Cholesky decomposition on first use,
+ * such that each regression only requires the accumulation of X'y and two triangular solves. If X'X is singular (e.g. a basis
+ * function is zero or the basis functions are linearly dependent) the normal equations are solved in the least square sense
+ * (<code>LinearAlgebra.solveLinearEquationLeastSquare</code>).
+ *
+ * <code>ofPolynomial</code> creates the basis 1, z, ..., z<sup>k</sup> of the standardized regressor z = (x - mean) / standard deviation,
+ * which keeps X'X well conditioned for higher orders (the fitted values are the same as for the powers of x).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ConditionalExpectationRegression implements ConditionalExpectationEstimatorInterface {
+
+	private static final int CHUNK_SIZE = 16384;
+
+	private final int		numberOfPaths;
+	private final int		numberOfBasisFunctions;
+	private final double[]	basisFunctionsMatrix;		// basisFunctionsMatrix[path * numberOfBasisFunctions + basisFunctionIndex]
+
+	private double[][]		xTx;
+	private double[]		scaling;
+	private double[][]		choleskyFactor;				// Lower triangular factor of the scaled X'X, null if X'X is singular
+
+	/**
+	 * Create the regression on the given basis functions. Deterministic basis functions are expanded to all paths.
+	 *
+	 * @param basisFunctions The basis functions.
+	 */
+	public ConditionalExpectationRegression(RandomVariableInterface[] basisFunctions) {
+		super();
+		int numberOfPaths = 1;
+		for(RandomVariableInterface basisFunction : basisFunctions) numberOfPaths = Math.max(numberOfPaths, basisFunction.size());
+
+		this.numberOfPaths			= numberOfPaths;
+		this.numberOfBasisFunctions	= basisFunctions.length;
+		this.basisFunctionsMatrix	= new double[numberOfPaths * numberOfBasisFunctions];
+		for(int basisFunctionIndex=0; basisFunctionIndex<numberOfBasisFunctions; basisFunctionIndex++) {
+			RandomVariableInterface basisFunction = basisFunctions[basisFunctionIndex];
+			for(int path=0; path<numberOfPaths; path++) basisFunctionsMatrix[path * numberOfBasisFunctions + basisFunctionIndex] = basisFunction.get(path);
+		}
+	}
+
+	private ConditionalExpectationRegression(int numberOfPaths, int numberOfBasisFunctions, double[] basisFunctionsMatrix) {
+		super();
+		this.numberOfPaths			= numberOfPaths;
+		this.numberOfBasisFunctions	= numberOfBasisFunctions;
+		this.basisFunctionsMatrix	= basisFunctionsMatrix;
+	}
+
+	/**
+	 * Create the regression on the polynomial basis 1, z, ..., z<sup>order</sup> of the standardized regressor z.
+	 *
+	 * @param regressor The regressor x.
+	 * @param order The maximum power.
+	 * @return The regression.
+	 */
+	public static ConditionalExpectationRegression ofPolynomial(RandomVariableInterface regressor, int order) {
+		return ofPolynomial(regressor.getRealizations(), order);
+	}
+
+	/**
+	 * Create the regression on the polynomial basis 1, z, ..., z<sup>order</sup> of the standardized regressor z.
+	 *
+	 * @param regressor The realizations of the regressor x.
+	 * @param order The maximum power.
+	 * @return The regression.
+	 */
+	public static ConditionalExpectationRegression ofPolynomial(double[] regressor, int order) {
+		int numberOfPaths = regressor.length;
+		int numberOfBasisFunctions = order+1;
+
+		double mean = 0.0, secondMoment = 0.0;
+		for(double value : regressor) {
+			mean			+= value;
+			secondMoment	+= value * value;
+		}
+		mean /= numberOfPaths;
+		double standardDeviation = Math.sqrt(Math.max(secondMoment / numberOfPaths - mean * mean, 0.0));
+		double scale = standardDeviation > 0 ? 1.0 / standardDeviation : 0.0;
+		double shift = mean;
+
+		double[] basisFunctionsMatrix = new double[numberOfPaths * numberOfBasisFunctions];
+		forEachChunk(numberOfPaths, (from, to) -> {
+			for(int path=from; path<to; path++) {
+				double z = (regressor[path] - shift) * scale;
+				int offset = path * numberOfBasisFunctions;
+				basisFunctionsMatrix[offset] = 1.0;
+				for(int power=1; power<numberOfBasisFunctions; power++) basisFunctionsMatrix[offset + power] = basisFunctionsMatrix[offset + power - 1] * z;
+			}
+		});
+
+		return new ConditionalExpectationRegression(numberOfPaths, numberOfBasisFunctions, basisFunctionsMatrix);
+	}
+
+	@Override
+	public RandomVariableInterface getConditionalExpectation(RandomVariableInterface randomVariable) {
+		double[] values = getValues(getRegressionParameters(randomVariable));
+		return PathPrecision.of(randomVariable).createRandomVariable(randomVariable.getFiltrationTime(), values);
+	}
+
+	/**
+	 * @param randomVariable The random variable y.
+	 * @return The regression parameters b minimizing |X b - y|.
+	 */
+	public double[] getRegressionParameters(RandomVariableInterface randomVariable) {
+		if(randomVariable.isDeterministic()) {
+			double value = randomVariable.get(0);
+			return getRegressionParameters(path -> value);
+		}
+		return getRegressionParameters(randomVariable.getRealizations());
+	}
+
+	/**
+	 * @param values The realizations of the random variable y.
+	 * @return The regression parameters b minimizing |X b - y|.
+	 */
+	public double[] getRegressionParameters(double[] values) {
+		if(values.length != numberOfPaths) throw new IllegalArgumentException("Number of realizations " + values.length + " differs from the number of paths " + numberOfPaths + ".");
+		return getRegressionParameters(path -> values[path]);
+	}
+
+	private double[] getRegressionParameters(IntToDoubleFunction values) {
+		double[] xTy = IntStream.range(0, getNumberOfChunks(numberOfPaths)).parallel().mapToObj(chunkIndex -> {
+			double[] sums = new double[numberOfBasisFunctions];
+			int to = Math.min((chunkIndex+1) * CHUNK_SIZE, numberOfPaths);
+			for(int path=chunkIndex * CHUNK_SIZE; path<to; path++) {
+				double value = values.applyAsDouble(path);
+				int offset = path * numberOfBasisFunctions;
+				for(int i=0; i<numberOfBasisFunctions; i++) sums[i] += basisFunctionsMatrix[offset + i] * value;
+			}
+			return sums;
+		}).reduce(ConditionalExpectationRegression::add).get();
+
+		return solveNormalEquations(xTy);
+	}
+
+	/**
+	 * @param parameters The regression parameters b.
+	 * @return The realizations of the estimate X b.
+	 */
+	public double[] getValues(double[] parameters) {
+		double[] values = new double[numberOfPaths];
+		forEachChunk(numberOfPaths, (from, to) -> {
+			for(int path=from; path<to; path++) {
+				int offset = path * numberOfBasisFunctions;
+				double value = 0.0;
+				for(int i=0; i<numberOfBasisFunctions; i++) value += basisFunctionsMatrix[offset + i] * parameters[i];
+				values[path] = value;
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * @param path The path.
+	 * @param parameters The regression parameters b.
+	 * @return The estimate (X b) on the given path.
+	 */
+	public double getValue(int path, double[] parameters) {
+		int offset = path * numberOfBasisFunctions;
+		double value = 0.0;
+		for(int i=0; i<numberOfBasisFunctions; i++) value += basisFunctionsMatrix[offset + i] * parameters[i];
+		return value;
+	}
+
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	public int getNumberOfBasisFunctions() {
+		return numberOfBasisFunctions;
+	}
+
+	private synchronized double[] solveNormalEquations(double[] xTy) {
+		if(xTx == null) factorize();
+
+		if(choleskyFactor == null) return LinearAlgebra.solveLinearEquationLeastSquare(xTx, xTy);
+
+		// Solve (S X'X S) (S^-1 b) = S X'y with L L' = S X'X S
+		int n = numberOfBasisFunctions;
+		double[] z = new double[n];
+		for(int i=0; i<n; i++) {
+			double sum = xTy[i] * scaling[i];
+			for(int j=0; j<i; j++) sum -= choleskyFactor[i][j] * z[j];
+			z[i] = sum / choleskyFactor[i][i];
+		}
+		double[] parameters = new double[n];
+		for(int i=n-1; i>=0; i--) {
+			double sum = z[i];
+			for(int j=i+1; j<n; j++) sum -= choleskyFactor[j][i] * parameters[j];
+			parameters[i] = sum / choleskyFactor[i][i];
+		}
+		for(int i=0; i<n; i++) parameters[i] *= scaling[i];
+		return parameters;
+	}
+
+	private void factorize() {
+		int n = numberOfBasisFunctions;
+		double[] sums = IntStream.range(0, getNumberOfChunks(numberOfPaths)).parallel().mapToObj(chunkIndex -> {
+			double[] chunkSums = new double[n * n];
+			int to = Math.min((chunkIndex+1) * CHUNK_SIZE, numberOfPaths);
+			for(int path=chunkIndex * CHUNK_SIZE; path<to; path++) {
+				int offset = path * n;
+				for(int i=0; i<n; i++) {
+					double basisFunction = basisFunctionsMatrix[offset + i];
+					for(int j=0; j<=i; j++) chunkSums[i * n + j] += basisFunction * basisFunctionsMatrix[offset + j];
+				}
+			}
+			return chunkSums;
+		}).reduce(ConditionalExpectationRegression::add).get();
+
+		double[][] matrix = new double[n][n];
+		for(int i=0; i<n; i++) {
+			for(int j=0; j<=i; j++) matrix[i][j] = matrix[j][i] = sums[i * n + j];
+		}
+
+		// Cholesky decomposition of the matrix scaled to unit diagonal
+		double[] scalingOfMatrix = new double[n];
+		double[][] factor = new double[n][n];
+		boolean isPositiveDefinite = true;
+		for(int i=0; i<n && isPositiveDefinite; i++) {
+			isPositiveDefinite = matrix[i][i] > 0;
+			scalingOfMatrix[i] = isPositiveDefinite ? 1.0 / Math.sqrt(matrix[i][i]) : 0.0;
+		}
+		for(int i=0; i<n && isPositiveDefinite; i++) {
+			for(int j=0; j<=i; j++) {
+				double sum = matrix[i][j] * scalingOfMatrix[i] * scalingOfMatrix[j];
+				for(int k=0; k<j; k++) sum -= factor[i][k] * factor[j][k];
+				if(i == j) {
+					// Pivot relative to the unit diagonal: a (numerically) linearly dependent basis function
+					if(sum <= 1E-12) {
+						isPositiveDefinite = false;
+						break;
+					}
+					factor[i][i] = Math.sqrt(sum);
+				}
+				else {
+					factor[i][j] = sum / factor[j][j];
+				}
+			}
+		}
+
+		xTx				= matrix;
+		scaling			= scalingOfMatrix;
+		choleskyFactor	= isPositiveDefinite ? factor : null;
+	}
+
+	private static double[] add(double[] sums, double[] other) {
+		for(int i=0; i<sums.length; i++) sums[i] += other[i];
+		return sums;
+	}
+
+	private interface ChunkOperation {
+		void apply(int from, int to);
+	}
+
+	private static int getNumberOfChunks(int numberOfPaths) {
+		return (numberOfPaths + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	private static void forEachChunk(int numberOfPaths, ChunkOperation operation) {
+		IntStream.range(0, getNumberOfChunks(numberOfPaths)).parallel().forEach(chunkIndex -> operation.apply(chunkIndex * CHUNK_SIZE, Math.min((chunkIndex+1) * CHUNK_SIZE, numberOfPaths)));
+	}
+}
@@ -0,0 +1,52 @@
+package com.timlummer.montecarlo;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.conditionalexpectation.MonteCarloConditionalExpectationRegression;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * Compares the regression of finmath (<code>MonteCarloConditionalExpectationRegression</code>) with
+ * <code>ConditionalExpectationRegression</code> on 10<sup>6</sup> paths, for the first and a repeated regression on the same basis.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ConditionalExpectationRegressionBenchmark {
+
+	public static void main(String[] args) {
+
+		int numberOfPaths	= 1000000;
+		int order			= 4;
+
+		BrownianMotion brownianMotion = new BrownianMotion(new TimeDiscretization(0.0, 2, 1.0), 1, numberOfPaths, 3141);
+		RandomVariableInterface regressor	= brownianMotion.getBrownianIncrement(0, 0).exp();
+		RandomVariableInterface values		= regressor.sub(1.0).floor(0.0).add(brownianMotion.getBrownianIncrement(1, 0));
+		RandomVariableInterface values2		= regressor.squared().add(brownianMotion.getBrownianIncrement(1, 0));
+
+		for(int run=0; run<3; run++) {
+			long start = System.nanoTime();
+			RandomVariableInterface[] basisFunctions = new RandomVariableInterface[order+1];
+			basisFunctions[0] = regressor.mult(0.0).add(1.0);
+			for(int power=1; power<=order; power++) basisFunctions[power] = basisFunctions[power-1].mult(regressor);
+			MonteCarloConditionalExpectationRegression regressionFinmath = new MonteCarloConditionalExpectationRegression(basisFunctions);
+			RandomVariableInterface estimateFinmath = regressionFinmath.getConditionalExpectation(values);
+			long millisFinmath = (System.nanoTime() - start) / 1000000;
+			start = System.nanoTime();
+			regressionFinmath.getConditionalExpectation(values2);
+			long millisFinmathRepeated = (System.nanoTime() - start) / 1000000;
+
+			start = System.nanoTime();
+			ConditionalExpectationRegression regression = ConditionalExpectationRegression.ofPolynomial(regressor, order);
+			RandomVariableInterface estimate = regression.getConditionalExpectation(values);
+			long millis = (System.nanoTime() - start) / 1000000;
+			start = System.nanoTime();
+			regression.getConditionalExpectation(values2);
+			long millisRepeated = (System.nanoTime() - start) / 1000000;
+
+			System.out.println("MonteCarloConditionalExpectationRegression: " + millisFinmath + " ms (repeated " + millisFinmathRepeated + " ms)"
+					+ "\tConditionalExpectationRegression: " + millis + " ms (repeated " + millisRepeated + " ms)"
+					+ "\tmaximum difference: " + estimate.sub(estimateFinmath).abs().getMax());
+		}
+	}
+}
@@ -0,0 +1,300 @@
+package com.timlummer.montecarlo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.timlummer.instrumentation.Instrumentation;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Monte-Carlo simulation of a multi-asset Black-Scholes model
+ * <br>
+ * 	<i>dS<sub>k</sub> = r S<sub>k</sub> dt + &sigma;<sub>k</sub> S<sub>k</sub> dW<sub>k</sub></i>, <i>dW<sub>j</sub> dW<sub>k</sub> = &rho;<sub>j,k</sub> dt</i>, <i>N(t) = exp(r t)</i>,
+ * <br>
+ * sampled with the exact lognormal transition (as <code>BlackScholesExactSimulation</code>), such that the time discretization only has
+ * to contain the dates on which the products observe the assets.
+ *
+ * The correlated increments are <i>dW = L dZ</i>, where <i>L</i> is the Cholesky factor of the correlation matrix (calculated once
+ * in the constructor) and <i>Z</i> a Brownian motion with independent factors, one per asset. The paths are calculated on the
+ * first request: the increments are read once, then the log-values of all assets are updated in parallel over chunks of paths on
+ * primitive arrays, one array per asset and time (structure of arrays).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class MultiAssetBlackScholesSimulation implements AssetModelMonteCarloSimulationInterface {
+
+	private static final int CHUNK_SIZE = 4096;
+
+	private final double[]					initialValues;
+	private final double					riskFreeRate;
+	private final double[]					volatilities;
+	private final double[][]				correlationMatrix;
+	private final BrownianMotionInterface	brownianMotion;
+	private final PathPrecision				pathPrecision;
+
+	private final double[][]				choleskyFactor;
+
+	private RandomVariableInterface[][]		assetValues;		// assetValues[timeIndex][assetIndex]
+
+	/**
+	 * Create the simulation on the time discretization of the given Brownian motion.
+	 *
+	 * @param initialValues The initial values S<sub>k</sub>(0).
+	 * @param riskFreeRate The risk free rate r.
+	 * @param volatilities The volatilities &sigma;<sub>k</sub>.
+	 * @param correlationMatrix The correlation matrix &rho; of the assets (positive definite).
+	 * @param brownianMotion The Brownian motion with independent factors, one for each asset, on the observation dates.
+	 * @param pathPrecision The precision of the simulated paths.
+	 */
+	public MultiAssetBlackScholesSimulation(double[] initialValues, double riskFreeRate, double[] volatilities, double[][] correlationMatrix,
+			BrownianMotionInterface brownianMotion, PathPrecision pathPrecision) {
+		super();
+		int numberOfAssets = initialValues.length;
+		if(volatilities.length != numberOfAssets || correlationMatrix.length != numberOfAssets) throw new IllegalArgumentException("Inconsistent number of assets.");
+		if(brownianMotion.getNumberOfFactors() != numberOfAssets) throw new IllegalArgumentException("The Brownian motion has to have one factor for each asset.");
+
+		this.initialValues		= initialValues;
+		this.riskFreeRate		= riskFreeRate;
+		this.volatilities		= volatilities;
+		this.correlationMatrix	= correlationMatrix;
+		this.brownianMotion		= brownianMotion;
+		this.pathPrecision		= pathPrecision;
+
+		this.choleskyFactor		= getCholeskyFactor(correlationMatrix);
+	}
+
+	/**
+	 * Create the simulation sampling the assets only on the given observation dates (and 0).
+	 *
+	 * @param initialValues The initial values S<sub>k</sub>(0).
+	 * @param riskFreeRate The risk free rate r.
+	 * @param volatilities The volatilities &sigma;<sub>k</sub>.
+	 * @param correlationMatrix The correlation matrix &rho; of the assets (positive definite).
+	 * @param observationDates The dates on which the assets are observed.
+	 * @param numberOfPaths The number of paths.
+	 * @param seed The seed of the random number generator.
+	 * @param pathPrecision The precision of the simulated paths.
+	 * @param brownianMotionGenerator The generator of the Brownian increments.
+	 * @return The simulation.
+	 */
+	public static MultiAssetBlackScholesSimulation create(double[] initialValues, double riskFreeRate, double[] volatilities, double[][] correlationMatrix,
+			double[] observationDates, int numberOfPaths, int seed, PathPrecision pathPrecision, BrownianMotionGenerator brownianMotionGenerator) {
+		TimeDiscretizationInterface timeDiscretization = BlackScholesExactSimulation.getObservationTimeDiscretization(observationDates);
+		return new MultiAssetBlackScholesSimulation(initialValues, riskFreeRate, volatilities, correlationMatrix,
+				brownianMotionGenerator.createBrownianMotion(timeDiscretization, initialValues.length /* numberOfFactors */, numberOfPaths, seed, pathPrecision.getRandomVariableFactory()),
+				pathPrecision);
+	}
+
+	private synchronized RandomVariableInterface[][] getAssetValues() {
+		if(assetValues != null) return assetValues;
+		Instrumentation.Timer timer = Instrumentation.start("MultiAssetBlackScholesSimulation.simulate");
+		try {
+			assetValues = simulate();
+		}
+		finally {
+			timer.close();
+		}
+		Instrumentation.count("MultiAssetBlackScholesSimulation.simulatedPathTimeSteps", (long)getNumberOfPaths() * getTimeDiscretization().getNumberOfTimeSteps() * initialValues.length);
+
+		return assetValues;
+	}
+
+	private RandomVariableInterface[][] simulate() {
+		TimeDiscretizationInterface timeDiscretization = getTimeDiscretization();
+		int numberOfTimeSteps	= timeDiscretization.getNumberOfTimeSteps();
+		int numberOfAssets		= initialValues.length;
+		int numberOfPaths		= getNumberOfPaths();
+
+		// Read the increments once (may trigger their generation), as [timeIndex][factor][path]
+		double[][][] increments = new double[numberOfTimeSteps][numberOfAssets][];
+		for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) {
+			for(int factor=0; factor<numberOfAssets; factor++) increments[timeIndex][factor] = brownianMotion.getBrownianIncrement(timeIndex, factor).getRealizations();
+		}
+
+		double[][] drifts = new double[numberOfTimeSteps][numberOfAssets];
+		for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) {
+			for(int assetIndex=0; assetIndex<numberOfAssets; assetIndex++) {
+				drifts[timeIndex][assetIndex] = (riskFreeRate - 0.5 * volatilities[assetIndex] * volatilities[assetIndex]) * timeDiscretization.getTimeStep(timeIndex);
+			}
+		}
+
+		// values[assetIndex][timeIndex][path], for timeIndex >= 1
+		double[][][] values = new double[numberOfAssets][numberOfTimeSteps+1][];
+		for(int assetIndex=0; assetIndex<numberOfAssets; assetIndex++) {
+			for(int timeIndex=1; timeIndex<=numberOfTimeSteps; timeIndex++) values[assetIndex][timeIndex] = new double[numberOfPaths];
+		}
+
+		int numberOfChunks = (numberOfPaths + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, numberOfChunks).parallel().forEach(chunkIndex -> {
+			int from	= chunkIndex * CHUNK_SIZE;
+			int to		= Math.min(from + CHUNK_SIZE, numberOfPaths);
+
+			double[][] logValues = new double[numberOfAssets][to - from];
+			for(int assetIndex=0; assetIndex<numberOfAssets; assetIndex++) Arrays.fill(logValues[assetIndex], Math.log(initialValues[assetIndex]));
+
+			for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) {
+				double[][] incrementsOfTime = increments[timeIndex];
+				for(int assetIndex=0; assetIndex<numberOfAssets; assetIndex++) {
+					double[] factorLoadings	= choleskyFactor[assetIndex];
+					double volatility		= volatilities[assetIndex];
+					double drift			= drifts[timeIndex][assetIndex];
+					double[] logValuesOfAsset	= logValues[assetIndex];
+					double[] valuesOfAsset		= values[assetIndex][timeIndex+1];
+					for(int path=from; path<to; path++) {
+						double increment = 0.0;
+						for(int factor=0; factor<=assetIndex; factor++) increment += factorLoadings[factor] * incrementsOfTime[factor][path];
+						logValuesOfAsset[path-from] += drift + volatility * increment;
+						valuesOfAsset[path] = Math.exp(logValuesOfAsset[path-from]);
+					}
+				}
+			}
+		});
+
+		RandomVariableInterface[][] assetValuesOfTimes = new RandomVariableInterface[numberOfTimeSteps+1][numberOfAssets];
+		for(int assetIndex=0; assetIndex<numberOfAssets; assetIndex++) {
+			assetValuesOfTimes[0][assetIndex] = pathPrecision.createRandomVariable(0.0, initialValues[assetIndex]);
+			for(int timeIndex=1; timeIndex<=numberOfTimeSteps; timeIndex++) {
+				assetValuesOfTimes[timeIndex][assetIndex] = pathPrecision.createRandomVariable(timeDiscretization.getTime(timeIndex), values[assetIndex][timeIndex]);
+			}
+		}
+
+		return assetValuesOfTimes;
+	}
+
+	@Override
+	public int getNumberOfAssets() {
+		return initialValues.length;
+	}
+
+	@Override
+	public RandomVariableInterface getAssetValue(int timeIndex, int assetIndex) throws CalculationException {
+		if(assetIndex < 0 || assetIndex >= initialValues.length) throw new IllegalArgumentException("The model has " + initialValues.length + " assets, requested asset " + assetIndex + ".");
+		return getAssetValues()[timeIndex][assetIndex];
+	}
+
+	@Override
+	public RandomVariableInterface getAssetValue(double time, int assetIndex) throws CalculationException {
+		int timeIndex = getTimeIndex(time);
+		if(timeIndex < 0) throw new IllegalArgumentException("Time " + time + " is not an observation date of the simulation.");
+		return getAssetValue(timeIndex, assetIndex);
+	}
+
+	@Override
+	public RandomVariableInterface getNumeraire(int timeIndex) throws CalculationException {
+		return getNumeraire(getTime(timeIndex));
+	}
+
+	@Override
+	public RandomVariableInterface getNumeraire(double time) throws CalculationException {
+		return pathPrecision.createRandomVariable(time, Math.exp(riskFreeRate * time));
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return brownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public TimeDiscretizationInterface getTimeDiscretization() {
+		return brownianMotion.getTimeDiscretization();
+	}
+
+	@Override
+	public double getTime(int timeIndex) {
+		return getTimeDiscretization().getTime(timeIndex);
+	}
+
+	@Override
+	public int getTimeIndex(double time) {
+		return getTimeDiscretization().getTimeIndex(time);
+	}
+
+	@Override
+	public RandomVariableInterface getRandomVariableForConstant(double value) {
+		return pathPrecision.createRandomVariable(value);
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(int timeIndex) throws CalculationException {
+		return pathPrecision.createRandomVariable(getTime(timeIndex), 1.0 / getNumberOfPaths());
+	}
+
+	@Override
+	public RandomVariableInterface getMonteCarloWeights(double time) throws CalculationException {
+		return pathPrecision.createRandomVariable(time, 1.0 / getNumberOfPaths());
+	}
+
+	/**
+	 * Returns a clone with modified <code>initialValues</code>, <code>riskFreeRate</code>, <code>volatilities</code> or
+	 * <code>correlationMatrix</code>, using the same Brownian motion (common random numbers).
+	 */
+	@Override
+	public MultiAssetBlackScholesSimulation getCloneWithModifiedData(Map<String, Object> dataModified) throws CalculationException {
+		Map<String, Object> data = new HashMap<String, Object>(dataModified);
+		double[]	newInitialValues		= data.containsKey("initialValues")		? (double[])data.remove("initialValues")				: initialValues;
+		double		newRiskFreeRate			= data.containsKey("riskFreeRate")		? ((Number)data.remove("riskFreeRate")).doubleValue()	: riskFreeRate;
+		double[]	newVolatilities			= data.containsKey("volatilities")		? (double[])data.remove("volatilities")					: volatilities;
+		double[][]	newCorrelationMatrix	= data.containsKey("correlationMatrix")	? (double[][])data.remove("correlationMatrix")			: correlationMatrix;
+		if(!data.isEmpty()) throw new IllegalArgumentException("Unsupported data: " + data.keySet());
+
+		return new MultiAssetBlackScholesSimulation(newInitialValues, newRiskFreeRate, newVolatilities, newCorrelationMatrix, brownianMotion, pathPrecision);
+	}
+
+	@Override
+	public MultiAssetBlackScholesSimulation getCloneWithModifiedSeed(int seed) throws CalculationException {
+		return new MultiAssetBlackScholesSimulation(initialValues, riskFreeRate, volatilities, correlationMatrix, brownianMotion.getCloneWithModifiedSeed(seed), pathPrecision);
+	}
+
+	public double[] getInitialValues() {
+		return initialValues.clone();
+	}
+
+	public double getRiskFreeRate() {
+		return riskFreeRate;
+	}
+
+	public double[] getVolatilities() {
+		return volatilities.clone();
+	}
+
+	public double[][] getCorrelationMatrix() {
+		double[][] correlationMatrixCopy = new double[correlationMatrix.length][];
+		for(int assetIndex=0; assetIndex<correlationMatrix.length; assetIndex++) correlationMatrixCopy[assetIndex] = correlationMatrix[assetIndex].clone();
+		return correlationMatrixCopy;
+	}
+
+	public BrownianMotionInterface getBrownianMotion() {
+		return brownianMotion;
+	}
+
+	/*
+	 * The lower triangular L with L L' = correlationMatrix.
+	 */
+	private static double[][] getCholeskyFactor(double[][] correlationMatrix) {
+		int n = correlationMatrix.length;
+		double[][] factor = new double[n][n];
+		for(int i=0; i<n; i++) {
+			if(correlationMatrix[i].length != n) throw new IllegalArgumentException("The correlation matrix is not square.");
+			for(int j=0; j<=i; j++) {
+				double sum = correlationMatrix[i][j];
+				for(int k=0; k<j; k++) sum -= factor[i][k] * factor[j][k];
+				if(i == j) {
+					if(sum <= 0) throw new IllegalArgumentException("The correlation matrix is not positive definite.");
+					factor[i][i] = Math.sqrt(sum);
+				}
+				else {
+					factor[i][j] = sum / factor[j][j];
+				}
+			}
+		}
+		return factor;
+	}
+}
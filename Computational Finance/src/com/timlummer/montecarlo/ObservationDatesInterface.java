@@ -0,0 +1,17 @@
+package com.timlummer.montecarlo;
+
+/**
+ * Interface implemented by products which declare the times on which they observe the model, i.e., the fixing,
+ * exercise and payment dates at which they request model quantities (asset values, LIBORs, numeraires).
+ * <code>TimeDiscretizationBuilder</code> merges these dates into the simulation time discretization of a portfolio.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public interface ObservationDatesInterface {
+
+	/**
+	 * @return The times on which the product observes the model (in any order, may contain duplicates).
+	 */
+	double[] getObservationDates();
+}
@@ -0,0 +1,205 @@
+package com.timlummer.montecarlo;
+
+import java.util.stream.IntStream;
+
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.AbstractRandomVariableFactory;
+import net.finmath.montecarlo.BrownianMotionInterface;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.stochastic.RandomVariableInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * A Brownian motion whose increments are generated in parallel over blocks of paths.
+ *
+ * The random numbers are counter based: the uniform used for path <i>p</i>, time index <i>i</i> and factor <i>k</i> is the
+ * element with index <i>(p * numberOfTimeSteps + i) * numberOfFactors + k</i> of a SplitMix64 stream, which can be
+ * evaluated directly (skip-ahead is a multiplication). Hence every path is an independent sub-stream and the increments are
+ * identical for any number of threads and any order of generation. Moreover, the first <i>n</i> paths do not depend on the
+ * total number of paths, and a range of paths of the stream can be generated alone (<code>firstPath</code>), e.g. a shard of
+ * a distributed simulation, whose paths are then identical to the same paths of a simulation of all paths. The uniforms are mapped to normals by the inverse cumulative distribution function, as in
+ * <code>BrownianMotion</code>. (The numbers differ from those of <code>BrownianMotion</code>, which uses a Mersenne Twister.)
+ *
+ * The increments are generated lazily on first access, using the common fork-join pool.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ParallelBrownianMotion implements BrownianMotionInterface {
+
+	private static final long	GOLDEN_GAMMA				= 0x9E3779B97F4A7C15L;
+	private static final int	NUMBER_OF_PATHS_PER_BLOCK	= 1024;
+
+	private final TimeDiscretizationInterface	timeDiscretization;
+	private final int							numberOfFactors;
+	private final int							numberOfPaths;
+	private final long							firstPath;
+	private final int							seed;
+	private final AbstractRandomVariableFactory	randomVariableFactory;
+
+	private RandomVariableInterface[][]				brownianIncrements;		// [timeIndex][factor]
+
+	/**
+	 * Create a Brownian motion on the paths <i>firstPath, ..., firstPath + numberOfPaths - 1</i> of the stream of the given seed.
+	 * Path <i>p</i> of this Brownian motion is path <i>firstPath + p</i> of the Brownian motion with <code>firstPath</code> 0.
+	 *
+	 * @param timeDiscretization The time discretization used for the Brownian increments.
+	 * @param numberOfFactors Number of factors.
+	 * @param firstPath The index of the first path in the stream.
+	 * @param numberOfPaths Number of paths to simulate.
+	 * @param seed The seed of the random number generator.
+	 * @param randomVariableFactory Factory to be used to create random variable.
+	 */
+	public ParallelBrownianMotion(TimeDiscretizationInterface timeDiscretization, int numberOfFactors, long firstPath, int numberOfPaths, int seed, AbstractRandomVariableFactory randomVariableFactory) {
+		super();
+		if(firstPath < 0) throw new IllegalArgumentException("First path must not be negative.");
+		this.timeDiscretization		= timeDiscretization;
+		this.numberOfFactors		= numberOfFactors;
+		this.firstPath				= firstPath;
+		this.numberOfPaths			= numberOfPaths;
+		this.seed					= seed;
+		this.randomVariableFactory	= randomVariableFactory;
+	}
+
+	/**
+	 * Create a Brownian motion.
+	 *
+	 * @param timeDiscretization The time discretization used for the Brownian increments.
+	 * @param numberOfFactors Number of factors.
+	 * @param numberOfPaths Number of paths to simulate.
+	 * @param seed The seed of the random number generator.
+	 * @param randomVariableFactory Factory to be used to create random variable.
+	 */
+	public ParallelBrownianMotion(TimeDiscretizationInterface timeDiscretization, int numberOfFactors, int numberOfPaths, int seed, AbstractRandomVariableFactory randomVariableFactory) {
+		this(timeDiscretization, numberOfFactors, 0, numberOfPaths, seed, randomVariableFactory);
+	}
+
+	/**
+	 * Create a Brownian motion.
+	 *
+	 * @param timeDiscretization The time discretization used for the Brownian increments.
+	 * @param numberOfFactors Number of factors.
+	 * @param numberOfPaths Number of paths to simulate.
+	 * @param seed The seed of the random number generator.
+	 */
+	public ParallelBrownianMotion(TimeDiscretizationInterface timeDiscretization, int numberOfFactors, int numberOfPaths, int seed) {
+		this(timeDiscretization, numberOfFactors, numberOfPaths, seed, new RandomVariableFactory());
+	}
+
+	@Override
+	public RandomVariableInterface getBrownianIncrement(int timeIndex, int factor) {
+		if(brownianIncrements == null) doGenerateBrownianMotion();
+		return brownianIncrements[timeIndex][factor];
+	}
+
+	@Override
+	public RandomVariableInterface getIncrement(int timeIndex, int factor) {
+		return getBrownianIncrement(timeIndex, factor);
+	}
+
+	private synchronized void doGenerateBrownianMotion() {
+		if(brownianIncrements != null) return;
+
+		int numberOfTimeSteps = timeDiscretization.getNumberOfTimeSteps();
+		double[][][] increments = new double[numberOfTimeSteps][numberOfFactors][numberOfPaths];
+
+		double[] sqrtOfTimeStep = new double[numberOfTimeSteps];
+		for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) sqrtOfTimeStep[timeIndex] = Math.sqrt(timeDiscretization.getTimeStep(timeIndex));
+
+		long key = mix(seed);
+		int numberOfBlocks = (numberOfPaths + NUMBER_OF_PATHS_PER_BLOCK - 1) / NUMBER_OF_PATHS_PER_BLOCK;
+
+		// Each block writes a disjoint range of paths
+		IntStream.range(0, numberOfBlocks).parallel().forEach(blockIndex -> {
+			int firstPathOfBlock	= blockIndex * NUMBER_OF_PATHS_PER_BLOCK;
+			int lastPathOfBlock		= Math.min(firstPathOfBlock + NUMBER_OF_PATHS_PER_BLOCK, numberOfPaths);
+			for(int path=firstPathOfBlock; path<lastPathOfBlock; path++) {
+				long counter = (firstPath + path) * numberOfTimeSteps * numberOfFactors;
+				for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) {
+					for(int factor=0; factor<numberOfFactors; factor++) {
+						double uniform = getUniform(key, counter++);
+						increments[timeIndex][factor][path] = NormalDistribution.inverseCumulativeDistribution(uniform) * sqrtOfTimeStep[timeIndex];
+					}
+				}
+			}
+		});
+
+		RandomVariableInterface[][] brownianIncrements = new RandomVariableInterface[numberOfTimeSteps][numberOfFactors];
+		for(int timeIndex=0; timeIndex<numberOfTimeSteps; timeIndex++) {
+			double time = timeDiscretization.getTime(timeIndex+1);
+			for(int factor=0; factor<numberOfFactors; factor++) {
+				brownianIncrements[timeIndex][factor] = randomVariableFactory.createRandomVariable(time, increments[timeIndex][factor]);
+				increments[timeIndex][factor] = null;
+			}
+		}
+		this.brownianIncrements = brownianIncrements;
+	}
+
+	/**
+	 * Returns the element with the given index of the SplitMix64 stream with the given key, mapped to (0,1).
+	 */
+	private static double getUniform(long key, long counter) {
+		long bits = mix(key + (counter + 1) * GOLDEN_GAMMA);
+		return ((bits >>> 11) + 0.5) * 0x1.0p-53;
+	}
+
+	/**
+	 * The SplitMix64 finalizer.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public TimeDiscretizationInterface getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	@Override
+	public RandomVariableInterface getRandomVariableForConstant(double value) {
+		return randomVariableFactory.createRandomVariable(value);
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return The index of the first path in the stream.
+	 */
+	public long getFirstPath() {
+		return firstPath;
+	}
+
+	@Override
+	public BrownianMotionInterface getCloneWithModifiedSeed(int seed) {
+		return new ParallelBrownianMotion(timeDiscretization, numberOfFactors, firstPath, numberOfPaths, seed, randomVariableFactory);
+	}
+
+	@Override
+	public BrownianMotionInterface getCloneWithModifiedTimeDiscretization(TimeDiscretizationInterface newTimeDiscretization) {
+		return new ParallelBrownianMotion(newTimeDiscretization, numberOfFactors, firstPath, numberOfPaths, seed, randomVariableFactory);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString()
+				+ "\n" + "timeDiscretization: " + timeDiscretization.toString()
+				+ "\n" + "firstPath: " + firstPath
+				+ "\n" + "numberOfPaths: " + numberOfPaths
+				+ "\n" + "numberOfFactors: " + numberOfFactors
+				+ "\n" + "seed: " + seed;
+	}
+}
@@ -0,0 +1,106 @@
+package com.timlummer.montecarlo;
+
+import java.util.function.DoubleUnaryOperator;
+
+import net.finmath.montecarlo.AbstractRandomVariableFactory;
+import net.finmath.montecarlo.RandomVariable;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.RandomVariableLowMemory;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * The floating point precision used to store the realizations of simulated paths.
+ *
+ * <code>SINGLE</code> stores the realizations as <code>float</code> (<code>RandomVariableLowMemory</code>), which halves
+ * the memory and memory bandwidth of the simulation, at roughly seven significant digits per realization.
+ * Reductions (e.g. <code>getAverage</code>) are still accumulated in double precision.
+ *
+ * The precision is chosen when the model is created (via <code>getRandomVariableFactory()</code>). Products creating
+ * random variables from path-wise arrays should use <code>of(RandomVariableInterface)</code> on one of the model's
+ * random variables, such that their results keep the precision of the model.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public enum PathPrecision {
+	SINGLE,
+	DOUBLE;
+
+	/**
+	 * @return A random variable factory creating random variables of this precision.
+	 */
+	public AbstractRandomVariableFactory getRandomVariableFactory() {
+		return new RandomVariableFactory(this == DOUBLE);
+	}
+
+	/**
+	 * Creates a deterministic random variable of this precision.
+	 *
+	 * @param value The value.
+	 * @return The random variable.
+	 */
+	public RandomVariableInterface createRandomVariable(double value) {
+		return this == DOUBLE ? new RandomVariable(value) : new RandomVariableLowMemory(value);
+	}
+
+	/**
+	 * Creates a deterministic random variable of this precision.
+	 *
+	 * @param time The filtration time of the random variable.
+	 * @param value The value.
+	 * @return The random variable.
+	 */
+	public RandomVariableInterface createRandomVariable(double time, double value) {
+		return this == DOUBLE ? new RandomVariable(time, value) : new RandomVariableLowMemory(time, value);
+	}
+
+	/**
+	 * Creates a random variable of this precision.
+	 *
+	 * @param time The filtration time of the random variable.
+	 * @param realizations The realizations.
+	 * @return The random variable.
+	 */
+	public RandomVariableInterface createRandomVariable(double time, double[] realizations) {
+		return this == DOUBLE ? new RandomVariable(time, realizations) : new RandomVariableLowMemory(time, realizations);
+	}
+
+	/**
+	 * Returns the precision in which the given random variable stores its realizations.
+	 *
+	 * @param randomVariable A random variable.
+	 * @return The precision of its realizations.
+	 */
+	public static PathPrecision of(RandomVariableInterface randomVariable) {
+		return randomVariable instanceof RandomVariableLowMemory ? SINGLE : DOUBLE;
+	}
+
+	/**
+	 * Applies the operator to the random variable, such that the result keeps the precision of the argument
+	 * (<code>RandomVariableLowMemory.apply</code> returns a double precision random variable).
+	 *
+	 * @param randomVariable The random variable.
+	 * @param operator The operator applied to each realization.
+	 * @return The random variable <i>operator(randomVariable)</i> in the precision of <code>randomVariable</code>.
+	 */
+	public static RandomVariableInterface apply(RandomVariableInterface randomVariable, DoubleUnaryOperator operator) {
+		if(of(randomVariable) == DOUBLE) return randomVariable.apply(operator);
+		if(randomVariable.isDeterministic()) {
+			return new RandomVariableLowMemory(randomVariable.getFiltrationTime(), operator.applyAsDouble(randomVariable.get(0)));
+		}
+
+		double[] realizations = new double[randomVariable.size()];
+		for(int path=0; path<realizations.length; path++) realizations[path] = operator.applyAsDouble(randomVariable.get(path));
+		return SINGLE.createRandomVariable(randomVariable.getFiltrationTime(), realizations);
+	}
+
+	/**
+	 * Returns the precision given by the system property <code>pathPrecision</code> (<code>SINGLE</code> or <code>DOUBLE</code>),
+	 * defaulting to <code>DOUBLE</code>.
+	 *
+	 * @return The precision.
+	 */
+	public static PathPrecision fromSystemProperty() {
+		return valueOf(System.getProperty("pathPrecision", DOUBLE.name()).toUpperCase());
+	}
+}
@@ -0,0 +1,119 @@
+package com.timlummer.montecarlo;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Builds the minimal simulation time discretization of a portfolio from the observation dates of its products.
+ *
+ * The time discretization consists of 0 and all observation dates, plus
+ * <ul>
+ * 	<li>the times of a required grid up to the last observation date (<code>addRequiredGrid</code>), e.g. the tenor
+ * 		of a LIBOR market model, whose numeraire needs the LIBORs fixed on all tenor dates before the payment date,</li>
+ * 	<li>equidistant intermediate times, such that no time step exceeds the maximum time step (<code>setMaximumTimeStep</code>),
+ * 		e.g. for an Euler scheme which is not exact.</li>
+ * </ul>
+ * Times closer than 1E-8 are merged.
+ *
+ * Usage:
+ * <pre>
+ * TimeDiscretizationInterface timeDiscretization = new TimeDiscretizationBuilder()
+ * 		.addProducts(caplet, cap, swaption)
+ * 		.addRequiredGrid(liborPeriodDiscretization)
+ * 		.build();
+ * </pre>
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class TimeDiscretizationBuilder {
+
+	private static final double TIME_TOLERANCE = 1E-8;
+
+	private final TreeSet<Double>			observationDates	= new TreeSet<Double>();
+	private TimeDiscretizationInterface		requiredGrid;
+	private double							maximumTimeStep		= Double.POSITIVE_INFINITY;
+
+	/**
+	 * Adds observation dates. Negative times are ignored.
+	 *
+	 * @param times The observation dates.
+	 * @return This builder.
+	 */
+	public TimeDiscretizationBuilder addTimes(double... times) {
+		for(double time : times) if(time >= 0) observationDates.add(time);
+		return this;
+	}
+
+	/**
+	 * Adds the observation dates of the given products.
+	 *
+	 * @param products The products.
+	 * @return This builder.
+	 */
+	public TimeDiscretizationBuilder addProducts(ObservationDatesInterface... products) {
+		for(ObservationDatesInterface product : products) addTimes(product.getObservationDates());
+		return this;
+	}
+
+	/**
+	 * Sets a grid whose times up to the last observation date are part of the time discretization.
+	 *
+	 * @param requiredGrid The grid (may be null).
+	 * @return This builder.
+	 */
+	public TimeDiscretizationBuilder addRequiredGrid(TimeDiscretizationInterface requiredGrid) {
+		this.requiredGrid = requiredGrid;
+		return this;
+	}
+
+	/**
+	 * @param maximumTimeStep The maximum time step of the time discretization (infinite by default).
+	 * @return This builder.
+	 */
+	public TimeDiscretizationBuilder setMaximumTimeStep(double maximumTimeStep) {
+		if(!(maximumTimeStep > 0)) throw new IllegalArgumentException("Maximum time step must be positive.");
+		this.maximumTimeStep = maximumTimeStep;
+		return this;
+	}
+
+	/**
+	 * @return The time discretization.
+	 */
+	public TimeDiscretizationInterface build() {
+		TreeSet<Double> times = new TreeSet<Double>(observationDates);
+		times.add(0.0);
+
+		double lastTime = times.last();
+		if(requiredGrid != null) {
+			for(int timeIndex=0; timeIndex<requiredGrid.getNumberOfTimes(); timeIndex++) {
+				double time = requiredGrid.getTime(timeIndex);
+				if(time >= 0 && time <= lastTime + TIME_TOLERANCE) times.add(time);
+			}
+		}
+
+		double[] timesMerged = new double[times.size()];
+		int numberOfTimes = 0;
+		for(double time : times) {
+			if(numberOfTimes > 0 && time - timesMerged[numberOfTimes-1] < TIME_TOLERANCE) continue;
+			timesMerged[numberOfTimes++] = time;
+		}
+		timesMerged = Arrays.copyOf(timesMerged, numberOfTimes);
+
+		if(Double.isInfinite(maximumTimeStep) || numberOfTimes < 2) return new TimeDiscretization(timesMerged);
+
+		// Equidistant intermediate times on steps exceeding the maximum time step
+		TreeSet<Double> timesRefined = new TreeSet<Double>();
+		timesRefined.add(timesMerged[0]);
+		for(int timeIndex=1; timeIndex<numberOfTimes; timeIndex++) {
+			double timeStep = timesMerged[timeIndex] - timesMerged[timeIndex-1];
+			int numberOfSubSteps = (int)Math.ceil(timeStep / maximumTimeStep - TIME_TOLERANCE);
+			for(int subStep=1; subStep<numberOfSubSteps; subStep++) timesRefined.add(timesMerged[timeIndex-1] + subStep * timeStep / numberOfSubSteps);
+			timesRefined.add(timesMerged[timeIndex]);
+		}
+		return new TimeDiscretization(timesRefined);
+	}
+}
@@ -0,0 +1,74 @@
+package com.timlummer.montecarlo;
+
+import com.timlummer.InterestDerivatives.AbstractLIBORFixingProduct;
+import com.timlummer.InterestDerivatives.BermudanSwaption;
+import com.timlummer.InterestDerivatives.Cap;
+import com.timlummer.InterestDerivatives.Caplet;
+import com.timlummer.InterestDerivatives.DigitalCaplet;
+import com.timlummer.InterestDerivatives.DigitalFloorlet;
+import com.timlummer.LIBOR.LIBORinArrears;
+
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveInterface;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Values a book of LIBOR products on the full simulation time discretization of <code>LIBORinArrears</code> (20 years) and on the
+ * minimal time discretization of the book (its observation dates and the tenor dates up to the last payment).
+ *
+ * The digital caplet and floorlet are checked against their parity: together they pay the period length, hence their sum is
+ * the period length times the (Monte-Carlo) zero coupon bond of the payment date.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class TimeDiscretizationBuilderTest {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfPaths	= 5000;
+		int numberOfFactors	= 5;
+
+		double[] fixingDates	= { 2.0, 2.5, 3.0, 3.5 };
+		double[] paymentDates	= { 2.5, 3.0, 3.5, 4.0 };
+		double[] strikes		= { 0.05, 0.05, 0.05, 0.05 };
+
+		AbstractLIBORFixingProduct[] book = {
+				new Caplet(2.0, 2.5, 0.05, false),
+				new DigitalCaplet(2.0, 2.0, 2.5, 0.05),
+				new DigitalFloorlet(2.0, 2.5, 0.05),
+				new Cap(fixingDates, paymentDates, strikes),
+				new BermudanSwaption(fixingDates, paymentDates, strikes)
+		};
+
+		TimeDiscretizationInterface timeDiscretizationOfBook = new TimeDiscretizationBuilder()
+				.addProducts(book)
+				.addRequiredGrid(LIBORinArrears.createLIBORPeriodDiscretization())
+				.build();
+
+		DiscountCurveInterface discountCurve = new DiscountCurveFromForwardCurve(LIBORinArrears.createForwardCurve());
+
+		TimeDiscretizationInterface[] timeDiscretizations = { LIBORinArrears.createTimeDiscretization(), timeDiscretizationOfBook };
+		for(TimeDiscretizationInterface timeDiscretization : timeDiscretizations) {
+			long millisStart = System.currentTimeMillis();
+			LIBORModelMonteCarloSimulationInterface model = LIBORinArrears.createLIBORMarketModel(numberOfPaths, numberOfFactors, 0.01,
+					LIBORinArrears.VOLATILITY_PARAMETERS, timeDiscretization, new RandomVariableFactory(), BrownianMotionGenerator.SEQUENTIAL);
+
+			System.out.print(timeDiscretization.getNumberOfTimeSteps() + " time steps up to " + timeDiscretization.getTime(timeDiscretization.getNumberOfTimeSteps()) + ":");
+			double[] values = new double[book.length];
+			for(int productIndex=0; productIndex<book.length; productIndex++) {
+				values[productIndex] = book[productIndex].getValue(model);
+				System.out.print("\t" + values[productIndex]);
+			}
+			System.out.println("\t(" + (System.currentTimeMillis() - millisStart) + " ms)");
+
+			double bond = model.getNumeraire(0.0).div(model.getMonteCarloWeights(0.0)).div(model.getNumeraire(2.5)).mult(model.getMonteCarloWeights(2.5)).getAverage();
+			double deviation = Math.abs(values[1] + values[2] - 0.5 * bond);
+			System.out.println("Digital caplet + floorlet:\t" + (values[1] + values[2]) + "\treference " + 0.5 * bond + " (analytic "
+					+ 0.5 * discountCurve.getDiscountFactor(2.5) + ")\tdeviation " + deviation);
+			if(deviation > 1E-10) throw new IllegalStateException("Digital caplet and floorlet violate their parity, deviation " + deviation + ".");
+		}
+	}
+}
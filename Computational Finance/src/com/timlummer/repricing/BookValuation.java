@@ -0,0 +1,65 @@
+package com.timlummer.repricing;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A valuation of the book published by the <code>RepricingService</code>: the values of the products and the state of the quotes
+ * they are based on.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BookValuation {
+
+	private final Map<String, Double>	values;
+	private final long					quoteSequenceNumber;
+	private final long					numberOfQuotes;
+	private final long					latencyNanos;
+	private final long					repricingNanos;
+
+	/**
+	 * @param values The values of the products by name.
+	 * @param quoteSequenceNumber The sequence number of the last quote update included.
+	 * @param numberOfQuotes The number of quote updates included since the previous valuation (coalesced into this valuation).
+	 * @param latencyNanos The time from the first included quote update to the publication.
+	 * @param repricingNanos The time of the bootstrap and the valuation.
+	 */
+	public BookValuation(Map<String, Double> values, long quoteSequenceNumber, long numberOfQuotes, long latencyNanos, long repricingNanos) {
+		super();
+		this.values					= Collections.unmodifiableMap(values);
+		this.quoteSequenceNumber	= quoteSequenceNumber;
+		this.numberOfQuotes			= numberOfQuotes;
+		this.latencyNanos			= latencyNanos;
+		this.repricingNanos			= repricingNanos;
+	}
+
+	public Map<String, Double> getValues() {
+		return values;
+	}
+
+	public double getValue(String productName) {
+		return values.get(productName);
+	}
+
+	public long getQuoteSequenceNumber() {
+		return quoteSequenceNumber;
+	}
+
+	public long getNumberOfQuotes() {
+		return numberOfQuotes;
+	}
+
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	public long getRepricingNanos() {
+		return repricingNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "quote " + quoteSequenceNumber + " (" + numberOfQuotes + " updates, latency " + latencyNanos / 1000000 + " ms, repricing " + repricingNanos / 1000000 + " ms): " + values;
+	}
+}
@@ -0,0 +1,26 @@
+package com.timlummer.repricing;
+
+/**
+ * Receives the book valuations published by the <code>RepricingService</code>.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public interface BookValuationListener {
+
+	/**
+	 * Called on the repricing thread for every new valuation of the book.
+	 *
+	 * @param valuation The valuation.
+	 */
+	void onValuation(BookValuation valuation);
+
+	/**
+	 * Called on the repricing thread if a repricing fails. The service keeps running with the next quote update.
+	 * The default does nothing, the last error is also available from <code>RepricingService.getLastError</code>.
+	 *
+	 * @param exception The exception of the repricing.
+	 */
+	default void onError(Exception exception) {
+	}
+}
@@ -0,0 +1,55 @@
+package com.timlummer.repricing;
+
+/**
+ * A market quote of a curve instrument of <code>Bootstrap</code>: a LIBOR (deposit) rate or a swap rate with its maturity.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class Quote {
+
+	public enum Instrument {
+		LIBOR,
+		SWAP
+	}
+
+	private final Instrument	instrument;
+	private final double		maturity;
+	private final double		rate;
+
+	/**
+	 * @param instrument The type of the instrument.
+	 * @param maturity The maturity of the instrument.
+	 * @param rate The quoted rate.
+	 */
+	public Quote(Instrument instrument, double maturity, double rate) {
+		super();
+		this.instrument	= instrument;
+		this.maturity	= maturity;
+		this.rate		= rate;
+	}
+
+	/**
+	 * @return The key of the instrument (a later quote with the same key replaces this quote).
+	 */
+	public String getKey() {
+		return instrument + "_" + maturity;
+	}
+
+	public Instrument getInstrument() {
+		return instrument;
+	}
+
+	public double getMaturity() {
+		return maturity;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	@Override
+	public String toString() {
+		return getKey() + ": " + rate;
+	}
+}
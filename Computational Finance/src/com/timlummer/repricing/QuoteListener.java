@@ -0,0 +1,17 @@
+package com.timlummer.repricing;
+
+/**
+ * Receives quote updates from a feed.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public interface QuoteListener {
+
+	/**
+	 * Called for every quote update. Implementations have to return quickly, since the feed calls them on its thread.
+	 *
+	 * @param quote The new quote.
+	 */
+	void onQuote(Quote quote);
+}
@@ -0,0 +1,59 @@
+package com.timlummer.repricing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A local stand-in for a market data feed: replays the quote updates of a file with their original timing.
+ *
+ * Each line of the file is <code>delayMillis;instrument;maturity;rate</code>, where the delay is the time since the
+ * previous update (e.g. <code>0;SWAP;2.0;0.0086</code>). Empty lines and lines starting with <code>#</code> are skipped.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class ReplayQuoteFeed {
+
+	private final Path		file;
+	private final double	speed;
+
+	/**
+	 * @param file The file of the quote updates.
+	 * @param speed The replay speed (1.0 is the original timing, 2.0 replays twice as fast).
+	 */
+	public ReplayQuoteFeed(Path file, double speed) {
+		super();
+		this.file	= file;
+		this.speed	= speed;
+	}
+
+	/**
+	 * Replays the file on the calling thread.
+	 *
+	 * @param listener The receiver of the quote updates.
+	 * @return The number of quote updates sent.
+	 * @throws IOException Thrown if the file cannot be read.
+	 * @throws InterruptedException Thrown if the thread is interrupted while waiting for the next update.
+	 */
+	public long replay(QuoteListener listener) throws IOException, InterruptedException {
+		long numberOfQuotes = 0;
+		try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) continue;
+
+				String[] fields = line.split(";");
+				long delayMillis = Math.round(Long.parseLong(fields[0].trim()) / speed);
+				if(delayMillis > 0) Thread.sleep(delayMillis);
+
+				listener.onQuote(new Quote(Quote.Instrument.valueOf(fields[1].trim()), Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim())));
+				numberOfQuotes++;
+			}
+		}
+		return numberOfQuotes;
+	}
+}
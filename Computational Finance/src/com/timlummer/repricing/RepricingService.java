@@ -0,0 +1,309 @@
+package com.timlummer.repricing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.timlummer.Ex2.Bootstrap;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * A long-running service which reprices a book of LIBOR products whenever the curve quotes change.
+ *
+ * On a repricing the curve is bootstrapped from the latest quotes (<code>Bootstrap.bootstrapDiscountFactors</code>), the initial
+ * forward curve of the LIBOR market model is replaced (<code>getCloneWithModifiedData</code>, which keeps the Brownian motion,
+ * i.e., the random numbers of the simulation) and the book is valued and published to the listener.
+ *
+ * Quote updates only replace the latest quote of their instrument and signal a repricing request. There is at most one
+ * pending request: updates arriving during a repricing are coalesced into the next repricing, which uses the then latest quotes.
+ * Hence the latency of an update is bounded by about two repricing times, independent of the update rate.
+ *
+ * A repricing takes the latest quotes, their sequence number and the time of the first pending update in one step
+ * (under the quote lock, which an update holds while it is recorded), such that every update is attributed to exactly one
+ * repricing. A failed repricing is reported to the listener and to the threads waiting for its updates in <code>awaitQuotes</code>.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class RepricingService implements QuoteListener, AutoCloseable {
+
+	private final LIBORModelMonteCarloSimulationInterface			model;
+	private final Map<String, AbstractLIBORMonteCarloProduct>		book;
+	private final double											swapPeriodLength;
+	private final BookValuationListener								listener;
+
+	private final Map<String, Quote>			quotes					= new ConcurrentHashMap<String, Quote>();
+	private final AtomicLong					quoteSequenceNumber		= new AtomicLong();
+	private final AtomicLong					firstPendingQuoteNanos	= new AtomicLong();
+	private final BlockingQueue<Boolean>		repricingRequests		= new ArrayBlockingQueue<Boolean>(1);
+	private final AtomicLong					numberOfRepricings		= new AtomicLong();
+	private final AtomicLong					numberOfErrors			= new AtomicLong();
+	private final Object						quoteLock				= new Object();
+	private final Lock							valuationLock			= new ReentrantLock();
+	private final Condition						valuationPublished		= valuationLock.newCondition();
+
+	private volatile BookValuation				lastValuation;
+	private volatile Exception					lastError;
+	private long								lastErrorQuoteSequenceNumber = -1;		// Guarded by valuationLock
+	private volatile boolean					isClosed;
+	private Thread								repricingThread;
+
+	/**
+	 * Create the service.
+	 *
+	 * @param model The LIBOR market model (its forward curve is replaced by the bootstrapped curve).
+	 * @param book The products by name.
+	 * @param initialQuotes The initial quotes of the curve instruments.
+	 * @param swapPeriodLength The period length of the swaps.
+	 * @param listener The receiver of the valuations.
+	 */
+	public RepricingService(LIBORModelMonteCarloSimulationInterface model, Map<String, AbstractLIBORMonteCarloProduct> book, Quote[] initialQuotes,
+			double swapPeriodLength, BookValuationListener listener) {
+		super();
+		this.model				= model;
+		this.book				= new LinkedHashMap<String, AbstractLIBORMonteCarloProduct>(book);
+		this.swapPeriodLength	= swapPeriodLength;
+		this.listener			= listener;
+
+		for(Quote quote : initialQuotes) quotes.put(quote.getKey(), quote);
+	}
+
+	/**
+	 * Starts the repricing thread and requests the valuation of the initial quotes.
+	 */
+	public synchronized void start() {
+		if(repricingThread != null) throw new IllegalStateException("Service already started.");
+
+		repricingThread = new Thread(this::runRepricing, "repricing");
+		repricingThread.setDaemon(true);
+		repricingThread.start();
+
+		firstPendingQuoteNanos.compareAndSet(0, System.nanoTime());
+		repricingRequests.offer(Boolean.TRUE);
+	}
+
+	@Override
+	public void onQuote(Quote quote) {
+		synchronized(quoteLock) {
+			quotes.put(quote.getKey(), quote);
+			firstPendingQuoteNanos.compareAndSet(0, System.nanoTime());
+			quoteSequenceNumber.incrementAndGet();
+		}
+
+		// Does nothing if a request is already pending (the update is coalesced into it)
+		repricingRequests.offer(Boolean.TRUE);
+	}
+
+	private void runRepricing() {
+		long lastQuoteSequenceNumber = -1;
+		while(!isClosed) {
+			try {
+				repricingRequests.take();
+			}
+			catch(InterruptedException e) {
+				break;
+			}
+			if(isClosed) break;
+
+			// Snapshot of the quotes, consistent with their sequence number and the time of the first update not yet included
+			List<Quote>	quotesOfRepricing;
+			long		sequenceNumber;
+			long		firstQuoteNanos;
+			synchronized(quoteLock) {
+				quotesOfRepricing	= new ArrayList<Quote>(quotes.values());
+				sequenceNumber		= quoteSequenceNumber.get();
+				firstQuoteNanos		= firstPendingQuoteNanos.getAndSet(0);
+			}
+			if(sequenceNumber == lastQuoteSequenceNumber) continue;		// Updates were included in the previous repricing
+
+			long repricingStart = System.nanoTime();
+			try {
+				Map<String, Double> values = getValues(quotesOfRepricing);
+				long publicationNanos = System.nanoTime();
+
+				BookValuation valuation = new BookValuation(values, sequenceNumber, sequenceNumber - Math.max(lastQuoteSequenceNumber, 0),
+						publicationNanos - (firstQuoteNanos > 0 ? firstQuoteNanos : repricingStart), publicationNanos - repricingStart);
+				lastQuoteSequenceNumber = sequenceNumber;
+				numberOfRepricings.incrementAndGet();
+				listener.onValuation(valuation);
+
+				valuationLock.lock();
+				try {
+					lastValuation = valuation;
+					valuationPublished.signalAll();
+				}
+				finally {
+					valuationLock.unlock();
+				}
+			}
+			catch(CalculationException | RuntimeException e) {
+				numberOfErrors.incrementAndGet();
+
+				valuationLock.lock();
+				try {
+					lastError = e;
+					lastErrorQuoteSequenceNumber = sequenceNumber;
+					valuationPublished.signalAll();
+				}
+				finally {
+					valuationLock.unlock();
+				}
+				listener.onError(e);
+			}
+		}
+	}
+
+	/**
+	 * Bootstraps the curve from the given quotes and values the book.
+	 *
+	 * @param quotes The quotes of the curve instruments.
+	 * @return The values of the products by name.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public Map<String, Double> getValues(List<Quote> quotes) throws CalculationException {
+		LIBORModelMonteCarloSimulationInterface modelOfQuotes = getModel(quotes);
+
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		for(Map.Entry<String, AbstractLIBORMonteCarloProduct> product : book.entrySet()) {
+			values.put(product.getKey(), product.getValue().getValue(modelOfQuotes));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the model with the forward curve bootstrapped from the given quotes and the random numbers of the original model.
+	 *
+	 * @param quotes The quotes of the curve instruments.
+	 * @return The model.
+	 * @throws CalculationException Thrown if the model cannot be created.
+	 */
+	public LIBORModelMonteCarloSimulationInterface getModel(List<Quote> quotes) throws CalculationException {
+		List<Quote> liborQuotes = new ArrayList<Quote>();
+		List<Quote> swapQuotes = new ArrayList<Quote>();
+		for(Quote quote : quotes) (quote.getInstrument() == Quote.Instrument.LIBOR ? liborQuotes : swapQuotes).add(quote);
+		liborQuotes.sort((quote1, quote2) -> Double.compare(quote1.getMaturity(), quote2.getMaturity()));
+		swapQuotes.sort((quote1, quote2) -> Double.compare(quote1.getMaturity(), quote2.getMaturity()));
+
+		double[] liborDates	= liborQuotes.stream().mapToDouble(Quote::getMaturity).toArray();
+		double[] liborRates	= liborQuotes.stream().mapToDouble(Quote::getRate).toArray();
+		double[] swapDates	= swapQuotes.stream().mapToDouble(Quote::getMaturity).toArray();
+		double[] swapRates	= swapQuotes.stream().mapToDouble(Quote::getRate).toArray();
+
+		double[] curveTimes = new double[liborDates.length + swapDates.length];
+		System.arraycopy(liborDates, 0, curveTimes, 0, liborDates.length);
+		System.arraycopy(swapDates, 0, curveTimes, liborDates.length, swapDates.length);
+		double[] discountFactors = Bootstrap.bootstrapDiscountFactors(liborDates, liborRates, swapDates, swapRates, swapPeriodLength);
+
+		// Forwards of the tenor periods of the model
+		TimeDiscretizationInterface liborPeriodDiscretization = model.getLiborPeriodDiscretization();
+		double[] fixingTimes	= new double[liborPeriodDiscretization.getNumberOfTimeSteps()];
+		double[] forwards		= new double[fixingTimes.length];
+		for(int periodIndex=0; periodIndex<fixingTimes.length; periodIndex++) {
+			double periodStart	= liborPeriodDiscretization.getTime(periodIndex);
+			double periodEnd	= liborPeriodDiscretization.getTime(periodIndex+1);
+			fixingTimes[periodIndex]	= periodStart;
+			forwards[periodIndex]		= (Bootstrap.getDiscountFactor(curveTimes, discountFactors, periodStart) / Bootstrap.getDiscountFactor(curveTimes, discountFactors, periodEnd) - 1.0) / (periodEnd - periodStart);
+		}
+
+		ForwardCurve forwardCurve = ForwardCurve.createForwardCurveFromForwards("forwardCurve", fixingTimes, forwards, liborPeriodDiscretization.getTimeStep(0));
+
+		Map<String, Object> dataModified = new HashMap<String, Object>();
+		dataModified.put("forwardRateCurve", forwardCurve);
+		dataModified.put("discountCurve", new DiscountCurveFromForwardCurve(forwardCurve));
+		return (LIBORModelMonteCarloSimulationInterface)model.getCloneWithModifiedData(dataModified);
+	}
+
+	/**
+	 * @return The last published valuation (null before the first valuation).
+	 */
+	public BookValuation getLastValuation() {
+		return lastValuation;
+	}
+
+	/**
+	 * @return The number of quote updates received.
+	 */
+	public long getNumberOfQuotes() {
+		return quoteSequenceNumber.get();
+	}
+
+	/**
+	 * @return The number of published valuations.
+	 */
+	public long getNumberOfRepricings() {
+		return numberOfRepricings.get();
+	}
+
+	/**
+	 * @return The number of failed repricings.
+	 */
+	public long getNumberOfErrors() {
+		return numberOfErrors.get();
+	}
+
+	/**
+	 * @return The exception of the last failed repricing (null if no repricing failed).
+	 */
+	public Exception getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * Waits until all quote updates received so far are included in a published valuation (delivered to the listener).
+	 *
+	 * @param timeoutMillis The maximum time to wait.
+	 * @return True if all updates are included.
+	 * @throws InterruptedException Thrown if the thread is interrupted.
+	 * @throws CalculationException Thrown if the repricing including the updates failed (the cause is its exception).
+	 */
+	public boolean awaitQuotes(long timeoutMillis) throws InterruptedException, CalculationException {
+		long sequenceNumber = quoteSequenceNumber.get();
+		long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		valuationLock.lock();
+		try {
+			while(lastValuation == null || lastValuation.getQuoteSequenceNumber() < sequenceNumber) {
+				if(lastErrorQuoteSequenceNumber >= sequenceNumber) throw new CalculationException("Repricing of quote update " + lastErrorQuoteSequenceNumber + " failed.", lastError);
+				if(remainingNanos <= 0) return false;
+				remainingNanos = valuationPublished.awaitNanos(remainingNanos);
+			}
+			return true;
+		}
+		finally {
+			valuationLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the repricing thread (a running repricing is completed). If the calling thread is interrupted while waiting for the
+	 * repricing thread, the method returns and the interrupt flag of the calling thread is set.
+	 */
+	@Override
+	public synchronized void close() {
+		isClosed = true;
+		if(repricingThread != null) {
+			repricingThread.interrupt();
+			try {
+				repricingThread.join();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
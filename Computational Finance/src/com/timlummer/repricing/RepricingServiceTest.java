@@ -0,0 +1,114 @@
+package com.timlummer.repricing;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.timlummer.InterestDerivatives.BermudanSwaption;
+import com.timlummer.InterestDerivatives.Cap;
+import com.timlummer.InterestDerivatives.Caplet;
+import com.timlummer.LIBOR.LIBORinArrears;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * Reprices a book of LIBOR products on the quotes of <code>Bootstrap</code>, replaying bursts of random quote updates
+ * from a file, and reports how the updates were coalesced. Finally, a book whose valuation fails checks that a thread waiting
+ * for the quotes receives the error instead of waiting for the timeout.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class RepricingServiceTest {
+
+	public static void main(String[] args) throws Exception {
+
+		int numberOfPaths	= 2000;
+		int numberOfFactors	= 5;
+
+		LIBORModelMonteCarloSimulationInterface model = LIBORinArrears.createLIBORMarketModel(numberOfPaths, numberOfFactors, 0.01);
+
+		double[] fixingDates	= { 1.0, 1.5, 2.0, 2.5 };
+		double[] paymentDates	= { 1.5, 2.0, 2.5, 3.0 };
+		double[] strikes		= { 0.01, 0.01, 0.01, 0.01 };
+
+		Map<String, AbstractLIBORMonteCarloProduct> book = new LinkedHashMap<String, AbstractLIBORMonteCarloProduct>();
+		book.put("Caplet 1.0", new Caplet(1.0, 1.5, 0.01, false));
+		book.put("Caplet 2.0", new Caplet(2.0, 2.5, 0.01, false));
+		book.put("Cap", new Cap(fixingDates, paymentDates, strikes));
+		book.put("Bermudan", new BermudanSwaption(fixingDates, paymentDates, strikes));
+
+		// The quotes of Bootstrap
+		Quote[] initialQuotes = {
+				new Quote(Quote.Instrument.LIBOR, 0.25, 0.2/100),
+				new Quote(Quote.Instrument.LIBOR, 0.5, 0.4/100),
+				new Quote(Quote.Instrument.LIBOR, 1.0, 0.65/100),
+				new Quote(Quote.Instrument.SWAP, 2.0, 0.85/100),
+				new Quote(Quote.Instrument.SWAP, 3.0, 0.95/100)
+		};
+
+		// Bursts of quote updates (random walk of the rates), separated by pauses
+		Path file = Files.createTempFile("quotes", ".csv");
+		Random random = new Random(3141);
+		double[] rates = new double[initialQuotes.length];
+		for(int quoteIndex=0; quoteIndex<initialQuotes.length; quoteIndex++) rates[quoteIndex] = initialQuotes[quoteIndex].getRate();
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("# delayMillis;instrument;maturity;rate\n");
+			for(int burst=0; burst<8; burst++) {
+				for(int update=0; update<500; update++) {
+					int quoteIndex = random.nextInt(rates.length);
+					rates[quoteIndex] += 0.00001 * random.nextGaussian();
+					long delayMillis = update == 0 ? 1000 : 0;
+					writer.write(delayMillis + ";" + initialQuotes[quoteIndex].getInstrument() + ";" + initialQuotes[quoteIndex].getMaturity() + ";" + rates[quoteIndex] + "\n");
+				}
+			}
+		}
+
+		long[] maxLatencyNanos = new long[1];
+		try(RepricingService service = new RepricingService(model, book, initialQuotes, 1.0 /* swap period length */, valuation -> {
+			maxLatencyNanos[0] = Math.max(maxLatencyNanos[0], valuation.getLatencyNanos());
+			System.out.println(valuation);
+		})) {
+			service.start();
+			long numberOfQuotes = new ReplayQuoteFeed(file, 1.0).replay(service);
+			service.awaitQuotes(60000);
+
+			System.out.println("\nQuote updates.......: " + numberOfQuotes);
+			System.out.println("Repricings..........: " + service.getNumberOfRepricings());
+			System.out.println("Maximum latency.....: " + maxLatencyNanos[0] / 1000000 + " ms");
+		}
+		finally {
+			Files.delete(file);
+		}
+
+		/*
+		 * Failing repricing
+		 */
+		Map<String, AbstractLIBORMonteCarloProduct> bookFailing = new LinkedHashMap<String, AbstractLIBORMonteCarloProduct>();
+		bookFailing.put("Failing", new AbstractLIBORMonteCarloProduct() {
+			@Override
+			public RandomVariableInterface getValue(double evaluationTime, LIBORModelMonteCarloSimulationInterface model) throws CalculationException {
+				throw new CalculationException("Valuation failed.");
+			}
+		});
+
+		try(RepricingService service = new RepricingService(model, bookFailing, initialQuotes, 1.0 /* swap period length */, valuation -> {})) {
+			long millisStart = System.currentTimeMillis();
+			service.start();
+			try {
+				service.awaitQuotes(60000);
+				throw new IllegalStateException("The failed repricing was not reported to the waiting thread.");
+			}
+			catch(CalculationException e) {
+				System.out.println("\nFailed repricing..: " + e.getMessage() + " (" + e.getCause().getMessage() + ") after " + (System.currentTimeMillis() - millisStart) + " ms");
+			}
+		}
+	}
+}
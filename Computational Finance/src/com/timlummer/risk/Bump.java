@@ -0,0 +1,72 @@
+package com.timlummer.risk;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A shift of the inputs of a Monte-Carlo simulation for a finite difference sensitivity, given as the
+ * modified data of <code>getCloneWithModifiedData</code> for the up and (optionally) the down scenario.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class Bump {
+
+	private final String				name;
+	private final Map<String, Object>	dataUp;
+	private final Map<String, Object>	dataDown;
+	private final double				shift;
+
+	/**
+	 * Create a bump. If <code>dataDown</code> is null, the sensitivity is the forward difference (up - base) / shift,
+	 * otherwise the central difference (up - down) / (2 shift).
+	 *
+	 * @param name The name of the bump (e.g. the bucket).
+	 * @param dataUp The modified data of the up scenario.
+	 * @param dataDown The modified data of the down scenario (may be null).
+	 * @param shift The size of the shift.
+	 */
+	public Bump(String name, Map<String, Object> dataUp, Map<String, Object> dataDown, double shift) {
+		super();
+		this.name		= name;
+		this.dataUp		= Collections.unmodifiableMap(dataUp);
+		this.dataDown	= dataDown != null ? Collections.unmodifiableMap(dataDown) : null;
+		this.shift		= shift;
+	}
+
+	/**
+	 * Create a central difference bump of a single (scalar) model parameter, e.g. "initialValue" or "volatility" of a <code>BlackScholesModel</code>.
+	 *
+	 * @param parameterName The name of the parameter in the modified data of the model.
+	 * @param value The value of the parameter.
+	 * @param shift The size of the shift.
+	 */
+	public Bump(String parameterName, double value, double shift) {
+		this(parameterName, Collections.<String, Object>singletonMap(parameterName, value + shift), Collections.<String, Object>singletonMap(parameterName, value - shift), shift);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Map<String, Object> getDataUp() {
+		return dataUp;
+	}
+
+	public Map<String, Object> getDataDown() {
+		return dataDown;
+	}
+
+	public boolean isCentral() {
+		return dataDown != null;
+	}
+
+	public double getShift() {
+		return shift;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + shift + ")";
+	}
+}
@@ -0,0 +1,168 @@
+package com.timlummer.risk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurveInterface;
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.MonteCarloSimulationInterface;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.time.TimeDiscretizationInterface;
+
+/**
+ * Finite difference (bump and revalue) sensitivities of a set of products with common random numbers.
+ *
+ * The bumped models are clones of the given model (<code>getCloneWithModifiedData</code>) which share its
+ * Brownian motion, i.e., the increments are generated once (by the valuation of the base scenario) and every scenario uses
+ * exactly the same random numbers. Unchanged parts of the model are shared as well (e.g. the covariance model with its
+ * precomputed factor loadings), such that a scenario costs one Euler scheme and the valuation of the products.
+ * The scenarios are valued in parallel on a thread pool of the engine (not the common fork-join pool, since the Euler
+ * scheme of finmath waits for tasks of its own executor).
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class BumpAndRevalueRiskEngine {
+
+	private final MonteCarloSimulationInterface		model;
+	private final AbstractMonteCarloProduct[]		products;
+
+	private final int								numberOfThreads;
+
+	private double[]								values;
+
+	/**
+	 * @param model The model of the base scenario.
+	 * @param products The products.
+	 * @param numberOfThreads The number of scenarios valued in parallel.
+	 */
+	public BumpAndRevalueRiskEngine(MonteCarloSimulationInterface model, AbstractMonteCarloProduct[] products, int numberOfThreads) {
+		super();
+		this.model				= model;
+		this.products			= products;
+		this.numberOfThreads	= numberOfThreads;
+	}
+
+	/**
+	 * @param model The model of the base scenario.
+	 * @param products The products.
+	 */
+	public BumpAndRevalueRiskEngine(MonteCarloSimulationInterface model, AbstractMonteCarloProduct[] products) {
+		this(model, products, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @return The values of the products in the base scenario.
+	 * @throws CalculationException Thrown if the valuation fails.
+	 */
+	public synchronized double[] getValues() throws CalculationException {
+		if(values == null) values = getValues(model);
+		return values.clone();
+	}
+
+	/**
+	 * Returns the finite difference sensitivities of the products with respect to the given bumps.
+	 *
+	 * @param bumps The bumps.
+	 * @return The sensitivities as [bump][product].
+	 * @throws CalculationException Thrown if a valuation fails.
+	 */
+	public double[][] getSensitivities(Bump[] bumps) throws CalculationException {
+		// Values the base scenario first, which generates the Brownian increments shared by all scenarios
+		double[] valuesBase = getValues();
+
+		// Scenario 2 * i is the up scenario of bump i, scenario 2 * i + 1 the down scenario (if any)
+		List<Callable<double[]>> scenarios = new ArrayList<Callable<double[]>>();
+		for(int scenarioIndex=0; scenarioIndex<2 * bumps.length; scenarioIndex++) {
+			Bump bump = bumps[scenarioIndex / 2];
+			Map<String, Object> data = scenarioIndex % 2 == 0 ? bump.getDataUp() : bump.getDataDown();
+			scenarios.add(() -> data != null ? getValues(model.getCloneWithModifiedData(data)) : null);
+		}
+
+		double[][] valuesOfScenarios = new double[scenarios.size()][];
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<double[]>> results = executor.invokeAll(scenarios);
+			for(int scenarioIndex=0; scenarioIndex<results.size(); scenarioIndex++) valuesOfScenarios[scenarioIndex] = results.get(scenarioIndex).get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CalculationException(e);
+		}
+		catch(ExecutionException e) {
+			throw e.getCause() instanceof CalculationException ? (CalculationException)e.getCause() : new CalculationException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		double[][] sensitivities = new double[bumps.length][products.length];
+		for(int bumpIndex=0; bumpIndex<bumps.length; bumpIndex++) {
+			double[] valuesUp = valuesOfScenarios[2 * bumpIndex];
+			for(int productIndex=0; productIndex<products.length; productIndex++) {
+				sensitivities[bumpIndex][productIndex] = bumps[bumpIndex].isCentral() ?
+						(valuesUp[productIndex] - valuesOfScenarios[2 * bumpIndex + 1][productIndex]) / (2 * bumps[bumpIndex].getShift()) :
+							(valuesUp[productIndex] - valuesBase[productIndex]) / bumps[bumpIndex].getShift();
+			}
+		}
+		return sensitivities;
+	}
+
+	private double[] getValues(MonteCarloSimulationInterface model) throws CalculationException {
+		double[] values = new double[products.length];
+		for(int productIndex=0; productIndex<products.length; productIndex++) values[productIndex] = products[productIndex].getValue(model);
+		return values;
+	}
+
+	/**
+	 * Returns the bumps of the forwards of the tenor periods of a (single curve) LIBOR market model, i.e., bucketed delta.
+	 * For each period the forward of the initial curve is shifted up and down; the discount curve is derived from the bumped
+	 * forward curve (as in <code>LIBORinArrears.createLIBORMarketModel</code>).
+	 *
+	 * @param model The LIBOR market model.
+	 * @param shift The shift of the forward.
+	 * @return The bumps, one for each period of the tenor structure.
+	 */
+	public static Bump[] getForwardBucketBumps(LIBORModelMonteCarloSimulationInterface model, double shift) {
+		ForwardCurveInterface forwardCurve = model.getModel().getForwardRateCurve();
+		TimeDiscretizationInterface liborPeriodDiscretization = model.getLiborPeriodDiscretization();
+
+		double[] fixingTimes	= new double[liborPeriodDiscretization.getNumberOfTimeSteps()];
+		double[] forwards		= new double[fixingTimes.length];
+		for(int periodIndex=0; periodIndex<fixingTimes.length; periodIndex++) {
+			fixingTimes[periodIndex]	= liborPeriodDiscretization.getTime(periodIndex);
+			forwards[periodIndex]		= forwardCurve.getForward(null, fixingTimes[periodIndex]);
+		}
+
+		Bump[] bumps = new Bump[fixingTimes.length];
+		for(int periodIndex=0; periodIndex<fixingTimes.length; periodIndex++) {
+			bumps[periodIndex] = new Bump("forward " + fixingTimes[periodIndex],
+					getForwardCurveData(fixingTimes, forwards, periodIndex, shift, liborPeriodDiscretization.getTimeStep(periodIndex)),
+					getForwardCurveData(fixingTimes, forwards, periodIndex, -shift, liborPeriodDiscretization.getTimeStep(periodIndex)),
+					shift);
+		}
+		return bumps;
+	}
+
+	private static Map<String, Object> getForwardCurveData(double[] fixingTimes, double[] forwards, int periodIndex, double shift, double periodLength) {
+		double[] forwardsShifted = forwards.clone();
+		forwardsShifted[periodIndex] += shift;
+
+		ForwardCurve forwardCurve = ForwardCurve.createForwardCurveFromForwards("forwardCurve", fixingTimes, forwardsShifted, periodLength);
+
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("forwardRateCurve", forwardCurve);
+		data.put("discountCurve", new DiscountCurveFromForwardCurve(forwardCurve));
+		return data;
+	}
+}
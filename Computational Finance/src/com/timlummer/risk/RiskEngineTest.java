@@ -0,0 +1,115 @@
+package com.timlummer.risk;
+
+import com.timlummer.InterestDerivatives.BermudanSwaption;
+import com.timlummer.InterestDerivatives.Cap;
+import com.timlummer.InterestDerivatives.Caplet;
+import com.timlummer.LIBOR.LIBORMarketModelCalibration;
+import com.timlummer.LIBOR.LIBORinArrears;
+import com.timlummer.LIBOR.SwaptionVolatilityQuote;
+import com.timlummer.bonus.BonusOption;
+import com.timlummer.montecarlo.BrownianMotionGenerator;
+
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.AbstractMonteCarloProduct;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.assetderivativevaluation.BlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloAssetModel;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationInterface;
+import net.finmath.montecarlo.process.ProcessEulerScheme;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * Bucketed delta of LIBOR products and delta / vega of the bonus certificate by bump and revalue with common random numbers,
+ * compared to bumped simulations with independent random numbers.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class RiskEngineTest {
+
+	public static void main(String[] args) throws Exception {
+
+		/*
+		 * Bucketed delta in the LIBOR market model
+		 */
+		int numberOfPaths = 2000;
+		LIBORModelMonteCarloSimulationInterface liborModel = LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01);
+
+		double[] fixingDates	= { 2.0, 2.5, 3.0, 3.5 };
+		double[] paymentDates	= { 2.5, 3.0, 3.5, 4.0 };
+		double[] strikes		= { 0.05, 0.05, 0.05, 0.05 };
+
+		AbstractMonteCarloProduct[] liborProducts = {
+				new Caplet(2.0, 2.5, 0.05, false),
+				new Cap(fixingDates, paymentDates, strikes),
+				new BermudanSwaption(fixingDates, paymentDates, strikes)
+		};
+
+		BumpAndRevalueRiskEngine liborRiskEngine = new BumpAndRevalueRiskEngine(liborModel, liborProducts);
+		Bump[] forwardBumps = BumpAndRevalueRiskEngine.getForwardBucketBumps(liborModel, 1E-4);
+
+		long millisStart = System.currentTimeMillis();
+		double[][] bucketedDelta = liborRiskEngine.getSensitivities(forwardBumps);
+		long millisBucketedDelta = System.currentTimeMillis() - millisStart;
+
+		System.out.println("Bucketed delta (" + forwardBumps.length + " forwards, " + millisBucketedDelta + " ms)");
+		System.out.println("Bucket\t\t\tCaplet\t\t\tCap\t\t\tBermudan");
+		for(int bumpIndex=0; bumpIndex<forwardBumps.length; bumpIndex++) {
+			if(bucketedDelta[bumpIndex][0] == 0 && bucketedDelta[bumpIndex][1] == 0 && bucketedDelta[bumpIndex][2] == 0) continue;
+			System.out.println(forwardBumps[bumpIndex].getName() + "\t\t" + bucketedDelta[bumpIndex][0] + "\t" + bucketedDelta[bumpIndex][1] + "\t" + bucketedDelta[bumpIndex][2]);
+		}
+
+		// Delta of the caplet with respect to its forward: Black model versus common and independent random numbers
+		int capletBucket = 4;
+		double forward = 0.05, periodLength = 0.5, shift = 1E-4;
+		double discountFactor = Math.pow(1.0 + forward * periodLength, -5);
+		double[] parameters = { LIBORinArrears.VOLATILITY_PARAMETERS[0], LIBORinArrears.VOLATILITY_PARAMETERS[1], LIBORinArrears.VOLATILITY_PARAMETERS[2], LIBORinArrears.VOLATILITY_PARAMETERS[3], 0.01 };
+		double volatilityCaplet = new LIBORMarketModelCalibration(new SwaptionVolatilityQuote[] { new SwaptionVolatilityQuote(2.0, 2.5, 0.0) }, 5).getApproximatedVolatilities(parameters)[0];
+		double deltaBlack = discountFactor * periodLength * (
+				AnalyticFormulas.blackScholesGeneralizedOptionValue(forward + shift, volatilityCaplet, 2.0, 0.05, 1.0)
+				- AnalyticFormulas.blackScholesGeneralizedOptionValue(forward - shift, volatilityCaplet, 2.0, 0.05, 1.0)) / (2 * shift);
+
+		Bump capletBump = forwardBumps[capletBucket];
+		LIBORModelMonteCarloSimulationInterface liborModelUp	= (LIBORModelMonteCarloSimulationInterface)LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01,
+				LIBORinArrears.VOLATILITY_PARAMETERS, LIBORinArrears.createTimeDiscretization(), new RandomVariableFactory(), BrownianMotionGenerator.SEQUENTIAL, 1 /* seed */)
+				.getCloneWithModifiedData(capletBump.getDataUp());
+		LIBORModelMonteCarloSimulationInterface liborModelDown	= (LIBORModelMonteCarloSimulationInterface)LIBORinArrears.createLIBORMarketModel(numberOfPaths, 5 /* numberOfFactors */, 0.01,
+				LIBORinArrears.VOLATILITY_PARAMETERS, LIBORinArrears.createTimeDiscretization(), new RandomVariableFactory(), BrownianMotionGenerator.SEQUENTIAL, 2 /* seed */)
+				.getCloneWithModifiedData(capletBump.getDataDown());
+		double valueUpIndependent	= liborProducts[0].getValue(liborModelUp);
+		double valueDownIndependent	= liborProducts[0].getValue(liborModelDown);
+
+		System.out.println("\nCaplet delta to " + capletBump.getName() + " (approximately, the drift is not frozen in the simulation)");
+		System.out.println("Black model...................: " + deltaBlack);
+		System.out.println("Common random numbers.........: " + bucketedDelta[capletBucket][0]);
+		System.out.println("Independent random numbers....: " + (valueUpIndependent - valueDownIndependent) / (2 * shift));
+
+		/*
+		 * Delta and vega of the bonus certificate in the Black-Scholes model (BounsTest)
+		 */
+		double initialValue = 100.0, volatility = 0.25;
+		TimeDiscretization timeDiscretization = new TimeDiscretization(0.0, 10, 0.1);
+		AssetModelMonteCarloSimulationInterface assetModel = new MonteCarloAssetModel(
+				new BlackScholesModel(initialValue, 0.01, volatility, new RandomVariableFactory()),
+				new ProcessEulerScheme(new BrownianMotion(timeDiscretization, 1, 20000, 31415)));
+
+		AbstractMonteCarloProduct[] bonusProducts = { new BonusOption(1.0, 90.0, 0.05) };
+		Bump[] assetBumps = {
+				new Bump("initialValue", initialValue, 0.01),
+				new Bump("volatility", volatility, 0.001)
+		};
+		double[][] sensitivities = new BumpAndRevalueRiskEngine(assetModel, bonusProducts).getSensitivities(assetBumps);
+
+		double deltaIndependent = (bonusProducts[0].getValue(new MonteCarloAssetModel(new BlackScholesModel(initialValue + 0.01, 0.01, volatility, new RandomVariableFactory()),
+				new ProcessEulerScheme(new BrownianMotion(timeDiscretization, 1, 20000, 1))))
+				- bonusProducts[0].getValue(new MonteCarloAssetModel(new BlackScholesModel(initialValue - 0.01, 0.01, volatility, new RandomVariableFactory()),
+						new ProcessEulerScheme(new BrownianMotion(timeDiscretization, 1, 20000, 2))))) / 0.02;
+
+		System.out.println("\nBonus certificate");
+		System.out.println("Delta (common random numbers).......: " + sensitivities[0][0]);
+		System.out.println("Delta (independent random numbers)..: " + deltaIndependent);
+		System.out.println("Vega (common random numbers)........: " + sensitivities[1][0]);
+	}
+}
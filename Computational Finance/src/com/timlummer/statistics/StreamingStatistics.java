@@ -0,0 +1,253 @@
+package com.timlummer.statistics;
+
+import java.io.Serializable;
+import java.util.stream.IntStream;
+
+import net.finmath.stochastic.RandomVariableInterface;
+
+/**
+ * One-pass, mergeable statistics of a sample: count, mean, variance, skewness, kurtosis, min, max
+ * and quantiles (via a <code>TDigest</code>).
+ *
+ * Values may be fed one by one or chunk by chunk. Statistics accumulated on different threads
+ * (or processes) are combined with <code>merge</code>, using the pairwise update formulas for the
+ * central moments (Chan et al., P&eacute;bay), hence the path values never have to be materialized or sorted.
+ *
+ * Usage:
+ * <pre>
+ * StreamingStatistics statistics = StreamingStatistics.of(product.getValue(0.0, model));
+ * double valueAtRisk = -statistics.getQuantile(0.01);
+ * </pre>
+ *
+ * The statistics are serializable, such that partial results can be collected from other processes.
+ * This class is not thread safe. Use one instance per thread and <code>merge</code> the results.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class StreamingStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+	private long	count;
+	private double	mean;
+	private double	m2;		// Sum of squared deviations from the mean
+	private double	m3;		// Sum of cubed deviations from the mean
+	private double	m4;		// Sum of fourth powers of deviations from the mean
+
+	private final TDigest quantiles;
+
+	/**
+	 * Create empty statistics.
+	 *
+	 * @param compression The compression of the quantile estimator (see <code>TDigest</code>).
+	 */
+	public StreamingStatistics(double compression) {
+		super();
+		this.quantiles = new TDigest(compression);
+	}
+
+	/**
+	 * Create empty statistics with default quantile compression.
+	 */
+	public StreamingStatistics() {
+		this(200);
+	}
+
+	/**
+	 * Returns the statistics of the realizations of a random variable, accumulated in parallel over chunks of paths.
+	 *
+	 * @param randomVariable The random variable.
+	 * @return The statistics of its realizations.
+	 */
+	public static StreamingStatistics of(RandomVariableInterface randomVariable) {
+		return of(randomVariable.getRealizations());
+	}
+
+	/**
+	 * Returns the statistics of the given values, accumulated in parallel over chunks.
+	 *
+	 * @param values The values.
+	 * @return The statistics of the values.
+	 */
+	public static StreamingStatistics of(double[] values) {
+		int numberOfChunks = (values.length + DEFAULT_CHUNK_SIZE - 1) / DEFAULT_CHUNK_SIZE;
+
+		return IntStream.range(0, numberOfChunks).parallel().mapToObj(chunkIndex -> {
+			StreamingStatistics statistics = new StreamingStatistics();
+			int from = chunkIndex * DEFAULT_CHUNK_SIZE;
+			statistics.add(values, from, Math.min(from + DEFAULT_CHUNK_SIZE, values.length));
+			return statistics;
+		}).reduce((statistics, other) -> statistics.merge(other)).orElseGet(StreamingStatistics::new);
+	}
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value The value.
+	 */
+	public void add(double value) {
+		long	countPrevious	= count;
+		count++;
+
+		double delta		= value - mean;
+		double deltaByCount	= delta / count;
+		double deltaByCountSquared	= deltaByCount * deltaByCount;
+		double term					= delta * deltaByCount * countPrevious;
+
+		mean	+= deltaByCount;
+		m4		+= term * deltaByCountSquared * ((double)count*count - 3.0*count + 3.0) + 6.0 * deltaByCountSquared * m2 - 4.0 * deltaByCount * m3;
+		m3		+= term * deltaByCount * (count - 2.0) - 3.0 * deltaByCount * m2;
+		m2		+= term;
+
+		quantiles.add(value);
+	}
+
+	/**
+	 * Adds the values values[from], ..., values[to-1].
+	 *
+	 * @param values The array of values.
+	 * @param from The first index (inclusive).
+	 * @param to The last index (exclusive).
+	 */
+	public void add(double[] values, int from, int to) {
+		for(int index=from; index<to; index++) add(values[index]);
+	}
+
+	/**
+	 * Adds all values of the array.
+	 *
+	 * @param values The array of values.
+	 */
+	public void add(double[] values) {
+		add(values, 0, values.length);
+	}
+
+	/**
+	 * Adds the realizations of a random variable.
+	 *
+	 * @param randomVariable The random variable.
+	 */
+	public void add(RandomVariableInterface randomVariable) {
+		for(int path=0; path<randomVariable.size(); path++) add(randomVariable.get(path));
+	}
+
+	/**
+	 * Merges the other statistics into this one.
+	 *
+	 * @param other The other statistics (remains unchanged).
+	 * @return This statistics.
+	 */
+	public StreamingStatistics merge(StreamingStatistics other) {
+		if(other.count == 0) return this;
+		if(count == 0) {
+			count	= other.count;
+			mean	= other.mean;
+			m2		= other.m2;
+			m3		= other.m3;
+			m4		= other.m4;
+			quantiles.merge(other.quantiles);
+			return this;
+		}
+
+		double countA		= count;
+		double countB		= other.count;
+		double countTotal	= countA + countB;
+
+		double delta		= other.mean - mean;
+		double delta2		= delta * delta;
+		double delta3		= delta2 * delta;
+		double delta4		= delta2 * delta2;
+
+		double m2Merged = m2 + other.m2 + delta2 * countA * countB / countTotal;
+		double m3Merged = m3 + other.m3
+				+ delta3 * countA * countB * (countA - countB) / (countTotal * countTotal)
+				+ 3.0 * delta * (countA * other.m2 - countB * m2) / countTotal;
+		double m4Merged = m4 + other.m4
+				+ delta4 * countA * countB * (countA * countA - countA * countB + countB * countB) / (countTotal * countTotal * countTotal)
+				+ 6.0 * delta2 * (countA * countA * other.m2 + countB * countB * m2) / (countTotal * countTotal)
+				+ 4.0 * delta * (countA * other.m3 - countB * m3) / countTotal;
+
+		count	+= other.count;
+		mean	+= delta * countB / countTotal;
+		m2		= m2Merged;
+		m3		= m3Merged;
+		m4		= m4Merged;
+
+		quantiles.merge(other.quantiles);
+
+		return this;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return count > 0 ? mean : Double.NaN;
+	}
+
+	/**
+	 * @return The (population) variance, consistent with <code>RandomVariableInterface.getVariance()</code>.
+	 */
+	public double getVariance() {
+		return count > 0 ? m2 / count : Double.NaN;
+	}
+
+	/**
+	 * @return The unbiased sample variance.
+	 */
+	public double getSampleVariance() {
+		return count > 1 ? m2 / (count - 1) : Double.NaN;
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return The standard error of the mean.
+	 */
+	public double getStandardError() {
+		return Math.sqrt(getVariance() / count);
+	}
+
+	public double getSkewness() {
+		return m2 > 0 ? Math.sqrt(count) * m3 / Math.pow(m2, 1.5) : Double.NaN;
+	}
+
+	/**
+	 * @return The excess kurtosis.
+	 */
+	public double getKurtosis() {
+		return m2 > 0 ? count * m4 / (m2 * m2) - 3.0 : Double.NaN;
+	}
+
+	public double getMin() {
+		return quantiles.getMin();
+	}
+
+	public double getMax() {
+		return quantiles.getMax();
+	}
+
+	/**
+	 * Returns the estimated quantile, i.e., the value x such that P(X &le; x) = quantileLevel.
+	 *
+	 * @param quantileLevel The quantile level in [0, 1].
+	 * @return The estimated quantile.
+	 */
+	public double getQuantile(double quantileLevel) {
+		return quantiles.getQuantile(quantileLevel);
+	}
+
+	@Override
+	public String toString() {
+		return "StreamingStatistics [count=" + getCount() + ", mean=" + getMean() + ", standardDeviation=" + getStandardDeviation()
+		+ ", skewness=" + getSkewness() + ", kurtosis=" + getKurtosis() + ", min=" + getMin()
+		+ ", quantile(0.01)=" + getQuantile(0.01) + ", quantile(0.5)=" + getQuantile(0.5) + ", quantile(0.99)=" + getQuantile(0.99)
+		+ ", max=" + getMax() + "]";
+	}
+}
@@ -0,0 +1,102 @@
+package com.timlummer.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the statistics of <code>StreamingStatistics</code> (and the quantiles of its <code>TDigest</code>) with the exact values
+ * of the sorted sample, for a single accumulator fed value by value and for the parallel merge of chunks of <code>of(...)</code>.
+ *
+ * The moments have to agree up to rounding. The quantiles of the t-digest are estimates, hence they are checked by their
+ * rank: the fraction of the sample below the estimated quantile has to be close to the quantile level.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class StreamingStatisticsTest {
+
+	private static final double[]	QUANTILE_LEVELS				= { 0.01, 0.99 };
+	private static final double		TOLERANCE_MOMENTS			= 1E-10;
+	private static final double		TOLERANCE_QUANTILE_RANK		= 2.5E-4;
+
+	public static void main(String[] args) {
+
+		int numberOfValues = 1000000;
+
+		// A skewed sample with heavy right tail: log-normal values (as the payoff of an asset)
+		Random random = new Random(3141);
+		double[] values = new double[numberOfValues];
+		for(int valueIndex=0; valueIndex<numberOfValues; valueIndex++) values[valueIndex] = 100.0 * Math.exp(0.5 * random.nextGaussian());
+
+		double[] valuesSorted = values.clone();
+		Arrays.sort(valuesSorted);
+
+		// Exact moments (two pass)
+		double sum = 0.0;
+		for(double value : valuesSorted) sum += value;
+		double mean = sum / numberOfValues;
+
+		double m2 = 0.0, m3 = 0.0, m4 = 0.0;
+		for(double value : valuesSorted) {
+			double deviation = value - mean;
+			m2 += deviation * deviation;
+			m3 += deviation * deviation * deviation;
+			m4 += deviation * deviation * deviation * deviation;
+		}
+		double variance	= m2 / numberOfValues;
+		double skewness	= Math.sqrt(numberOfValues) * m3 / Math.pow(m2, 1.5);
+		double kurtosis	= numberOfValues * m4 / (m2 * m2) - 3.0;
+
+		System.out.println("Exact.......: mean " + mean + ", variance " + variance + ", skewness " + skewness + ", kurtosis " + kurtosis
+				+ ", quantile(0.01) " + getQuantile(valuesSorted, 0.01) + ", quantile(0.99) " + getQuantile(valuesSorted, 0.99));
+
+		StreamingStatistics single = new StreamingStatistics();
+		for(double value : values) single.add(value);
+
+		StreamingStatistics merged = StreamingStatistics.of(values);
+
+		boolean isSingleAccurate = check("Single......", single, valuesSorted, mean, variance, skewness, kurtosis);
+		boolean isMergedAccurate = check("Merged......", merged, valuesSorted, mean, variance, skewness, kurtosis);
+
+		if(!isSingleAccurate || !isMergedAccurate) throw new IllegalStateException("Streaming statistics differ from the exact statistics.");
+	}
+
+	private static boolean check(String name, StreamingStatistics statistics, double[] valuesSorted, double mean, double variance, double skewness, double kurtosis) {
+		double deviationMean		= Math.abs(statistics.getMean() - mean) / Math.abs(mean);
+		double deviationVariance	= Math.abs(statistics.getVariance() - variance) / variance;
+		double deviationSkewness	= Math.abs(statistics.getSkewness() - skewness) / Math.abs(skewness);
+		double deviationKurtosis	= Math.abs(statistics.getKurtosis() - kurtosis) / Math.abs(kurtosis);
+		boolean isAccurate = statistics.getCount() == valuesSorted.length
+				&& statistics.getMin() == valuesSorted[0] && statistics.getMax() == valuesSorted[valuesSorted.length-1]
+				&& Math.max(Math.max(deviationMean, deviationVariance), Math.max(deviationSkewness, deviationKurtosis)) < TOLERANCE_MOMENTS;
+
+		StringBuilder result = new StringBuilder(name + ": relative deviation of mean " + deviationMean + ", variance " + deviationVariance
+				+ ", skewness " + deviationSkewness + ", kurtosis " + deviationKurtosis);
+		for(double quantileLevel : QUANTILE_LEVELS) {
+			double quantile = statistics.getQuantile(quantileLevel);
+			double rankDeviation = Math.abs(getRank(valuesSorted, quantile) - quantileLevel);
+			isAccurate &= rankDeviation < TOLERANCE_QUANTILE_RANK;
+			result.append(", quantile(" + quantileLevel + ") " + quantile + " (rank deviation " + rankDeviation + ")");
+		}
+		System.out.println(result);
+
+		return isAccurate;
+	}
+
+	/**
+	 * The exact quantile: the smallest value x of the sample with P(X &le; x) &ge; quantileLevel.
+	 */
+	private static double getQuantile(double[] valuesSorted, double quantileLevel) {
+		int index = (int)Math.ceil(quantileLevel * valuesSorted.length) - 1;
+		return valuesSorted[Math.min(Math.max(index, 0), valuesSorted.length-1)];
+	}
+
+	/**
+	 * The fraction of the sample less or equal to the given value.
+	 */
+	private static double getRank(double[] valuesSorted, double value) {
+		int index = Arrays.binarySearch(valuesSorted, value);
+		int numberOfValuesBelow = index >= 0 ? index + 1 : -index - 1;
+		return (double)numberOfValuesBelow / valuesSorted.length;
+	}
+}
@@ -0,0 +1,283 @@
+package com.timlummer.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A mergeable, one-pass estimator of quantiles (t-digest in the merging variant of T. Dunning).
+ *
+ * The distribution is summarized by a bounded number of centroids (mean, weight). Centroids close to the
+ * tails are kept small, such that tail quantiles (as needed for VaR or PFE) are accurate, while the memory
+ * is of the order of the compression parameter, independent of the number of values added.
+ * Incoming values are buffered and merged into the centroids in batches.
+ *
+ * This class is not thread safe. Use one digest per thread and <code>merge</code> the results.
+ *
+ * @author Tim Lummer
+ * @version 1.0
+ */
+public class TDigest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final double compression;
+
+	private double[]	centroidMeans;
+	private double[]	centroidWeights;
+	private int			numberOfCentroids;
+
+	private double[]	bufferMeans;
+	private double[]	bufferWeights;
+	private int			bufferSize;
+
+	private double		totalWeight;
+	private double		min = Double.POSITIVE_INFINITY;
+	private double		max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Create a t-digest.
+	 *
+	 * @param compression The compression parameter (approximate maximum number of centroids), e.g. 100.
+	 */
+	public TDigest(double compression) {
+		super();
+		this.compression		= compression;
+
+		int maximumNumberOfCentroids = (int)Math.ceil(compression) + 1;
+		this.centroidMeans		= new double[maximumNumberOfCentroids];
+		this.centroidWeights	= new double[maximumNumberOfCentroids];
+		this.bufferMeans		= new double[32 * maximumNumberOfCentroids];
+		this.bufferWeights		= new double[32 * maximumNumberOfCentroids];
+	}
+
+	/**
+	 * Create a t-digest with compression 200.
+	 */
+	public TDigest() {
+		this(200);
+	}
+
+	/**
+	 * Adds a value (with weight 1).
+	 *
+	 * @param value The value.
+	 */
+	public void add(double value) {
+		add(value, 1.0);
+	}
+
+	/**
+	 * Adds a value with a given weight.
+	 *
+	 * @param value The value.
+	 * @param weight The weight (positive).
+	 */
+	public void add(double value, double weight) {
+		if(Double.isNaN(value)) throw new IllegalArgumentException("Cannot add NaN.");
+		if(bufferSize == bufferMeans.length) compress();
+
+		bufferMeans[bufferSize]		= value;
+		bufferWeights[bufferSize]	= weight;
+		bufferSize++;
+
+		totalWeight += weight;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Merges the other digest into this digest.
+	 *
+	 * @param other The other digest (remains unchanged, except for an internal compression).
+	 */
+	public void merge(TDigest other) {
+		other.compress();
+		for(int centroidIndex=0; centroidIndex<other.numberOfCentroids; centroidIndex++) {
+			if(bufferSize == bufferMeans.length) compress();
+			bufferMeans[bufferSize]		= other.centroidMeans[centroidIndex];
+			bufferWeights[bufferSize]	= other.centroidWeights[centroidIndex];
+			bufferSize++;
+		}
+		totalWeight += other.totalWeight;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the estimated quantile, i.e., the value x such that P(X &le; x) = quantileLevel.
+	 *
+	 * @param quantileLevel The quantile level in [0, 1].
+	 * @return The estimated quantile (NaN if no value has been added).
+	 */
+	public double getQuantile(double quantileLevel) {
+		compress();
+		if(numberOfCentroids == 0)	return Double.NaN;
+		if(numberOfCentroids == 1)	return centroidMeans[0];
+		if(quantileLevel <= 0.0)	return min;
+		if(quantileLevel >= 1.0)	return max;
+
+		double index = quantileLevel * totalWeight;
+
+		// Left of the first centroid: interpolate to the minimum
+		double weightSoFar = centroidWeights[0] / 2.0;
+		if(index < weightSoFar) {
+			return min + (centroidMeans[0] - min) * index / weightSoFar;
+		}
+
+		for(int centroidIndex=0; centroidIndex<numberOfCentroids-1; centroidIndex++) {
+			double weightBetweenCentroids = (centroidWeights[centroidIndex] + centroidWeights[centroidIndex+1]) / 2.0;
+			if(weightSoFar + weightBetweenCentroids > index) {
+				double fraction = (index - weightSoFar) / weightBetweenCentroids;
+				return centroidMeans[centroidIndex] + fraction * (centroidMeans[centroidIndex+1] - centroidMeans[centroidIndex]);
+			}
+			weightSoFar += weightBetweenCentroids;
+		}
+
+		// Right of the last centroid: interpolate to the maximum
+		double lastHalfWeight = centroidWeights[numberOfCentroids-1] / 2.0;
+		double fraction = Math.min((index - weightSoFar) / lastHalfWeight, 1.0);
+		return centroidMeans[numberOfCentroids-1] + fraction * (max - centroidMeans[numberOfCentroids-1]);
+	}
+
+	/**
+	 * @return The total weight of the values added.
+	 */
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * @return The compression parameter.
+	 */
+	public double getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @return The number of centroids after merging the buffer.
+	 */
+	public int getNumberOfCentroids() {
+		compress();
+		return numberOfCentroids;
+	}
+
+	/**
+	 * Merges the buffered values into the centroids.
+	 */
+	private void compress() {
+		if(bufferSize == 0) return;
+
+		// Combine centroids and buffer, sorted by mean
+		int numberOfPoints = numberOfCentroids + bufferSize;
+		double[] means		= new double[numberOfPoints];
+		double[] weights	= new double[numberOfPoints];
+		System.arraycopy(centroidMeans, 0, means, 0, numberOfCentroids);
+		System.arraycopy(centroidWeights, 0, weights, 0, numberOfCentroids);
+		System.arraycopy(bufferMeans, 0, means, numberOfCentroids, bufferSize);
+		System.arraycopy(bufferWeights, 0, weights, numberOfCentroids, bufferSize);
+		sort(means, weights, 0, numberOfPoints-1);
+
+		double weightOfPoints = 0.0;
+		for(int pointIndex=0; pointIndex<numberOfPoints; pointIndex++) weightOfPoints += weights[pointIndex];
+
+		// Merge neighbouring points as long as the centroid stays within its allowed size (scale function k1)
+		int		newNumberOfCentroids	= 0;
+		double	weightSoFar				= 0.0;
+		double	weightLimit				= weightOfPoints * getQuantileOfScale(getScaleOfQuantile(0.0) + 1.0);
+		double	currentMean				= means[0];
+		double	currentWeight			= weights[0];
+		for(int pointIndex=1; pointIndex<numberOfPoints; pointIndex++) {
+			double proposedWeight = currentWeight + weights[pointIndex];
+			if(weightSoFar + proposedWeight <= weightLimit) {
+				currentMean		+= (means[pointIndex] - currentMean) * weights[pointIndex] / proposedWeight;
+				currentWeight	= proposedWeight;
+			}
+			else {
+				newNumberOfCentroids = addCentroid(newNumberOfCentroids, currentMean, currentWeight);
+				weightSoFar += currentWeight;
+				weightLimit = weightOfPoints * getQuantileOfScale(getScaleOfQuantile(weightSoFar / weightOfPoints) + 1.0);
+
+				currentMean		= means[pointIndex];
+				currentWeight	= weights[pointIndex];
+			}
+		}
+		newNumberOfCentroids = addCentroid(newNumberOfCentroids, currentMean, currentWeight);
+
+		numberOfCentroids	= newNumberOfCentroids;
+		bufferSize			= 0;
+	}
+
+	private int addCentroid(int centroidIndex, double mean, double weight) {
+		if(centroidIndex == centroidMeans.length) {
+			centroidMeans	= Arrays.copyOf(centroidMeans, 2 * centroidMeans.length);
+			centroidWeights	= Arrays.copyOf(centroidWeights, 2 * centroidWeights.length);
+		}
+		centroidMeans[centroidIndex]	= mean;
+		centroidWeights[centroidIndex]	= weight;
+		return centroidIndex+1;
+	}
+
+	/**
+	 * Scale function k1(q) = compression * (asin(2q-1) + pi/2) / pi.
+	 */
+	private double getScaleOfQuantile(double quantile) {
+		return compression * (Math.asin(2.0 * quantile - 1.0) + Math.PI / 2.0) / Math.PI;
+	}
+
+	/**
+	 * Inverse of the scale function.
+	 */
+	private double getQuantileOfScale(double scale) {
+		if(scale >= compression) return 1.0;
+		return (Math.sin(scale * Math.PI / compression - Math.PI / 2.0) + 1.0) / 2.0;
+	}
+
+	/**
+	 * Sorts the means (and the weights along with them) in [low, high].
+	 */
+	private static void sort(double[] means, double[] weights, int low, int high) {
+		while(high - low > 16) {
+			double pivot = means[(low + high) >>> 1];
+			int left = low, right = high;
+			while(left <= right) {
+				while(means[left] < pivot) left++;
+				while(means[right] > pivot) right--;
+				if(left <= right) {
+					swap(means, weights, left, right);
+					left++;
+					right--;
+				}
+			}
+			// Recurse into the smaller part, iterate on the larger one
+			if(right - low < high - left) {
+				sort(means, weights, low, right);
+				low = left;
+			}
+			else {
+				sort(means, weights, left, high);
+				high = right;
+			}
+		}
+		for(int i=low+1; i<=high; i++) {
+			for(int j=i; j>low && means[j-1] > means[j]; j--) swap(means, weights, j-1, j);
+		}
+	}
+
+	private static void swap(double[] means, double[] weights, int i, int j) {
+		double mean		= means[i];
+		means[i]		= means[j];
+		means[j]		= mean;
+
+		double weight	= weights[i];
+		weights[i]		= weights[j];
+		weights[j]		= weight;
+	}
+}